@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.Transform4f;
+import net.smert.frameworkgl.math.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+public class AABBUtilitiesBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private AABB[] localAabbs;
+    private AABB[] worldAabbs;
+    private Transform4f[] worldTransforms;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(seed);
+        localAabbs = new AABB[size];
+        worldAabbs = new AABB[size];
+        worldTransforms = Scenes.CreateRandomTransforms(random, size);
+
+        // Local AABBs are centered around the origin like most meshes
+        for (int i = 0; i < size; i++) {
+            float extent = Scenes.MIN_EXTENT + random.nextFloat() * (Scenes.MAX_EXTENT - Scenes.MIN_EXTENT);
+            localAabbs[i] = new AABB(new Vector3f(-extent, -extent, -extent), new Vector3f(extent, extent, extent));
+            worldAabbs[i] = new AABB();
+        }
+    }
+
+    @Benchmark
+    public void transform(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            AABBUtilities.Transform(localAabbs[i], worldTransforms[i], worldAabbs[i]);
+        }
+        blackhole.consume(worldAabbs);
+    }
+
+    @Benchmark
+    public void transformWithMargin(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            AABBUtilities.Transform(localAabbs[i], .1f, worldTransforms[i], worldAabbs[i]);
+        }
+        blackhole.consume(worldAabbs);
+    }
+
+}
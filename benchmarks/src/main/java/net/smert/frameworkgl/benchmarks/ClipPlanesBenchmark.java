@@ -0,0 +1,91 @@
+/**
+ * Copyright 2016 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.ClipPlanes;
+import net.smert.frameworkgl.math.Matrix4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+public class ClipPlanesBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private float[] packedAabbs;
+    private int[] visibleIndexes;
+    private AABB[] aabbs;
+    private ClipPlanes clipPlanes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(seed);
+        aabbs = Scenes.CreateRandomAabbs(random, size);
+        packedAabbs = new float[size * AABBUtilities.AABB_STRIDE];
+        visibleIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            aabbs[i].toArray(packedAabbs, i * AABBUtilities.AABB_STRIDE);
+        }
+
+        // Camera at the origin looking down -Z so part of the scene is visible
+        Matrix4f projection = new Matrix4f();
+        projection.setPerspective(70f, 16f / 9f, .05f, Scenes.WORLD_SIZE);
+        clipPlanes = new ClipPlanes();
+        projection.extractPlanes(clipPlanes);
+        clipPlanes.normalize();
+    }
+
+    @Benchmark
+    public int planeAABBEquation() {
+        int visible = 0;
+        for (int i = 0; i < size; i++) {
+            AABB aabb = aabbs[i];
+            if (clipPlanes.planeAABBEquation(aabb.getMin(), aabb.getMax())) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int planeAABBEquationPacked() {
+        return clipPlanes.planeAABBEquation(packedAabbs, 0, size, visibleIndexes, 0);
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2016 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.smert.frameworkgl.collision.broadphase.BroadphaseProxy;
+import net.smert.frameworkgl.collision.broadphase.BroadphaseQueryCallback;
+import net.smert.frameworkgl.collision.broadphase.CollisionGroups;
+import net.smert.frameworkgl.collision.broadphase.DefaultOverlappingPairFilterCallback;
+import net.smert.frameworkgl.collision.broadphase.DynamicAABBTreeBroadphase;
+import net.smert.frameworkgl.collision.broadphase.IndexedOverlappingPairCache;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+public class DynamicAABBTreeBroadphaseBenchmark {
+
+    private final static int QUERIES = 256;
+    private final static float MOVE_DISTANCE = 1f;
+    private final static float MOVING_RATIO = .1f;
+    private final static float QUERY_EXTENT = 25f;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private int movingProxies;
+    private int queryHits;
+    private float moveDirection;
+    private AABB[] aabbs;
+    private AABB[] queryAabbs;
+    private AABB movedAabb;
+    private BroadphaseProxy[] proxies;
+    private final BroadphaseQueryCallback queryCallback = (BroadphaseProxy broadphaseProxy) -> {
+        queryHits++;
+        return true;
+    };
+    private DynamicAABBTreeBroadphase tree;
+
+    private DynamicAABBTreeBroadphase createTree(boolean bulkBuild) {
+        DynamicAABBTreeBroadphase newTree = new DynamicAABBTreeBroadphase(
+                new IndexedOverlappingPairCache(new DefaultOverlappingPairFilterCallback()));
+        if (bulkBuild) {
+            newTree.beginBulkBuild();
+        }
+        for (int i = 0; i < size; i++) {
+            proxies[i] = newTree.createProxy(null, CollisionGroups.GROUP1, CollisionGroups.GROUP1, aabbs[i]);
+        }
+        if (bulkBuild) {
+            newTree.endBulkBuild();
+        }
+        return newTree;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(seed);
+        movingProxies = (int) (size * MOVING_RATIO);
+        aabbs = Scenes.CreateRandomAabbs(random, size);
+        queryAabbs = new AABB[QUERIES];
+        movedAabb = new AABB();
+        proxies = new BroadphaseProxy[size];
+
+        for (int i = 0; i < QUERIES; i++) {
+            AABB aabb = Scenes.CreateRandomAabbs(random, 1)[0];
+            aabb.expand(new Vector3f(QUERY_EXTENT, QUERY_EXTENT, QUERY_EXTENT));
+            queryAabbs[i] = aabb;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        moveDirection = MOVE_DISTANCE;
+        tree = createTree(true);
+        tree.updateOverlappingPairs();
+    }
+
+    @Benchmark
+    public DynamicAABBTreeBroadphase bulkBuild() {
+        return createTree(true);
+    }
+
+    @Benchmark
+    public DynamicAABBTreeBroadphase incrementalBuild() {
+        return createTree(false);
+    }
+
+    @Benchmark
+    public int moveAndUpdateOverlappingPairs() {
+
+        // Move the same proxies back and forth so the scene doesn't drift between invocations
+        for (int i = 0; i < movingProxies; i++) {
+            AABB aabb = aabbs[i];
+            movedAabb.setMin(aabb.getMin().getX() + moveDirection, aabb.getMin().getY(), aabb.getMin().getZ());
+            movedAabb.setMax(aabb.getMax().getX() + moveDirection, aabb.getMax().getY(), aabb.getMax().getZ());
+            tree.moveProxy(proxies[i], movedAabb);
+        }
+        moveDirection = (moveDirection > 0f) ? 0f : MOVE_DISTANCE;
+        tree.updateOverlappingPairs();
+        return tree.getNodeSize();
+    }
+
+    @Benchmark
+    public int queryAabb() {
+        queryHits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            tree.queryAabb(queryAabbs[i], queryCallback);
+        }
+        return queryHits;
+    }
+
+}
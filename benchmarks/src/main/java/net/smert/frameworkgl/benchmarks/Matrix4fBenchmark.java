@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.smert.frameworkgl.math.Matrix4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+public class Matrix4fBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private Matrix4f[] lefts;
+    private Matrix4f[] outs;
+    private Matrix4f[] rights;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(seed);
+        lefts = Scenes.CreateRandomMatrices(random, size);
+        rights = Scenes.CreateRandomMatrices(random, size);
+        outs = Scenes.CreateRandomMatrices(random, size);
+    }
+
+    @Benchmark
+    public void multiply(Blackhole blackhole) {
+
+        // Multiply in place into the out matrices so the inputs stay the same every invocation
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(outs[i].set(lefts[i]).multiply(rights[i]));
+        }
+    }
+
+    @Benchmark
+    public void multiplyOut(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            lefts[i].multiplyOut(rights[i], outs[i]);
+        }
+        blackhole.consume(outs);
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.benchmarks;
+
+import java.util.Random;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.Matrix4f;
+import net.smert.frameworkgl.math.Transform4f;
+import net.smert.frameworkgl.math.Vector3f;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class Scenes {
+
+    public final static float MAX_EXTENT = 4f;
+    public final static float MIN_EXTENT = .5f;
+    public final static float WORLD_SIZE = 1000f;
+
+    private Scenes() {
+    }
+
+    private static float NextFloat(Random random, float min, float max) {
+        return min + random.nextFloat() * (max - min);
+    }
+
+    public static AABB[] CreateRandomAabbs(Random random, int count) {
+        AABB[] aabbs = new AABB[count];
+        float halfWorldSize = WORLD_SIZE * .5f;
+
+        for (int i = 0; i < count; i++) {
+            float x = NextFloat(random, -halfWorldSize, halfWorldSize);
+            float y = NextFloat(random, -halfWorldSize, halfWorldSize);
+            float z = NextFloat(random, -halfWorldSize, halfWorldSize);
+            float extentX = NextFloat(random, MIN_EXTENT, MAX_EXTENT);
+            float extentY = NextFloat(random, MIN_EXTENT, MAX_EXTENT);
+            float extentZ = NextFloat(random, MIN_EXTENT, MAX_EXTENT);
+            aabbs[i] = new AABB(
+                    new Vector3f(x - extentX, y - extentY, z - extentZ),
+                    new Vector3f(x + extentX, y + extentY, z + extentZ));
+        }
+
+        return aabbs;
+    }
+
+    public static Matrix4f[] CreateRandomMatrices(Random random, int count) {
+        Matrix4f[] matrices = new Matrix4f[count];
+        Transform4f[] transforms = CreateRandomTransforms(random, count);
+
+        for (int i = 0; i < count; i++) {
+            matrices[i] = new Matrix4f();
+            matrices[i].set(transforms[i]);
+        }
+
+        return matrices;
+    }
+
+    public static Transform4f[] CreateRandomTransforms(Random random, int count) {
+        Transform4f[] transforms = new Transform4f[count];
+        Vector3f axis = new Vector3f();
+        float halfWorldSize = WORLD_SIZE * .5f;
+
+        for (int i = 0; i < count; i++) {
+            axis.set(NextFloat(random, -1f, 1f), NextFloat(random, -1f, 1f), NextFloat(random, -1f, 1f) + 2f);
+            axis.normalize();
+            transforms[i] = new Transform4f();
+            transforms[i].fromAxisAngle(axis, NextFloat(random, 0f, 360f));
+            transforms[i].setPosition(
+                    NextFloat(random, -halfWorldSize, halfWorldSize),
+                    NextFloat(random, -halfWorldSize, halfWorldSize),
+                    NextFloat(random, -halfWorldSize, halfWorldSize));
+        }
+
+        return transforms;
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.constants.Primitives;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.Tessellator;
+import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.PicoBuilder;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+public class TessellatorBenchmark {
+
+    // Number of quads
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private float[] heights;
+    private Tessellator tessellator;
+
+    private void addQuads(int primitiveMode) {
+        int columns = (int) Math.ceil(Math.sqrt(size));
+        tessellator.reset();
+        tessellator.start(primitiveMode);
+        for (int i = 0; i < size; i++) {
+            float x = i % columns;
+            float z = i / columns;
+            tessellator.addNormal(0f, 1f, 0f);
+            tessellator.addTexCoord(0f, 0f);
+            tessellator.addVertex(x, heights[i], z);
+            tessellator.addNormal(0f, 1f, 0f);
+            tessellator.addTexCoord(1f, 0f);
+            tessellator.addVertex(x + 1f, heights[i], z);
+            tessellator.addNormal(0f, 1f, 0f);
+            tessellator.addTexCoord(1f, 1f);
+            tessellator.addVertex(x + 1f, heights[i], z + 1f);
+            tessellator.addNormal(0f, 1f, 0f);
+            tessellator.addTexCoord(0f, 1f);
+            tessellator.addVertex(x, heights[i], z + 1f);
+        }
+        tessellator.stop();
+    }
+
+    @Setup
+    public void setup() {
+
+        // Only the mesh classes the tessellator creates are needed which don't require a GL context
+        MutablePicoContainer meshFactoryContainer = new PicoBuilder().withConstructorInjection().build();
+        meshFactoryContainer.addComponent(RenderableConfiguration.class);
+        meshFactoryContainer.addComponent(Segment.class);
+        GL.meshFactory = new MeshFactory(meshFactoryContainer);
+
+        Random random = new Random(seed);
+        heights = new float[size];
+        for (int i = 0; i < size; i++) {
+            heights[i] = random.nextFloat();
+        }
+        tessellator = new Tessellator();
+    }
+
+    @Benchmark
+    public Segment quadsConvertedToTriangles() {
+
+        // Each quad goes through the conversion state
+        addQuads(Primitives.QUADS);
+        return tessellator.createSegment("triangles");
+    }
+
+    @Benchmark
+    public Segment quadsNotConverted() {
+        tessellator.setConvertToTriangles(false);
+        addQuads(Primitives.QUADS);
+        tessellator.setConvertToTriangles(true);
+        return tessellator.createSegment("quads");
+    }
+
+}
@@ -14,16 +14,21 @@ package net.smert.frameworkgl;
 
 import java.io.IOException;
 import java.util.logging.SimpleFormatter;
+import net.smert.frameworkgl.collision.AABBUpdater;
 import net.smert.frameworkgl.collision.CollisionGameObject;
 import net.smert.frameworkgl.collision.CollisionWorld;
+import net.smert.frameworkgl.collision.MeshAABBUpdater;
 import net.smert.frameworkgl.collision.broadphase.BroadphaseAlgorithm;
 import net.smert.frameworkgl.collision.broadphase.DefaultOverlappingPairFilterCallback;
 import net.smert.frameworkgl.collision.broadphase.DynamicAABBTreeBroadphase;
 import net.smert.frameworkgl.collision.broadphase.HashedOverlappingPairCache;
+import net.smert.frameworkgl.collision.broadphase.IndexedOverlappingPairCache;
 import net.smert.frameworkgl.collision.broadphase.OverlappingPairCache;
 import net.smert.frameworkgl.collision.broadphase.OverlappingPairFilterCallback;
 import net.smert.frameworkgl.collision.broadphase.SimpleBroadphase;
+import net.smert.frameworkgl.collision.broadphase.SweepAndPruneBroadphase;
 import net.smert.frameworkgl.collision.factory.CollisionFactory;
+import net.smert.frameworkgl.collision.island.IslandManager;
 import net.smert.frameworkgl.collision.narrowphase.DefaultNarrowphaseFilterCallback;
 import net.smert.frameworkgl.collision.narrowphase.NarrowphaseDispatch;
 import net.smert.frameworkgl.collision.narrowphase.NarrowphaseFilterCallback;
@@ -31,6 +36,7 @@ import net.smert.frameworkgl.collision.response.CollisionResolver;
 import net.smert.frameworkgl.collision.response.CollisionResponseFilterCallback;
 import net.smert.frameworkgl.collision.response.DefaultCollisionResponseFilterCallback;
 import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.gameobjects.TransformAABBStore;
 import net.smert.frameworkgl.gameobjects.factory.GameObjectFactory;
 import net.smert.frameworkgl.helpers.KeyboardHelper;
 import net.smert.frameworkgl.helpers.MouseHelper;
@@ -70,6 +76,7 @@ import net.smert.frameworkgl.opengl.camera.Camera;
 import net.smert.frameworkgl.opengl.camera.CameraController;
 import net.smert.frameworkgl.opengl.camera.FrustumCullingClipSpace;
 import net.smert.frameworkgl.opengl.camera.FrustumCullingClipSpaceSymmetrical;
+import net.smert.frameworkgl.opengl.camera.FrustumCullingTree;
 import net.smert.frameworkgl.opengl.camera.LegacyCamera;
 import net.smert.frameworkgl.opengl.camera.LegacyCameraController;
 import net.smert.frameworkgl.opengl.camera.factory.CameraFactory;
@@ -86,6 +93,7 @@ import net.smert.frameworkgl.opengl.helpers.RenderBufferObjectHelper;
 import net.smert.frameworkgl.opengl.helpers.ShaderHelper;
 import net.smert.frameworkgl.opengl.helpers.ShaderUniformHelper;
 import net.smert.frameworkgl.opengl.helpers.TextureHelper;
+import net.smert.frameworkgl.opengl.helpers.UniformBufferObjectHelper;
 import net.smert.frameworkgl.opengl.helpers.VertexArrayHelper;
 import net.smert.frameworkgl.opengl.helpers.VertexArrayObjectHelper;
 import net.smert.frameworkgl.opengl.helpers.VertexBufferObjectHelper;
@@ -99,10 +107,12 @@ import net.smert.frameworkgl.opengl.mesh.DrawCommandsConversion;
 import net.smert.frameworkgl.opengl.mesh.DynamicMeshBuilder;
 import net.smert.frameworkgl.opengl.mesh.Mesh;
 import net.smert.frameworkgl.opengl.mesh.MeshMaterial;
+import net.smert.frameworkgl.opengl.mesh.MeshOptimizer;
 import net.smert.frameworkgl.opengl.mesh.MeshReader;
 import net.smert.frameworkgl.opengl.mesh.Segment;
 import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
 import net.smert.frameworkgl.opengl.mesh.Tessellator;
+import net.smert.frameworkgl.opengl.mesh.VertexWelder;
 import net.smert.frameworkgl.opengl.mesh.dynamic.AABB;
 import net.smert.frameworkgl.opengl.mesh.dynamic.CubeMap;
 import net.smert.frameworkgl.opengl.mesh.dynamic.PrimitiveCapsule;
@@ -118,8 +128,11 @@ import net.smert.frameworkgl.opengl.mesh.dynamic.PrimitiveToriod;
 import net.smert.frameworkgl.opengl.mesh.dynamic.SimpleOrientationAxis;
 import net.smert.frameworkgl.opengl.mesh.dynamic.ViewFrustum;
 import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import net.smert.frameworkgl.opengl.model.baked.BakedMeshReader;
+import net.smert.frameworkgl.opengl.model.baked.BakedMeshWriter;
 import net.smert.frameworkgl.opengl.model.obj.MaterialReader;
 import net.smert.frameworkgl.opengl.model.obj.ObjReader;
+import net.smert.frameworkgl.opengl.model.obj.StreamingObjReader;
 import net.smert.frameworkgl.opengl.pipeline.DeferredLightingPipeline;
 import net.smert.frameworkgl.opengl.pipeline.DeferredRenderingPipeline;
 import net.smert.frameworkgl.opengl.pipeline.ForwardRenderingPipeline;
@@ -148,6 +161,8 @@ import net.smert.frameworkgl.opengl.renderable.gl2.VertexBufferObjectInterleaved
 import net.smert.frameworkgl.opengl.renderable.gl2.VertexBufferObjectNonInterleavedGL2Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.DynamicVertexArrayObjectInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.DynamicVertexArrayObjectNonInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.gl3.InstancedVertexArrayObjectInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.gl3.InstancedVertexArrayObjectNonInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.VertexArrayObjectInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.VertexArrayObjectNonInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.immediatemode.ImmediateModeRenderCall;
@@ -169,8 +184,10 @@ import net.smert.frameworkgl.opengl.renderable.va.VertexArrays;
 import net.smert.frameworkgl.opengl.renderable.va.factory.VADrawCallFactory;
 import net.smert.frameworkgl.opengl.renderable.vbo.ByteBuffers;
 import net.smert.frameworkgl.opengl.renderable.vbo.VBODrawArrays;
+import net.smert.frameworkgl.opengl.renderable.vbo.VBODrawArraysInstanced;
 import net.smert.frameworkgl.opengl.renderable.vbo.VBODrawCallBuilder;
 import net.smert.frameworkgl.opengl.renderable.vbo.VBODrawElements;
+import net.smert.frameworkgl.opengl.renderable.vbo.VBODrawElementsInstanced;
 import net.smert.frameworkgl.opengl.renderable.vbo.VBODrawRangeElements;
 import net.smert.frameworkgl.opengl.renderable.vbo.factory.VBODrawCallFactory;
 import net.smert.frameworkgl.opengl.renderer.AngelCodeFontRenderer;
@@ -182,6 +199,7 @@ import net.smert.frameworkgl.opengl.renderer.RendererGL3;
 import net.smert.frameworkgl.opengl.renderer.factory.RendererFactory;
 import net.smert.frameworkgl.opengl.shader.DefaultAttribLocations;
 import net.smert.frameworkgl.opengl.shader.ShaderBuilder;
+import net.smert.frameworkgl.opengl.shader.UniformBuffers;
 import net.smert.frameworkgl.opengl.shader.UniformVariables;
 import net.smert.frameworkgl.opengl.texture.TextureBuilder;
 import net.smert.frameworkgl.opengl.texture.TextureReader;
@@ -223,13 +241,17 @@ public class Bootstrap {
             collisionFactoryContainer.addComponent(CollisionGameObject.class);
             collisionFactoryContainer.addComponent(CollisionResolver.class);
             collisionFactoryContainer.addComponent(CollisionWorld.class);
+            collisionFactoryContainer.addComponent(IslandManager.class);
+            collisionFactoryContainer.addComponent(AABBUpdater.class, MeshAABBUpdater.class);
             collisionFactoryContainer.addComponent(CollisionResponseFilterCallback.class, DefaultCollisionResponseFilterCallback.class);
             collisionFactoryContainer.addComponent(NarrowphaseFilterCallback.class, DefaultNarrowphaseFilterCallback.class);
             collisionFactoryContainer.addComponent(OverlappingPairFilterCallback.class, DefaultOverlappingPairFilterCallback.class);
             collisionFactoryContainer.addComponent(BroadphaseAlgorithm.class, DynamicAABBTreeBroadphase.class);
-            collisionFactoryContainer.addComponent(OverlappingPairCache.class, HashedOverlappingPairCache.class);
+            collisionFactoryContainer.addComponent(OverlappingPairCache.class, IndexedOverlappingPairCache.class);
+            collisionFactoryContainer.addComponent(HashedOverlappingPairCache.class);
             collisionFactoryContainer.addComponent(NarrowphaseDispatch.class);
             collisionFactoryContainer.addComponent(SimpleBroadphase.class);
+            collisionFactoryContainer.addComponent(SweepAndPruneBroadphase.class);
 
             // Add container for CollisionFactory
             parentContainer.addComponent("collisionFactoryContainer", collisionFactoryContainer);
@@ -242,6 +264,7 @@ public class Bootstrap {
 
             // Framework multiple instance components
             gameObjectFactoryContainer.addComponent(GameObject.class);
+            gameObjectFactoryContainer.addComponent(TransformAABBStore.class);
 
             // Add container for GameObjectFactory
             parentContainer.addComponent("gameObjectFactoryContainer", gameObjectFactoryContainer);
@@ -295,6 +318,7 @@ public class Bootstrap {
             cameraFactoryContainer.addComponent(CameraController.class);
             cameraFactoryContainer.addComponent(FrustumCullingClipSpace.class);
             cameraFactoryContainer.addComponent(FrustumCullingClipSpaceSymmetrical.class);
+            cameraFactoryContainer.addComponent(FrustumCullingTree.class);
             cameraFactoryContainer.addComponent(LegacyCamera.class);
             cameraFactoryContainer.addComponent(LegacyCameraController.class);
 
@@ -393,6 +417,8 @@ public class Bootstrap {
             // Renderable
             renderableFactoryGL3Container.addComponent(DynamicVertexArrayObjectInterleavedGL3Renderable.class);
             renderableFactoryGL3Container.addComponent(DynamicVertexArrayObjectNonInterleavedGL3Renderable.class);
+            renderableFactoryGL3Container.addComponent(InstancedVertexArrayObjectInterleavedGL3Renderable.class);
+            renderableFactoryGL3Container.addComponent(InstancedVertexArrayObjectNonInterleavedGL3Renderable.class);
             renderableFactoryGL3Container.addComponent(VertexArrayObjectInterleavedGL3Renderable.class);
             renderableFactoryGL3Container.addComponent(VertexArrayObjectNonInterleavedGL3Renderable.class);
 
@@ -460,7 +486,9 @@ public class Bootstrap {
 
             // Renderable VBO
             vboDrawCallFactoryContainer.addComponent(VBODrawArrays.class);
+            vboDrawCallFactoryContainer.addComponent(VBODrawArraysInstanced.class);
             vboDrawCallFactoryContainer.addComponent(VBODrawElements.class);
+            vboDrawCallFactoryContainer.addComponent(VBODrawElementsInstanced.class);
             vboDrawCallFactoryContainer.addComponent(VBODrawRangeElements.class);
 
             // Add container for VBODrawCallFactory
@@ -549,6 +577,7 @@ public class Bootstrap {
         container.addComponent(ShaderHelper.class);
         container.addComponent(ShaderUniformHelper.class);
         container.addComponent(TextureHelper.class);
+        container.addComponent(UniformBufferObjectHelper.class);
         container.addComponent(VertexArrayHelper.class);
         container.addComponent(VertexArrayObjectHelper.class);
         container.addComponent(VertexBufferObjectHelper.class);
@@ -564,15 +593,20 @@ public class Bootstrap {
         // Mesh
         container.addComponent(DrawCommandsConversion.class);
         container.addComponent(DynamicMeshBuilder.class);
+        container.addComponent(MeshOptimizer.class);
         container.addComponent(MeshReader.class);
         container.addComponent(Tessellator.class);
+        container.addComponent(VertexWelder.class);
 
         // Mesh factory
         container.as(Characteristics.USE_NAMES).addComponent(MeshFactory.class);
 
         // Model
+        container.addComponent(BakedMeshReader.class);
+        container.addComponent(BakedMeshWriter.class);
         container.addComponent(MaterialReader.class);
         container.addComponent(ObjReader.class);
+        container.addComponent(StreamingObjReader.class);
 
         // Pipeline factory
         container.as(Characteristics.USE_NAMES).addComponent(RenderingPipelineFactory.class);
@@ -630,6 +664,7 @@ public class Bootstrap {
         // Shader
         container.addComponent(DefaultAttribLocations.class);
         container.addComponent(ShaderBuilder.class);
+        container.addComponent(UniformBuffers.class);
         container.addComponent(UniformVariables.class);
 
         // Texture
@@ -665,6 +700,7 @@ public class Bootstrap {
     protected void createStaticOpenGL(MutablePicoContainer container) {
         GL.angelCodeFontBuilder = container.getComponent(AngelCodeFontBuilder.class);
         GL.awtFontBuilder = container.getComponent(AwtFontBuilder.class);
+        GL.bakedMeshWriter = container.getComponent(BakedMeshWriter.class);
         GL.bufferHelper = container.getComponent(BufferHelper.class);
         GL.cameraFactory = container.getComponent(CameraFactory.class);
         GL.defaultAttribLocations = container.getComponent(DefaultAttribLocations.class);
@@ -676,6 +712,7 @@ public class Bootstrap {
         GL.matrixHelper = container.getComponent(MatrixHelper.class);
         GL.meshReader = container.getComponent(MeshReader.class);
         GL.meshFactory = container.getComponent(MeshFactory.class);
+        GL.meshOptimizer = container.getComponent(MeshOptimizer.class);
         GL.o1 = container.getComponent(OpenGL1.class);
         GL.o2 = container.getComponent(OpenGL2.class);
         GL.o3 = container.getComponent(OpenGL3.class);
@@ -696,10 +733,13 @@ public class Bootstrap {
         GL.textureBuilder = container.getComponent(TextureBuilder.class);
         GL.textureHelper = container.getComponent(TextureHelper.class);
         GL.textureReader = container.getComponent(TextureReader.class);
+        GL.uboHelper = container.getComponent(UniformBufferObjectHelper.class);
+        GL.uniformBuffers = container.getComponent(UniformBuffers.class);
         GL.uniformVariables = container.getComponent(UniformVariables.class);
         GL.vaHelper = container.getComponent(VertexArrayHelper.class);
         GL.vaoHelper = container.getComponent(VertexArrayObjectHelper.class);
         GL.vboHelper = container.getComponent(VertexBufferObjectHelper.class);
+        GL.vertexWelder = container.getComponent(VertexWelder.class);
     }
 
     protected void createStaticRenderable(MutablePicoContainer container) {
@@ -757,7 +797,8 @@ public class Bootstrap {
         openal.setListener(alFactoryContainer.getComponent(OpenALListener.class));
 
         // Register extensions
-        meshReader.registerExtension("obj", container.getComponent(ObjReader.class));
+        meshReader.registerExtension("bmesh", container.getComponent(BakedMeshReader.class));
+        meshReader.registerExtension("obj", container.getComponent(StreamingObjReader.class));
         textureReader.registerExtension("bmp", container.getComponent(BMPReader.class));
         textureReader.registerExtension("gif", container.getComponent(GIFReader.class));
         textureReader.registerExtension("jpeg", container.getComponent(JPGReader.class));
@@ -439,6 +439,10 @@ public class Files {
             return relativePath;
         }
 
+        public boolean isFile() {
+            return (fileType == FileType.FILE);
+        }
+
         public InputStream openStream() throws IOException {
             switch (fileType) {
                 case FILE:
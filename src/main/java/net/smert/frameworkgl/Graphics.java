@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.gameobjects.TransformAABBStore;
 import net.smert.frameworkgl.math.AABB;
 import net.smert.frameworkgl.math.AABBUtilities;
 import net.smert.frameworkgl.math.Transform4f;
@@ -365,6 +366,14 @@ public class Graphics implements GLRenderer {
         }
     }
 
+    public void updateAabb(TransformAABBStore transformAABBStore) {
+        transformAABBStore.updateGameObjects();
+    }
+
+    public void updateAabb(TransformAABBStore transformAABBStore, float margin) {
+        transformAABBStore.updateGameObjects(margin);
+    }
+
     @Override
     public void color(float r, float g, float b, float a) {
         renderer.color(r, g, b, a);
@@ -530,8 +539,8 @@ public class Graphics implements GLRenderer {
             // Both objects are not opaque
             Vector3f o1Position = o1.getWorldTransform().getPosition();
             Vector3f o2Position = o2.getWorldTransform().getPosition();
-            return (int) cameraPosition.distanceSquared(o2Position)
-                    - (int) cameraPosition.distanceSquared(o1Position);
+            return Float.compare(cameraPosition.distanceSquared(o2Position),
+                    cameraPosition.distanceSquared(o1Position));
         }
 
     }
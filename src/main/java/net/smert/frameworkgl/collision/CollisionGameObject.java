@@ -16,6 +16,7 @@ import net.smert.frameworkgl.collision.broadphase.BroadphaseProxy;
 import net.smert.frameworkgl.collision.narrowphase.Contact;
 import net.smert.frameworkgl.collision.shapes.ShapeType;
 import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.math.AABB;
 import net.smert.frameworkgl.math.MathHelper;
 import net.smert.frameworkgl.math.Vector3f;
 
@@ -26,6 +27,7 @@ import net.smert.frameworkgl.math.Vector3f;
 public class CollisionGameObject extends GameObject {
 
     private boolean awake;
+    private boolean bullet;
     private boolean canSleep;
     private boolean enabled;
     private boolean hasContactResponse;
@@ -33,18 +35,22 @@ public class CollisionGameObject extends GameObject {
     private float inverseMass;
     private float linearDamping;
     private float restitution;
+    private float sleepTime;
     private int collisionGroup;
     private int collisionCollidesWith;
     private BroadphaseProxy broadphaseProxy;
     private ShapeType shapeType;
+    private final AABB sweptAabb;
     private final Vector3f linearAcceleration;
     private final Vector3f linearForce;
     private final Vector3f linearVelocity;
     private final Vector3f position;
+    private final Vector3f previousPosition;
 
     public CollisionGameObject() {
         super();
         awake = true;
+        bullet = false;
         canSleep = true;
         enabled = true;
         hasContactResponse = true;
@@ -52,12 +58,15 @@ public class CollisionGameObject extends GameObject {
         inverseMass = 0f;
         linearDamping = .99f;
         restitution = .1f;
+        sleepTime = 0f;
         collisionCollidesWith = 0;
         collisionGroup = 0;
+        sweptAabb = new AABB();
         linearAcceleration = new Vector3f();
         linearForce = new Vector3f();
         linearVelocity = new Vector3f();
         position = getWorldPosition(); // From game object
+        previousPosition = new Vector3f();
     }
 
     public void applyForce(Vector3f force) {
@@ -87,6 +96,9 @@ public class CollisionGameObject extends GameObject {
         awake = true;
     }
 
+    public void beginContactWith(CollisionGameObject other) {
+    }
+
     public boolean canSleep() {
         return canSleep;
     }
@@ -98,6 +110,9 @@ public class CollisionGameObject extends GameObject {
     public void collidedWith(CollisionGameObject other, Contact contact) {
     }
 
+    public void endContactWith(CollisionGameObject other) {
+    }
+
     public float getInverseMass() {
         return inverseMass;
     }
@@ -134,6 +149,22 @@ public class CollisionGameObject extends GameObject {
         this.restitution = restitution;
     }
 
+    public float getSleepTime() {
+        return sleepTime;
+    }
+
+    public void setSleepTime(float sleepTime) {
+        this.sleepTime = sleepTime;
+    }
+
+    public Vector3f getPreviousPosition() {
+        return previousPosition;
+    }
+
+    public AABB getSweptAabb() {
+        return sweptAabb;
+    }
+
     public int getCollisionGroup() {
         return collisionGroup;
     }
@@ -252,6 +283,14 @@ public class CollisionGameObject extends GameObject {
         this.awake = awake;
     }
 
+    public boolean isBullet() {
+        return bullet;
+    }
+
+    public void setBullet(boolean bullet) {
+        this.bullet = bullet;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -268,4 +307,44 @@ public class CollisionGameObject extends GameObject {
         this.staticObject = staticObject;
     }
 
+    public void persistContactWith(CollisionGameObject other) {
+    }
+
+    public boolean needsSweptCollision() {
+        return bullet && awake && !staticObject && (inverseMass != 0);
+    }
+
+    public void putToSleep() {
+        awake = false;
+        sleepTime = 0f;
+        linearForce.zero();
+        linearVelocity.zero();
+    }
+
+    public void savePreviousPosition() {
+        previousPosition.set(position);
+    }
+
+    public void updateSweptAabb() {
+        AABB worldAabb = getWorldAabb();
+
+        // World AABB at the previous position combined with the current one
+        float displacementX = position.getX() - previousPosition.getX();
+        float displacementY = position.getY() - previousPosition.getY();
+        float displacementZ = position.getZ() - previousPosition.getZ();
+        sweptAabb.setMin(
+                worldAabb.getMin().getX() - Math.max(displacementX, 0f),
+                worldAabb.getMin().getY() - Math.max(displacementY, 0f),
+                worldAabb.getMin().getZ() - Math.max(displacementZ, 0f));
+        sweptAabb.setMax(
+                worldAabb.getMax().getX() - Math.min(displacementX, 0f),
+                worldAabb.getMax().getY() - Math.min(displacementY, 0f),
+                worldAabb.getMax().getZ() - Math.min(displacementZ, 0f));
+    }
+
+    public void wakeUp() {
+        awake = true;
+        sleepTime = 0f;
+    }
+
 }
@@ -17,8 +17,14 @@ import java.util.List;
 import net.smert.frameworkgl.Fw;
 import net.smert.frameworkgl.collision.broadphase.BroadphaseAlgorithm;
 import net.smert.frameworkgl.collision.broadphase.BroadphaseProxy;
+import net.smert.frameworkgl.collision.broadphase.BroadphaseQueryCallback;
+import net.smert.frameworkgl.collision.broadphase.BroadphaseRayCallback;
+import net.smert.frameworkgl.collision.island.IslandManager;
 import net.smert.frameworkgl.collision.narrowphase.NarrowphaseDispatch;
 import net.smert.frameworkgl.collision.response.CollisionResolver;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.Ray;
+import net.smert.frameworkgl.math.Vector3f;
 import net.smert.frameworkgl.opengl.pipeline.PipelineRenderDebugCallback;
 
 /**
@@ -27,20 +33,39 @@ import net.smert.frameworkgl.opengl.pipeline.PipelineRenderDebugCallback;
  */
 public class CollisionWorld {
 
+    private AABBUpdater aabbUpdater;
     private final BroadphaseAlgorithm broadphase;
     private final CollisionResolver resolver;
+    private final IslandManager islandManager;
     private final List<CollisionGameObject> collisionGameObjects;
     private final NarrowphaseDispatch dispatch;
 
-    public CollisionWorld(BroadphaseAlgorithm broadphase, CollisionResolver resolver, NarrowphaseDispatch dispatch) {
+    public CollisionWorld(AABBUpdater aabbUpdater, BroadphaseAlgorithm broadphase, CollisionResolver resolver,
+            IslandManager islandManager, NarrowphaseDispatch dispatch) {
+        this.aabbUpdater = aabbUpdater;
         this.broadphase = broadphase;
         this.resolver = resolver;
+        this.islandManager = islandManager;
         this.dispatch = dispatch;
         collisionGameObjects = new ArrayList<>();
+        broadphase.getOverlappingPairCache().setOverlappingPairRemovedCallback(dispatch);
+    }
+
+    private void moveProxy(CollisionGameObject collisionGameObject) {
+
+        // Fast objects use the AABB swept over the step so the broadphase finds pairs they passed through
+        if (collisionGameObject.needsSweptCollision()) {
+            collisionGameObject.updateSweptAabb();
+            broadphase.moveProxy(collisionGameObject.getBroadphaseProxy(), collisionGameObject.getSweptAabb());
+            return;
+        }
+
+        broadphase.moveProxy(collisionGameObject.getBroadphaseProxy(), collisionGameObject.getWorldAabb());
     }
 
     public void addCollisionGameObject(CollisionGameObject collisionGameObject) {
-        Fw.graphics.updateAabb(collisionGameObject);
+        collisionGameObject.savePreviousPosition();
+        aabbUpdater.updateAabb(collisionGameObject);
         BroadphaseProxy broadphaseProxy = broadphase.createProxy(collisionGameObject,
                 collisionGameObject.getCollisionGroup(), collisionGameObject.getCollisionCollidesWith(),
                 collisionGameObject.getWorldAabb());
@@ -52,10 +77,42 @@ public class CollisionWorld {
         broadphase.destroyDebugRender();
     }
 
+    public AABBUpdater getAabbUpdater() {
+        return aabbUpdater;
+    }
+
+    public void setAabbUpdater(AABBUpdater aabbUpdater) {
+        this.aabbUpdater = aabbUpdater;
+    }
+
+    public IslandManager getIslandManager() {
+        return islandManager;
+    }
+
+    public NarrowphaseDispatch getNarrowphaseDispatch() {
+        return dispatch;
+    }
+
     public PipelineRenderDebugCallback getPipelineRenderDebugCallback() {
         return broadphase.getPipelineRenderDebugCallback();
     }
 
+    public void queryAabb(AABB aabb, BroadphaseQueryCallback callback) {
+        broadphase.queryAabb(aabb, callback);
+    }
+
+    public void querySphere(Vector3f center, float radius, BroadphaseQueryCallback callback) {
+        broadphase.querySphere(center, radius, callback);
+    }
+
+    public float raycast(Ray ray, float maxFraction, BroadphaseRayCallback callback) {
+        return broadphase.raycast(ray, maxFraction, callback);
+    }
+
+    public void raycast(float[] rays, float[] maxFractions, int rayCount, BroadphaseRayCallback callback) {
+        broadphase.raycast(rays, maxFractions, rayCount, callback);
+    }
+
     public void removeCollisionGameObject(CollisionGameObject collisionGameObject) {
         BroadphaseProxy broadphaseProxy = collisionGameObject.getBroadphaseProxy();
         broadphase.removeProxy(broadphaseProxy);
@@ -63,11 +120,11 @@ public class CollisionWorld {
         collisionGameObjects.remove(collisionGameObject);
     }
 
-    public void update() {
+    public void step(float delta) {
 
         // Integrate
-        float delta = Fw.timer.getDelta();
         for (CollisionGameObject collisionGameObject : collisionGameObjects) {
+            collisionGameObject.savePreviousPosition();
             collisionGameObject.integrateSemiExplicitEuler(delta);
         }
 
@@ -81,18 +138,31 @@ public class CollisionWorld {
         dispatch.processOverlappingPairs(broadphase.getOverlappingPairCache());
 
         // Resolve collisions
-        resolver.processContacts(dispatch.getContactData());
+        resolver.processContacts(this, dispatch.getContactData(), delta);
+
+        // Put islands to sleep or wake them up
+        islandManager.updateIslands(collisionGameObjects, dispatch.getTouchingProxyIndexes(), delta);
+
+        // Contact begin, persist and end events
+        dispatch.getContactEvents().notifyCollisionGameObjects();
+    }
+
+    public void update() {
+        step(Fw.timer.getDelta());
     }
 
     public void updateAabb(CollisionGameObject collisionGameObject) {
-        Fw.graphics.updateAabb(collisionGameObject);
-        broadphase.moveProxy(collisionGameObject.getBroadphaseProxy(), collisionGameObject.getWorldAabb());
+        aabbUpdater.updateAabb(collisionGameObject);
+        moveProxy(collisionGameObject);
     }
 
     public void updateAabbs() {
+
+        // Update AABBs together so the updater can batch them
+        aabbUpdater.updateAabbs(collisionGameObjects);
         for (CollisionGameObject collisionGameObject : collisionGameObjects) {
-            if (!collisionGameObject.isStaticObject()) {
-                updateAabb(collisionGameObject);
+            if (!collisionGameObject.isStaticObject() && collisionGameObject.isAwake()) {
+                moveProxy(collisionGameObject);
             }
         }
     }
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class CollisionWorldScheduler {
+
+    private final ForkJoinPool forkJoinPool;
+    private final List<CollisionWorld> collisionWorlds;
+
+    public CollisionWorldScheduler(int parallelism) {
+        forkJoinPool = new ForkJoinPool(parallelism);
+        collisionWorlds = new ArrayList<>();
+    }
+
+    public void addCollisionWorld(CollisionWorld collisionWorld) {
+        collisionWorlds.add(collisionWorld);
+    }
+
+    public List<CollisionWorld> getCollisionWorlds() {
+        return collisionWorlds;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public int getParallelism() {
+        return forkJoinPool.getParallelism();
+    }
+
+    public void removeCollisionWorld(CollisionWorld collisionWorld) {
+        collisionWorlds.remove(collisionWorld);
+    }
+
+    public void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    public void step(float delta) {
+        if (collisionWorlds.isEmpty()) {
+            return;
+        }
+
+        // Worlds share nothing so each one can be stepped on any thread. Returns when all worlds have stepped.
+        forkJoinPool.invoke(new StepWorldsTask(0, collisionWorlds.size(), delta));
+    }
+
+    private class StepWorldsTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final float delta;
+        private final int first;
+        private final int last;
+
+        private StepWorldsTask(int first, int last, float delta) {
+            this.delta = delta;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                collisionWorlds.get(first).step(delta);
+                return;
+            }
+
+            int middle = (first + last) >>> 1;
+            invokeAll(new StepWorldsTask(first, middle, delta), new StepWorldsTask(middle, last, delta));
+        }
+
+    }
+
+}
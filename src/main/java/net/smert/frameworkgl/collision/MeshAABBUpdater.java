@@ -0,0 +1,39 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision;
+
+import java.util.List;
+import net.smert.frameworkgl.math.AABBUtilities;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class MeshAABBUpdater implements AABBUpdater {
+
+    @Override
+    public void updateAabb(CollisionGameObject collisionGameObject) {
+        AABBUtilities.Transform(collisionGameObject.getMesh().getAabb(), collisionGameObject.getWorldTransform(),
+                collisionGameObject.getWorldAabb());
+    }
+
+    @Override
+    public void updateAabbs(List<CollisionGameObject> collisionGameObjects) {
+        for (CollisionGameObject collisionGameObject : collisionGameObjects) {
+            if (!collisionGameObject.isStaticObject() && collisionGameObject.isAwake()) {
+                updateAabb(collisionGameObject);
+            }
+        }
+    }
+
+}
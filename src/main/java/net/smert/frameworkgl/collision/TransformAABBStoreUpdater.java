@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision;
+
+import java.util.List;
+import net.smert.frameworkgl.gameobjects.TransformAABBStore;
+import net.smert.frameworkgl.math.AABBUtilities;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class TransformAABBStoreUpdater implements AABBUpdater {
+
+    private final TransformAABBStore transformAABBStore;
+
+    public TransformAABBStoreUpdater(TransformAABBStore transformAABBStore) {
+        this.transformAABBStore = transformAABBStore;
+    }
+
+    public TransformAABBStore getTransformAABBStore() {
+        return transformAABBStore;
+    }
+
+    @Override
+    public void updateAabb(CollisionGameObject collisionGameObject) {
+
+        // Objects that aren't in the store are updated from their mesh
+        if (collisionGameObject.getTransformAABBStore() != transformAABBStore) {
+            AABBUtilities.Transform(collisionGameObject.getMesh().getAabb(), collisionGameObject.getWorldTransform(),
+                    collisionGameObject.getWorldAabb());
+            return;
+        }
+
+        int slot = collisionGameObject.getTransformAABBStoreSlot();
+        transformAABBStore.setWorldTransform(slot, collisionGameObject.getWorldTransform());
+        AABBUtilities.Transform(transformAABBStore.getLocalAabbs(), 0f, transformAABBStore.getWorldTransforms(),
+                transformAABBStore.getWorldAabbs(), slot, slot + 1);
+        transformAABBStore.getWorldAabb(slot, collisionGameObject.getWorldAabb());
+    }
+
+    @Override
+    public void updateAabbs(List<CollisionGameObject> collisionGameObjects) {
+
+        // Static and sleeping objects in the store keep their world AABB
+        for (CollisionGameObject collisionGameObject : collisionGameObjects) {
+            boolean active = !collisionGameObject.isStaticObject() && collisionGameObject.isAwake();
+            if (collisionGameObject.getTransformAABBStore() == transformAABBStore) {
+                transformAABBStore.setSlotActive(collisionGameObject.getTransformAABBStoreSlot(), active);
+            } else if (active) {
+                updateAabb(collisionGameObject);
+            }
+        }
+
+        // Awake objects in the store are updated in one pass
+        transformAABBStore.updateGameObjects();
+    }
+
+}
@@ -14,6 +14,8 @@ package net.smert.frameworkgl.collision.broadphase;
 
 import net.smert.frameworkgl.collision.CollisionGameObject;
 import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.Ray;
+import net.smert.frameworkgl.math.Vector3f;
 import net.smert.frameworkgl.opengl.pipeline.PipelineRenderDebugCallback;
 
 /**
@@ -33,6 +35,14 @@ public interface BroadphaseAlgorithm {
 
     public boolean moveProxy(BroadphaseProxy broadphaseProxy, AABB worldAabb);
 
+    public void queryAabb(AABB aabb, BroadphaseQueryCallback callback);
+
+    public void querySphere(Vector3f center, float radius, BroadphaseQueryCallback callback);
+
+    public float raycast(Ray ray, float maxFraction, BroadphaseRayCallback callback);
+
+    public void raycast(float[] rays, float[] maxFractions, int rayCount, BroadphaseRayCallback callback);
+
     public void removeProxy(BroadphaseProxy broadphaseProxy);
 
     public void updateOverlappingPairs();
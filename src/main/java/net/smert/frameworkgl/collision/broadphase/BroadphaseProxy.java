@@ -21,10 +21,15 @@ import net.smert.frameworkgl.collision.CollisionGameObject;
  */
 public class BroadphaseProxy {
 
+    int index;
     public int collisionGroup;
     public int collisionCollidesWith;
     public CollisionGameObject collisionGameObject;
 
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision.broadphase;
+
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.Ray;
+import net.smert.frameworkgl.math.Vector3f;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class BroadphaseQueries {
+
+    public final static float NO_HIT = -1f;
+    public final static int RAY_STRIDE = 6; // Origin x, y, z then direction x, y, z
+
+    public static float ClipRay(float maxFraction, float callbackFraction) {
+
+        // Negative values ignore the proxy and zero stops the ray
+        if (callbackFraction < 0f) {
+            return maxFraction;
+        }
+        return Math.min(maxFraction, callbackFraction);
+    }
+
+    public static boolean DoesSphereIntersectBounds(float centerX, float centerY, float centerZ, float radiusSquared,
+            float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float distanceSquared = 0f;
+        float distance;
+
+        // Distance from the center to the closest point in the bounds
+        if (centerX < minX) {
+            distance = minX - centerX;
+            distanceSquared += distance * distance;
+        } else if (centerX > maxX) {
+            distance = centerX - maxX;
+            distanceSquared += distance * distance;
+        }
+        if (centerY < minY) {
+            distance = minY - centerY;
+            distanceSquared += distance * distance;
+        } else if (centerY > maxY) {
+            distance = centerY - maxY;
+            distanceSquared += distance * distance;
+        }
+        if (centerZ < minZ) {
+            distance = minZ - centerZ;
+            distanceSquared += distance * distance;
+        } else if (centerZ > maxZ) {
+            distance = centerZ - maxZ;
+            distanceSquared += distance * distance;
+        }
+
+        return (distanceSquared <= radiusSquared);
+    }
+
+    public static boolean DoesSphereIntersectAabb(Vector3f center, float radius, AABB aabb) {
+        return DoesSphereIntersectBounds(center.getX(), center.getY(), center.getZ(), radius * radius,
+                aabb.getMin().getX(), aabb.getMin().getY(), aabb.getMin().getZ(),
+                aabb.getMax().getX(), aabb.getMax().getY(), aabb.getMax().getZ());
+    }
+
+    public static float RayFraction(float originX, float originY, float originZ, float inverseDirectionX,
+            float inverseDirectionY, float inverseDirectionZ, float maxFraction, float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ) {
+
+        // Slab test. Directions of zero give infinite inverses which only pass when the origin is in the slab.
+        float t0 = (minX - originX) * inverseDirectionX;
+        float t1 = (maxX - originX) * inverseDirectionX;
+        float tEnter = Math.min(t0, t1);
+        float tExit = Math.max(t0, t1);
+
+        t0 = (minY - originY) * inverseDirectionY;
+        t1 = (maxY - originY) * inverseDirectionY;
+        tEnter = Math.max(tEnter, Math.min(t0, t1));
+        tExit = Math.min(tExit, Math.max(t0, t1));
+
+        t0 = (minZ - originZ) * inverseDirectionZ;
+        t1 = (maxZ - originZ) * inverseDirectionZ;
+        tEnter = Math.max(tEnter, Math.min(t0, t1));
+        tExit = Math.min(tExit, Math.max(t0, t1));
+
+        // Also fails for NaN when the origin is exactly on a slab of a zero direction
+        if ((tEnter <= tExit) && (tExit >= 0f) && (tEnter <= maxFraction)) {
+            return Math.max(tEnter, 0f);
+        }
+        return NO_HIT;
+    }
+
+    public static float RayFraction(float[] rays, int ray, float[] inverseDirections, float maxFraction, AABB aabb) {
+        int offset = ray * RAY_STRIDE;
+        int offsetInverse = ray * 3;
+        return RayFraction(rays[offset], rays[offset + 1], rays[offset + 2], inverseDirections[offsetInverse],
+                inverseDirections[offsetInverse + 1], inverseDirections[offsetInverse + 2], maxFraction,
+                aabb.getMin().getX(), aabb.getMin().getY(), aabb.getMin().getZ(),
+                aabb.getMax().getX(), aabb.getMax().getY(), aabb.getMax().getZ());
+    }
+
+    public static void SetRay(float[] rays, int ray, Ray source) {
+        int offset = ray * RAY_STRIDE;
+        rays[offset] = source.getOrigin().getX();
+        rays[offset + 1] = source.getOrigin().getY();
+        rays[offset + 2] = source.getOrigin().getZ();
+        rays[offset + 3] = source.getDirection().getX();
+        rays[offset + 4] = source.getDirection().getY();
+        rays[offset + 5] = source.getDirection().getZ();
+    }
+
+    public static void SetInverseDirections(float[] rays, float[] inverseDirections, int rayCount) {
+        for (int i = 0; i < rayCount; i++) {
+            int offset = i * RAY_STRIDE;
+            inverseDirections[i * 3] = 1f / rays[offset + 3];
+            inverseDirections[i * 3 + 1] = 1f / rays[offset + 4];
+            inverseDirections[i * 3 + 2] = 1f / rays[offset + 5];
+        }
+    }
+
+}
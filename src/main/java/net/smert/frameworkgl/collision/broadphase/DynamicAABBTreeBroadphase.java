@@ -12,11 +12,15 @@
  */
 package net.smert.frameworkgl.collision.broadphase;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import net.smert.frameworkgl.Fw;
 import net.smert.frameworkgl.collision.CollisionGameObject;
 import net.smert.frameworkgl.gameobjects.AABBGameObject;
 import net.smert.frameworkgl.math.AABB;
-import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.ClipPlanes;
+import net.smert.frameworkgl.math.Ray;
 import net.smert.frameworkgl.math.Vector3f;
 import net.smert.frameworkgl.opengl.pipeline.PipelineRenderDebugCallback;
 import net.smert.frameworkgl.utils.StackInt;
@@ -29,13 +33,42 @@ import net.smert.frameworkgl.utils.ThreadLocalVars;
 public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
 
     public final static int NULL = -1;
+    private final static int BOUNDS_STRIDE = 6; // Min x, y, z then max x, y, z
+    private final static int FRUSTUM_OUTSIDE = -1;
+    private final static int SAH_BINS = 12;
 
+    private boolean bulkBuilding;
+    private float builtAreaRatio;
     private float displacementMultiplier;
-    private int capacity;
-    private int free;
+    private float qualityDegradeRatio;
+    private int parallelBuildThreshold;
+    private int qualityCheckInterval;
+    private int updatesSinceQualityCheck;
+    private int nodeCapacity;
+    private int nodeFree;
+    private int nodeSize;
+    private int proxyCapacity;
+    private int proxyFree;
+    private int proxySize;
     private int root;
-    private int size;
+    private float[] buildBounds; // Copy of the bounds of each leaf being built
+    private float[] buildCentroids; // Sum of min and max of each leaf being built
+    private final float[] frustumPlanes;
+    private float[] inverseDirections;
+    private float[] nodeBounds;
+    private final float[] queryMaxFractions;
+    private final float[] queryRays;
+    private int[] buildLeaves;
+    private int[] buildNodes; // Internal nodes for the leaves being built
+    private int[] nodeFrustumMasks; // Planes the node was on both sides of during the last frustum query
+    private int[] nodeFrustumPlanes; // Plane that last culled the node
+    private int[] nodeHeights;
+    private int[] nodeLefts;
+    private int[] nodeParents; // Also the next free node
+    private int[] nodeProxies; // Proxy index of leaf nodes
+    private int[] nodeRights;
     private DynamicAABBTreeBroadphaseProxy[] proxies;
+    private ForkJoinPool forkJoinPool;
     private final OverlappingPairCache overlappingPairCache;
     private final StackInt stackOfIndexes;
     private final Vector3f margin;
@@ -43,15 +76,41 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
     public DynamicAABBTreeBroadphase(OverlappingPairCache overlappingPairCache) {
         this.overlappingPairCache = overlappingPairCache;
 
+        bulkBuilding = false;
+        builtAreaRatio = 0f;
         displacementMultiplier = 2f;
-        capacity = 16;
-        free = 0;
+        qualityDegradeRatio = 1.5f;
+        parallelBuildThreshold = 4096;
+        qualityCheckInterval = 0; // Disabled
+        updatesSinceQualityCheck = 0;
+        nodeCapacity = 16;
+        nodeFree = 0;
+        nodeSize = 0;
+        proxyCapacity = 16;
+        proxyFree = 0;
+        proxySize = 0;
         root = NULL;
-        size = 0;
-        proxies = new DynamicAABBTreeBroadphaseProxy[capacity];
+        buildBounds = new float[0];
+        buildCentroids = new float[0];
+        frustumPlanes = new float[ClipPlanes.PLANES * ClipPlanes.PLANE_STRIDE];
+        inverseDirections = new float[3];
+        nodeBounds = new float[nodeCapacity * BOUNDS_STRIDE];
+        buildLeaves = new int[0];
+        buildNodes = new int[0];
+        nodeFrustumMasks = new int[nodeCapacity];
+        nodeFrustumPlanes = new int[nodeCapacity];
+        queryMaxFractions = new float[1];
+        queryRays = new float[BroadphaseQueries.RAY_STRIDE];
+        nodeHeights = new int[nodeCapacity];
+        nodeLefts = new int[nodeCapacity];
+        nodeParents = new int[nodeCapacity];
+        nodeProxies = new int[nodeCapacity];
+        nodeRights = new int[nodeCapacity];
+        proxies = new DynamicAABBTreeBroadphaseProxy[proxyCapacity];
         stackOfIndexes = new StackInt();
         margin = new Vector3f(.1f, .1f, .1f);
-        createProxies(free);
+        createNodes(nodeFree);
+        createProxies(proxyFree);
     }
 
     private void ascendFixingHeightAndAabb(int index) {
@@ -59,235 +118,231 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
             index = balance(index);
 
             assert (index >= 0);
-            assert (index < capacity);
+            assert (index < nodeCapacity);
 
-            DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
-
-            int indexLeft = proxy.left;
-            int indexRight = proxy.right;
+            int indexLeft = nodeLefts[index];
+            int indexRight = nodeRights[index];
 
             assert (indexLeft >= 0);
-            assert (indexLeft < capacity);
+            assert (indexLeft < nodeCapacity);
             assert (indexRight >= 0);
-            assert (indexRight < capacity);
+            assert (indexRight < nodeCapacity);
 
-            DynamicAABBTreeBroadphaseProxy proxyLeft = proxies[indexLeft];
-            DynamicAABBTreeBroadphaseProxy proxyRight = proxies[indexRight];
+            combineBounds(index, indexLeft, indexRight);
+            nodeHeights[index] = 1 + Math.max(nodeHeights[indexLeft], nodeHeights[indexRight]);
 
-            proxy.aabb.combine(proxyLeft.aabb, proxyRight.aabb);
-            proxy.height = 1 + Math.max(proxyLeft.height, proxyRight.height);
+            index = nodeParents[index];
+        }
+    }
 
-            index = proxy.parent;
+    private int allocateNode() {
+
+        // Expand node arrays
+        if (nodeFree == NULL) {
+            assert (nodeSize == nodeCapacity);
+            nodeCapacity *= 2;
+            nodeFree = nodeSize;
+            nodeBounds = Arrays.copyOf(nodeBounds, nodeCapacity * BOUNDS_STRIDE);
+            nodeFrustumMasks = Arrays.copyOf(nodeFrustumMasks, nodeCapacity);
+            nodeFrustumPlanes = Arrays.copyOf(nodeFrustumPlanes, nodeCapacity);
+            nodeHeights = Arrays.copyOf(nodeHeights, nodeCapacity);
+            nodeLefts = Arrays.copyOf(nodeLefts, nodeCapacity);
+            nodeParents = Arrays.copyOf(nodeParents, nodeCapacity);
+            nodeProxies = Arrays.copyOf(nodeProxies, nodeCapacity);
+            nodeRights = Arrays.copyOf(nodeRights, nodeCapacity);
+            createNodes(nodeFree);
         }
+
+        // Allocate node
+        int index = nodeFree;
+        nodeFree = nodeParents[index]; // Next free node
+        nodeSize++;
+
+        // Defaults
+        nodeFrustumPlanes[index] = 0;
+        nodeHeights[index] = 0; // Mark node in use
+        nodeLefts[index] = NULL;
+        nodeParents[index] = NULL; // Last free node
+        nodeProxies[index] = NULL;
+        nodeRights[index] = NULL;
+
+        return index;
     }
 
-    private int allocateProxy() {
+    private DynamicAABBTreeBroadphaseProxy allocateProxy() {
 
         // Expand proxies array
-        if (free == NULL) {
-            assert (size == capacity);
-            capacity *= 2;
-            free = size;
-            DynamicAABBTreeBroadphaseProxy[] newProxies = new DynamicAABBTreeBroadphaseProxy[capacity];
-            System.arraycopy(proxies, 0, newProxies, 0, size);
+        if (proxyFree == NULL) {
+            assert (proxySize == proxyCapacity);
+            proxyCapacity *= 2;
+            proxyFree = proxySize;
+            DynamicAABBTreeBroadphaseProxy[] newProxies = new DynamicAABBTreeBroadphaseProxy[proxyCapacity];
+            System.arraycopy(proxies, 0, newProxies, 0, proxySize);
             proxies = newProxies;
-            createProxies(free);
+            createProxies(proxyFree);
         }
 
         // Allocate proxy
-        int index = free;
+        int index = proxyFree;
         DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
-        free = proxy.parent; // Next free proxy
-        size++;
+        proxyFree = proxy.next; // Next free proxy
+        proxySize++;
 
         // Defaults
-        proxy.height = 0;
-        proxy.index = index;
-        proxy.left = NULL;
-        proxy.parent = NULL; // Last free proxy
-        proxy.right = NULL;
+        proxy.index = index; // Mark proxy in use and also used to free proxy
+        proxy.next = NULL; // Last free proxy
+        proxy.node = NULL;
 
-        return index;
+        return proxy;
+    }
+
+    private float area(int index) {
+        int offset = index * BOUNDS_STRIDE;
+        float x = nodeBounds[offset + 3] - nodeBounds[offset];
+        float y = nodeBounds[offset + 4] - nodeBounds[offset + 1];
+        float z = nodeBounds[offset + 5] - nodeBounds[offset + 2];
+        return (x * y) + (y * z) + (z * x); // Half the surface area is enough to compare costs
     }
 
     private int balance(int index) {
         assert (index >= 0);
-        assert (index < capacity);
+        assert (index < nodeCapacity);
 
         //
         //                           Parent
         //                              |
-        //                            Proxy
-        //                   ________/     \________
-        //          ProxyLeft                       ProxyRight
-        //         /         \                     /          \
-        // ProxyLeftLeft  ProxyLeftRight   ProxyRightLeft  ProxyRightRight
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
-
-        if (proxy.isLeaf() || (proxy.height < 2)) {
+        //                            Node
+        //                   ________/    \________
+        //           NodeLeft                      NodeRight
+        //          /        \                    /         \
+        // NodeLeftLeft  NodeLeftRight   NodeRightLeft  NodeRightRight
+        if (isLeaf(index) || (nodeHeights[index] < 2)) {
             return index;
         }
 
-        int indexLeft = proxy.left;
-        int indexRight = proxy.right;
+        int indexLeft = nodeLefts[index];
+        int indexRight = nodeRights[index];
 
         assert (indexLeft >= 0);
-        assert (indexLeft < capacity);
+        assert (indexLeft < nodeCapacity);
         assert (indexRight >= 0);
-        assert (indexRight < capacity);
+        assert (indexRight < nodeCapacity);
 
-        DynamicAABBTreeBroadphaseProxy proxyLeft = proxies[indexLeft];
-        DynamicAABBTreeBroadphaseProxy proxyRight = proxies[indexRight];
+        int balance = nodeHeights[indexRight] - nodeHeights[indexLeft];
 
-        int balance = proxyRight.height - proxyLeft.height;
-
-        // Rotate proxyLeft up
+        // Rotate nodeLeft up
         if (balance < -1) {
-            int indexLeftLeft = proxyLeft.left;
-            int indexLeftRight = proxyLeft.right;
+            int indexLeftLeft = nodeLefts[indexLeft];
+            int indexLeftRight = nodeRights[indexLeft];
 
             assert (indexLeftLeft >= 0);
-            assert (indexLeftLeft < capacity);
+            assert (indexLeftLeft < nodeCapacity);
             assert (indexLeftRight >= 0);
-            assert (indexLeftRight < capacity);
-
-            DynamicAABBTreeBroadphaseProxy proxyLeftLeft = proxies[indexLeftLeft];
-            DynamicAABBTreeBroadphaseProxy proxyLeftRight = proxies[indexLeftRight];
-
-            // Swap proxy and proxyLeft
-            proxyLeft.left = index;
-            proxyLeft.parent = proxy.parent;
-            proxy.parent = indexLeft;
+            assert (indexLeftRight < nodeCapacity);
 
-            // proxy's old parent should point to proxyLeft
-            int indexOldParent = proxyLeft.parent;
-            if (indexOldParent != NULL) {
+            // Swap node and nodeLeft
+            nodeLefts[indexLeft] = index;
+            nodeParents[indexLeft] = nodeParents[index];
+            nodeParents[index] = indexLeft;
 
-                // Old parent wasn't the root
-                DynamicAABBTreeBroadphaseProxy proxyOldParent = proxies[indexOldParent];
-                if (proxyOldParent.left == index) {
-                    proxyOldParent.left = indexLeft;
-                } else {
-                    proxyOldParent.right = indexLeft;
-                }
-            } else {
-
-                // Old parent was the root
-                root = indexLeft;
-            }
+            // node's old parent should point to nodeLeft
+            replaceChild(nodeParents[indexLeft], index, indexLeft);
 
-            if (proxyLeftLeft.height > proxyLeftRight.height) {
+            if (nodeHeights[indexLeftLeft] > nodeHeights[indexLeftRight]) {
                 //
                 //                           Parent
                 //                              |
-                //                          ProxyLeft
-                //                 ________/         \________
-                //          __Proxy__                         ProxyLeftLeft
-                //         /         \
-                // ProxyLeftRight     ProxyRight
-                //                   /          \
-                //          ProxyRightLeft  ProxyRightRight
-                proxy.left = indexLeftRight;
-                proxyLeftRight.parent = index;
-                proxyLeft.right = indexLeftLeft;
-                proxy.aabb.combine(proxyLeftRight.aabb, proxyRight.aabb);
-                proxyLeft.aabb.combine(proxy.aabb, proxyLeftLeft.aabb);
-                proxy.height = 1 + Math.max(proxyLeftRight.height, proxyRight.height);
-                proxyLeft.height = 1 + Math.max(proxy.height, proxyLeftLeft.height);
+                //                          NodeLeft
+                //                 ________/        \________
+                //          __Node__                         NodeLeftLeft
+                //         /        \
+                // NodeLeftRight     NodeRight
+                //                  /         \
+                //          NodeRightLeft  NodeRightRight
+                nodeLefts[index] = indexLeftRight;
+                nodeParents[indexLeftRight] = index;
+                nodeRights[indexLeft] = indexLeftLeft;
+                combineBounds(index, indexLeftRight, indexRight);
+                combineBounds(indexLeft, index, indexLeftLeft);
+                nodeHeights[index] = 1 + Math.max(nodeHeights[indexLeftRight], nodeHeights[indexRight]);
+                nodeHeights[indexLeft] = 1 + Math.max(nodeHeights[index], nodeHeights[indexLeftLeft]);
             } else {
                 //
                 //                           Parent
                 //                              |
-                //                          ProxyLeft
-                //                 ________/         \________
-                //          __Proxy__                         ProxyLeftRight
-                //         /         \
-                // ProxyLeftLeft      ProxyRight
-                //                   /          \
-                //          ProxyRightLeft  ProxyRightRight
-                proxy.left = indexLeftLeft;
-                proxyLeftLeft.parent = index;
-                proxyLeft.right = indexLeftRight;
-                proxy.aabb.combine(proxyLeftLeft.aabb, proxyRight.aabb);
-                proxyLeft.aabb.combine(proxy.aabb, proxyLeftRight.aabb);
-                proxy.height = 1 + Math.max(proxyLeftLeft.height, proxyRight.height);
-                proxyLeft.height = 1 + Math.max(proxy.height, proxyLeftRight.height);
+                //                          NodeLeft
+                //                 ________/        \________
+                //          __Node__                         NodeLeftRight
+                //         /        \
+                // NodeLeftLeft      NodeRight
+                //                  /         \
+                //          NodeRightLeft  NodeRightRight
+                nodeLefts[index] = indexLeftLeft;
+                nodeParents[indexLeftLeft] = index;
+                nodeRights[indexLeft] = indexLeftRight;
+                combineBounds(index, indexLeftLeft, indexRight);
+                combineBounds(indexLeft, index, indexLeftRight);
+                nodeHeights[index] = 1 + Math.max(nodeHeights[indexLeftLeft], nodeHeights[indexRight]);
+                nodeHeights[indexLeft] = 1 + Math.max(nodeHeights[index], nodeHeights[indexLeftRight]);
             }
 
             return indexLeft;
         }
 
-        // Rotate proxyRight up
+        // Rotate nodeRight up
         if (balance > 1) {
-            int indexRightLeft = proxyRight.left;
-            int indexRightRight = proxyRight.right;
+            int indexRightLeft = nodeLefts[indexRight];
+            int indexRightRight = nodeRights[indexRight];
 
             assert (indexRightLeft >= 0);
-            assert (indexRightLeft < capacity);
+            assert (indexRightLeft < nodeCapacity);
             assert (indexRightRight >= 0);
-            assert (indexRightRight < capacity);
-
-            DynamicAABBTreeBroadphaseProxy proxyRightLeft = proxies[indexRightLeft];
-            DynamicAABBTreeBroadphaseProxy proxyRightRight = proxies[indexRightRight];
+            assert (indexRightRight < nodeCapacity);
 
-            // Swap proxy and proxyRight
-            proxyRight.left = index;
-            proxyRight.parent = proxy.parent;
-            proxy.parent = indexRight;
+            // Swap node and nodeRight
+            nodeLefts[indexRight] = index;
+            nodeParents[indexRight] = nodeParents[index];
+            nodeParents[index] = indexRight;
 
-            // proxy's old parent should point to proxyRight
-            int indexOldParent = proxyRight.parent;
-            if (indexOldParent != NULL) {
+            // node's old parent should point to nodeRight
+            replaceChild(nodeParents[indexRight], index, indexRight);
 
-                // Old parent wasn't the root
-                DynamicAABBTreeBroadphaseProxy proxyOldParent = proxies[indexOldParent];
-                if (proxyOldParent.left == index) {
-                    proxyOldParent.left = indexRight;
-                } else {
-                    proxyOldParent.right = indexRight;
-                }
-            } else {
-
-                // Old parent was the root
-                root = indexRight;
-            }
-
-            if (proxyRightLeft.height > proxyRightRight.height) {
+            if (nodeHeights[indexRightLeft] > nodeHeights[indexRightRight]) {
                 //
                 //                           Parent
                 //                              |
-                //                          ProxyRight
-                //                 ________/          \________
-                //          __Proxy__                          ProxyRightLeft
-                //         /         \
-                //     ProxyLeft_     ProxyRightRight
-                //    /          \
-                // ProxyLeftLeft  ProxyLeftRight
-                proxy.right = indexRightRight;
-                proxyRightRight.parent = index;
-                proxyRight.right = indexRightLeft;
-                proxy.aabb.combine(proxyLeft.aabb, proxyRightRight.aabb);
-                proxyRight.aabb.combine(proxy.aabb, proxyRightLeft.aabb);
-                proxy.height = 1 + Math.max(proxyLeft.height, proxyRightRight.height);
-                proxyRight.height = 1 + Math.max(proxy.height, proxyRightLeft.height);
+                //                          NodeRight
+                //                 ________/         \________
+                //          __Node__                          NodeRightLeft
+                //         /        \
+                //     NodeLeft_     NodeRightRight
+                //    /         \
+                // NodeLeftLeft  NodeLeftRight
+                nodeRights[index] = indexRightRight;
+                nodeParents[indexRightRight] = index;
+                nodeRights[indexRight] = indexRightLeft;
+                combineBounds(index, indexLeft, indexRightRight);
+                combineBounds(indexRight, index, indexRightLeft);
+                nodeHeights[index] = 1 + Math.max(nodeHeights[indexLeft], nodeHeights[indexRightRight]);
+                nodeHeights[indexRight] = 1 + Math.max(nodeHeights[index], nodeHeights[indexRightLeft]);
             } else {
                 //
                 //                           Parent
                 //                              |
-                //                          ProxyRight
-                //                 ________/          \________
-                //          __Proxy__                          ProxyRightRight
-                //         /         \
-                //     ProxyLeft_     ProxyRightLeft
-                //    /          \
-                // ProxyLeftLeft  ProxyLeftRight
-                proxy.right = indexRightLeft;
-                proxyRightLeft.parent = index;
-                proxyRight.right = indexRightRight;
-                proxy.aabb.combine(proxyLeft.aabb, proxyRightLeft.aabb);
-                proxyRight.aabb.combine(proxy.aabb, proxyRightRight.aabb);
-                proxy.height = 1 + Math.max(proxyLeft.height, proxyRightLeft.height);
-                proxyRight.height = 1 + Math.max(proxy.height, proxyRightRight.height);
+                //                          NodeRight
+                //                 ________/         \________
+                //          __Node__                          NodeRightRight
+                //         /        \
+                //     NodeLeft_     NodeRightLeft
+                //    /         \
+                // NodeLeftLeft  NodeLeftRight
+                nodeRights[index] = indexRightLeft;
+                nodeParents[indexRightLeft] = index;
+                nodeRights[indexRight] = indexRightRight;
+                combineBounds(index, indexLeft, indexRightLeft);
+                combineBounds(indexRight, index, indexRightRight);
+                nodeHeights[index] = 1 + Math.max(nodeHeights[indexLeft], nodeHeights[indexRightLeft]);
+                nodeHeights[indexRight] = 1 + Math.max(nodeHeights[index], nodeHeights[indexRightRight]);
             }
 
             return indexRight;
@@ -296,92 +351,207 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
         return index;
     }
 
+    private void buildSubtree(int first, int last, int nodeOffset, BuildScratch scratch) {
+        if (last - first == 1) {
+            return;
+        }
+
+        // Split the leaves and build each half. The left half uses the internal nodes after this subtree's root
+        // and the right half uses the ones after the left half.
+        int middle = partitionLeaves(first, last, scratch);
+        int nodeOffsetLeft = nodeOffset + 1;
+        int nodeOffsetRight = nodeOffset + middle - first;
+        buildSubtree(first, middle, nodeOffsetLeft, scratch);
+        buildSubtree(middle, last, nodeOffsetRight, scratch);
+        linkSubtree(buildNodes[nodeOffset], getSubtreeRoot(first, middle, nodeOffsetLeft),
+                getSubtreeRoot(middle, last, nodeOffsetRight));
+    }
+
+    private void combineBounds(int index, int index0, int index1) {
+        int offset = index * BOUNDS_STRIDE;
+        int offset0 = index0 * BOUNDS_STRIDE;
+        int offset1 = index1 * BOUNDS_STRIDE;
+        nodeBounds[offset] = Math.min(nodeBounds[offset0], nodeBounds[offset1]);
+        nodeBounds[offset + 1] = Math.min(nodeBounds[offset0 + 1], nodeBounds[offset1 + 1]);
+        nodeBounds[offset + 2] = Math.min(nodeBounds[offset0 + 2], nodeBounds[offset1 + 2]);
+        nodeBounds[offset + 3] = Math.max(nodeBounds[offset0 + 3], nodeBounds[offset1 + 3]);
+        nodeBounds[offset + 4] = Math.max(nodeBounds[offset0 + 4], nodeBounds[offset1 + 4]);
+        nodeBounds[offset + 5] = Math.max(nodeBounds[offset0 + 5], nodeBounds[offset1 + 5]);
+    }
+
+    private float combinedVolume(int index0, int index1) {
+        int offset0 = index0 * BOUNDS_STRIDE;
+        int offset1 = index1 * BOUNDS_STRIDE;
+        float x = Math.max(nodeBounds[offset0 + 3], nodeBounds[offset1 + 3])
+                - Math.min(nodeBounds[offset0], nodeBounds[offset1]);
+        float y = Math.max(nodeBounds[offset0 + 4], nodeBounds[offset1 + 4])
+                - Math.min(nodeBounds[offset0 + 1], nodeBounds[offset1 + 1]);
+        float z = Math.max(nodeBounds[offset0 + 5], nodeBounds[offset1 + 5])
+                - Math.min(nodeBounds[offset0 + 2], nodeBounds[offset1 + 2]);
+        return (x * y * z);
+    }
+
     private int computeHeight() {
+        if (root == NULL) {
+            return 0;
+        }
         return computeHeight(root);
     }
 
     private int computeHeight(int index) {
         assert (index >= 0);
-        assert (index < capacity);
-
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
+        assert (index < nodeCapacity);
 
-        if (proxy.isLeaf()) {
+        if (isLeaf(index)) {
             return 0;
         }
 
-        int height1 = computeHeight(proxy.left);
-        int height2 = computeHeight(proxy.right);
+        int height1 = computeHeight(nodeLefts[index]);
+        int height2 = computeHeight(nodeRights[index]);
         return 1 + Math.max(height1, height2);
     }
 
+    private void createNodes(int index) {
+        assert (index >= 0);
+        assert (index < nodeCapacity);
+
+        // Create all nodes except the last one
+        for (int i = index; i < nodeCapacity - 1; i++) {
+            nodeHeights[i] = NULL; // Mark not in use
+            nodeParents[i] = i + 1; // Next free node
+        }
+
+        // Create last node
+        nodeHeights[nodeCapacity - 1] = NULL; // Mark not in use
+        nodeParents[nodeCapacity - 1] = NULL; // Last free node
+    }
+
     private void createProxies(int index) {
         assert (index >= 0);
-        assert (index < capacity);
+        assert (index < proxyCapacity);
 
         // Create all proxies except the last one
-        for (int i = index; i < capacity - 1; i++) {
+        for (int i = index; i < proxyCapacity - 1; i++) {
             DynamicAABBTreeBroadphaseProxy proxy = new DynamicAABBTreeBroadphaseProxy();
-            proxy.height = NULL;
             proxy.index = NULL; // Mark not in use
-            proxy.parent = i + 1; // Next free proxy
+            proxy.next = i + 1; // Next free proxy
+            proxy.node = NULL;
             proxies[i] = proxy;
         }
 
         // Create last proxy
         DynamicAABBTreeBroadphaseProxy proxy = new DynamicAABBTreeBroadphaseProxy();
-        proxy.height = NULL;
         proxy.index = NULL; // Mark not in use
-        proxy.parent = NULL; // Last free proxy
-        proxies[capacity - 1] = proxy;
+        proxy.next = NULL; // Last free proxy
+        proxy.node = NULL;
+        proxies[proxyCapacity - 1] = proxy;
+    }
+
+    private int cullNode(int index, int planeMask) {
+        int offset = index * BOUNDS_STRIDE;
+        float minX = nodeBounds[offset];
+        float minY = nodeBounds[offset + 1];
+        float minZ = nodeBounds[offset + 2];
+        float maxX = nodeBounds[offset + 3];
+        float maxY = nodeBounds[offset + 4];
+        float maxZ = nodeBounds[offset + 5];
+
+        // Nodes that were culled last frame are most likely culled by the same plane again
+        int lastPlane = nodeFrustumPlanes[index];
+        if (((planeMask & (1 << lastPlane)) != 0)
+                && isNodeBehindPlane(lastPlane, minX, minY, minZ, maxX, maxY, maxZ)) {
+            return FRUSTUM_OUTSIDE;
+        }
+
+        // Only test planes that the parent was on both sides of
+        for (int plane = 0; plane < ClipPlanes.PLANES; plane++) {
+            int planeBit = 1 << plane;
+            if (((planeMask & planeBit) == 0) || (plane == lastPlane)) {
+                continue;
+            }
+            if (isNodeBehindPlane(plane, minX, minY, minZ, maxX, maxY, maxZ)) {
+                nodeFrustumPlanes[index] = plane;
+                return FRUSTUM_OUTSIDE;
+            }
+        }
+
+        // Remove planes that the node is completely in front of
+        for (int plane = 0; plane < ClipPlanes.PLANES; plane++) {
+            int planeBit = 1 << plane;
+            if (((planeMask & planeBit) != 0) && isNodeInFrontOfPlane(plane, minX, minY, minZ, maxX, maxY, maxZ)) {
+                planeMask &= ~planeBit;
+            }
+        }
+
+        return planeMask;
     }
 
-    private void freeProxy(int index) {
+    private void freeNode(int index) {
         assert (index >= 0);
-        assert (index < capacity);
-        assert (size > 0);
+        assert (index < nodeCapacity);
+        assert (nodeSize > 0);
 
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
-        proxy.parent = free; // Next free proxy
-        free = index;
-        size--;
+        nodeHeights[index] = NULL; // Mark node free
+        nodeParents[index] = nodeFree; // Next free node
+        nodeFree = index;
+        nodeSize--;
+    }
+
+    private void freeProxy(DynamicAABBTreeBroadphaseProxy proxy) {
+        assert (proxySize > 0);
+        proxy.next = proxyFree; // Next free proxy
+        proxyFree = proxy.index;
+        proxySize--;
+        proxy.collisionGameObject = null;
+        proxy.index = NULL; // Mark proxy free
+        proxy.node = NULL;
+    }
+
+    private int getBin(float centroid, float centroidMin, float binScale) {
+        int bin = (int) ((centroid - centroidMin) * binScale);
+        return Math.min(bin, SAH_BINS - 1);
     }
 
     private int getHeight() {
         if (root == NULL) {
             return 0;
         }
-        return proxies[root].height;
+        return nodeHeights[root];
+    }
+
+    private void getNodeAabb(int index, AABB aabb) {
+        int offset = index * BOUNDS_STRIDE;
+        aabb.setMin(nodeBounds[offset], nodeBounds[offset + 1], nodeBounds[offset + 2]);
+        aabb.setMax(nodeBounds[offset + 3], nodeBounds[offset + 4], nodeBounds[offset + 5]);
+    }
+
+    private int getSubtreeRoot(int first, int last, int nodeOffset) {
+        if (last - first == 1) {
+            return buildLeaves[first];
+        }
+        return buildNodes[nodeOffset];
     }
 
     private void insertLeaf(int index) {
         assert (index >= 0);
-        assert (index < capacity);
+        assert (index < nodeCapacity);
 
-        DynamicAABBTreeBroadphaseProxy proxyLeaf = proxies[index];
-
-        // Create root proxy
+        // Create root node
         if (root == NULL) {
             root = index;
-            proxyLeaf.parent = NULL; // Last free proxy
+            nodeParents[index] = NULL; // Last free node
             return;
         }
 
-        // Temp vars from thread local storage
-        ThreadLocalVars vars = ThreadLocalVars.Get();
-        AABB combinedAabb = vars.aabb0;
-
-        // Find best sibling for the leaf proxy
+        // Find best sibling for the leaf node
         int indexCurrent = root;
-        DynamicAABBTreeBroadphaseProxy proxyCurrent;
-        while (!(proxyCurrent = proxies[indexCurrent]).isLeaf()) {
-
-            // Combine the current and leaf proxy AABBs
-            combinedAabb.combine(proxyCurrent.aabb, proxyLeaf.aabb);
+        while (!isLeaf(indexCurrent)) {
+            int indexLeft = nodeLefts[indexCurrent];
+            int indexRight = nodeRights[indexCurrent];
 
             // Calculate volumes
-            float currentVolume = proxyCurrent.aabb.getVolume();
-            float leafAndCurrentVolume = combinedAabb.getVolume();
+            float currentVolume = volume(indexCurrent);
+            float leafAndCurrentVolume = combinedVolume(indexCurrent, index);
 
             // Calculate costs
             float combinedCost = 2f * leafAndCurrentVolume;
@@ -390,124 +560,405 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
             float rightCost;
 
             // Calculate left cost
-            DynamicAABBTreeBroadphaseProxy proxyLeft = proxies[proxyCurrent.left];
-            combinedAabb.combine(proxyLeft.aabb, proxyLeaf.aabb);
-            if (proxyLeft.isLeaf()) {
-                leftCost = combinedAabb.getVolume() + leafCost;
+            if (isLeaf(indexLeft)) {
+                leftCost = combinedVolume(indexLeft, index) + leafCost;
             } else {
-                float oldCost = proxyLeft.aabb.getVolume();
-                float newCost = combinedAabb.getVolume();
+                float oldCost = volume(indexLeft);
+                float newCost = combinedVolume(indexLeft, index);
                 leftCost = (newCost - oldCost) + leafCost;
             }
 
             // Calculate right cost
-            DynamicAABBTreeBroadphaseProxy proxyRight = proxies[proxyCurrent.right];
-            combinedAabb.combine(proxyRight.aabb, proxyLeaf.aabb);
-            if (proxyRight.isLeaf()) {
-                rightCost = combinedAabb.getVolume() + leafCost;
+            if (isLeaf(indexRight)) {
+                rightCost = combinedVolume(indexRight, index) + leafCost;
             } else {
-                float oldCost = proxyRight.aabb.getVolume();
-                float newCost = combinedAabb.getVolume();
+                float oldCost = volume(indexRight);
+                float newCost = combinedVolume(indexRight, index);
                 rightCost = (newCost - oldCost) + leafCost;
             }
 
-            // Combined cost of leaf and current proxy might be cheaper
+            // Combined cost of leaf and current node might be cheaper
             if ((combinedCost < leftCost) && (combinedCost < rightCost)) {
                 break;
             }
 
             // Descend according to the minimum cost
             if (leftCost < rightCost) {
-                indexCurrent = proxyCurrent.left;
+                indexCurrent = indexLeft;
             } else {
-                indexCurrent = proxyCurrent.right;
+                indexCurrent = indexRight;
             }
         }
 
-        // Release vars instance
-        vars.release();
+        // We now have a sibling node. Create new parent node.
+        int indexOldParent = nodeParents[indexCurrent];
+        int indexNewParent = allocateNode();
+        combineBounds(indexNewParent, indexCurrent, index);
+        nodeHeights[indexNewParent] = nodeHeights[indexCurrent] + 1;
+        nodeLefts[indexNewParent] = indexCurrent;
+        nodeParents[indexNewParent] = indexOldParent;
+        nodeRights[indexNewParent] = index;
 
-        // We now have a sibling proxy
-        DynamicAABBTreeBroadphaseProxy proxySibling = proxies[indexCurrent];
+        // Change parent of leaf and sibling
+        nodeParents[index] = indexNewParent;
+        nodeParents[indexCurrent] = indexNewParent;
 
-        // Create new parent proxy
-        int indexOldParent = proxySibling.parent;
-        int indexNewParent = allocateProxy();
-        DynamicAABBTreeBroadphaseProxy proxyNewParent = proxies[indexNewParent];
-        proxyNewParent.aabb.combine(proxySibling.aabb, proxyLeaf.aabb);
-        proxyNewParent.height = proxySibling.height + 1;
-        proxyNewParent.left = indexCurrent;
-        proxyNewParent.parent = indexOldParent;
-        proxyNewParent.right = index;
+        // Sibling's old parent should point to new parent
+        replaceChild(indexOldParent, indexCurrent, indexNewParent);
 
-        // Change parent of leaf and sibling
-        proxyLeaf.parent = indexNewParent;
-        proxySibling.parent = indexNewParent;
+        ascendFixingHeightAndAabb(indexNewParent);
+    }
 
-        // proxySibling's old parent should point to newParent
-        if (indexOldParent != NULL) {
+    private boolean isAabbContainedInNode(AABB aabb, int index) {
+        int offset = index * BOUNDS_STRIDE;
+        return ((aabb.getMin().getX() >= nodeBounds[offset]) && (aabb.getMax().getX() <= nodeBounds[offset + 3])
+                && (aabb.getMin().getZ() >= nodeBounds[offset + 2]) && (aabb.getMax().getZ() <= nodeBounds[offset + 5])
+                && (aabb.getMin().getY() >= nodeBounds[offset + 1]) && (aabb.getMax().getY() <= nodeBounds[offset + 4]));
+    }
 
-            // Old parent wasn't the root
-            DynamicAABBTreeBroadphaseProxy proxyOldParent = proxies[indexOldParent];
-            if (proxyOldParent.left == indexCurrent) {
-                proxyOldParent.left = indexNewParent;
+    private boolean isAabbIntersectingNode(AABB aabb, int index) {
+        int offset = index * BOUNDS_STRIDE;
+        return ((aabb.getMin().getX() <= nodeBounds[offset + 3]) && (nodeBounds[offset] <= aabb.getMax().getX())
+                && (aabb.getMin().getZ() <= nodeBounds[offset + 5]) && (nodeBounds[offset + 2] <= aabb.getMax().getZ())
+                && (aabb.getMin().getY() <= nodeBounds[offset + 4]) && (nodeBounds[offset + 1] <= aabb.getMax().getY()));
+    }
+
+    private boolean isNodeBehindPlane(int plane, float minX, float minY, float minZ, float maxX, float maxY,
+            float maxZ) {
+        int offset = plane * ClipPlanes.PLANE_STRIDE;
+        float planeX = frustumPlanes[offset];
+        float planeY = frustumPlanes[offset + 1];
+        float planeZ = frustumPlanes[offset + 2];
+
+        // Vertex furthest along the plane's normal
+        float distance = planeX * ((planeX >= 0f) ? maxX : minX) + planeY * ((planeY >= 0f) ? maxY : minY)
+                + planeZ * ((planeZ >= 0f) ? maxZ : minZ) + frustumPlanes[offset + 3];
+        return (distance <= frustumPlanes[offset + 4]);
+    }
+
+    private boolean isNodeInFrontOfPlane(int plane, float minX, float minY, float minZ, float maxX, float maxY,
+            float maxZ) {
+        int offset = plane * ClipPlanes.PLANE_STRIDE;
+        float planeX = frustumPlanes[offset];
+        float planeY = frustumPlanes[offset + 1];
+        float planeZ = frustumPlanes[offset + 2];
+
+        // Vertex furthest behind the plane's normal
+        float distance = planeX * ((planeX >= 0f) ? minX : maxX) + planeY * ((planeY >= 0f) ? minY : maxY)
+                + planeZ * ((planeZ >= 0f) ? minZ : maxZ) + frustumPlanes[offset + 3];
+        return (distance > frustumPlanes[offset + 4]);
+    }
+
+    private boolean isLeaf(int index) {
+        return nodeRights[index] == NULL;
+    }
+
+    private boolean isNodeIntersectingNode(int index0, int index1) {
+        int offset0 = index0 * BOUNDS_STRIDE;
+        int offset1 = index1 * BOUNDS_STRIDE;
+        return ((nodeBounds[offset0] <= nodeBounds[offset1 + 3]) && (nodeBounds[offset1] <= nodeBounds[offset0 + 3])
+                && (nodeBounds[offset0 + 2] <= nodeBounds[offset1 + 5])
+                && (nodeBounds[offset1 + 2] <= nodeBounds[offset0 + 5])
+                && (nodeBounds[offset0 + 1] <= nodeBounds[offset1 + 4])
+                && (nodeBounds[offset1 + 1] <= nodeBounds[offset0 + 4]));
+    }
+
+    private void linkSubtree(int index, int indexLeft, int indexRight) {
+        nodeLefts[index] = indexLeft;
+        nodeRights[index] = indexRight;
+        nodeParents[indexLeft] = index;
+        nodeParents[indexRight] = index;
+        combineBounds(index, indexLeft, indexRight);
+        nodeHeights[index] = 1 + Math.max(nodeHeights[indexLeft], nodeHeights[indexRight]);
+    }
+
+    private int partitionLeaves(int first, int last, BuildScratch scratch) {
+        float[] binBounds = scratch.binBounds;
+        float[] binScales = scratch.binScales;
+        float[] centroidBounds = scratch.centroidBounds;
+        float[] leftAreas = scratch.leftAreas;
+        float[] rightAreas = scratch.rightAreas;
+        int[] binCounts = scratch.binCounts;
+        int[] leftCounts = scratch.leftCounts;
+        int[] rightCounts = scratch.rightCounts;
+
+        // Bounds of the leaf centroids
+        Arrays.fill(centroidBounds, 0, 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(centroidBounds, 3, 6, Float.NEGATIVE_INFINITY);
+        for (int i = first; i < last; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                float centroid = buildCentroids[i * 3 + axis];
+                centroidBounds[axis] = Math.min(centroidBounds[axis], centroid);
+                centroidBounds[axis + 3] = Math.max(centroidBounds[axis + 3], centroid);
+            }
+        }
+
+        // Axes where all centroids are in the same place can't be split
+        for (int axis = 0; axis < 3; axis++) {
+            float extent = centroidBounds[axis + 3] - centroidBounds[axis];
+            binScales[axis] = (extent > 0f) ? SAH_BINS / extent : 0f;
+        }
+
+        // Binning costs more than it saves for a few leaves so split the longest axis in the middle
+        if (last - first <= SAH_BINS) {
+            return partitionLeavesInMiddle(first, last, centroidBounds);
+        }
+
+        // Count leaves and combine their bounds in the bins of every axis in one pass
+        Arrays.fill(binCounts, 0);
+        for (int i = 0; i < binBounds.length; i += BOUNDS_STRIDE) {
+            binBounds[i] = binBounds[i + 1] = binBounds[i + 2] = Float.POSITIVE_INFINITY;
+            binBounds[i + 3] = binBounds[i + 4] = binBounds[i + 5] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = first; i < last; i++) {
+            int offsetLeaf = i * BOUNDS_STRIDE;
+            for (int axis = 0; axis < 3; axis++) {
+                if (binScales[axis] == 0f) {
+                    continue;
+                }
+                int bin = axis * SAH_BINS + getBin(buildCentroids[i * 3 + axis], centroidBounds[axis], binScales[axis]);
+                int offset = bin * BOUNDS_STRIDE;
+                binCounts[bin]++;
+                for (int j = 0; j < 3; j++) {
+                    binBounds[offset + j] = Math.min(binBounds[offset + j], buildBounds[offsetLeaf + j]);
+                    binBounds[offset + j + 3] = Math.max(binBounds[offset + j + 3], buildBounds[offsetLeaf + j + 3]);
+                }
+            }
+        }
+
+        // Find the cheapest split between bins on all axes using the surface area heuristic
+        float bestCost = Float.POSITIVE_INFINITY;
+        int bestAxis = NULL;
+        int bestBin = NULL;
+        for (int axis = 0; axis < 3; axis++) {
+            if (binScales[axis] == 0f) {
+                continue;
+            }
+
+            // Sweep from both sides saving the area and count on each side of every split
+            sweepBins(axis, 0, SAH_BINS - 1, 1, scratch, leftAreas, leftCounts);
+            sweepBins(axis, SAH_BINS - 1, 0, -1, scratch, rightAreas, rightCounts);
+
+            for (int split = 0; split < SAH_BINS - 1; split++) {
+                int leftCount = leftCounts[split];
+                int rightCount = rightCounts[split + 1];
+                if ((leftCount == 0) || (rightCount == 0)) {
+                    continue;
+                }
+                float cost = leftAreas[split] * leftCount + rightAreas[split + 1] * rightCount;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = split;
+                }
+            }
+        }
+
+        // All centroids are in the same place so any split is as good as another
+        if (bestAxis == NULL) {
+            return (first + last) >>> 1;
+        }
+
+        // Move leaves in bins up to and including the best bin to the left
+        int left = first;
+        int right = last - 1;
+        while (left <= right) {
+            int bin = getBin(buildCentroids[left * 3 + bestAxis], centroidBounds[bestAxis], binScales[bestAxis]);
+            if (bin <= bestBin) {
+                left++;
             } else {
-                proxyOldParent.right = indexNewParent;
+                swapBuildLeaves(left, right);
+                right--;
             }
-        } else {
+        }
 
-            // Old parent was the root
-            root = indexNewParent;
+        assert (left > first);
+        assert (left < last);
+
+        return left;
+    }
+
+    private int partitionLeavesInMiddle(int first, int last, float[] centroidBounds) {
+        int axis = 0;
+        float extent = centroidBounds[3] - centroidBounds[0];
+        for (int i = 1; i < 3; i++) {
+            if (centroidBounds[i + 3] - centroidBounds[i] > extent) {
+                axis = i;
+                extent = centroidBounds[i + 3] - centroidBounds[i];
+            }
         }
 
-        ascendFixingHeightAndAabb(indexNewParent);
+        // Move leaves with centroids before the middle to the left
+        float middle = centroidBounds[axis] + extent * .5f;
+        int left = first;
+        int right = last - 1;
+        while (left <= right) {
+            if (buildCentroids[left * 3 + axis] < middle) {
+                left++;
+            } else {
+                swapBuildLeaves(left, right);
+                right--;
+            }
+        }
+
+        // All centroids are in the same place so any split is as good as another
+        if ((left == first) || (left == last)) {
+            return (first + last) >>> 1;
+        }
+        return left;
     }
 
     private void removeLeaf(int index) {
         assert (index >= 0);
-        assert (index < capacity);
+        assert (index < nodeCapacity);
 
+        // Tree is now empty
         if (index == root) {
             root = NULL;
+            return;
         }
 
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
-        int indexParent = proxy.parent;
+        int indexParent = nodeParents[index];
         assert (indexParent >= 0);
-        assert (indexParent < capacity);
-        DynamicAABBTreeBroadphaseProxy proxyParent = proxies[indexParent];
-        int indexGrandParent = proxyParent.parent;
+        assert (indexParent < nodeCapacity);
+        int indexGrandParent = nodeParents[indexParent];
         assert (indexGrandParent >= NULL); // Grand parent could be the root
-        assert (indexGrandParent < capacity);
+        assert (indexGrandParent < nodeCapacity);
 
         int indexSibling;
-        if (proxyParent.left == index) {
-            indexSibling = proxyParent.right;
+        if (nodeLefts[indexParent] == index) {
+            indexSibling = nodeRights[indexParent];
         } else {
-            indexSibling = proxyParent.left;
+            indexSibling = nodeLefts[indexParent];
         }
         assert (indexSibling >= 0);
-        assert (indexSibling < capacity);
-        DynamicAABBTreeBroadphaseProxy proxySibling = proxies[indexSibling];
+        assert (indexSibling < nodeCapacity);
 
         if (indexGrandParent != NULL) {
-            DynamicAABBTreeBroadphaseProxy proxyGrandParent = proxies[indexGrandParent];
 
             // Destroy parent and connect sibling to grand parent
-            if (proxyGrandParent.left == indexParent) {
-                proxyGrandParent.left = indexSibling;
+            if (nodeLefts[indexGrandParent] == indexParent) {
+                nodeLefts[indexGrandParent] = indexSibling;
             } else {
-                proxyGrandParent.right = indexSibling;
+                nodeRights[indexGrandParent] = indexSibling;
             }
-            proxySibling.parent = indexGrandParent;
+            nodeParents[indexSibling] = indexGrandParent;
 
             ascendFixingHeightAndAabb(indexGrandParent);
         } else {
             root = indexSibling;
-            proxySibling.parent = NULL; // Last free proxy
+            nodeParents[indexSibling] = NULL; // Last free node
+        }
+
+        freeNode(indexParent);
+    }
+
+    private void replaceChild(int indexParent, int indexOldChild, int indexNewChild) {
+        if (indexParent != NULL) {
+
+            // Old parent wasn't the root
+            if (nodeLefts[indexParent] == indexOldChild) {
+                nodeLefts[indexParent] = indexNewChild;
+            } else {
+                nodeRights[indexParent] = indexNewChild;
+            }
+        } else {
+
+            // Old parent was the root
+            root = indexNewChild;
+        }
+    }
+
+    private boolean reportSubtree(int indexSubtree, BroadphaseQueryCallback callback) {
+
+        // Same as the stackless traversal but without leaving the subtree
+        int index = indexSubtree;
+        while (true) {
+            if (!isLeaf(index)) {
+                index = nodeLefts[index];
+                continue;
+            }
+            if (!callback.processProxy(proxies[nodeProxies[index]])) {
+                return false;
+            }
+            while (index != indexSubtree) {
+                int indexParent = nodeParents[index];
+                if (nodeLefts[indexParent] == index) {
+                    index = nodeRights[indexParent];
+                    break;
+                }
+                index = indexParent;
+            }
+            if (index == indexSubtree) {
+                return true;
+            }
+        }
+    }
+
+    private int skipSubtree(int index) {
+
+        // Climb until we find a right sibling we haven't visited. Every left child is visited before its sibling.
+        while (index != root) {
+            int indexParent = nodeParents[index];
+            if (nodeLefts[indexParent] == index) {
+                return nodeRights[indexParent];
+            }
+            index = indexParent;
+        }
+        return NULL;
+    }
+
+    private void setLeafBounds(int index, AABB worldAabb) {
+        int offset = index * BOUNDS_STRIDE;
+        nodeBounds[offset] = worldAabb.getMin().getX() - margin.getX();
+        nodeBounds[offset + 1] = worldAabb.getMin().getY() - margin.getY();
+        nodeBounds[offset + 2] = worldAabb.getMin().getZ() - margin.getZ();
+        nodeBounds[offset + 3] = worldAabb.getMax().getX() + margin.getX();
+        nodeBounds[offset + 4] = worldAabb.getMax().getY() + margin.getY();
+        nodeBounds[offset + 5] = worldAabb.getMax().getZ() + margin.getZ();
+    }
+
+    private void sweepBins(int axis, int firstBin, int lastBin, int step, BuildScratch scratch, float[] areas,
+            int[] counts) {
+        float[] binBounds = scratch.binBounds;
+        float[] sweepBounds = scratch.sweepBounds;
+        Arrays.fill(sweepBounds, 0, 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(sweepBounds, 3, 6, Float.NEGATIVE_INFINITY);
+
+        int count = 0;
+        for (int bin = firstBin; bin != lastBin + step; bin += step) {
+            int offset = (axis * SAH_BINS + bin) * BOUNDS_STRIDE;
+            count += scratch.binCounts[axis * SAH_BINS + bin];
+            for (int j = 0; j < 3; j++) {
+                sweepBounds[j] = Math.min(sweepBounds[j], binBounds[offset + j]);
+                sweepBounds[j + 3] = Math.max(sweepBounds[j + 3], binBounds[offset + j + 3]);
+            }
+            counts[bin] = count;
+            if (count > 0) {
+                float x = sweepBounds[3] - sweepBounds[0];
+                float y = sweepBounds[4] - sweepBounds[1];
+                float z = sweepBounds[5] - sweepBounds[2];
+                areas[bin] = (x * y) + (y * z) + (z * x);
+            } else {
+                areas[bin] = 0f;
+            }
         }
+    }
 
-        freeProxy(indexParent);
+    private void swapBuildLeaves(int index0, int index1) {
+        int leaf = buildLeaves[index0];
+        buildLeaves[index0] = buildLeaves[index1];
+        buildLeaves[index1] = leaf;
+        for (int i = 0; i < 3; i++) {
+            float centroid = buildCentroids[index0 * 3 + i];
+            buildCentroids[index0 * 3 + i] = buildCentroids[index1 * 3 + i];
+            buildCentroids[index1 * 3 + i] = centroid;
+        }
+        for (int i = 0; i < BOUNDS_STRIDE; i++) {
+            float bound = buildBounds[index0 * BOUNDS_STRIDE + i];
+            buildBounds[index0 * BOUNDS_STRIDE + i] = buildBounds[index1 * BOUNDS_STRIDE + i];
+            buildBounds[index1 * BOUNDS_STRIDE + i] = bound;
+        }
     }
 
     private void validateMetrics(int index) {
@@ -516,46 +967,43 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
         }
 
         assert (index >= 0);
-        assert (index < capacity);
+        assert (index < nodeCapacity);
 
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
+        int indexLeft = nodeLefts[index];
+        int indexRight = nodeRights[index];
 
-        int indexLeft = proxy.left;
-        int indexRight = proxy.right;
+        if (isLeaf(index)) {
 
-        if (proxy.isLeaf()) {
-
-            // Test leaf proxy
-            assert (proxy.height == 0);
+            // Test leaf node
+            assert (nodeHeights[index] == 0);
             assert (indexLeft == NULL);
             assert (indexRight == NULL);
+            assert (nodeProxies[index] != NULL);
+            assert (proxies[nodeProxies[index]].node == index);
             return;
         }
 
         assert (indexLeft >= 0);
-        assert (indexLeft < capacity);
+        assert (indexLeft < nodeCapacity);
         assert (indexRight >= 0);
-        assert (indexRight < capacity);
-
-        DynamicAABBTreeBroadphaseProxy proxyLeft = proxies[indexLeft];
-        DynamicAABBTreeBroadphaseProxy proxyRight = proxies[indexRight];
+        assert (indexRight < nodeCapacity);
+        assert (nodeProxies[index] == NULL);
 
-        // Test to make sure the proxy's height equals the children
-        int height1 = proxyLeft.height;
-        int height2 = proxyRight.height;
+        // Test to make sure the node's height equals the children
+        int height1 = nodeHeights[indexLeft];
+        int height2 = nodeHeights[indexRight];
         int height = 1 + Math.max(height1, height2);
-        assert (proxy.height == height);
-
-        // Temp vars from thread local storage
-        ThreadLocalVars vars = ThreadLocalVars.Get();
-        AABB combinedAabb = vars.aabb0;
-
-        // Test proxy's left and right children's aabb equals the proxy's
-        combinedAabb.combine(proxyLeft.aabb, proxyRight.aabb);
-        assert (combinedAabb.equals(proxy.aabb));
-
-        // Release vars instance
-        vars.release();
+        assert (nodeHeights[index] == height);
+
+        // Test node's left and right children's bounds equals the node's
+        int offset = index * BOUNDS_STRIDE;
+        int offsetLeft = indexLeft * BOUNDS_STRIDE;
+        int offsetRight = indexRight * BOUNDS_STRIDE;
+        for (int i = 0; i < 3; i++) {
+            assert (nodeBounds[offset + i] == Math.min(nodeBounds[offsetLeft + i], nodeBounds[offsetRight + i]));
+            assert (nodeBounds[offset + i + 3]
+                    == Math.max(nodeBounds[offsetLeft + i + 3], nodeBounds[offsetRight + i + 3]));
+        }
 
         // Decend
         validateMetrics(indexLeft);
@@ -568,41 +1016,89 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
         }
 
         assert (index >= 0);
-        assert (index < capacity);
+        assert (index < nodeCapacity);
 
-        // Make sure the root proxy parent is NULL
+        // Make sure the root node parent is NULL
         if (index == root) {
-            assert (proxies[index].parent == NULL);
+            assert (nodeParents[index] == NULL);
         }
 
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
-
-        int indexLeft = proxy.left;
-        int indexRight = proxy.right;
+        int indexLeft = nodeLefts[index];
+        int indexRight = nodeRights[index];
 
-        if (proxy.isLeaf()) {
+        if (isLeaf(index)) {
 
-            // Test leaf proxy
-            assert (proxy.height == 0);
+            // Test leaf node
+            assert (nodeHeights[index] == 0);
             assert (indexLeft == NULL);
             assert (indexRight == NULL);
             return;
         }
 
         assert (indexLeft >= 0);
-        assert (indexLeft < capacity);
+        assert (indexLeft < nodeCapacity);
         assert (indexRight >= 0);
-        assert (indexRight < capacity);
+        assert (indexRight < nodeCapacity);
 
-        // Test that the proxy's children have the parent of the proxy
-        assert (proxies[indexLeft].parent == index);
-        assert (proxies[indexRight].parent == index);
+        // Test that the node's children have the parent of the node
+        assert (nodeParents[indexLeft] == index);
+        assert (nodeParents[indexRight] == index);
 
         // Decend
         validateStructure(indexLeft);
         validateStructure(indexRight);
     }
 
+    private float volume(int index) {
+        int offset = index * BOUNDS_STRIDE;
+        float x = nodeBounds[offset + 3] - nodeBounds[offset];
+        float y = nodeBounds[offset + 4] - nodeBounds[offset + 1];
+        float z = nodeBounds[offset + 5] - nodeBounds[offset + 2];
+        return (x * y * z);
+    }
+
+    public void beginBulkBuild() {
+        if (bulkBuilding) {
+            throw new IllegalStateException("A bulk build has already begun");
+        }
+
+        // New proxies are not inserted into the tree until the bulk build ends
+        bulkBuilding = true;
+    }
+
+    public void endBulkBuild() {
+        if (!bulkBuilding) {
+            throw new IllegalStateException("A bulk build has not begun");
+        }
+        bulkBuilding = false;
+        rebuild();
+    }
+
+    public float getAreaRatio() {
+        if (root == NULL) {
+            return 0f;
+        }
+
+        float rootArea = area(root);
+        if (rootArea <= 0f) {
+            return 0f;
+        }
+
+        // Total area of internal nodes relative to the root
+        float totalArea = 0f;
+        for (int i = 0; i < nodeCapacity; i++) {
+
+            // Skip free and leaf nodes
+            if ((nodeHeights[i] == NULL) || isLeaf(i)) {
+                continue;
+            }
+
+            totalArea += area(i);
+        }
+
+        return totalArea / rootArea;
+    }
+
     public float getDisplacementMultiplier() {
         return displacementMultiplier;
     }
@@ -611,6 +1107,19 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
         this.displacementMultiplier = displacementMultiplier;
     }
 
+    public void getFatAabb(BroadphaseProxy broadphaseProxy, AABB aabb) {
+        DynamicAABBTreeBroadphaseProxy proxy = (DynamicAABBTreeBroadphaseProxy) broadphaseProxy;
+        getNodeAabb(proxy.node, aabb);
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
     public Vector3f getMargin() {
         return margin;
     }
@@ -627,41 +1136,177 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
         this.margin.set(margin);
     }
 
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    public int getParallelBuildThreshold() {
+        return parallelBuildThreshold;
+    }
+
+    public void setParallelBuildThreshold(int parallelBuildThreshold) {
+        this.parallelBuildThreshold = parallelBuildThreshold;
+    }
+
+    public int getQualityCheckInterval() {
+        return qualityCheckInterval;
+    }
+
+    public void setQualityCheckInterval(int qualityCheckInterval) {
+        this.qualityCheckInterval = qualityCheckInterval;
+    }
+
+    public float getQualityDegradeRatio() {
+        return qualityDegradeRatio;
+    }
+
+    public void setQualityDegradeRatio(float qualityDegradeRatio) {
+        this.qualityDegradeRatio = qualityDegradeRatio;
+    }
+
+    public int getSize() {
+        return proxySize;
+    }
+
+    public boolean isBulkBuilding() {
+        return bulkBuilding;
+    }
+
+    public void queryFrustum(ClipPlanes clipPlanes, BroadphaseQueryCallback callback) {
+        clipPlanes.getPlanes(frustumPlanes);
+
+        // Stackless traversal so proxies must not be created, moved or removed by the callback
+        int index = root;
+        while (index != NULL) {
+            int indexParent = nodeParents[index];
+            int planeMask = (indexParent == NULL) ? ClipPlanes.ALL_PLANES_MASK : nodeFrustumMasks[indexParent];
+            planeMask = cullNode(index, planeMask);
+            nodeFrustumMasks[index] = planeMask;
+
+            if (planeMask == FRUSTUM_OUTSIDE) {
+                index = skipSubtree(index);
+            } else if ((planeMask == 0) || isLeaf(index)) {
+
+                // Subtree is completely inside the frustum or the leaf is on both sides of a plane
+                if (!reportSubtree(index, callback)) {
+                    return;
+                }
+                index = skipSubtree(index);
+            } else {
+                index = nodeLefts[index];
+            }
+        }
+    }
+
+    public void rebuild() {
+
+        // Grow build arrays
+        if (buildLeaves.length < proxySize) {
+            buildBounds = new float[proxySize * BOUNDS_STRIDE];
+            buildCentroids = new float[proxySize * 3];
+            buildLeaves = new int[proxySize];
+            buildNodes = new int[proxySize];
+        }
+
+        // Collect leaves
+        int leafCount = 0;
+        for (int i = 0; i < proxyCapacity; i++) {
+            DynamicAABBTreeBroadphaseProxy proxy = proxies[i];
+
+            // Skip free proxies
+            if (proxy.index == NULL) {
+                continue;
+            }
+
+            int offset = proxy.node * BOUNDS_STRIDE;
+            System.arraycopy(nodeBounds, offset, buildBounds, leafCount * BOUNDS_STRIDE, BOUNDS_STRIDE);
+            buildCentroids[leafCount * 3] = nodeBounds[offset] + nodeBounds[offset + 3];
+            buildCentroids[leafCount * 3 + 1] = nodeBounds[offset + 1] + nodeBounds[offset + 4];
+            buildCentroids[leafCount * 3 + 2] = nodeBounds[offset + 2] + nodeBounds[offset + 5];
+            buildLeaves[leafCount++] = proxy.node;
+        }
+
+        assert (leafCount == proxySize);
+
+        // Free internal nodes
+        for (int i = 0; i < nodeCapacity; i++) {
+            if ((nodeHeights[i] != NULL) && !isLeaf(i)) {
+                freeNode(i);
+            }
+        }
+
+        // Allocate all internal nodes before building so subtrees can be built in parallel
+        root = NULL;
+        for (int i = 0; i < leafCount - 1; i++) {
+            buildNodes[i] = allocateNode();
+        }
+
+        if (leafCount > 0) {
+            if ((forkJoinPool != null) && (leafCount >= parallelBuildThreshold)) {
+                forkJoinPool.invoke(new BuildSubtreeTask(0, leafCount, 0));
+            } else {
+                buildSubtree(0, leafCount, 0, new BuildScratch());
+            }
+            root = getSubtreeRoot(0, leafCount, 0);
+            nodeParents[root] = NULL; // Last free node
+        }
+
+        builtAreaRatio = getAreaRatio();
+        updatesSinceQualityCheck = 0;
+    }
+
+    public boolean rebuildIfDegraded() {
+        float areaRatio = getAreaRatio();
+
+        // The first check is the baseline when the tree was built incrementally
+        if (builtAreaRatio == 0f) {
+            builtAreaRatio = areaRatio;
+            return false;
+        }
+
+        if (areaRatio > builtAreaRatio * qualityDegradeRatio) {
+            rebuild();
+            return true;
+        }
+        return false;
+    }
+
     public void validate() {
         validateStructure(root);
         validateMetrics(root);
 
         int freeCount = 0;
-        int index = free;
+        int index = nodeFree;
         while (index != NULL) {
             assert (index >= 0);
-            assert (index < capacity);
-            index = proxies[index].parent;
+            assert (index < nodeCapacity);
+            assert (nodeHeights[index] == NULL);
+            index = nodeParents[index];
             freeCount++;
         }
 
-        assert (freeCount + size == capacity);
+        assert (freeCount + nodeSize == nodeCapacity);
+        assert ((proxySize == 0) || (nodeSize == 2 * proxySize - 1));
         assert (computeHeight() == getHeight());
     }
 
     @Override
     public BroadphaseProxy createProxy(CollisionGameObject collisionGameObject, int collisionGroup, int collisionCollidesWith, AABB worldAabb) {
-        int index = allocateProxy();
-
-        DynamicAABBTreeBroadphaseProxy proxy = proxies[index];
+        DynamicAABBTreeBroadphaseProxy proxy = allocateProxy();
+        int index = allocateNode();
 
-        // Set proxy AABB and add margin
-        proxy.aabb.set(worldAabb);
-        proxy.aabb.expand(margin);
+        // Set leaf bounds and add margin
+        setLeafBounds(index, worldAabb);
+        nodeProxies[index] = proxy.index;
         proxy.collisionCollidesWith = collisionCollidesWith;
         proxy.collisionGameObject = collisionGameObject;
         proxy.collisionGroup = collisionGroup;
+        proxy.node = index;
 
-        // Insert proxy into tree
-        insertLeaf(index);
-
-        // TODO remove me
-        validate();
+        // Insert leaf into tree unless it will be built later
+        if (!bulkBuilding) {
+            insertLeaf(index);
+        }
 
         return proxy;
     }
@@ -687,79 +1332,195 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
     @Override
     public boolean moveProxy(BroadphaseProxy broadphaseProxy, AABB worldAabb) {
 
+        if (bulkBuilding) {
+            throw new IllegalStateException("Proxies can't be moved during a bulk build");
+        }
+
         // Downcast
         DynamicAABBTreeBroadphaseProxy proxy = (DynamicAABBTreeBroadphaseProxy) broadphaseProxy;
+        int index = proxy.node;
 
-        // If the new AABB is still contained in the proxy's AABB then we do nothing
-        if (AABBUtilities.IsAabb0ContainedInAabb1(worldAabb, proxy.aabb)) {
+        // If the new AABB is still contained in the leaf's bounds then we do nothing
+        if (isAabbContainedInNode(worldAabb, index)) {
             return false;
         }
 
-        // Remove proxy from tree
-        removeLeaf(proxy.index);
-
-        // Temp vars from thread local storage
-        ThreadLocalVars vars = ThreadLocalVars.Get();
-        Vector3f worldCenterNew = vars.v3f1;
-        Vector3f worldCenterOld = vars.v3f2;
-
-        // Calculate displacement
-        worldCenterNew.set(worldAabb.getMin()).add(worldAabb.getMax()).multiply(.5f);
-        worldCenterOld.set(proxy.aabb.getMin()).add(proxy.aabb.getMax()).multiply(.5f);
-        worldCenterNew.subtract(worldCenterOld).multiply(displacementMultiplier);
-
-        // Set proxy AABB and add margin
-        proxy.aabb.set(worldAabb);
-        proxy.aabb.expand(margin);
-
-        // Expand AABB by the displacement vector
-        if (worldCenterNew.getX() < 0f) {
-            proxy.aabb.getMin().addX(worldCenterNew.getX());
+        // Remove leaf from tree
+        removeLeaf(index);
+
+        // Calculate displacement from the centers (the halves cancel with the sums)
+        int offset = index * BOUNDS_STRIDE;
+        float scale = .5f * displacementMultiplier;
+        float displacementX = ((worldAabb.getMin().getX() + worldAabb.getMax().getX())
+                - (nodeBounds[offset] + nodeBounds[offset + 3])) * scale;
+        float displacementY = ((worldAabb.getMin().getY() + worldAabb.getMax().getY())
+                - (nodeBounds[offset + 1] + nodeBounds[offset + 4])) * scale;
+        float displacementZ = ((worldAabb.getMin().getZ() + worldAabb.getMax().getZ())
+                - (nodeBounds[offset + 2] + nodeBounds[offset + 5])) * scale;
+
+        // Set leaf bounds and add margin
+        setLeafBounds(index, worldAabb);
+
+        // Expand bounds by the displacement vector
+        if (displacementX < 0f) {
+            nodeBounds[offset] += displacementX;
         } else {
-            proxy.aabb.getMax().addX(worldCenterNew.getX());
+            nodeBounds[offset + 3] += displacementX;
         }
-        if (worldCenterNew.getY() < 0f) {
-            proxy.aabb.getMin().addY(worldCenterNew.getY());
+        if (displacementY < 0f) {
+            nodeBounds[offset + 1] += displacementY;
         } else {
-            proxy.aabb.getMax().addY(worldCenterNew.getY());
+            nodeBounds[offset + 4] += displacementY;
         }
-        if (worldCenterNew.getZ() < 0f) {
-            proxy.aabb.getMin().addZ(worldCenterNew.getZ());
+        if (displacementZ < 0f) {
+            nodeBounds[offset + 2] += displacementZ;
         } else {
-            proxy.aabb.getMax().addZ(worldCenterNew.getZ());
+            nodeBounds[offset + 5] += displacementZ;
         }
 
-        // Release vars instance
-        vars.release();
-
-        // Insert proxy back into tree
-        insertLeaf(proxy.index);
+        // Insert leaf back into tree
+        insertLeaf(index);
 
         return true;
     }
 
+    @Override
+    public void queryAabb(AABB aabb, BroadphaseQueryCallback callback) {
+
+        // Stackless traversal so proxies must not be created, moved or removed by the callback
+        int index = root;
+        while (index != NULL) {
+            if (!isAabbIntersectingNode(aabb, index)) {
+                index = skipSubtree(index);
+            } else if (isLeaf(index)) {
+                if (!callback.processProxy(proxies[nodeProxies[index]])) {
+                    return;
+                }
+                index = skipSubtree(index);
+            } else {
+                index = nodeLefts[index];
+            }
+        }
+    }
+
+    @Override
+    public void querySphere(Vector3f center, float radius, BroadphaseQueryCallback callback) {
+        float centerX = center.getX();
+        float centerY = center.getY();
+        float centerZ = center.getZ();
+        float radiusSquared = radius * radius;
+
+        // Stackless traversal so proxies must not be created, moved or removed by the callback
+        int index = root;
+        while (index != NULL) {
+            int offset = index * BOUNDS_STRIDE;
+            if (!BroadphaseQueries.DoesSphereIntersectBounds(centerX, centerY, centerZ, radiusSquared,
+                    nodeBounds[offset], nodeBounds[offset + 1], nodeBounds[offset + 2],
+                    nodeBounds[offset + 3], nodeBounds[offset + 4], nodeBounds[offset + 5])) {
+                index = skipSubtree(index);
+            } else if (isLeaf(index)) {
+                if (!callback.processProxy(proxies[nodeProxies[index]])) {
+                    return;
+                }
+                index = skipSubtree(index);
+            } else {
+                index = nodeLefts[index];
+            }
+        }
+    }
+
+    @Override
+    public float raycast(Ray ray, float maxFraction, BroadphaseRayCallback callback) {
+        BroadphaseQueries.SetRay(queryRays, 0, ray);
+        queryMaxFractions[0] = maxFraction;
+        raycast(queryRays, queryMaxFractions, 1, callback);
+        return queryMaxFractions[0];
+    }
+
+    @Override
+    public void raycast(float[] rays, float[] maxFractions, int rayCount, BroadphaseRayCallback callback) {
+        if (inverseDirections.length < rayCount * 3) {
+            inverseDirections = new float[rayCount * 3];
+        }
+        BroadphaseQueries.SetInverseDirections(rays, inverseDirections, rayCount);
+
+        for (int ray = 0; ray < rayCount; ray++) {
+            int offsetRay = ray * BroadphaseQueries.RAY_STRIDE;
+            float originX = rays[offsetRay];
+            float originY = rays[offsetRay + 1];
+            float originZ = rays[offsetRay + 2];
+            float inverseDirectionX = inverseDirections[ray * 3];
+            float inverseDirectionY = inverseDirections[ray * 3 + 1];
+            float inverseDirectionZ = inverseDirections[ray * 3 + 2];
+            float maxFraction = maxFractions[ray];
+
+            // Stackless traversal so proxies must not be created, moved or removed by the callback
+            int index = root;
+            while (index != NULL) {
+                int offset = index * BOUNDS_STRIDE;
+                float fraction = BroadphaseQueries.RayFraction(originX, originY, originZ, inverseDirectionX,
+                        inverseDirectionY, inverseDirectionZ, maxFraction, nodeBounds[offset], nodeBounds[offset + 1],
+                        nodeBounds[offset + 2], nodeBounds[offset + 3], nodeBounds[offset + 4],
+                        nodeBounds[offset + 5]);
+                if (fraction < 0f) {
+                    index = skipSubtree(index);
+                } else if (isLeaf(index)) {
+
+                    // Stop or clip the ray
+                    float callbackFraction = callback.processProxy(ray, proxies[nodeProxies[index]], fraction);
+                    if (callbackFraction == 0f) {
+                        maxFraction = 0f;
+                        break;
+                    }
+                    maxFraction = BroadphaseQueries.ClipRay(maxFraction, callbackFraction);
+                    index = skipSubtree(index);
+                } else {
+                    index = nodeLefts[index];
+                }
+            }
+
+            maxFractions[ray] = maxFraction;
+        }
+    }
+
     @Override
     public void removeProxy(BroadphaseProxy broadphaseProxy) {
+        if (bulkBuilding) {
+            throw new IllegalStateException("Proxies can't be removed during a bulk build");
+        }
         DynamicAABBTreeBroadphaseProxy proxy = (DynamicAABBTreeBroadphaseProxy) broadphaseProxy;
-        removeLeaf(proxy.index);
-        freeProxy(proxy.index);
+        overlappingPairCache.removeOverlappingPairsContainingProxy(proxy);
+        removeLeaf(proxy.node);
+        freeNode(proxy.node);
+        freeProxy(proxy);
     }
 
     @Override
     public void updateOverlappingPairs() {
+        if (bulkBuilding) {
+            throw new IllegalStateException("Overlapping pairs can't be updated during a bulk build");
+        }
+
+        // Periodically rebuild the tree if it has degraded too much since it was built
+        if ((qualityCheckInterval > 0) && (++updatesSinceQualityCheck >= qualityCheckInterval)) {
+            updatesSinceQualityCheck = 0;
+            rebuildIfDegraded();
+        }
 
         // Clear stack (should be already empty)
         stackOfIndexes.clear();
 
-        // Loop through finding all leaf nodes to query tree
-        for (int i = 0; i < proxies.length; i++) {
+        // Loop through all proxies to query tree
+        for (int i = 0; i < proxyCapacity; i++) {
             DynamicAABBTreeBroadphaseProxy proxy = proxies[i];
 
-            // Skip free and non leaf proxies
-            if ((proxy.index == NULL) || !proxy.isLeaf()) {
+            // Skip free proxies
+            if (proxy.index == NULL) {
                 continue;
             }
 
+            int indexLeaf = proxy.node;
+
             // Start with root
             stackOfIndexes.push(root);
 
@@ -769,36 +1530,31 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
                 // Get current element off the stack
                 int indexStack = stackOfIndexes.pop();
 
-                // Skip free proxy
-                if (indexStack == NULL) {
-                    continue;
-                }
-
-                DynamicAABBTreeBroadphaseProxy proxyStack = proxies[indexStack];
-
                 // Skip self collisions
-                if (proxyStack == proxy) {
+                if (indexStack == indexLeaf) {
                     continue;
                 }
 
                 // Test for intersection
-                if (AABBUtilities.DoesAabb0IntersectAabb1(proxyStack.aabb, proxy.aabb)) {
+                if (isNodeIntersectingNode(indexStack, indexLeaf)) {
 
                     // There was an intersection but was it with a leaf?
-                    if (proxyStack.isLeaf()) {
+                    if (isLeaf(indexStack)) {
+                        DynamicAABBTreeBroadphaseProxy proxyStack = proxies[nodeProxies[indexStack]];
                         if (overlappingPairCache.findOverlappingPair(proxyStack, proxy) == null) {
                             overlappingPairCache.addOverlappingPair(proxyStack, proxy);
                         }
                     } else {
 
                         // Decend the tree
-                        stackOfIndexes.push(proxyStack.left);
-                        stackOfIndexes.push(proxyStack.right);
+                        stackOfIndexes.push(nodeLefts[indexStack]);
+                        stackOfIndexes.push(nodeRights[indexStack]);
                     }
                 } else {
 
                     // There was no intersection but was it a leaf?
-                    if (proxyStack.isLeaf()) {
+                    if (isLeaf(indexStack)) {
+                        DynamicAABBTreeBroadphaseProxy proxyStack = proxies[nodeProxies[indexStack]];
                         if (overlappingPairCache.findOverlappingPair(proxyStack, proxy) != null) {
                             overlappingPairCache.removeOverlappingPair(proxyStack, proxy);
                         }
@@ -808,6 +1564,54 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
         }
     }
 
+    private static class BuildScratch {
+
+        private final float[] binBounds = new float[3 * SAH_BINS * BOUNDS_STRIDE];
+        private final float[] binScales = new float[3];
+        private final float[] centroidBounds = new float[BOUNDS_STRIDE];
+        private final float[] leftAreas = new float[SAH_BINS];
+        private final float[] rightAreas = new float[SAH_BINS];
+        private final float[] sweepBounds = new float[BOUNDS_STRIDE];
+        private final int[] binCounts = new int[3 * SAH_BINS];
+        private final int[] leftCounts = new int[SAH_BINS];
+        private final int[] rightCounts = new int[SAH_BINS];
+
+    }
+
+    private class BuildSubtreeTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final int first;
+        private final int last;
+        private final int nodeOffset;
+
+        private BuildSubtreeTask(int first, int last, int nodeOffset) {
+            this.first = first;
+            this.last = last;
+            this.nodeOffset = nodeOffset;
+        }
+
+        @Override
+        protected void compute() {
+            BuildScratch scratch = new BuildScratch();
+            if (last - first < Math.max(parallelBuildThreshold, 2)) {
+                buildSubtree(first, last, nodeOffset, scratch);
+                return;
+            }
+
+            // Each half writes to its own range of leaves and internal nodes
+            int middle = partitionLeaves(first, last, scratch);
+            int nodeOffsetLeft = nodeOffset + 1;
+            int nodeOffsetRight = nodeOffset + middle - first;
+            invokeAll(new BuildSubtreeTask(first, middle, nodeOffsetLeft),
+                    new BuildSubtreeTask(middle, last, nodeOffsetRight));
+            linkSubtree(buildNodes[nodeOffset], getSubtreeRoot(first, middle, nodeOffsetLeft),
+                    getSubtreeRoot(middle, last, nodeOffsetRight));
+        }
+
+    }
+
     public static class Render {
 
         private static boolean initialized;
@@ -819,26 +1623,33 @@ public class DynamicAABBTreeBroadphase implements BroadphaseAlgorithm {
             }
 
             assert (index >= 0);
-            assert (index < tree.capacity);
+            assert (index < tree.nodeCapacity);
 
-            DynamicAABBTreeBroadphaseProxy proxy = tree.proxies[index];
+            // Temp vars from thread local storage
+            ThreadLocalVars vars = ThreadLocalVars.Get();
+            AABB nodeAabb = vars.aabb0;
 
             // Updating AABBs this way is costly
-            aabbGameObject.update(proxy.aabb);
+            tree.getNodeAabb(index, nodeAabb);
+            aabbGameObject.update(nodeAabb);
+
+            // Release vars instance
+            vars.release();
+
             // AABB is already in world coordinates so we don't translate
             Fw.graphics.render(aabbGameObject.getRenderable(), 0f, 0f, 0f);
 
-            if (proxy.isLeaf()) {
+            if (tree.isLeaf(index)) {
                 return;
             }
 
-            int indexLeft = proxy.left;
-            int indexRight = proxy.right;
+            int indexLeft = tree.nodeLefts[index];
+            int indexRight = tree.nodeRights[index];
 
             assert (indexLeft >= 0);
-            assert (indexLeft < tree.capacity);
+            assert (indexLeft < tree.nodeCapacity);
             assert (indexRight >= 0);
-            assert (indexRight < tree.capacity);
+            assert (indexRight < tree.nodeCapacity);
 
             Decend(tree, indexLeft);
             Decend(tree, indexRight);
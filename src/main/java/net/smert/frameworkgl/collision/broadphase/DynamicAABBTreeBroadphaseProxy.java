@@ -12,30 +12,22 @@
  */
 package net.smert.frameworkgl.collision.broadphase;
 
-import static net.smert.frameworkgl.collision.broadphase.DynamicAABBTreeBroadphase.NULL;
-import net.smert.frameworkgl.math.AABB;
-
 /**
  *
  * @author Jason Sorensen <sorensenj@smert.net>
  */
 public class DynamicAABBTreeBroadphaseProxy extends BroadphaseProxy {
 
-    int height;
-    int index;
-    int left;
-    int parent;
-    int right;
-    public final AABB aabb = new AABB();
+    int next;
+    int node; // Leaf node in the tree
 
-    public boolean isLeaf() {
-        return right == NULL;
+    public int getNode() {
+        return node;
     }
 
     @Override
     public String toString() {
-        return "(height= " + height + " left= " + left + " parent= " + parent
-                + " right= " + right + " aabb= " + aabb + ")";
+        return "(index= " + index + " node= " + node + ")";
     }
 
 }
@@ -24,6 +24,7 @@ public class HashedOverlappingPairCache implements OverlappingPairCache {
 
     private final HashMapIntGeneric<OverlappingPair> overlappingPairs;
     private final OverlappingPairFilterCallback overlappingPairFilterCallback;
+    private OverlappingPairRemovedCallback overlappingPairRemovedCallback;
 
     public HashedOverlappingPairCache(OverlappingPairFilterCallback overlappingPairFilterCallback) {
         this.overlappingPairFilterCallback = overlappingPairFilterCallback;
@@ -43,6 +44,12 @@ public class HashedOverlappingPairCache implements OverlappingPairCache {
         return (hash0 * 17) ^ (hash1 * 31);
     }
 
+    private void notifyPairRemoved(OverlappingPair pair) {
+        if ((pair != null) && (overlappingPairRemovedCallback != null)) {
+            overlappingPairRemovedCallback.overlappingPairRemoved(pair);
+        }
+    }
+
     @Override
     public OverlappingPair addOverlappingPair(BroadphaseProxy broadphaseProxy0, BroadphaseProxy broadphaseProxy1) {
         if (!overlappingPairFilterCallback.needsBroadphaseCollision(broadphaseProxy0, broadphaseProxy1)) {
@@ -52,11 +59,13 @@ public class HashedOverlappingPairCache implements OverlappingPairCache {
         // Calculate hash code and create new pair
         int hashCode = getHashCode(broadphaseProxy0, broadphaseProxy1);
         OverlappingPair pair = new OverlappingPair();
+        pair.frame = OverlappingPair.NULL;
         pair.proxy0 = broadphaseProxy0;
         pair.proxy1 = broadphaseProxy1;
 
         // Save pair
         OverlappingPair oldPair = overlappingPairs.put(hashCode, pair);
+        notifyPairRemoved(oldPair);
 
         return pair;
     }
@@ -76,6 +85,7 @@ public class HashedOverlappingPairCache implements OverlappingPairCache {
 
             if (!dispatch.processOverlappingPair(pair)) {
                 it.remove();
+                notifyPairRemoved(pair);
             }
         }
     }
@@ -83,7 +93,7 @@ public class HashedOverlappingPairCache implements OverlappingPairCache {
     @Override
     public void removeOverlappingPair(BroadphaseProxy broadphaseProxy0, BroadphaseProxy broadphaseProxy1) {
         int hashCode = getHashCode(broadphaseProxy0, broadphaseProxy1);
-        overlappingPairs.remove(hashCode);
+        notifyPairRemoved(overlappingPairs.remove(hashCode));
     }
 
     @Override
@@ -95,8 +105,14 @@ public class HashedOverlappingPairCache implements OverlappingPairCache {
 
             if ((pair.proxy0 == broadphaseProxy) || (pair.proxy1 == broadphaseProxy)) {
                 it.remove();
+                notifyPairRemoved(pair);
             }
         }
     }
 
+    @Override
+    public void setOverlappingPairRemovedCallback(OverlappingPairRemovedCallback overlappingPairRemovedCallback) {
+        this.overlappingPairRemovedCallback = overlappingPairRemovedCallback;
+    }
+
 }
@@ -0,0 +1,382 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision.broadphase;
+
+import java.util.Arrays;
+import net.smert.frameworkgl.collision.narrowphase.NarrowphaseDispatch;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class IndexedOverlappingPairCache implements OverlappingPairCache {
+
+    public final static int NULL = -1;
+    private final static long EMPTY_KEY = -1L;
+
+    private int capacity;
+    private int free;
+    private int size;
+    private int tableMask;
+    private int[] nextLinks;
+    private int[] prevLinks;
+    private int[] proxyFirstLinks;
+    private int[] tablePairs;
+    private long[] tableKeys;
+    private OverlappingPair[] pairs;
+    private final OverlappingPairFilterCallback overlappingPairFilterCallback;
+    private OverlappingPairRemovedCallback overlappingPairRemovedCallback;
+
+    public IndexedOverlappingPairCache(OverlappingPairFilterCallback overlappingPairFilterCallback) {
+        this.overlappingPairFilterCallback = overlappingPairFilterCallback;
+
+        capacity = 16;
+        free = 0;
+        size = 0;
+        nextLinks = new int[capacity * 2];
+        prevLinks = new int[capacity * 2];
+        proxyFirstLinks = new int[capacity];
+        pairs = new OverlappingPair[capacity];
+        Arrays.fill(proxyFirstLinks, NULL);
+        createPairs(free);
+        createTable();
+    }
+
+    private int allocatePair() {
+
+        // Expand pairs array
+        if (free == NULL) {
+            assert (size == capacity);
+            capacity *= 2;
+            free = size;
+            OverlappingPair[] newPairs = new OverlappingPair[capacity];
+            System.arraycopy(pairs, 0, newPairs, 0, size);
+            pairs = newPairs;
+            nextLinks = Arrays.copyOf(nextLinks, capacity * 2);
+            prevLinks = Arrays.copyOf(prevLinks, capacity * 2);
+            createPairs(free);
+            createTable();
+        }
+
+        // Allocate pair
+        int index = free;
+        OverlappingPair pair = pairs[index];
+        free = pair.next; // Next free pair
+        size++;
+
+        // Defaults
+        pair.frame = OverlappingPair.NULL; // Not touching
+        pair.index = index; // Mark pair in use and also used to free pair
+        pair.next = NULL; // Last free pair
+
+        return index;
+    }
+
+    private void createPairs(int index) {
+        assert (index >= 0);
+        assert (index < capacity);
+
+        // Create all pairs except the last one
+        for (int i = index; i < capacity - 1; i++) {
+            OverlappingPair pair = new OverlappingPair();
+            pair.index = NULL; // Mark not in use
+            pair.next = i + 1; // Next free pair
+            pairs[i] = pair;
+        }
+
+        // Create last pair
+        OverlappingPair pair = new OverlappingPair();
+        pair.index = NULL; // Mark not in use
+        pair.next = NULL; // Last free pair
+        pairs[capacity - 1] = pair;
+    }
+
+    private void createTable() {
+
+        // Keep the table at most half full
+        int tableCapacity = capacity * 2;
+        tableMask = tableCapacity - 1;
+        tableKeys = new long[tableCapacity];
+        tablePairs = new int[tableCapacity];
+        Arrays.fill(tableKeys, EMPTY_KEY);
+
+        // Reinsert pairs that are in use
+        for (int i = 0; i < capacity; i++) {
+            OverlappingPair pair = pairs[i];
+
+            // Skip free pair
+            if (pair.index == NULL) {
+                continue;
+            }
+
+            insertIntoTable(PackKey(pair.proxy0.index, pair.proxy1.index), i);
+        }
+    }
+
+    private void ensureProxyCapacity(int proxyIndex) {
+        if (proxyIndex < proxyFirstLinks.length) {
+            return;
+        }
+
+        int oldLength = proxyFirstLinks.length;
+        int newLength = Math.max(oldLength * 2, proxyIndex + 1);
+        proxyFirstLinks = Arrays.copyOf(proxyFirstLinks, newLength);
+        Arrays.fill(proxyFirstLinks, oldLength, newLength, NULL);
+    }
+
+    private int findSlot(long key) {
+        int slot = Hash(key) & tableMask;
+
+        // Linear probe until we find the key or an empty slot
+        long slotKey;
+        while ((slotKey = tableKeys[slot]) != EMPTY_KEY) {
+            if (slotKey == key) {
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+
+        return NULL;
+    }
+
+    private void freePair(int index) {
+        assert (size > 0);
+        OverlappingPair pair = pairs[index];
+        pair.next = free; // Next free pair
+        free = index;
+        size--;
+        pair.index = NULL; // Mark pair free
+        pair.proxy0 = null;
+        pair.proxy1 = null;
+    }
+
+    private int getProxyIndexOfLink(int link) {
+        OverlappingPair pair = pairs[link >> 1];
+        return ((link & 1) == 0) ? pair.proxy0.index : pair.proxy1.index;
+    }
+
+    private void insertIntoTable(long key, int pairIndex) {
+        int slot = Hash(key) & tableMask;
+
+        // Linear probe until we find an empty slot
+        while (tableKeys[slot] != EMPTY_KEY) {
+            slot = (slot + 1) & tableMask;
+        }
+
+        tableKeys[slot] = key;
+        tablePairs[slot] = pairIndex;
+    }
+
+    private void linkPair(int pairIndex, int proxyIndex0, int proxyIndex1) {
+
+        // Each pair owns two links. The even link is in proxy0's list and the odd link is in proxy1's list.
+        linkProxy(pairIndex << 1, proxyIndex0);
+        linkProxy((pairIndex << 1) | 1, proxyIndex1);
+    }
+
+    private void linkProxy(int link, int proxyIndex) {
+        ensureProxyCapacity(proxyIndex);
+
+        int firstLink = proxyFirstLinks[proxyIndex];
+        nextLinks[link] = firstLink;
+        prevLinks[link] = NULL;
+        if (firstLink != NULL) {
+            prevLinks[firstLink] = link;
+        }
+        proxyFirstLinks[proxyIndex] = link;
+    }
+
+    private void removeFromTable(int slot) {
+        int hole = slot;
+        int current = (slot + 1) & tableMask;
+
+        // Shift back entries in the probe sequence so no tombstones are needed
+        long currentKey;
+        while ((currentKey = tableKeys[current]) != EMPTY_KEY) {
+            int home = Hash(currentKey) & tableMask;
+
+            // Move the entry if the hole is between its home slot and the current slot
+            if (((current - home) & tableMask) >= ((current - hole) & tableMask)) {
+                tableKeys[hole] = currentKey;
+                tablePairs[hole] = tablePairs[current];
+                hole = current;
+            }
+            current = (current + 1) & tableMask;
+        }
+
+        tableKeys[hole] = EMPTY_KEY;
+    }
+
+    private void removePair(int pairIndex) {
+        OverlappingPair pair = pairs[pairIndex];
+        int slot = findSlot(PackKey(pair.proxy0.index, pair.proxy1.index));
+
+        assert (slot != NULL);
+        assert (tablePairs[slot] == pairIndex);
+
+        // Notify before the pair is recycled
+        if (overlappingPairRemovedCallback != null) {
+            overlappingPairRemovedCallback.overlappingPairRemoved(pair);
+        }
+
+        removeFromTable(slot);
+        unlinkProxy(pairIndex << 1);
+        unlinkProxy((pairIndex << 1) | 1);
+        freePair(pairIndex);
+    }
+
+    private void unlinkProxy(int link) {
+        int nextLink = nextLinks[link];
+        int prevLink = prevLinks[link];
+
+        if (prevLink != NULL) {
+            nextLinks[prevLink] = nextLink;
+        } else {
+            proxyFirstLinks[getProxyIndexOfLink(link)] = nextLink;
+        }
+        if (nextLink != NULL) {
+            prevLinks[nextLink] = prevLink;
+        }
+    }
+
+    /**
+     * Links are used to walk the pairs of a single proxy. Ex: for (int link = getFirstLink(proxy); link != NULL;
+     * link = getNextLink(link)).
+     *
+     * @param broadphaseProxy
+     * @return The first link of the proxy or NULL if it isn't part of any pair
+     */
+    public int getFirstLink(BroadphaseProxy broadphaseProxy) {
+        int proxyIndex = broadphaseProxy.index;
+        if ((proxyIndex < 0) || (proxyIndex >= proxyFirstLinks.length)) {
+            return NULL;
+        }
+        return proxyFirstLinks[proxyIndex];
+    }
+
+    public int getNextLink(int link) {
+        return nextLinks[link];
+    }
+
+    public OverlappingPair getOverlappingPair(int link) {
+        return pairs[link >> 1];
+    }
+
+    public OverlappingPair[] getOverlappingPairs() {
+        return pairs;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public OverlappingPair addOverlappingPair(BroadphaseProxy broadphaseProxy0, BroadphaseProxy broadphaseProxy1) {
+        if (!overlappingPairFilterCallback.needsBroadphaseCollision(broadphaseProxy0, broadphaseProxy1)) {
+            return null;
+        }
+
+        // Order proxies by index so (a, b) and (b, a) are the same pair
+        if (broadphaseProxy0.index > broadphaseProxy1.index) {
+            BroadphaseProxy tmp = broadphaseProxy0;
+            broadphaseProxy0 = broadphaseProxy1;
+            broadphaseProxy1 = tmp;
+        }
+
+        assert (broadphaseProxy0.index >= 0);
+        assert (broadphaseProxy0.index != broadphaseProxy1.index);
+
+        // Reuse an existing pair
+        long key = PackKey(broadphaseProxy0.index, broadphaseProxy1.index);
+        int slot = findSlot(key);
+        if (slot != NULL) {
+            return pairs[tablePairs[slot]];
+        }
+
+        // Create new pair
+        int pairIndex = allocatePair();
+        OverlappingPair pair = pairs[pairIndex];
+        pair.proxy0 = broadphaseProxy0;
+        pair.proxy1 = broadphaseProxy1;
+
+        // Save pair
+        insertIntoTable(key, pairIndex);
+        linkPair(pairIndex, broadphaseProxy0.index, broadphaseProxy1.index);
+
+        return pair;
+    }
+
+    @Override
+    public OverlappingPair findOverlappingPair(BroadphaseProxy broadphaseProxy0, BroadphaseProxy broadphaseProxy1) {
+        int slot = findSlot(PackKey(broadphaseProxy0.index, broadphaseProxy1.index));
+        if (slot == NULL) {
+            return null;
+        }
+        return pairs[tablePairs[slot]];
+    }
+
+    @Override
+    public void processOverlappingPairs(NarrowphaseDispatch dispatch) {
+        for (int i = 0; i < capacity; i++) {
+            OverlappingPair pair = pairs[i];
+
+            // Skip free pair
+            if (pair.index == NULL) {
+                continue;
+            }
+
+            if (!dispatch.processOverlappingPair(pair)) {
+                removePair(i);
+            }
+        }
+    }
+
+    @Override
+    public void removeOverlappingPair(BroadphaseProxy broadphaseProxy0, BroadphaseProxy broadphaseProxy1) {
+        int slot = findSlot(PackKey(broadphaseProxy0.index, broadphaseProxy1.index));
+        if (slot != NULL) {
+            removePair(tablePairs[slot]);
+        }
+    }
+
+    @Override
+    public void removeOverlappingPairsContainingProxy(BroadphaseProxy broadphaseProxy) {
+        int proxyIndex = broadphaseProxy.index;
+        if ((proxyIndex < 0) || (proxyIndex >= proxyFirstLinks.length)) {
+            return;
+        }
+
+        // Removing a pair always unlinks the head of this proxy's list
+        int link;
+        while ((link = proxyFirstLinks[proxyIndex]) != NULL) {
+            removePair(link >> 1);
+        }
+    }
+
+    @Override
+    public void setOverlappingPairRemovedCallback(OverlappingPairRemovedCallback overlappingPairRemovedCallback) {
+        this.overlappingPairRemovedCallback = overlappingPairRemovedCallback;
+    }
+
+    private static int Hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long PackKey(int proxyIndex0, int proxyIndex1) {
+        int min = Math.min(proxyIndex0, proxyIndex1);
+        int max = Math.max(proxyIndex0, proxyIndex1);
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+}
@@ -20,6 +20,11 @@ import java.util.Objects;
  */
 public class OverlappingPair {
 
+    public final static int NULL = -1;
+
+    public int frame; // Last frame the pair was touching or NULL if it isn't touching
+    public int index;
+    public int next;
     public BroadphaseProxy proxy0;
     public BroadphaseProxy proxy1;
 
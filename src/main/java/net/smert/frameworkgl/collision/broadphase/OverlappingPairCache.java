@@ -30,4 +30,6 @@ public interface OverlappingPairCache {
 
     public void removeOverlappingPairsContainingProxy(BroadphaseProxy broadphaseProxy);
 
+    public void setOverlappingPairRemovedCallback(OverlappingPairRemovedCallback overlappingPairRemovedCallback);
+
 }
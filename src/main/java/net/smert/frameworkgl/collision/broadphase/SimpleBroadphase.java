@@ -15,6 +15,7 @@ package net.smert.frameworkgl.collision.broadphase;
 import net.smert.frameworkgl.collision.CollisionGameObject;
 import net.smert.frameworkgl.math.AABB;
 import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.Ray;
 import net.smert.frameworkgl.math.Vector3f;
 import net.smert.frameworkgl.opengl.pipeline.PipelineRenderDebugCallback;
 import net.smert.frameworkgl.utils.ThreadLocalVars;
@@ -32,6 +33,9 @@ public class SimpleBroadphase implements BroadphaseAlgorithm {
     private int free;
     private int size;
     private final OverlappingPairCache overlappingPairCache;
+    private float[] inverseDirections;
+    private final float[] queryMaxFractions;
+    private final float[] queryRays;
     private SimpleBroadphaseProxy[] proxies;
     private final Vector3f margin;
 
@@ -42,6 +46,9 @@ public class SimpleBroadphase implements BroadphaseAlgorithm {
         capacity = 16;
         free = 0;
         size = 0;
+        inverseDirections = new float[3];
+        queryMaxFractions = new float[1];
+        queryRays = new float[BroadphaseQueries.RAY_STRIDE];
         proxies = new SimpleBroadphaseProxy[capacity];
         margin = new Vector3f(.1f, .1f, .1f);
         createProxies(free);
@@ -201,9 +208,87 @@ public class SimpleBroadphase implements BroadphaseAlgorithm {
         return true;
     }
 
+    @Override
+    public void queryAabb(AABB aabb, BroadphaseQueryCallback callback) {
+        for (int i = 0; i < proxies.length; i++) {
+            SimpleBroadphaseProxy proxy = proxies[i];
+
+            // Skip free proxy
+            if (proxy.index == NULL) {
+                continue;
+            }
+
+            if (AABBUtilities.DoesAabb0IntersectAabb1(proxy.aabb, aabb) && !callback.processProxy(proxy)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void querySphere(Vector3f center, float radius, BroadphaseQueryCallback callback) {
+        for (int i = 0; i < proxies.length; i++) {
+            SimpleBroadphaseProxy proxy = proxies[i];
+
+            // Skip free proxy
+            if (proxy.index == NULL) {
+                continue;
+            }
+
+            if (BroadphaseQueries.DoesSphereIntersectAabb(center, radius, proxy.aabb)
+                    && !callback.processProxy(proxy)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public float raycast(Ray ray, float maxFraction, BroadphaseRayCallback callback) {
+        BroadphaseQueries.SetRay(queryRays, 0, ray);
+        queryMaxFractions[0] = maxFraction;
+        raycast(queryRays, queryMaxFractions, 1, callback);
+        return queryMaxFractions[0];
+    }
+
+    @Override
+    public void raycast(float[] rays, float[] maxFractions, int rayCount, BroadphaseRayCallback callback) {
+        if (inverseDirections.length < rayCount * 3) {
+            inverseDirections = new float[rayCount * 3];
+        }
+        BroadphaseQueries.SetInverseDirections(rays, inverseDirections, rayCount);
+
+        for (int ray = 0; ray < rayCount; ray++) {
+            float maxFraction = maxFractions[ray];
+
+            for (int i = 0; i < proxies.length; i++) {
+                SimpleBroadphaseProxy proxy = proxies[i];
+
+                // Skip free proxy
+                if (proxy.index == NULL) {
+                    continue;
+                }
+
+                float fraction = BroadphaseQueries.RayFraction(rays, ray, inverseDirections, maxFraction, proxy.aabb);
+                if (fraction < 0f) {
+                    continue;
+                }
+
+                // Stop or clip the ray
+                float callbackFraction = callback.processProxy(ray, proxy, fraction);
+                if (callbackFraction == 0f) {
+                    maxFraction = 0f;
+                    break;
+                }
+                maxFraction = BroadphaseQueries.ClipRay(maxFraction, callbackFraction);
+            }
+
+            maxFractions[ray] = maxFraction;
+        }
+    }
+
     @Override
     public void removeProxy(BroadphaseProxy broadphaseProxy) {
         SimpleBroadphaseProxy proxy = (SimpleBroadphaseProxy) broadphaseProxy;
+        overlappingPairCache.removeOverlappingPairsContainingProxy(proxy);
         freeProxy(proxy);
     }
 
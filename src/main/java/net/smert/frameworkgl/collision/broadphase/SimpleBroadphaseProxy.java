@@ -20,7 +20,6 @@ import net.smert.frameworkgl.math.AABB;
  */
 public class SimpleBroadphaseProxy extends BroadphaseProxy {
 
-    int index;
     int next;
     public final AABB aabb = new AABB();
 
@@ -0,0 +1,611 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision.broadphase;
+
+import java.util.Arrays;
+import net.smert.frameworkgl.collision.CollisionGameObject;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.Ray;
+import net.smert.frameworkgl.math.Vector3f;
+import net.smert.frameworkgl.opengl.pipeline.PipelineRenderDebugCallback;
+import net.smert.frameworkgl.utils.ThreadLocalVars;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class SweepAndPruneBroadphase implements BroadphaseAlgorithm {
+
+    private final static int AXES = 3;
+    private final static int NULL = -1;
+
+    private float displacementMultiplier;
+    private float largestExtentX;
+    private int capacity;
+    private int endpointsSize;
+    private int free;
+    private int movedProxiesSize;
+    private int size;
+    private float[] inverseDirections;
+    private final float[] queryMaxFractions;
+    private final float[] queryRays;
+    private final int[][] endpointData; // Proxy index shifted left by one with the low bit set for max endpoints
+    private int[] endpointPositions; // Position of each proxy's endpoints in the sorted arrays per axis
+    private int[] movedProxies; // Proxies created or moved since pairs were last updated
+    private final float[][] endpointValues;
+    private final IndexedOverlappingPairCache overlappingProxies;
+    private final OverlappingPairCache overlappingPairCache;
+    private SweepAndPruneBroadphaseProxy[] proxies;
+    private final Vector3f margin;
+
+    public SweepAndPruneBroadphase(OverlappingPairCache overlappingPairCache) {
+        this.overlappingPairCache = overlappingPairCache;
+
+        displacementMultiplier = 2f;
+        largestExtentX = 0f;
+        capacity = 16;
+        endpointsSize = 0;
+        free = 0;
+        movedProxiesSize = 0;
+        size = 0;
+        inverseDirections = new float[3];
+        queryMaxFractions = new float[1];
+        queryRays = new float[BroadphaseQueries.RAY_STRIDE];
+        endpointData = new int[AXES][capacity * 2];
+        endpointPositions = new int[capacity * AXES * 2];
+        endpointValues = new float[AXES][capacity * 2];
+        movedProxies = new int[capacity];
+        overlappingProxies = new IndexedOverlappingPairCache((proxy0, proxy1) -> true);
+        proxies = new SweepAndPruneBroadphaseProxy[capacity];
+        margin = new Vector3f(.1f, .1f, .1f);
+        createProxies(free);
+    }
+
+    private SweepAndPruneBroadphaseProxy allocateProxy() {
+
+        // Expand proxies and endpoint arrays
+        if (free == NULL) {
+            assert (size == capacity);
+            capacity *= 2;
+            free = size;
+            SweepAndPruneBroadphaseProxy[] newProxies = new SweepAndPruneBroadphaseProxy[capacity];
+            System.arraycopy(proxies, 0, newProxies, 0, size);
+            proxies = newProxies;
+            for (int axis = 0; axis < AXES; axis++) {
+                endpointData[axis] = Arrays.copyOf(endpointData[axis], capacity * 2);
+                endpointValues[axis] = Arrays.copyOf(endpointValues[axis], capacity * 2);
+            }
+            endpointPositions = Arrays.copyOf(endpointPositions, capacity * AXES * 2);
+            movedProxies = Arrays.copyOf(movedProxies, capacity);
+            createProxies(free);
+        }
+
+        // Allocate proxy
+        int index = free;
+        SweepAndPruneBroadphaseProxy proxy = proxies[index];
+        free = proxy.next; // Next free proxy
+        size++;
+
+        // Defaults
+        proxy.index = index; // Mark proxy in use and also used to free proxy
+        proxy.next = NULL; // Last free proxy
+
+        return proxy;
+    }
+
+    private void createProxies(int index) {
+        assert (index >= 0);
+        assert (index < capacity);
+
+        // Create all proxies except the last one
+        for (int i = index; i < capacity - 1; i++) {
+            SweepAndPruneBroadphaseProxy proxy = new SweepAndPruneBroadphaseProxy();
+            proxy.index = NULL; // Mark not in use
+            proxy.next = i + 1; // Next free proxy
+            proxies[i] = proxy;
+        }
+
+        // Create last proxy
+        SweepAndPruneBroadphaseProxy proxy = new SweepAndPruneBroadphaseProxy();
+        proxy.index = NULL; // Mark not in use
+        proxy.next = NULL; // Last free proxy
+        proxies[capacity - 1] = proxy;
+    }
+
+    private int findFirstEndpoint(float minX) {
+
+        // Proxies that start further left than the widest proxy can't reach the query
+        float value = minX - largestExtentX;
+        float[] values = endpointValues[0];
+        int low = 0;
+        int high = endpointsSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void freeProxy(SweepAndPruneBroadphaseProxy proxy) {
+        assert (size > 0);
+        proxy.next = free; // Next free proxy
+        free = proxy.index;
+        size--;
+        proxy.index = NULL; // Mark proxy free
+        proxy.collisionGameObject = null;
+    }
+
+    private int getEndpointPosition(int proxyIndex, int axis, int isMax) {
+        return endpointPositions[proxyIndex * AXES * 2 + axis * 2 + isMax];
+    }
+
+    private void setEndpointPosition(int proxyIndex, int axis, int isMax, int position) {
+        endpointPositions[proxyIndex * AXES * 2 + axis * 2 + isMax] = position;
+    }
+
+    private void insertEndpoints(SweepAndPruneBroadphaseProxy proxy) {
+        int proxyIndex = proxy.index;
+
+        for (int axis = 0; axis < AXES; axis++) {
+            int[] data = endpointData[axis];
+            float[] values = endpointValues[axis];
+
+            // Append both endpoints at the end of the axis
+            int minPosition = endpointsSize;
+            int maxPosition = endpointsSize + 1;
+            data[minPosition] = proxyIndex << 1;
+            data[maxPosition] = (proxyIndex << 1) | 1;
+            values[minPosition] = proxy.aabb.getMin().getElement(axis);
+            values[maxPosition] = proxy.aabb.getMax().getElement(axis);
+            setEndpointPosition(proxyIndex, axis, 0, minPosition);
+            setEndpointPosition(proxyIndex, axis, 1, maxPosition);
+
+            // Sort both endpoints into place. The min endpoint finds new pairs as it passes max endpoints.
+            sortDown(axis, minPosition);
+            sortDown(axis, maxPosition);
+        }
+
+        endpointsSize += 2;
+    }
+
+    private void growLargestExtent(SweepAndPruneBroadphaseProxy proxy) {
+        largestExtentX = Math.max(largestExtentX, proxy.aabb.getMax().getX() - proxy.aabb.getMin().getX());
+    }
+
+    private boolean isLess(float value0, int data0, float value1, int data1) {
+
+        // Min endpoints come before max endpoints of the same value so touching AABBs overlap
+        return (value0 < value1) || ((value0 == value1) && ((data0 & 1) == 0) && ((data1 & 1) == 1));
+    }
+
+    private void markMoved(SweepAndPruneBroadphaseProxy proxy) {
+        if (proxy.moved) {
+            return;
+        }
+        proxy.moved = true;
+        movedProxies[movedProxiesSize++] = proxy.index;
+    }
+
+    private void removeEndpoints(SweepAndPruneBroadphaseProxy proxy) {
+        int proxyIndex = proxy.index;
+
+        for (int axis = 0; axis < AXES; axis++) {
+            int[] data = endpointData[axis];
+            float[] values = endpointValues[axis];
+            int minPosition = getEndpointPosition(proxyIndex, axis, 0);
+            int maxPosition = getEndpointPosition(proxyIndex, axis, 1);
+
+            // Compact the axis skipping both endpoints
+            int writePosition = minPosition;
+            for (int readPosition = minPosition + 1; readPosition < endpointsSize; readPosition++) {
+                if (readPosition == maxPosition) {
+                    continue;
+                }
+                data[writePosition] = data[readPosition];
+                values[writePosition] = values[readPosition];
+                setEndpointPosition(data[writePosition] >> 1, axis, data[writePosition] & 1, writePosition);
+                writePosition++;
+            }
+        }
+
+        endpointsSize -= 2;
+
+        // Shrink the widest extent again since the axis was walked anyway
+        largestExtentX = 0f;
+        int[] data = endpointData[0];
+        for (int i = 0; i < endpointsSize; i++) {
+            if ((data[i] & 1) == 0) {
+                growLargestExtent(proxies[data[i] >> 1]);
+            }
+        }
+    }
+
+    private void sortDown(int axis, int position) {
+        int[] data = endpointData[axis];
+        float[] values = endpointValues[axis];
+        int movingData = data[position];
+        float movingValue = values[position];
+        int movingProxyIndex = movingData >> 1;
+        boolean movingIsMax = ((movingData & 1) == 1);
+
+        while ((position > 0) && isLess(movingValue, movingData, values[position - 1], data[position - 1])) {
+            int prevData = data[position - 1];
+            int prevProxyIndex = prevData >> 1;
+            boolean prevIsMax = ((prevData & 1) == 1);
+
+            if (prevProxyIndex != movingProxyIndex) {
+                if (!movingIsMax && prevIsMax) {
+
+                    // Min passed a max going down so they could start overlapping
+                    addOverlappingProxies(movingProxyIndex, prevProxyIndex);
+                } else if (movingIsMax && !prevIsMax) {
+
+                    // Max passed a min going down so they stopped overlapping
+                    removeOverlappingProxies(movingProxyIndex, prevProxyIndex);
+                }
+            }
+
+            // Swap endpoints
+            data[position] = prevData;
+            values[position] = values[position - 1];
+            setEndpointPosition(prevProxyIndex, axis, prevData & 1, position);
+            position--;
+        }
+
+        data[position] = movingData;
+        values[position] = movingValue;
+        setEndpointPosition(movingProxyIndex, axis, movingData & 1, position);
+    }
+
+    private void sortUp(int axis, int position) {
+        int[] data = endpointData[axis];
+        float[] values = endpointValues[axis];
+        int movingData = data[position];
+        float movingValue = values[position];
+        int movingProxyIndex = movingData >> 1;
+        boolean movingIsMax = ((movingData & 1) == 1);
+
+        while ((position < endpointsSize - 1)
+                && isLess(values[position + 1], data[position + 1], movingValue, movingData)) {
+            int nextData = data[position + 1];
+            int nextProxyIndex = nextData >> 1;
+            boolean nextIsMax = ((nextData & 1) == 1);
+
+            if (nextProxyIndex != movingProxyIndex) {
+                if (movingIsMax && !nextIsMax) {
+
+                    // Max passed a min going up so they could start overlapping
+                    addOverlappingProxies(movingProxyIndex, nextProxyIndex);
+                } else if (!movingIsMax && nextIsMax) {
+
+                    // Min passed a max going up so they stopped overlapping
+                    removeOverlappingProxies(movingProxyIndex, nextProxyIndex);
+                }
+            }
+
+            // Swap endpoints
+            data[position] = nextData;
+            values[position] = values[position + 1];
+            setEndpointPosition(nextProxyIndex, axis, nextData & 1, position);
+            position++;
+        }
+
+        data[position] = movingData;
+        values[position] = movingValue;
+        setEndpointPosition(movingProxyIndex, axis, movingData & 1, position);
+    }
+
+    private void addOverlappingProxies(int proxyIndex0, int proxyIndex1) {
+        SweepAndPruneBroadphaseProxy proxy0 = proxies[proxyIndex0];
+        SweepAndPruneBroadphaseProxy proxy1 = proxies[proxyIndex1];
+
+        // Crossing on one axis isn't enough, the AABBs must overlap on all axes
+        if (AABBUtilities.DoesAabb0IntersectAabb1(proxy0.aabb, proxy1.aabb)) {
+            overlappingProxies.addOverlappingPair(proxy0, proxy1);
+        }
+    }
+
+    private void removeOverlappingProxies(int proxyIndex0, int proxyIndex1) {
+        SweepAndPruneBroadphaseProxy proxy0 = proxies[proxyIndex0];
+        SweepAndPruneBroadphaseProxy proxy1 = proxies[proxyIndex1];
+
+        if (overlappingProxies.findOverlappingPair(proxy0, proxy1) != null) {
+            overlappingProxies.removeOverlappingPair(proxy0, proxy1);
+            overlappingPairCache.removeOverlappingPair(proxy0, proxy1);
+        }
+    }
+
+    private void updateEndpoints(SweepAndPruneBroadphaseProxy proxy) {
+        int proxyIndex = proxy.index;
+
+        for (int axis = 0; axis < AXES; axis++) {
+            float[] values = endpointValues[axis];
+            int minPosition = getEndpointPosition(proxyIndex, axis, 0);
+            int maxPosition = getEndpointPosition(proxyIndex, axis, 1);
+            float newMin = proxy.aabb.getMin().getElement(axis);
+            float newMax = proxy.aabb.getMax().getElement(axis);
+            float deltaMin = newMin - values[minPosition];
+            float deltaMax = newMax - values[maxPosition];
+            values[minPosition] = newMin;
+            values[maxPosition] = newMax;
+
+            // Grow first so the min endpoint never passes its own max endpoint
+            if (deltaMin < 0f) {
+                sortDown(axis, minPosition);
+            }
+            if (deltaMax > 0f) {
+                sortUp(axis, maxPosition);
+            }
+            if (deltaMin > 0f) {
+                sortUp(axis, getEndpointPosition(proxyIndex, axis, 0));
+            }
+            if (deltaMax < 0f) {
+                sortDown(axis, getEndpointPosition(proxyIndex, axis, 1));
+            }
+        }
+    }
+
+    public float getDisplacementMultiplier() {
+        return displacementMultiplier;
+    }
+
+    public void setDisplacementMultiplier(float displacementMultiplier) {
+        this.displacementMultiplier = displacementMultiplier;
+    }
+
+    public Vector3f getMargin() {
+        return margin;
+    }
+
+    public void setMargin(float margin) {
+        this.margin.set(margin, margin, margin);
+    }
+
+    public void setMargin(float x, float y, float z) {
+        this.margin.set(x, y, z);
+    }
+
+    public void setMargin(Vector3f margin) {
+        this.margin.set(margin);
+    }
+
+    public void validate() {
+        for (int axis = 0; axis < AXES; axis++) {
+            int[] data = endpointData[axis];
+            float[] values = endpointValues[axis];
+
+            for (int i = 0; i < endpointsSize; i++) {
+
+                // Test order and that every endpoint knows where it is
+                assert ((i == 0) || !isLess(values[i], data[i], values[i - 1], data[i - 1]));
+                assert (getEndpointPosition(data[i] >> 1, axis, data[i] & 1) == i);
+            }
+        }
+    }
+
+    @Override
+    public BroadphaseProxy createProxy(CollisionGameObject collisionGameObject, int collisionGroup,
+            int collisionCollidesWith, AABB worldAabb) {
+        SweepAndPruneBroadphaseProxy proxy = allocateProxy();
+
+        // Set proxy AABB and add margin
+        proxy.aabb.set(worldAabb);
+        proxy.aabb.expand(margin);
+        proxy.collisionCollidesWith = collisionCollidesWith;
+        proxy.collisionGameObject = collisionGameObject;
+        proxy.collisionGroup = collisionGroup;
+
+        // Insert proxy endpoints into each axis
+        growLargestExtent(proxy);
+        insertEndpoints(proxy);
+        markMoved(proxy);
+
+        return proxy;
+    }
+
+    @Override
+    public void destroyDebugRender() {
+    }
+
+    @Override
+    public OverlappingPairCache getOverlappingPairCache() {
+        return overlappingPairCache;
+    }
+
+    @Override
+    public PipelineRenderDebugCallback getPipelineRenderDebugCallback() {
+        return null;
+    }
+
+    @Override
+    public boolean moveProxy(BroadphaseProxy broadphaseProxy, AABB worldAabb) {
+
+        // Downcast
+        SweepAndPruneBroadphaseProxy proxy = (SweepAndPruneBroadphaseProxy) broadphaseProxy;
+
+        // Pairs the narrowphase dropped can only start touching again if one of the proxies moved
+        markMoved(proxy);
+
+        // If the new AABB is still contained in the proxy's AABB then we do nothing
+        if (AABBUtilities.IsAabb0ContainedInAabb1(worldAabb, proxy.aabb)) {
+            return false;
+        }
+
+        // Temp vars from thread local storage
+        ThreadLocalVars vars = ThreadLocalVars.Get();
+        Vector3f worldCenterNew = vars.v3f1;
+        Vector3f worldCenterOld = vars.v3f2;
+
+        // Calculate displacement
+        worldCenterNew.set(worldAabb.getMin()).add(worldAabb.getMax()).multiply(.5f);
+        worldCenterOld.set(proxy.aabb.getMin()).add(proxy.aabb.getMax()).multiply(.5f);
+        worldCenterNew.subtract(worldCenterOld).multiply(displacementMultiplier);
+
+        // Set proxy AABB and add margin
+        proxy.aabb.set(worldAabb);
+        proxy.aabb.expand(margin);
+
+        // Expand AABB by the displacement vector
+        if (worldCenterNew.getX() < 0f) {
+            proxy.aabb.getMin().addX(worldCenterNew.getX());
+        } else {
+            proxy.aabb.getMax().addX(worldCenterNew.getX());
+        }
+        if (worldCenterNew.getY() < 0f) {
+            proxy.aabb.getMin().addY(worldCenterNew.getY());
+        } else {
+            proxy.aabb.getMax().addY(worldCenterNew.getY());
+        }
+        if (worldCenterNew.getZ() < 0f) {
+            proxy.aabb.getMin().addZ(worldCenterNew.getZ());
+        } else {
+            proxy.aabb.getMax().addZ(worldCenterNew.getZ());
+        }
+
+        // Release vars instance
+        vars.release();
+
+        // Insertion sort the endpoints which reports pairs that started or stopped overlapping
+        growLargestExtent(proxy);
+        updateEndpoints(proxy);
+
+        return true;
+    }
+
+    @Override
+    public void queryAabb(AABB aabb, BroadphaseQueryCallback callback) {
+        int[] data = endpointData[0];
+        float[] values = endpointValues[0];
+        float maxX = aabb.getMax().getX();
+
+        // Proxies starting after the query ends on the x axis can't overlap
+        for (int i = findFirstEndpoint(aabb.getMin().getX()); (i < endpointsSize) && (values[i] <= maxX); i++) {
+            if ((data[i] & 1) == 1) {
+                continue;
+            }
+            SweepAndPruneBroadphaseProxy proxy = proxies[data[i] >> 1];
+            if (AABBUtilities.DoesAabb0IntersectAabb1(proxy.aabb, aabb) && !callback.processProxy(proxy)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void querySphere(Vector3f center, float radius, BroadphaseQueryCallback callback) {
+        int[] data = endpointData[0];
+        float[] values = endpointValues[0];
+        float maxX = center.getX() + radius;
+
+        // Proxies starting after the sphere ends on the x axis can't overlap
+        for (int i = findFirstEndpoint(center.getX() - radius); (i < endpointsSize) && (values[i] <= maxX); i++) {
+            if ((data[i] & 1) == 1) {
+                continue;
+            }
+            SweepAndPruneBroadphaseProxy proxy = proxies[data[i] >> 1];
+            if (BroadphaseQueries.DoesSphereIntersectAabb(center, radius, proxy.aabb)
+                    && !callback.processProxy(proxy)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public float raycast(Ray ray, float maxFraction, BroadphaseRayCallback callback) {
+        BroadphaseQueries.SetRay(queryRays, 0, ray);
+        queryMaxFractions[0] = maxFraction;
+        raycast(queryRays, queryMaxFractions, 1, callback);
+        return queryMaxFractions[0];
+    }
+
+    @Override
+    public void raycast(float[] rays, float[] maxFractions, int rayCount, BroadphaseRayCallback callback) {
+        if (inverseDirections.length < rayCount * 3) {
+            inverseDirections = new float[rayCount * 3];
+        }
+        BroadphaseQueries.SetInverseDirections(rays, inverseDirections, rayCount);
+
+        int[] data = endpointData[0];
+        float[] values = endpointValues[0];
+
+        for (int ray = 0; ray < rayCount; ray++) {
+            float maxFraction = maxFractions[ray];
+            float originX = rays[ray * BroadphaseQueries.RAY_STRIDE];
+            float directionX = rays[ray * BroadphaseQueries.RAY_STRIDE + 3];
+            float maxX = Math.max(originX, originX + directionX * maxFraction);
+            float minX = Math.min(originX, originX + directionX * maxFraction);
+
+            // Proxies starting after the ray ends on the x axis can't be hit
+            for (int i = findFirstEndpoint(minX); (i < endpointsSize) && (values[i] <= maxX); i++) {
+                if ((data[i] & 1) == 1) {
+                    continue;
+                }
+                SweepAndPruneBroadphaseProxy proxy = proxies[data[i] >> 1];
+                float fraction = BroadphaseQueries.RayFraction(rays, ray, inverseDirections, maxFraction, proxy.aabb);
+                if (fraction < 0f) {
+                    continue;
+                }
+
+                // Stop or clip the ray
+                float callbackFraction = callback.processProxy(ray, proxy, fraction);
+                if (callbackFraction == 0f) {
+                    maxFraction = 0f;
+                    break;
+                }
+                maxFraction = BroadphaseQueries.ClipRay(maxFraction, callbackFraction);
+                maxX = Math.max(originX, originX + directionX * maxFraction);
+            }
+
+            maxFractions[ray] = maxFraction;
+        }
+    }
+
+    @Override
+    public void removeProxy(BroadphaseProxy broadphaseProxy) {
+        SweepAndPruneBroadphaseProxy proxy = (SweepAndPruneBroadphaseProxy) broadphaseProxy;
+        overlappingPairCache.removeOverlappingPairsContainingProxy(proxy);
+        overlappingProxies.removeOverlappingPairsContainingProxy(proxy);
+        removeEndpoints(proxy);
+        freeProxy(proxy);
+    }
+
+    @Override
+    public void updateOverlappingPairs() {
+
+        // The narrowphase removes pairs that aren't touching so add back the overlapping proxies it removed. Only
+        // pairs with a proxy that moved since the last update could have started touching.
+        for (int i = 0; i < movedProxiesSize; i++) {
+            SweepAndPruneBroadphaseProxy proxy = proxies[movedProxies[i]];
+            proxy.moved = false;
+
+            // Skip free proxy
+            if (proxy.index == NULL) {
+                continue;
+            }
+
+            for (int link = overlappingProxies.getFirstLink(proxy); link != IndexedOverlappingPairCache.NULL;
+                    link = overlappingProxies.getNextLink(link)) {
+                OverlappingPair pair = overlappingProxies.getOverlappingPair(link);
+                if (overlappingPairCache.findOverlappingPair(pair.proxy0, pair.proxy1) == null) {
+                    overlappingPairCache.addOverlappingPair(pair.proxy0, pair.proxy1);
+                }
+            }
+        }
+        movedProxiesSize = 0;
+    }
+
+}
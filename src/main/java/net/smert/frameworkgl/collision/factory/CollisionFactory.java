@@ -14,10 +14,14 @@ package net.smert.frameworkgl.collision.factory;
 
 import net.smert.frameworkgl.collision.CollisionGameObject;
 import net.smert.frameworkgl.collision.CollisionWorld;
+import net.smert.frameworkgl.collision.MeshAABBUpdater;
 import net.smert.frameworkgl.collision.broadphase.DefaultOverlappingPairFilterCallback;
 import net.smert.frameworkgl.collision.broadphase.DynamicAABBTreeBroadphase;
 import net.smert.frameworkgl.collision.broadphase.HashedOverlappingPairCache;
+import net.smert.frameworkgl.collision.broadphase.IndexedOverlappingPairCache;
 import net.smert.frameworkgl.collision.broadphase.SimpleBroadphase;
+import net.smert.frameworkgl.collision.broadphase.SweepAndPruneBroadphase;
+import net.smert.frameworkgl.collision.island.IslandManager;
 import net.smert.frameworkgl.collision.narrowphase.DefaultNarrowphaseFilterCallback;
 import net.smert.frameworkgl.collision.narrowphase.NarrowphaseDispatch;
 import net.smert.frameworkgl.collision.response.CollisionResolver;
@@ -77,6 +81,18 @@ public class CollisionFactory {
         return container.getComponent(HashedOverlappingPairCache.class);
     }
 
+    public IndexedOverlappingPairCache createIndexedOverlappingPairCache() {
+        return container.getComponent(IndexedOverlappingPairCache.class);
+    }
+
+    public IslandManager createIslandManager() {
+        return container.getComponent(IslandManager.class);
+    }
+
+    public MeshAABBUpdater createMeshAABBUpdater() {
+        return container.getComponent(MeshAABBUpdater.class);
+    }
+
     public NarrowphaseDispatch createNarrowphaseDispatch() {
         return container.getComponent(NarrowphaseDispatch.class);
     }
@@ -85,4 +101,8 @@ public class CollisionFactory {
         return container.getComponent(SimpleBroadphase.class);
     }
 
+    public SweepAndPruneBroadphase createSweepAndPruneBroadphase() {
+        return container.getComponent(SweepAndPruneBroadphase.class);
+    }
+
 }
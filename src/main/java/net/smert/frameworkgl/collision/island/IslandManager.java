@@ -0,0 +1,176 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision.island;
+
+import java.util.Arrays;
+import java.util.List;
+import net.smert.frameworkgl.collision.CollisionGameObject;
+import net.smert.frameworkgl.utils.StackInt;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class IslandManager {
+
+    private float linearSleepThreshold;
+    private float timeToSleep;
+    private int capacity;
+    private boolean[] islandHasAwake;
+    private boolean[] islandCanSleep;
+    private int[] parents;
+    private CollisionGameObject[] collisionGameObjectsByIndex;
+
+    public IslandManager() {
+        linearSleepThreshold = .1f;
+        timeToSleep = .5f;
+        capacity = 16;
+        islandHasAwake = new boolean[capacity];
+        islandCanSleep = new boolean[capacity];
+        parents = new int[capacity];
+        collisionGameObjectsByIndex = new CollisionGameObject[capacity];
+    }
+
+    private boolean canJoinIsland(CollisionGameObject collisionGameObject) {
+
+        // Static objects would join everything resting on them into a single island
+        return (!collisionGameObject.isStaticObject() && (collisionGameObject.getInverseMass() != 0f));
+    }
+
+    private void ensureCapacity(int index) {
+        if (index < capacity) {
+            return;
+        }
+
+        while (capacity <= index) {
+            capacity *= 2;
+        }
+        islandHasAwake = Arrays.copyOf(islandHasAwake, capacity);
+        islandCanSleep = Arrays.copyOf(islandCanSleep, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        collisionGameObjectsByIndex = Arrays.copyOf(collisionGameObjectsByIndex, capacity);
+    }
+
+    private int find(int index) {
+
+        // Path halving
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    private void union(int index0, int index1) {
+        int root0 = find(index0);
+        int root1 = find(index1);
+        if (root0 != root1) {
+            parents[root0] = root1;
+        }
+    }
+
+    private void updateSleepTime(CollisionGameObject collisionGameObject, float delta) {
+        if (!collisionGameObject.isAwake()) {
+            return;
+        }
+
+        float threshold = linearSleepThreshold * linearSleepThreshold;
+        if (collisionGameObject.canSleep()
+                && (collisionGameObject.getLinearVelocity().magnitudeSquared() <= threshold)) {
+            collisionGameObject.setSleepTime(collisionGameObject.getSleepTime() + delta);
+        } else {
+            collisionGameObject.setSleepTime(0f);
+        }
+    }
+
+    private boolean wantsToSleep(CollisionGameObject collisionGameObject) {
+        return (!collisionGameObject.isAwake() || (collisionGameObject.canSleep()
+                && (collisionGameObject.getSleepTime() >= timeToSleep)));
+    }
+
+    public float getLinearSleepThreshold() {
+        return linearSleepThreshold;
+    }
+
+    public void setLinearSleepThreshold(float linearSleepThreshold) {
+        this.linearSleepThreshold = linearSleepThreshold;
+    }
+
+    public float getTimeToSleep() {
+        return timeToSleep;
+    }
+
+    public void setTimeToSleep(float timeToSleep) {
+        this.timeToSleep = timeToSleep;
+    }
+
+    public void updateIslands(List<CollisionGameObject> collisionGameObjects, StackInt touchingProxyIndexes,
+            float delta) {
+
+        // Every object starts in its own island
+        for (int i = 0, max = collisionGameObjects.size(); i < max; i++) {
+            CollisionGameObject collisionGameObject = collisionGameObjects.get(i);
+            int index = collisionGameObject.getBroadphaseProxy().getIndex();
+            ensureCapacity(index);
+            parents[index] = index;
+            collisionGameObjectsByIndex[index] = collisionGameObject;
+            islandHasAwake[index] = false;
+            islandCanSleep[index] = true;
+        }
+
+        // Join islands of objects that are touching
+        for (int i = 0, max = touchingProxyIndexes.getSize(); i < max; i += 2) {
+            int index0 = touchingProxyIndexes.get(i);
+            int index1 = touchingProxyIndexes.get(i + 1);
+            if (canJoinIsland(collisionGameObjectsByIndex[index0])
+                    && canJoinIsland(collisionGameObjectsByIndex[index1])) {
+                union(index0, index1);
+            }
+        }
+
+        // Accumulate sleep state for each island
+        for (int i = 0, max = collisionGameObjects.size(); i < max; i++) {
+            CollisionGameObject collisionGameObject = collisionGameObjects.get(i);
+            if (!canJoinIsland(collisionGameObject)) {
+                continue;
+            }
+
+            updateSleepTime(collisionGameObject, delta);
+
+            int root = find(collisionGameObject.getBroadphaseProxy().getIndex());
+            islandHasAwake[root] |= collisionGameObject.isAwake();
+            islandCanSleep[root] &= wantsToSleep(collisionGameObject);
+        }
+
+        // Put islands to sleep or wake them up as a whole
+        for (int i = 0, max = collisionGameObjects.size(); i < max; i++) {
+            CollisionGameObject collisionGameObject = collisionGameObjects.get(i);
+            if (!canJoinIsland(collisionGameObject)) {
+                continue;
+            }
+
+            int root = find(collisionGameObject.getBroadphaseProxy().getIndex());
+            if (islandCanSleep[root]) {
+                if (islandHasAwake[root] && collisionGameObject.isAwake()) {
+                    collisionGameObject.putToSleep();
+                }
+            } else if (!collisionGameObject.isAwake()) {
+                collisionGameObject.wakeUp();
+            }
+        }
+
+        // Don't hold on to removed objects
+        Arrays.fill(collisionGameObjectsByIndex, null);
+    }
+
+}
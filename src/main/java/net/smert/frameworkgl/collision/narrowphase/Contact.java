@@ -22,16 +22,25 @@ import net.smert.frameworkgl.math.Vector3f;
 public class Contact {
 
     public float penetration;
+    public float timeOfImpact; // Fraction of the step when a swept contact started touching or 1 if it is touching
     public int index;
     public int next;
     public CollisionGameObject collisionGameObject0;
     public CollisionGameObject collisionGameObject1;
     public final Vector3f normal = new Vector3f(); // On collisionGameObject0 pointing to collisionGameObject1
 
+    public void set(Contact contact) {
+        penetration = contact.penetration;
+        timeOfImpact = contact.timeOfImpact;
+        collisionGameObject0 = contact.collisionGameObject0;
+        collisionGameObject1 = contact.collisionGameObject1;
+        normal.set(contact.normal);
+    }
+
     @Override
     public String toString() {
         return "(collisionGameObject0=" + collisionGameObject0 + " collisionGameObject1= " + collisionGameObject1
-                + " normal= " + normal + " penetration= " + penetration + ")";
+                + " normal= " + normal + " penetration= " + penetration + " timeOfImpact= " + timeOfImpact + ")";
     }
 
 }
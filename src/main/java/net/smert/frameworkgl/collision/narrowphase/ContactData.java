@@ -12,6 +12,9 @@
  */
 package net.smert.frameworkgl.collision.narrowphase;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 /**
  *
  * @author Jason Sorensen <sorensenj@smert.net>
@@ -19,6 +22,9 @@ package net.smert.frameworkgl.collision.narrowphase;
 public class ContactData {
 
     public final static int NULL = -1;
+    private final static Comparator<Contact> PROXY_INDEX_COMPARATOR = (Contact contact0, Contact contact1) -> {
+        return Long.compare(GetProxyIndexKey(contact0), GetProxyIndexKey(contact1));
+    };
 
     private int capacity;
     private int free;
@@ -52,6 +58,16 @@ public class ContactData {
         contacts[capacity - 1] = contact;
     }
 
+    private void createFreeList(int index) {
+        for (int i = index; i < capacity - 1; i++) {
+            Contact contact = contacts[i];
+            contact.index = NULL; // Mark not in use
+            contact.next = i + 1; // Next free contact
+        }
+        contacts[capacity - 1].index = NULL; // Mark not in use
+        contacts[capacity - 1].next = NULL; // Last free contact
+    }
+
     public Contact allocateContact() {
 
         // Expand contacts array
@@ -78,6 +94,14 @@ public class ContactData {
         return contact;
     }
 
+    public void clear() {
+
+        // Every contact is free and they are allocated in order again
+        createFreeList(0);
+        free = 0;
+        size = 0;
+    }
+
     public void freeContact(Contact contact) {
         contact.next = free; // Next free contact
         free = contact.index;
@@ -89,4 +113,32 @@ public class ContactData {
         return contacts;
     }
 
+    public int getSize() {
+        return size;
+    }
+
+    public void sortContacts() {
+
+        // Contacts are only packed at the front of the array when they were allocated after a clear
+        for (int i = 0; i < size; i++) {
+            assert (contacts[i].index != NULL);
+        }
+
+        // Stable sort so contacts of the same pair keep the order the algorithm created them
+        Arrays.sort(contacts, 0, size, PROXY_INDEX_COMPARATOR);
+
+        // Contacts moved so update their index
+        for (int i = 0; i < size; i++) {
+            contacts[i].index = i;
+        }
+    }
+
+    private static long GetProxyIndexKey(Contact contact) {
+        int index0 = contact.collisionGameObject0.getBroadphaseProxy().getIndex();
+        int index1 = contact.collisionGameObject1.getBroadphaseProxy().getIndex();
+        int min = Math.min(index0, index1);
+        int max = Math.max(index0, index1);
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision.narrowphase;
+
+import java.util.Arrays;
+import net.smert.frameworkgl.collision.CollisionGameObject;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class ContactEvents {
+
+    public final static int BEGIN = 0;
+    public final static int PERSIST = 1;
+    public final static int END = 2;
+
+    private int capacity;
+    private int size;
+    private int[] types;
+    private CollisionGameObject[] collisionGameObjects0;
+    private CollisionGameObject[] collisionGameObjects1;
+
+    public ContactEvents() {
+        capacity = 16;
+        size = 0;
+        types = new int[capacity];
+        collisionGameObjects0 = new CollisionGameObject[capacity];
+        collisionGameObjects1 = new CollisionGameObject[capacity];
+    }
+
+    public void addEvent(int type, CollisionGameObject collisionGameObject0,
+            CollisionGameObject collisionGameObject1) {
+
+        // Expand arrays
+        if (size == capacity) {
+            capacity *= 2;
+            types = Arrays.copyOf(types, capacity);
+            collisionGameObjects0 = Arrays.copyOf(collisionGameObjects0, capacity);
+            collisionGameObjects1 = Arrays.copyOf(collisionGameObjects1, capacity);
+        }
+
+        types[size] = type;
+        collisionGameObjects0[size] = collisionGameObject0;
+        collisionGameObjects1[size] = collisionGameObject1;
+        size++;
+    }
+
+    public void clear() {
+        Arrays.fill(collisionGameObjects0, 0, size, null);
+        Arrays.fill(collisionGameObjects1, 0, size, null);
+        size = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void notifyCollisionGameObjects() {
+
+        // Callbacks can remove game objects which adds more events so size must be read every loop
+        for (int i = 0; i < size; i++) {
+            CollisionGameObject collisionGameObject0 = collisionGameObjects0[i];
+            CollisionGameObject collisionGameObject1 = collisionGameObjects1[i];
+
+            switch (types[i]) {
+                case BEGIN:
+                    collisionGameObject0.beginContactWith(collisionGameObject1);
+                    collisionGameObject1.beginContactWith(collisionGameObject0);
+                    break;
+                case PERSIST:
+                    collisionGameObject0.persistContactWith(collisionGameObject1);
+                    collisionGameObject1.persistContactWith(collisionGameObject0);
+                    break;
+                case END:
+                    collisionGameObject0.endContactWith(collisionGameObject1);
+                    collisionGameObject1.endContactWith(collisionGameObject0);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown contact event type: " + types[i]);
+            }
+        }
+
+        clear();
+    }
+
+}
@@ -12,30 +12,210 @@
  */
 package net.smert.frameworkgl.collision.narrowphase;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import net.smert.frameworkgl.collision.CollisionGameObject;
 import net.smert.frameworkgl.collision.broadphase.OverlappingPair;
 import net.smert.frameworkgl.collision.broadphase.OverlappingPairCache;
+import net.smert.frameworkgl.collision.broadphase.OverlappingPairRemovedCallback;
 import net.smert.frameworkgl.collision.narrowphase.algorithm.AABBAABBAlgorithm;
 import net.smert.frameworkgl.collision.narrowphase.algorithm.NarrowphaseAlgorithm;
 import net.smert.frameworkgl.collision.shapes.ShapeType;
+import net.smert.frameworkgl.utils.StackInt;
 
 /**
  *
  * @author Jason Sorensen <sorensenj@smert.net>
  */
-public class NarrowphaseDispatch {
+public class NarrowphaseDispatch implements OverlappingPairRemovedCallback {
 
+    private final static int CHUNK_SIZE = 128;
+    private final static int PAIRS_ASLEEP = -1;
+    private final static int STATE_APPLY = 2;
+    private final static int STATE_GATHER = 1;
+    private final static int STATE_SERIAL = 0;
+
+    private int applyContactIndex;
+    private int applyPairIndex;
+    private int frame;
+    private int gatheredPairsSize;
+    private int parallelThreshold;
+    private int state;
+    private int[] pairContactsAdded;
     private final ContactData contactData;
+    private ContactData[] chunkContactData;
+    private final ContactEvents contactEvents;
+    private ForkJoinPool forkJoinPool;
     private final NarrowphaseAlgorithm[][] doubleDispatch;
     private final NarrowphaseFilterCallback narrowphaseFilterCallback;
+    private OverlappingPair[] gatheredPairs;
+    private final StackInt touchingProxyIndexes;
 
     public NarrowphaseDispatch(NarrowphaseFilterCallback narrowphaseFilterCallback) {
         this.narrowphaseFilterCallback = narrowphaseFilterCallback;
+        applyContactIndex = 0;
+        applyPairIndex = 0;
+        frame = 0;
+        gatheredPairsSize = 0;
+        parallelThreshold = 1024;
+        state = STATE_SERIAL;
+        pairContactsAdded = new int[CHUNK_SIZE];
         contactData = new ContactData();
+        chunkContactData = new ContactData[0];
+        contactEvents = new ContactEvents();
         doubleDispatch = new NarrowphaseAlgorithm[ShapeType.MAX_SHAPE.ordinal()][ShapeType.MAX_SHAPE.ordinal()];
+        gatheredPairs = new OverlappingPair[CHUNK_SIZE];
+        touchingProxyIndexes = new StackInt();
         registerAlgorithm(new AABBAABBAlgorithm(), ShapeType.AABB, ShapeType.AABB);
     }
 
+    private int computeContacts(OverlappingPair pair, ContactData contactData) {
+        CollisionGameObject collisionGameObject0 = pair.proxy0.collisionGameObject;
+        CollisionGameObject collisionGameObject1 = pair.proxy1.collisionGameObject;
+
+        // Pairs of sleeping (or static) objects keep their state until one of them wakes up
+        if (isAsleep(collisionGameObject0) && isAsleep(collisionGameObject1)) {
+            return PAIRS_ASLEEP;
+        }
+
+        if (narrowphaseFilterCallback.needsNarrowphaseCollision(collisionGameObject0, collisionGameObject1)) {
+            NarrowphaseAlgorithm algorithm = findAlgorithm(collisionGameObject0, collisionGameObject1);
+            return algorithm.processCollision(collisionGameObject0, collisionGameObject1, contactData);
+        }
+
+        return 0;
+    }
+
+    private void computeChunk(int chunk) {
+        ContactData chunkData = chunkContactData[chunk];
+        int first = chunk * CHUNK_SIZE;
+        int last = Math.min(first + CHUNK_SIZE, gatheredPairsSize);
+
+        // Contacts for the chunk are allocated in pair order since the chunk's contact data was cleared
+        for (int i = first; i < last; i++) {
+            pairContactsAdded[i] = computeContacts(gatheredPairs[i], chunkData);
+        }
+    }
+
+    private int copyContacts() {
+        int pairIndex = applyPairIndex++;
+        int contactsAdded = pairContactsAdded[pairIndex];
+
+        // Start reading contacts from the beginning of each chunk
+        if ((pairIndex % CHUNK_SIZE) == 0) {
+            applyContactIndex = 0;
+        }
+
+        if (contactsAdded > 0) {
+            Contact[] chunkContacts = chunkContactData[pairIndex / CHUNK_SIZE].getContacts();
+            for (int i = 0; i < contactsAdded; i++) {
+                Contact contact = contactData.allocateContact();
+                contact.set(chunkContacts[applyContactIndex++]);
+            }
+        }
+
+        return contactsAdded;
+    }
+
+    private void ensureGatheredCapacity(int size) {
+        if (size <= gatheredPairs.length) {
+            return;
+        }
+
+        int capacity = gatheredPairs.length;
+        while (capacity < size) {
+            capacity *= 2;
+        }
+        gatheredPairs = Arrays.copyOf(gatheredPairs, capacity);
+        pairContactsAdded = Arrays.copyOf(pairContactsAdded, capacity);
+    }
+
+    private boolean isAsleep(CollisionGameObject collisionGameObject) {
+        return (!collisionGameObject.isAwake() || collisionGameObject.isStaticObject());
+    }
+
+    private void processOverlappingPairsInParallel(OverlappingPairCache overlappingPairCache) {
+
+        // Gather pairs in the order the cache visits them
+        gatheredPairsSize = 0;
+        state = STATE_GATHER;
+        overlappingPairCache.processOverlappingPairs(this);
+
+        // Each chunk of pairs writes to its own contact data
+        int chunks = (gatheredPairsSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkContactData.length < chunks) {
+            int oldLength = chunkContactData.length;
+            chunkContactData = Arrays.copyOf(chunkContactData, chunks);
+            for (int i = oldLength; i < chunks; i++) {
+                chunkContactData[i] = new ContactData();
+            }
+        }
+
+        // Run algorithms
+        if ((chunks > 1) && (gatheredPairsSize >= parallelThreshold)) {
+            forkJoinPool.invoke(new ComputeChunksTask(0, chunks));
+        } else {
+            for (int i = 0; i < chunks; i++) {
+                computeChunk(i);
+            }
+        }
+
+        // Visit the pairs again in the same order to merge contacts, update pairs and remove pairs
+        applyContactIndex = 0;
+        applyPairIndex = 0;
+        state = STATE_APPLY;
+        overlappingPairCache.processOverlappingPairs(this);
+        state = STATE_SERIAL;
+
+        assert (applyPairIndex == gatheredPairsSize);
+
+        // Clear chunks and don't hold on to pairs
+        for (int i = 0; i < chunks; i++) {
+            chunkContactData[i].clear();
+        }
+        Arrays.fill(gatheredPairs, 0, gatheredPairsSize, null);
+    }
+
+    private void saveTouchingPair(OverlappingPair pair) {
+        touchingProxyIndexes.push(pair.proxy0.getIndex());
+        touchingProxyIndexes.push(pair.proxy1.getIndex());
+    }
+
+    private boolean updatePair(OverlappingPair pair, int contactsAdded) {
+        CollisionGameObject collisionGameObject0 = pair.proxy0.collisionGameObject;
+        CollisionGameObject collisionGameObject1 = pair.proxy1.collisionGameObject;
+
+        // Sleeping pairs keep touching
+        if (contactsAdded == PAIRS_ASLEEP) {
+            if (pair.frame != OverlappingPair.NULL) {
+                pair.frame = frame;
+                saveTouchingPair(pair);
+            }
+            return true;
+        }
+
+        // Still touching or touching for the first time
+        if (contactsAdded > 0) {
+            if (pair.frame == OverlappingPair.NULL) {
+                contactEvents.addEvent(ContactEvents.BEGIN, collisionGameObject0, collisionGameObject1);
+            } else {
+                contactEvents.addEvent(ContactEvents.PERSIST, collisionGameObject0, collisionGameObject1);
+            }
+            pair.frame = frame;
+            saveTouchingPair(pair);
+            return true;
+        }
+
+        // Stopped touching
+        if (pair.frame != OverlappingPair.NULL) {
+            contactEvents.addEvent(ContactEvents.END, collisionGameObject0, collisionGameObject1);
+            pair.frame = OverlappingPair.NULL;
+        }
+
+        return false;
+    }
+
     public NarrowphaseAlgorithm findAlgorithm(CollisionGameObject collisionGameObject0,
             CollisionGameObject collisionGameObject1) {
         int value0 = collisionGameObject0.getShapeType().ordinal();
@@ -47,21 +227,75 @@ public class NarrowphaseDispatch {
         return contactData;
     }
 
+    public ContactEvents getContactEvents() {
+        return contactEvents;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+
+        // Algorithms and the narrowphase filter callback must be thread safe when a pool is set
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public int getFrame() {
+        return frame;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public StackInt getTouchingProxyIndexes() {
+        return touchingProxyIndexes;
+    }
+
     public boolean processOverlappingPair(OverlappingPair pair) {
-        CollisionGameObject collisionGameObject0 = pair.proxy0.collisionGameObject;
-        CollisionGameObject collisionGameObject1 = pair.proxy1.collisionGameObject;
+        switch (state) {
+            case STATE_SERIAL:
+                return updatePair(pair, computeContacts(pair, contactData));
+            case STATE_GATHER:
+                ensureGatheredCapacity(gatheredPairsSize + 1);
+                gatheredPairs[gatheredPairsSize++] = pair;
+                return true;
+            case STATE_APPLY:
+                assert (gatheredPairs[applyPairIndex] == pair);
+                return updatePair(pair, copyContacts());
+            default:
+                throw new IllegalStateException("Unknown narrowphase state: " + state);
+        }
+    }
 
-        if (narrowphaseFilterCallback.needsNarrowphaseCollision(collisionGameObject0, collisionGameObject1)) {
-            NarrowphaseAlgorithm algorithm = findAlgorithm(collisionGameObject0, collisionGameObject1);
-            int contactsAdded = algorithm.processCollision(collisionGameObject0, collisionGameObject1, contactData);
-            return (contactsAdded > 0);
+    public void processOverlappingPairs(OverlappingPairCache overlappingPairCache) {
+        frame++;
+        touchingProxyIndexes.clear();
+
+        if (forkJoinPool == null) {
+            overlappingPairCache.processOverlappingPairs(this);
+        } else {
+            processOverlappingPairsInParallel(overlappingPairCache);
         }
 
-        return false;
+        // Resolve contacts in proxy index order no matter how they were created
+        contactData.sortContacts();
     }
 
-    public void processOverlappingPairs(OverlappingPairCache overlappingPairCache) {
-        overlappingPairCache.processOverlappingPairs(this);
+    @Override
+    public void overlappingPairRemoved(OverlappingPair pair) {
+
+        // The broadphase removed a pair that was touching
+        if (pair.frame != OverlappingPair.NULL) {
+            contactEvents.addEvent(ContactEvents.END, pair.proxy0.collisionGameObject,
+                    pair.proxy1.collisionGameObject);
+            pair.frame = OverlappingPair.NULL;
+        }
     }
 
     public final void registerAlgorithm(NarrowphaseAlgorithm algorithm, ShapeType shapeType0, ShapeType shapeType1) {
@@ -70,4 +304,29 @@ public class NarrowphaseDispatch {
         doubleDispatch[value0][value1] = algorithm;
     }
 
+    private class ComputeChunksTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final int firstChunk;
+        private final int lastChunk;
+
+        private ComputeChunksTask(int firstChunk, int lastChunk) {
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk == 1) {
+                computeChunk(firstChunk);
+                return;
+            }
+
+            int middleChunk = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new ComputeChunksTask(firstChunk, middleChunk), new ComputeChunksTask(middleChunk, lastChunk));
+        }
+
+    }
+
 }
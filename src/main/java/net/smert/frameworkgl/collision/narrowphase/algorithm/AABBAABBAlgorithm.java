@@ -25,6 +25,68 @@ import net.smert.frameworkgl.utils.ThreadLocalVars;
  */
 public class AABBAABBAlgorithm implements NarrowphaseAlgorithm {
 
+    private int processSweptCollision(CollisionGameObject collisionGameObject0,
+            CollisionGameObject collisionGameObject1, ContactData contactData) {
+        AABB aabb0 = collisionGameObject0.getWorldAabb();
+        AABB aabb1 = collisionGameObject1.getWorldAabb();
+        boolean swept0 = collisionGameObject0.needsSweptCollision();
+        boolean swept1 = collisionGameObject1.needsSweptCollision();
+        Vector3f position0 = collisionGameObject0.getWorldPosition();
+        Vector3f position1 = collisionGameObject1.getWorldPosition();
+        Vector3f previousPosition0 = collisionGameObject0.getPreviousPosition();
+        Vector3f previousPosition1 = collisionGameObject1.getPreviousPosition();
+
+        // Sweep the center of aabb0 from where it started against aabb1 where it started, expanded by the half
+        // extends of aabb0. Objects that aren't swept didn't move during the step.
+        float timeOfImpact = Float.NEGATIVE_INFINITY;
+        float timeOfExit = Float.POSITIVE_INFINITY;
+        int impactAxis = -1;
+        float impactDisplacement = 0f;
+        for (int axis = 0; axis < 3; axis++) {
+            float displacement0 = swept0 ? position0.getElement(axis) - previousPosition0.getElement(axis) : 0f;
+            float displacement1 = swept1 ? position1.getElement(axis) - previousPosition1.getElement(axis) : 0f;
+            float displacement = displacement0 - displacement1;
+            float extend0 = (aabb0.getMax().getElement(axis) - aabb0.getMin().getElement(axis)) * .5f;
+            float center0 = (aabb0.getMin().getElement(axis) + aabb0.getMax().getElement(axis)) * .5f - displacement0;
+            float min1 = aabb1.getMin().getElement(axis) - displacement1 - extend0;
+            float max1 = aabb1.getMax().getElement(axis) - displacement1 + extend0;
+
+            if (displacement == 0f) {
+                if ((center0 <= min1) || (center0 >= max1)) {
+                    return 0; // Never overlaps on this axis
+                }
+                continue;
+            }
+
+            float t0 = (min1 - center0) / displacement;
+            float t1 = (max1 - center0) / displacement;
+            float enter = Math.min(t0, t1);
+            float exit = Math.max(t0, t1);
+            if (enter > timeOfImpact) {
+                timeOfImpact = enter;
+                impactAxis = axis;
+                impactDisplacement = displacement;
+            }
+            timeOfExit = Math.min(timeOfExit, exit);
+        }
+
+        // Missed, started overlapping (the discrete test handles it) or impact is after this step
+        if ((impactAxis == -1) || (timeOfImpact >= timeOfExit) || (timeOfImpact <= 0f) || (timeOfImpact > 1f)) {
+            return 0;
+        }
+
+        // Create contact. The normal points along the relative motion into collisionGameObject1.
+        Contact contact = contactData.allocateContact();
+        contact.collisionGameObject0 = collisionGameObject0;
+        contact.collisionGameObject1 = collisionGameObject1;
+        contact.normal.zero();
+        contact.normal.setElement(impactAxis, (impactDisplacement > 0f) ? 1f : -1f);
+        contact.penetration = 0f;
+        contact.timeOfImpact = timeOfImpact;
+
+        return 1;
+    }
+
     @Override
     public int processCollision(CollisionGameObject collisionGameObject0, CollisionGameObject collisionGameObject1,
             ContactData contactData) {
@@ -61,6 +123,11 @@ public class AABBAABBAlgorithm implements NarrowphaseAlgorithm {
             // Release vars instance
             vars.release();
 
+            // Fast objects could have passed through each other during the step
+            if (collisionGameObject0.needsSweptCollision() || collisionGameObject1.needsSweptCollision()) {
+                return processSweptCollision(collisionGameObject0, collisionGameObject1, contactData);
+            }
+
             return 0; // No penetration
         }
 
@@ -91,6 +158,7 @@ public class AABBAABBAlgorithm implements NarrowphaseAlgorithm {
         contact.collisionGameObject1 = collisionGameObject1;
         contact.normal.set(normal);
         contact.penetration = penetration.getElement(maxAxis);
+        contact.timeOfImpact = 1f;
 
         // Release vars instance
         vars.release();
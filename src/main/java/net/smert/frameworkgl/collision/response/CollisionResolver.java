@@ -13,8 +13,13 @@
 package net.smert.frameworkgl.collision.response;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import net.smert.frameworkgl.collision.CollisionGameObject;
+import net.smert.frameworkgl.collision.CollisionWorld;
 import net.smert.frameworkgl.collision.narrowphase.Contact;
 import net.smert.frameworkgl.collision.narrowphase.ContactData;
 import net.smert.frameworkgl.math.Vector3f;
@@ -26,12 +31,69 @@ import net.smert.frameworkgl.utils.ThreadLocalVars;
  */
 public class CollisionResolver {
 
+    private final static Comparator<Contact> TIME_OF_IMPACT_COMPARATOR = (Contact contact0, Contact contact1) -> {
+        return Float.compare(contact0.timeOfImpact, contact1.timeOfImpact);
+    };
+
     private final CollisionResponseFilterCallback collisionResponseFilterCallback;
     private final List<Contact> contactsToFree;
+    private final List<Contact> sweptContacts;
+    private final Set<CollisionGameObject> resolvedSweptObjects;
 
     public CollisionResolver(CollisionResponseFilterCallback collisionResponseFilterCallback) {
         this.collisionResponseFilterCallback = collisionResponseFilterCallback;
         contactsToFree = new ArrayList<>();
+        sweptContacts = new ArrayList<>();
+        resolvedSweptObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private void advanceSweptObject(CollisionGameObject collisionGameObject, float delta) {
+        Vector3f position = collisionGameObject.getWorldPosition();
+        position.addScaled(collisionGameObject.getLinearVelocity(), delta);
+    }
+
+    private void resolveSweptCollision(Contact contact, float delta) {
+        CollisionGameObject collisionGameObject0 = contact.collisionGameObject0;
+        CollisionGameObject collisionGameObject1 = contact.collisionGameObject1;
+        boolean swept0 = collisionGameObject0.needsSweptCollision();
+        boolean swept1 = collisionGameObject1.needsSweptCollision();
+
+        // Only the earliest impact of a swept object is handled during a step
+        if ((swept0 && resolvedSweptObjects.contains(collisionGameObject0))
+                || (swept1 && resolvedSweptObjects.contains(collisionGameObject1))) {
+            return;
+        }
+
+        // Move swept objects back to the time of impact
+        float timeOfImpact = contact.timeOfImpact;
+        if (swept0) {
+            rewindSweptObject(collisionGameObject0, timeOfImpact);
+            resolvedSweptObjects.add(collisionGameObject0);
+        }
+        if (swept1) {
+            rewindSweptObject(collisionGameObject1, timeOfImpact);
+            resolvedSweptObjects.add(collisionGameObject1);
+        }
+
+        // The objects are touching so only velocities change
+        resolveCollision(contact);
+
+        // Use the new velocities for the rest of the step
+        float remainingDelta = (1f - timeOfImpact) * delta;
+        if (swept0) {
+            advanceSweptObject(collisionGameObject0, remainingDelta);
+        }
+        if (swept1) {
+            advanceSweptObject(collisionGameObject1, remainingDelta);
+        }
+    }
+
+    private void rewindSweptObject(CollisionGameObject collisionGameObject, float timeOfImpact) {
+        Vector3f position = collisionGameObject.getWorldPosition();
+        Vector3f previousPosition = collisionGameObject.getPreviousPosition();
+
+        // position = previousPosition + (position - previousPosition) * timeOfImpact
+        position.subtract(previousPosition).multiply(timeOfImpact).add(previousPosition);
     }
 
     private void resolveCollision(Contact contact) {
@@ -77,7 +139,7 @@ public class CollisionResolver {
         vars.release();
     }
 
-    public void processContacts(ContactData contactData) {
+    public void processContacts(CollisionWorld collisionWorld, ContactData contactData, float delta) {
         Contact[] contacts = contactData.getContacts();
 
         for (int i = 0; i < contacts.length; i++) {
@@ -88,16 +150,35 @@ public class CollisionResolver {
                 continue;
             }
 
-            // Resolve collision
+            // Resolve collision. Swept contacts are resolved after all other contacts.
             if (collisionResponseFilterCallback.needsCollisionResponse(contact.collisionGameObject0,
                     contact.collisionGameObject1)) {
-                resolveCollision(contact);
+                if (contact.timeOfImpact < 1f) {
+                    sweptContacts.add(contact);
+                } else {
+                    resolveCollision(contact);
+                }
             }
 
             // Save contact to list
             contactsToFree.add(contact);
         }
 
+        // Sub-step swept contacts in order of time of impact
+        if (sweptContacts.size() > 0) {
+            Collections.sort(sweptContacts, TIME_OF_IMPACT_COMPARATOR);
+            for (Contact contact : sweptContacts) {
+                resolveSweptCollision(contact, delta);
+            }
+
+            // Swept objects were moved so refresh their world AABB and broadphase proxy
+            for (CollisionGameObject collisionGameObject : resolvedSweptObjects) {
+                collisionWorld.updateAabb(collisionGameObject);
+            }
+            resolvedSweptObjects.clear();
+            sweptContacts.clear();
+        }
+
         // Notify collision game objects that there was a collision
         for (Contact contact : contactsToFree) {
             CollisionGameObject collisionGameObject0 = contact.collisionGameObject0;
@@ -107,9 +188,7 @@ public class CollisionResolver {
         }
 
         // Free all contacts
-        for (Contact contact : contactsToFree) {
-            contactData.freeContact(contact);
-        }
+        contactData.clear();
 
         // Clear list
         contactsToFree.clear();
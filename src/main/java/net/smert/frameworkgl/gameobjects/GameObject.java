@@ -26,6 +26,8 @@ import net.smert.frameworkgl.opengl.renderable.RenderableState;
  */
 public class GameObject {
 
+    int transformAABBStoreSlot;
+    TransformAABBStore transformAABBStore;
     private final AABB worldAabb;
     private AbstractRenderable renderable;
     private Mesh mesh;
@@ -34,6 +36,7 @@ public class GameObject {
     private final Transform4f worldTransform;
 
     public GameObject() {
+        transformAABBStoreSlot = TransformAABBStore.NULL;
         worldAabb = new AABB();
         renderableState = new RenderableState();
         worldTransform = new Transform4f();
@@ -73,6 +76,11 @@ public class GameObject {
 
     public void setMesh(Mesh mesh) {
         this.mesh = mesh;
+
+        // The store keeps its own copy of the local AABB
+        if (transformAABBStore != null) {
+            transformAABBStore.updateLocalAabb(this);
+        }
     }
 
     public RenderableState getRenderableState() {
@@ -88,6 +96,25 @@ public class GameObject {
         return this;
     }
 
+    public TransformAABBStore getTransformAABBStore() {
+        return transformAABBStore;
+    }
+
+    public void setTransformAABBStore(TransformAABBStore transformAABBStore) {
+
+        // The world AABB is updated by the store's batch update instead of one game object at a time
+        if (this.transformAABBStore != null) {
+            this.transformAABBStore.removeGameObject(this);
+        }
+        if (transformAABBStore != null) {
+            transformAABBStore.addGameObject(this);
+        }
+    }
+
+    public int getTransformAABBStoreSlot() {
+        return transformAABBStoreSlot;
+    }
+
     public Transform4f getWorldTransform() {
         return worldTransform;
     }
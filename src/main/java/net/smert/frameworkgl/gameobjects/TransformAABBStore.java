@@ -0,0 +1,312 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.gameobjects;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.Transform4f;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class TransformAABBStore {
+
+    public final static int NULL = -1;
+    private final static int CHUNK_SIZE = 1024;
+
+    private int capacity;
+    private int free;
+    private int parallelThreshold;
+    private int size;
+    private int slotCount; // Slots below this have been used at least once
+    private boolean[] activeSlots; // Inactive slots keep their world AABB during updates
+    private int[] nextFree;
+    private float[] localAabbs;
+    private float[] worldAabbs;
+    private float[] worldTransforms;
+    private ForkJoinPool forkJoinPool;
+    private GameObject[] gameObjects;
+
+    public TransformAABBStore() {
+        capacity = 16;
+        free = NULL;
+        parallelThreshold = 8192;
+        size = 0;
+        slotCount = 0;
+        activeSlots = new boolean[capacity];
+        nextFree = new int[capacity];
+        localAabbs = new float[capacity * AABBUtilities.AABB_STRIDE];
+        worldAabbs = new float[capacity * AABBUtilities.AABB_STRIDE];
+        worldTransforms = new float[capacity * AABBUtilities.TRANSFORM_STRIDE];
+        gameObjects = new GameObject[capacity];
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots <= capacity) {
+            return;
+        }
+
+        while (capacity < slots) {
+            capacity *= 2;
+        }
+        activeSlots = Arrays.copyOf(activeSlots, capacity);
+        nextFree = Arrays.copyOf(nextFree, capacity);
+        localAabbs = Arrays.copyOf(localAabbs, capacity * AABBUtilities.AABB_STRIDE);
+        worldAabbs = Arrays.copyOf(worldAabbs, capacity * AABBUtilities.AABB_STRIDE);
+        worldTransforms = Arrays.copyOf(worldTransforms, capacity * AABBUtilities.TRANSFORM_STRIDE);
+        gameObjects = Arrays.copyOf(gameObjects, capacity);
+    }
+
+    private void gatherWorldTransforms(int first, int last) {
+        for (int i = first; i < last; i++) {
+            GameObject gameObject = gameObjects[i];
+            if (gameObject != null) {
+                gameObject.getWorldTransform().toRowArray(worldTransforms, i * AABBUtilities.TRANSFORM_STRIDE);
+            }
+        }
+    }
+
+    private void scatterWorldAabbs(int first, int last) {
+        for (int i = first; i < last; i++) {
+            GameObject gameObject = gameObjects[i];
+            if (gameObject != null) {
+                gameObject.getWorldAabb().fromArray(worldAabbs, i * AABBUtilities.AABB_STRIDE);
+            }
+        }
+    }
+
+    private void update(float margin, boolean updateGameObjects) {
+        if ((forkJoinPool != null) && (slotCount >= parallelThreshold) && (slotCount > CHUNK_SIZE)) {
+            forkJoinPool.invoke(new UpdateTask(0, slotCount, margin, updateGameObjects));
+        } else {
+            updateRange(0, slotCount, margin, updateGameObjects);
+        }
+    }
+
+    private void updateRange(int first, int last, float margin, boolean updateGameObjects) {
+        int runFirst = first;
+        while (runFirst < last) {
+
+            // Skip free, static and sleeping slots
+            while ((runFirst < last) && !activeSlots[runFirst]) {
+                runFirst++;
+            }
+
+            // Transform each run of active slots together
+            int runLast = runFirst;
+            while ((runLast < last) && activeSlots[runLast]) {
+                runLast++;
+            }
+            if (runFirst < runLast) {
+                updateRun(runFirst, runLast, margin, updateGameObjects);
+            }
+            runFirst = runLast;
+        }
+    }
+
+    private void updateRun(int first, int last, float margin, boolean updateGameObjects) {
+        if (updateGameObjects) {
+            gatherWorldTransforms(first, last);
+        }
+
+        AABBUtilities.Transform(localAabbs, margin, worldTransforms, worldAabbs, first, last);
+
+        if (updateGameObjects) {
+            scatterWorldAabbs(first, last);
+        }
+    }
+
+    public int allocateSlot() {
+        int slot;
+
+        // Reuse a free slot or use a new one
+        if (free != NULL) {
+            slot = free;
+            free = nextFree[slot];
+        } else {
+            ensureCapacity(slotCount + 1);
+            slot = slotCount++;
+        }
+        activeSlots[slot] = true;
+        nextFree[slot] = NULL;
+        size++;
+
+        return slot;
+    }
+
+    public void freeSlot(int slot) {
+        assert (slot >= 0);
+        assert (slot < slotCount);
+
+        // Zero data so the slot doesn't produce garbage during updates
+        Arrays.fill(localAabbs, slot * AABBUtilities.AABB_STRIDE, (slot + 1) * AABBUtilities.AABB_STRIDE, 0f);
+        Arrays.fill(worldAabbs, slot * AABBUtilities.AABB_STRIDE, (slot + 1) * AABBUtilities.AABB_STRIDE, 0f);
+        Arrays.fill(worldTransforms, slot * AABBUtilities.TRANSFORM_STRIDE,
+                (slot + 1) * AABBUtilities.TRANSFORM_STRIDE, 0f);
+        activeSlots[slot] = false;
+        gameObjects[slot] = null;
+        nextFree[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    public void addGameObject(GameObject gameObject) {
+        if (gameObject.transformAABBStore != null) {
+            throw new IllegalStateException("The game object is already in a transform AABB store");
+        }
+
+        int slot = allocateSlot();
+        gameObjects[slot] = gameObject;
+        gameObject.transformAABBStore = this;
+        gameObject.transformAABBStoreSlot = slot;
+        updateLocalAabb(gameObject);
+        gameObject.getWorldTransform().toRowArray(worldTransforms, slot * AABBUtilities.TRANSFORM_STRIDE);
+    }
+
+    public void removeGameObject(GameObject gameObject) {
+        if (gameObject.transformAABBStore != this) {
+            throw new IllegalStateException("The game object is not in this transform AABB store");
+        }
+
+        freeSlot(gameObject.transformAABBStoreSlot);
+        gameObject.transformAABBStore = null;
+        gameObject.transformAABBStoreSlot = NULL;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public void setLocalAabb(int slot, AABB localAabb) {
+        localAabb.toArray(localAabbs, slot * AABBUtilities.AABB_STRIDE);
+    }
+
+    public float[] getLocalAabbs() {
+        return localAabbs;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isSlotActive(int slot) {
+        return activeSlots[slot];
+    }
+
+    public void setSlotActive(int slot, boolean active) {
+        activeSlots[slot] = active;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public void getWorldAabb(int slot, AABB worldAabb) {
+        worldAabb.fromArray(worldAabbs, slot * AABBUtilities.AABB_STRIDE);
+    }
+
+    public float[] getWorldAabbs() {
+        return worldAabbs;
+    }
+
+    public void setWorldTransform(int slot, Transform4f worldTransform) {
+        worldTransform.toRowArray(worldTransforms, slot * AABBUtilities.TRANSFORM_STRIDE);
+    }
+
+    public float[] getWorldTransforms() {
+        return worldTransforms;
+    }
+
+    public void updateGameObjects() {
+        update(0f, true);
+    }
+
+    public void updateGameObjects(float margin) {
+        update(margin, true);
+    }
+
+    /**
+     * Copies the AABB of the game object's mesh into the store. GameObject.setMesh() calls this. Code that changes the
+     * AABB of a mesh in place must call it for each game object in the store that uses the mesh.
+     *
+     * @param gameObject
+     */
+    public void updateLocalAabb(GameObject gameObject) {
+        assert (gameObject.transformAABBStore == this);
+        int offset = gameObject.transformAABBStoreSlot * AABBUtilities.AABB_STRIDE;
+
+        // Game objects without a mesh are a point at their position
+        Mesh mesh = gameObject.getMesh();
+        if (mesh != null) {
+            mesh.getAabb().toArray(localAabbs, offset);
+        } else {
+            Arrays.fill(localAabbs, offset, offset + AABBUtilities.AABB_STRIDE, 0f);
+        }
+    }
+
+    public void updateWorldAabbs() {
+        update(0f, false);
+    }
+
+    public void updateWorldAabbs(float margin) {
+        update(margin, false);
+    }
+
+    private class UpdateTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final boolean updateGameObjects;
+        private final float margin;
+        private final int first;
+        private final int last;
+
+        private UpdateTask(int first, int last, float margin, boolean updateGameObjects) {
+            this.updateGameObjects = updateGameObjects;
+            this.margin = margin;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first <= CHUNK_SIZE) {
+                updateRange(first, last, margin, updateGameObjects);
+                return;
+            }
+
+            int middle = (first + last) >>> 1;
+            invokeAll(new UpdateTask(first, middle, margin, updateGameObjects),
+                    new UpdateTask(middle, last, margin, updateGameObjects));
+        }
+
+    }
+
+}
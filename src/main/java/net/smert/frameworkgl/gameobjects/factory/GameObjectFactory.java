@@ -13,6 +13,7 @@
 package net.smert.frameworkgl.gameobjects.factory;
 
 import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.gameobjects.TransformAABBStore;
 import org.picocontainer.MutablePicoContainer;
 
 /**
@@ -31,4 +32,8 @@ public class GameObjectFactory {
         return container.getComponent(GameObject.class);
     }
 
+    public TransformAABBStore createTransformAABBStore() {
+        return container.getComponent(TransformAABBStore.class);
+    }
+
 }
@@ -50,6 +50,20 @@ public class AABB {
         min.set(x, y, z);
     }
 
+    public void fromArray(float[] in, int offset) {
+        min.set(in[offset], in[offset + 1], in[offset + 2]);
+        max.set(in[offset + 3], in[offset + 4], in[offset + 5]);
+    }
+
+    public void toArray(float[] out, int offset) {
+        out[offset] = min.x;
+        out[offset + 1] = min.y;
+        out[offset + 2] = min.z;
+        out[offset + 3] = max.x;
+        out[offset + 4] = max.y;
+        out[offset + 5] = max.z;
+    }
+
     public void expand(Vector3f amount) {
         max.add(amount);
         min.subtract(amount);
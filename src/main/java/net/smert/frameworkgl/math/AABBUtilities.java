@@ -20,6 +20,9 @@ import net.smert.frameworkgl.utils.ThreadLocalVars;
  */
 public class AABBUtilities {
 
+    public final static int AABB_STRIDE = 6; // Min xyz then max xyz
+    public final static int TRANSFORM_STRIDE = 12; // Row major rotation then position
+
     private AABBUtilities() {
     }
 
@@ -99,6 +102,62 @@ public class AABBUtilities {
         vars.release();
     }
 
+    public static void Transform(float[] localAabbs, float margin, float[] worldTransforms, float[] worldAabbs,
+            int first, int last) {
+
+        // Same operations in the same order as Transform(AABB, float, Transform4f, AABB) for packed arrays
+        for (int i = first; i < last; i++) {
+            int aabbIndex = i * AABB_STRIDE;
+            int transformIndex = i * TRANSFORM_STRIDE;
+
+            // Local center and extent
+            float localMinX = localAabbs[aabbIndex];
+            float localMinY = localAabbs[aabbIndex + 1];
+            float localMinZ = localAabbs[aabbIndex + 2];
+            float localMaxX = localAabbs[aabbIndex + 3];
+            float localMaxY = localAabbs[aabbIndex + 4];
+            float localMaxZ = localAabbs[aabbIndex + 5];
+            float localPositionX = (localMinX + localMaxX) * .5f;
+            float localPositionY = (localMinY + localMaxY) * .5f;
+            float localPositionZ = (localMinZ + localMaxZ) * .5f;
+            float localExtentX = (localMaxX - localMinX) * .5f + margin;
+            float localExtentY = (localMaxY - localMinY) * .5f + margin;
+            float localExtentZ = (localMaxZ - localMinZ) * .5f + margin;
+
+            // Rotation rows
+            float r00 = worldTransforms[transformIndex];
+            float r01 = worldTransforms[transformIndex + 1];
+            float r02 = worldTransforms[transformIndex + 2];
+            float r10 = worldTransforms[transformIndex + 3];
+            float r11 = worldTransforms[transformIndex + 4];
+            float r12 = worldTransforms[transformIndex + 5];
+            float r20 = worldTransforms[transformIndex + 6];
+            float r21 = worldTransforms[transformIndex + 7];
+            float r22 = worldTransforms[transformIndex + 8];
+
+            // World center and extent
+            float worldPositionX = r00 * localPositionX + r01 * localPositionY + r02 * localPositionZ
+                    + worldTransforms[transformIndex + 9];
+            float worldPositionY = r10 * localPositionX + r11 * localPositionY + r12 * localPositionZ
+                    + worldTransforms[transformIndex + 10];
+            float worldPositionZ = r20 * localPositionX + r21 * localPositionY + r22 * localPositionZ
+                    + worldTransforms[transformIndex + 11];
+            float worldExtentX = Math.abs(r00) * localExtentX + Math.abs(r01) * localExtentY
+                    + Math.abs(r02) * localExtentZ;
+            float worldExtentY = Math.abs(r10) * localExtentX + Math.abs(r11) * localExtentY
+                    + Math.abs(r12) * localExtentZ;
+            float worldExtentZ = Math.abs(r20) * localExtentX + Math.abs(r21) * localExtentY
+                    + Math.abs(r22) * localExtentZ;
+
+            worldAabbs[aabbIndex] = worldPositionX - worldExtentX;
+            worldAabbs[aabbIndex + 1] = worldPositionY - worldExtentY;
+            worldAabbs[aabbIndex + 2] = worldPositionZ - worldExtentZ;
+            worldAabbs[aabbIndex + 3] = worldPositionX + worldExtentX;
+            worldAabbs[aabbIndex + 4] = worldPositionY + worldExtentY;
+            worldAabbs[aabbIndex + 5] = worldPositionZ + worldExtentZ;
+        }
+    }
+
     public static void Transform(AABB localAabb, float margin, Transform4f worldTransform, AABB worldAabb) {
 
         // Temp vars from thread local storage
@@ -18,6 +18,11 @@ package net.smert.frameworkgl.math;
  */
 public class ClipPlanes {
 
+    public final static int ALL_PLANES_MASK = 0x3F;
+    public final static int PLANES = 6;
+    public final static int PLANE_STRIDE = 5; // X, y, z, w then threshold
+    private final static float MAX_FINITE = 1e18f; // Products of two are far from overflowing
+
     // Bottom
     float bpW;
     float bpX;
@@ -66,6 +71,82 @@ public class ClipPlanes {
         reset();
     }
 
+    public int planeAABBEquation(float[] aabbs, int first, int last, int[] visibleIndexes, int visibleSize) {
+
+        // Gives the same results as planeAABBEquation(Vector3f, Vector3f) for packed AABBs. Float multiplication
+        // and addition are monotonic so the vertex furthest along (or behind) a plane's normal has the largest (or
+        // smallest) sum of the eight vertices that planeAABBEquation tests. Overflow and NaNs would break this so
+        // vertices are tested one by one for huge AABBs and AABBs that are on both sides of a plane.
+        boolean finitePlanes = IsFinite(npX, npY, npZ, npW) & IsFinite(fpX, fpY, fpZ, fpW)
+                & IsFinite(lpX, lpY, lpZ, lpW) & IsFinite(rpX, rpY, rpZ, rpW)
+                & IsFinite(bpX, bpY, bpZ, bpW) & IsFinite(tpX, tpY, tpZ, tpW);
+
+        for (int i = first; i < last; i++) {
+            int offset = i * AABBUtilities.AABB_STRIDE;
+            float minX = aabbs[offset];
+            float minY = aabbs[offset + 1];
+            float minZ = aabbs[offset + 2];
+            float maxX = aabbs[offset + 3];
+            float maxY = aabbs[offset + 4];
+            float maxZ = aabbs[offset + 5];
+
+            // AABB must be in order and small enough for the sums not to overflow
+            boolean finite = finitePlanes & (minX <= maxX) & (minY <= maxY) & (minZ <= maxZ)
+                    & IsFinite(minX, minY, minZ, 0f) & IsFinite(maxX, maxY, maxZ, 0f);
+
+            // Every vertex is behind one of the planes
+            boolean outside = (PlaneMaxVertex(npX, npY, npZ, npW, minX, minY, minZ, maxX, maxY, maxZ) <= npThreshold)
+                    | (PlaneMaxVertex(fpX, fpY, fpZ, fpW, minX, minY, minZ, maxX, maxY, maxZ) <= fpThreshold)
+                    | (PlaneMaxVertex(lpX, lpY, lpZ, lpW, minX, minY, minZ, maxX, maxY, maxZ) <= lpThreshold)
+                    | (PlaneMaxVertex(rpX, rpY, rpZ, rpW, minX, minY, minZ, maxX, maxY, maxZ) <= rpThreshold)
+                    | (PlaneMaxVertex(bpX, bpY, bpZ, bpW, minX, minY, minZ, maxX, maxY, maxZ) <= bpThreshold)
+                    | (PlaneMaxVertex(tpX, tpY, tpZ, tpW, minX, minY, minZ, maxX, maxY, maxZ) <= tpThreshold);
+
+            int corners;
+            if (finite & outside) {
+                corners = 0;
+            } else if (finite
+                    & (PlaneMinVertex(npX, npY, npZ, npW, minX, minY, minZ, maxX, maxY, maxZ) > npThreshold)
+                    & (PlaneMinVertex(fpX, fpY, fpZ, fpW, minX, minY, minZ, maxX, maxY, maxZ) > fpThreshold)
+                    & (PlaneMinVertex(lpX, lpY, lpZ, lpW, minX, minY, minZ, maxX, maxY, maxZ) > lpThreshold)
+                    & (PlaneMinVertex(rpX, rpY, rpZ, rpW, minX, minY, minZ, maxX, maxY, maxZ) > rpThreshold)
+                    & (PlaneMinVertex(bpX, bpY, bpZ, bpW, minX, minY, minZ, maxX, maxY, maxZ) > bpThreshold)
+                    & (PlaneMinVertex(tpX, tpY, tpZ, tpW, minX, minY, minZ, maxX, maxY, maxZ) > tpThreshold)) {
+                corners = 0xFF; // Every vertex is in front of every plane
+            } else {
+                corners = PlaneCorners(npX, npY, npZ, npW, npThreshold, minX, minY, minZ, maxX, maxY, maxZ)
+                        & PlaneCorners(fpX, fpY, fpZ, fpW, fpThreshold, minX, minY, minZ, maxX, maxY, maxZ)
+                        & PlaneCorners(lpX, lpY, lpZ, lpW, lpThreshold, minX, minY, minZ, maxX, maxY, maxZ)
+                        & PlaneCorners(rpX, rpY, rpZ, rpW, rpThreshold, minX, minY, minZ, maxX, maxY, maxZ)
+                        & PlaneCorners(bpX, bpY, bpZ, bpW, bpThreshold, minX, minY, minZ, maxX, maxY, maxZ)
+                        & PlaneCorners(tpX, tpY, tpZ, tpW, tpThreshold, minX, minY, minZ, maxX, maxY, maxZ);
+            }
+
+            // Proximity test
+            boolean visible = (corners != 0);
+            if (!visible) {
+                float centerX = (minX + maxX) * .5f;
+                float centerY = (minY + maxY) * .5f;
+                float centerZ = (minZ + maxZ) * .5f;
+                float extentX = (maxX - minX) * .5f;
+                float extentY = (maxY - minY) * .5f;
+                float extentZ = (maxZ - minZ) * .5f;
+                float maxExtent = MathHelper.Sqrt(extentX * extentX + extentY * extentY + extentZ * extentZ);
+                visible = ((npX * centerX + npY * centerY + npZ * centerZ + npW) > (-maxExtent + npThreshold))
+                        & ((fpX * centerX + fpY * centerY + fpZ * centerZ + fpW) > (-maxExtent + fpThreshold))
+                        & ((lpX * centerX + lpY * centerY + lpZ * centerZ + lpW) > (-maxExtent + lpThreshold))
+                        & ((rpX * centerX + rpY * centerY + rpZ * centerZ + rpW) > (-maxExtent + rpThreshold))
+                        & ((bpX * centerX + bpY * centerY + bpZ * centerZ + bpW) > (-maxExtent + bpThreshold))
+                        & ((tpX * centerX + tpY * centerY + tpZ * centerZ + tpW) > (-maxExtent + tpThreshold));
+            }
+
+            visibleIndexes[visibleSize] = i;
+            visibleSize += visible ? 1 : 0;
+        }
+
+        return visibleSize;
+    }
+
     public boolean planeAABBEquation(Vector3f aabbMin, Vector3f aabbMax) {
 
         // This will fail if the AABB is larger than the frustum
@@ -194,6 +275,17 @@ public class ClipPlanes {
         return planePointEquation(center, maxExtent);
     }
 
+    public void getPlanes(float[] planes) {
+
+        // Near, far, left, right, bottom then top
+        SetPlane(planes, 0, npX, npY, npZ, npW, npThreshold);
+        SetPlane(planes, 1, fpX, fpY, fpZ, fpW, fpThreshold);
+        SetPlane(planes, 2, lpX, lpY, lpZ, lpW, lpThreshold);
+        SetPlane(planes, 3, rpX, rpY, rpZ, rpW, rpThreshold);
+        SetPlane(planes, 4, bpX, bpY, bpZ, bpW, bpThreshold);
+        SetPlane(planes, 5, tpX, tpY, tpZ, tpW, tpThreshold);
+    }
+
     public boolean planePointEquation(float x, float y, float z, float threshold) {
         boolean result;
         result = ((npX * x + npY * y + npZ * z + npW) > (-threshold + npThreshold));
@@ -292,4 +384,52 @@ public class ClipPlanes {
         tpThreshold = 0f;
     }
 
+    private static int PlaneCorners(float planeX, float planeY, float planeZ, float w, float threshold, float minX,
+            float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float xMin = planeX * minX;
+        float yMin = planeY * minY;
+        float zMin = planeZ * minZ;
+        float xMax = planeX * maxX;
+        float yMax = planeY * maxY;
+        float zMax = planeZ * maxZ;
+
+        // One bit per vertex in front of the plane in the same order as planeAABBEquation
+        int corners = 0;
+        corners |= (((xMin + yMin + zMin + w) > threshold) ? 1 : 0);
+        corners |= (((xMin + yMin + zMax + w) > threshold) ? 2 : 0);
+        corners |= (((xMin + yMax + zMin + w) > threshold) ? 4 : 0);
+        corners |= (((xMin + yMax + zMax + w) > threshold) ? 8 : 0);
+        corners |= (((xMax + yMin + zMin + w) > threshold) ? 16 : 0);
+        corners |= (((xMax + yMin + zMax + w) > threshold) ? 32 : 0);
+        corners |= (((xMax + yMax + zMin + w) > threshold) ? 64 : 0);
+        corners |= (((xMax + yMax + zMax + w) > threshold) ? 128 : 0);
+        return corners;
+    }
+
+    private static float PlaneMaxVertex(float planeX, float planeY, float planeZ, float w, float minX, float minY,
+            float minZ, float maxX, float maxY, float maxZ) {
+        return planeX * ((planeX >= 0f) ? maxX : minX) + planeY * ((planeY >= 0f) ? maxY : minY)
+                + planeZ * ((planeZ >= 0f) ? maxZ : minZ) + w;
+    }
+
+    private static float PlaneMinVertex(float planeX, float planeY, float planeZ, float w, float minX, float minY,
+            float minZ, float maxX, float maxY, float maxZ) {
+        return planeX * ((planeX >= 0f) ? minX : maxX) + planeY * ((planeY >= 0f) ? minY : maxY)
+                + planeZ * ((planeZ >= 0f) ? minZ : maxZ) + w;
+    }
+
+    private static void SetPlane(float[] planes, int plane, float x, float y, float z, float w, float threshold) {
+        int offset = plane * PLANE_STRIDE;
+        planes[offset] = x;
+        planes[offset + 1] = y;
+        planes[offset + 2] = z;
+        planes[offset + 3] = w;
+        planes[offset + 4] = threshold;
+    }
+
+    private static boolean IsFinite(float x, float y, float z, float w) {
+        return (Math.abs(x) <= MAX_FINITE) & (Math.abs(y) <= MAX_FINITE) & (Math.abs(z) <= MAX_FINITE)
+                & (Math.abs(w) <= MAX_FINITE);
+    }
+
 }
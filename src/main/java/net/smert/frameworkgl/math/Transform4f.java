@@ -102,6 +102,21 @@ public class Transform4f {
         fbOut.put(1f);
     }
 
+    public void toAffineRowArray(float[] out, int offset) {
+        out[offset] = rotation.xAxis.x;
+        out[offset + 1] = rotation.yAxis.x;
+        out[offset + 2] = rotation.zAxis.x;
+        out[offset + 3] = position.x;
+        out[offset + 4] = rotation.xAxis.y;
+        out[offset + 5] = rotation.yAxis.y;
+        out[offset + 6] = rotation.zAxis.y;
+        out[offset + 7] = position.y;
+        out[offset + 8] = rotation.xAxis.z;
+        out[offset + 9] = rotation.yAxis.z;
+        out[offset + 10] = rotation.zAxis.z;
+        out[offset + 11] = position.z;
+    }
+
     public void toColumnArray(float[] out) {
         out[0] = rotation.xAxis.x;
         out[1] = rotation.xAxis.y;
@@ -136,6 +151,21 @@ public class Transform4f {
         out[15] = 1f;
     }
 
+    public void toRowArray(float[] out, int offset) {
+        out[offset] = rotation.xAxis.x;
+        out[offset + 1] = rotation.yAxis.x;
+        out[offset + 2] = rotation.zAxis.x;
+        out[offset + 3] = rotation.xAxis.y;
+        out[offset + 4] = rotation.yAxis.y;
+        out[offset + 5] = rotation.zAxis.y;
+        out[offset + 6] = rotation.xAxis.z;
+        out[offset + 7] = rotation.yAxis.z;
+        out[offset + 8] = rotation.zAxis.z;
+        out[offset + 9] = position.x;
+        out[offset + 10] = position.y;
+        out[offset + 11] = position.z;
+    }
+
     public void toRowArray(float[] out) {
         out[0] = rotation.xAxis.x;
         out[1] = rotation.yAxis.x;
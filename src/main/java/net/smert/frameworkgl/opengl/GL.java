@@ -26,13 +26,17 @@ import net.smert.frameworkgl.opengl.helpers.RenderBufferObjectHelper;
 import net.smert.frameworkgl.opengl.helpers.ShaderHelper;
 import net.smert.frameworkgl.opengl.helpers.ShaderUniformHelper;
 import net.smert.frameworkgl.opengl.helpers.TextureHelper;
+import net.smert.frameworkgl.opengl.helpers.UniformBufferObjectHelper;
 import net.smert.frameworkgl.opengl.helpers.VertexArrayHelper;
 import net.smert.frameworkgl.opengl.helpers.VertexArrayObjectHelper;
 import net.smert.frameworkgl.opengl.helpers.VertexBufferObjectHelper;
 import net.smert.frameworkgl.opengl.mesh.DynamicMeshBuilder;
+import net.smert.frameworkgl.opengl.mesh.MeshOptimizer;
 import net.smert.frameworkgl.opengl.mesh.MeshReader;
 import net.smert.frameworkgl.opengl.mesh.Tessellator;
+import net.smert.frameworkgl.opengl.mesh.VertexWelder;
 import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import net.smert.frameworkgl.opengl.model.baked.BakedMeshWriter;
 import net.smert.frameworkgl.opengl.pipeline.factory.RenderingPipelineFactory;
 import net.smert.frameworkgl.opengl.renderable.factory.RenderableFactoryGL1;
 import net.smert.frameworkgl.opengl.renderable.factory.RenderableFactoryGL2;
@@ -43,6 +47,7 @@ import net.smert.frameworkgl.opengl.renderer.RendererGL3;
 import net.smert.frameworkgl.opengl.renderer.factory.RendererFactory;
 import net.smert.frameworkgl.opengl.shader.DefaultAttribLocations;
 import net.smert.frameworkgl.opengl.shader.ShaderBuilder;
+import net.smert.frameworkgl.opengl.shader.UniformBuffers;
 import net.smert.frameworkgl.opengl.shader.UniformVariables;
 import net.smert.frameworkgl.opengl.texture.TextureBuilder;
 import net.smert.frameworkgl.opengl.texture.TextureReader;
@@ -55,6 +60,7 @@ public class GL {
 
     public static AngelCodeFontBuilder angelCodeFontBuilder;
     public static AwtFontBuilder awtFontBuilder;
+    public static BakedMeshWriter bakedMeshWriter;
     public static CameraFactory cameraFactory;
     public static BufferHelper bufferHelper;
     public static DefaultAttribLocations defaultAttribLocations;
@@ -66,6 +72,7 @@ public class GL {
     public static LegacyRenderHelper renderHelper;
     public static MatrixHelper matrixHelper;
     public static MeshFactory meshFactory;
+    public static MeshOptimizer meshOptimizer;
     public static MeshReader meshReader;
     public static OpenGL1 o1;
     public static OpenGL2 o2;
@@ -86,9 +93,12 @@ public class GL {
     public static TextureBuilder textureBuilder;
     public static TextureHelper textureHelper;
     public static TextureReader textureReader;
+    public static UniformBufferObjectHelper uboHelper;
+    public static UniformBuffers uniformBuffers;
     public static UniformVariables uniformVariables;
     public static VertexArrayHelper vaHelper;
     public static VertexArrayObjectHelper vaoHelper;
     public static VertexBufferObjectHelper vboHelper;
+    public static VertexWelder vertexWelder;
 
 }
@@ -12,6 +12,8 @@
  */
 package net.smert.frameworkgl.opengl.camera;
 
+import net.smert.frameworkgl.collision.broadphase.BroadphaseQueryCallback;
+import net.smert.frameworkgl.collision.broadphase.DynamicAABBTreeBroadphase;
 import net.smert.frameworkgl.math.AABB;
 import net.smert.frameworkgl.math.ClipPlanes;
 import net.smert.frameworkgl.math.Matrix4f;
@@ -29,6 +31,16 @@ public abstract class AbstractFrustumCulling {
         clipPlanes = new ClipPlanes();
     }
 
+    public void cullTree(DynamicAABBTreeBroadphase tree, BroadphaseQueryCallback callback) {
+
+        // Subtrees outside the frustum are skipped and subtrees inside are accepted without testing leaves
+        tree.queryFrustum(clipPlanes, callback);
+    }
+
+    public ClipPlanes getClipPlanes() {
+        return clipPlanes;
+    }
+
     public boolean isAABBInFrustum(AABB aabb) {
         return clipPlanes.planeAABBEquation(aabb.getMin(), aabb.getMax());
     }
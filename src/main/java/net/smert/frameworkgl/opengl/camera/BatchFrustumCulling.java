@@ -0,0 +1,135 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.camera;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import net.smert.frameworkgl.math.ClipPlanes;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class BatchFrustumCulling {
+
+    private final static int CHUNK_SIZE = 4096;
+
+    private int parallelThreshold;
+    private int visibleSize;
+    private int[] chunkVisibleSizes;
+    private int[] visibleIndexes;
+    private ForkJoinPool forkJoinPool;
+
+    public BatchFrustumCulling() {
+        parallelThreshold = 32768;
+        visibleSize = 0;
+        chunkVisibleSizes = new int[0];
+        visibleIndexes = new int[0];
+    }
+
+    private void cullChunk(ClipPlanes clipPlanes, float[] aabbs, int count, int chunk) {
+        int first = chunk * CHUNK_SIZE;
+        int last = Math.min(first + CHUNK_SIZE, count);
+
+        // Each chunk writes visible indexes to its own range
+        chunkVisibleSizes[chunk] = clipPlanes.planeAABBEquation(aabbs, first, last, visibleIndexes, first) - first;
+    }
+
+    public int cull(AbstractFrustumCulling frustumCulling, float[] aabbs, int count) {
+        return cull(frustumCulling.getClipPlanes(), aabbs, count);
+    }
+
+    public int cull(ClipPlanes clipPlanes, float[] aabbs, int count) {
+        if (visibleIndexes.length < count) {
+            visibleIndexes = new int[count];
+        }
+
+        if ((forkJoinPool == null) || (count < parallelThreshold) || (count <= CHUNK_SIZE)) {
+            visibleSize = clipPlanes.planeAABBEquation(aabbs, 0, count, visibleIndexes, 0);
+            return visibleSize;
+        }
+
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkVisibleSizes.length < chunks) {
+            chunkVisibleSizes = new int[chunks];
+        }
+        forkJoinPool.invoke(new CullChunksTask(clipPlanes, aabbs, count, 0, chunks));
+
+        // Move the visible indexes of each chunk next to each other
+        visibleSize = 0;
+        for (int i = 0; i < chunks; i++) {
+            int chunkVisibleSize = chunkVisibleSizes[i];
+            System.arraycopy(visibleIndexes, i * CHUNK_SIZE, visibleIndexes, visibleSize, chunkVisibleSize);
+            visibleSize += chunkVisibleSize;
+        }
+
+        return visibleSize;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int[] getVisibleIndexes() {
+        return visibleIndexes;
+    }
+
+    public int getVisibleSize() {
+        return visibleSize;
+    }
+
+    private class CullChunksTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final float[] aabbs;
+        private final int count;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final ClipPlanes clipPlanes;
+
+        private CullChunksTask(ClipPlanes clipPlanes, float[] aabbs, int count, int firstChunk, int lastChunk) {
+            this.aabbs = aabbs;
+            this.count = count;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.clipPlanes = clipPlanes;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk == 1) {
+                cullChunk(clipPlanes, aabbs, count, firstChunk);
+                return;
+            }
+
+            int middleChunk = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new CullChunksTask(clipPlanes, aabbs, count, firstChunk, middleChunk),
+                    new CullChunksTask(clipPlanes, aabbs, count, middleChunk, lastChunk));
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.camera;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.smert.frameworkgl.collision.broadphase.BroadphaseProxy;
+import net.smert.frameworkgl.collision.broadphase.BroadphaseQueryCallback;
+import net.smert.frameworkgl.collision.broadphase.DynamicAABBTreeBroadphase;
+import net.smert.frameworkgl.collision.broadphase.IndexedOverlappingPairCache;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.math.AABB;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class FrustumCullingTree {
+
+    private AABB[] movedAabbs; // World AABB of the game object when its proxy was last moved, indexed by proxy index
+    private BroadphaseProxy[] indexedProxies; // Indexed by proxy index
+    private GameObject[] gameObjects; // Indexed by proxy index
+    private final BroadphaseQueryCallback cullCallback;
+    private final DynamicAABBTreeBroadphase tree;
+    private final List<GameObject> gameObjectsInFrustum;
+    private final Map<GameObject, BroadphaseProxy> proxies;
+
+    public FrustumCullingTree() {
+        movedAabbs = new AABB[16];
+        indexedProxies = new BroadphaseProxy[16];
+        gameObjects = new GameObject[16];
+        gameObjectsInFrustum = new ArrayList<>();
+        proxies = new HashMap<>();
+        cullCallback = (broadphaseProxy) -> {
+            gameObjectsInFrustum.add(gameObjects[broadphaseProxy.getIndex()]);
+            return true;
+        };
+
+        // Pairs are never updated so the cache stays empty
+        tree = new DynamicAABBTreeBroadphase(new IndexedOverlappingPairCache((proxy0, proxy1) -> false));
+    }
+
+    private boolean moveProxy(BroadphaseProxy proxy, GameObject gameObject) {
+        AABB worldAabb = gameObject.getWorldAabb();
+        AABB movedAabb = movedAabbs[proxy.getIndex()];
+
+        // Game objects that didn't move since the last update are skipped
+        if (movedAabb.equals(worldAabb)) {
+            return false;
+        }
+        movedAabb.set(worldAabb);
+
+        return tree.moveProxy(proxy, worldAabb);
+    }
+
+    public void addGameObject(GameObject gameObject) {
+        if (proxies.containsKey(gameObject)) {
+            return;
+        }
+
+        BroadphaseProxy proxy = tree.createProxy(null, 0, 0, gameObject.getWorldAabb());
+        int index = proxy.getIndex();
+        if (index >= gameObjects.length) {
+            int length = Math.max(gameObjects.length * 2, index + 1);
+            movedAabbs = Arrays.copyOf(movedAabbs, length);
+            indexedProxies = Arrays.copyOf(indexedProxies, length);
+            gameObjects = Arrays.copyOf(gameObjects, length);
+        }
+        if (movedAabbs[index] == null) {
+            movedAabbs[index] = new AABB();
+        }
+        movedAabbs[index].set(gameObject.getWorldAabb());
+        indexedProxies[index] = proxy;
+        gameObjects[index] = gameObject;
+        proxies.put(gameObject, proxy);
+
+        // Outside until the next cull finds it
+        gameObject.getRenderableState().setInFrustum(false);
+    }
+
+    public void addGameObjects(List<GameObject> gameObjects) {
+        for (GameObject gameObject : gameObjects) {
+            addGameObject(gameObject);
+        }
+    }
+
+    public void clear() {
+        for (BroadphaseProxy proxy : proxies.values()) {
+            indexedProxies[proxy.getIndex()] = null;
+            gameObjects[proxy.getIndex()] = null;
+            tree.removeProxy(proxy);
+        }
+        proxies.clear();
+        gameObjectsInFrustum.clear();
+    }
+
+    public boolean containsGameObject(GameObject gameObject) {
+        return proxies.containsKey(gameObject);
+    }
+
+    public void cull(AbstractFrustumCulling frustumCulling, List<GameObject> gameObjectsToRender) {
+
+        // Only game objects that were in the frustum last time need to be reset
+        for (GameObject gameObject : gameObjectsInFrustum) {
+            gameObject.getRenderableState().setInFrustum(false);
+        }
+        gameObjectsInFrustum.clear();
+
+        frustumCulling.cullTree(tree, cullCallback);
+
+        gameObjectsToRender.clear();
+        for (GameObject gameObject : gameObjectsInFrustum) {
+            gameObject.getRenderableState().setInFrustum(true);
+            gameObjectsToRender.add(gameObject);
+        }
+    }
+
+    public List<GameObject> getGameObjectsInFrustum() {
+        return gameObjectsInFrustum;
+    }
+
+    public int getSize() {
+        return proxies.size();
+    }
+
+    public DynamicAABBTreeBroadphase getTree() {
+        return tree;
+    }
+
+    public void removeGameObject(GameObject gameObject) {
+        BroadphaseProxy proxy = proxies.remove(gameObject);
+        if (proxy == null) {
+            return;
+        }
+        indexedProxies[proxy.getIndex()] = null;
+        gameObjects[proxy.getIndex()] = null;
+        gameObjectsInFrustum.remove(gameObject);
+        tree.removeProxy(proxy);
+    }
+
+    public void removeGameObjects(List<GameObject> gameObjects) {
+        for (GameObject gameObject : gameObjects) {
+            removeGameObject(gameObject);
+        }
+    }
+
+    public boolean updateGameObject(GameObject gameObject) {
+        BroadphaseProxy proxy = proxies.get(gameObject);
+        if (proxy == null) {
+            throw new IllegalStateException("Game object was not added to the frustum culling tree");
+        }
+        return moveProxy(proxy, gameObject);
+    }
+
+    public void updateGameObjects() {
+
+        // Walk the proxies directly so no map lookups are needed
+        for (int i = 0; i < gameObjects.length; i++) {
+            GameObject gameObject = gameObjects[i];
+            if (gameObject != null) {
+                moveProxy(indexedProxies[i], gameObject);
+            }
+        }
+    }
+
+    public void updateGameObjects(List<GameObject> gameObjects) {
+        for (GameObject gameObject : gameObjects) {
+            updateGameObject(gameObject);
+        }
+    }
+
+}
@@ -16,6 +16,7 @@ import net.smert.frameworkgl.opengl.camera.Camera;
 import net.smert.frameworkgl.opengl.camera.CameraController;
 import net.smert.frameworkgl.opengl.camera.FrustumCullingClipSpace;
 import net.smert.frameworkgl.opengl.camera.FrustumCullingClipSpaceSymmetrical;
+import net.smert.frameworkgl.opengl.camera.FrustumCullingTree;
 import net.smert.frameworkgl.opengl.camera.LegacyCamera;
 import net.smert.frameworkgl.opengl.camera.LegacyCameraController;
 import org.picocontainer.MutablePicoContainer;
@@ -48,6 +49,10 @@ public class CameraFactory {
         return container.getComponent(FrustumCullingClipSpaceSymmetrical.class);
     }
 
+    public FrustumCullingTree createFrustumCullingTree() {
+        return container.getComponent(FrustumCullingTree.class);
+    }
+
     public LegacyCamera createLegacyCamera() {
         return container.getComponent(LegacyCamera.class);
     }
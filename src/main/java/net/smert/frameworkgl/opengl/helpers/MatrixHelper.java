@@ -12,7 +12,7 @@
  */
 package net.smert.frameworkgl.opengl.helpers;
 
-import java.util.Stack;
+import java.util.Arrays;
 import net.smert.frameworkgl.math.Matrix4f;
 import net.smert.frameworkgl.math.Transform4f;
 import net.smert.frameworkgl.math.Vector3f;
@@ -29,18 +29,29 @@ public class MatrixHelper {
     public final static int MATRIX_VIEW = 2;
 
     private int mode;
-    private final Stack<Matrix4f> modelMatrixStack;
-    private final Stack<Matrix4f> projectionMatrixStack;
-    private final Stack<Matrix4f> viewMatrixStack;
+    private long projectionViewModelProjectionVersion;
+    private long projectionViewModelVersion;
+    private long projectionViewModelViewModelVersion;
+    private long version; // Every change to a matrix gets a new version
+    private long viewModelModelVersion;
+    private long viewModelVersion;
+    private long viewModelViewVersion;
+    private final Matrix4f projectionViewModelMatrix;
+    private final Matrix4f viewModelMatrix;
+    private final MatrixStack modelMatrixStack;
+    private final MatrixStack projectionMatrixStack;
+    private final MatrixStack viewMatrixStack;
 
     public MatrixHelper() {
-        modelMatrixStack = new Stack<>();
-        projectionMatrixStack = new Stack<>();
-        viewMatrixStack = new Stack<>();
+        projectionViewModelMatrix = new Matrix4f();
+        viewModelMatrix = new Matrix4f();
+        modelMatrixStack = new MatrixStack();
+        projectionMatrixStack = new MatrixStack();
+        viewMatrixStack = new MatrixStack();
         reset();
     }
 
-    private Stack<Matrix4f> getCurrentStack() {
+    private MatrixStack getCurrentStack() {
         switch (mode) {
             case MATRIX_MODEL:
                 return modelMatrixStack;
@@ -53,6 +64,38 @@ public class MatrixHelper {
         }
     }
 
+    private Matrix4f modifyMatrix(MatrixStack stack) {
+
+        // Cached products that used the old version will be recomputed
+        stack.versions[stack.size - 1] = ++version;
+        return stack.matrices[stack.size - 1];
+    }
+
+    private void updateProjectionViewModelMatrix() {
+        updateViewModelMatrix();
+        long projectionVersion = projectionMatrixStack.peekVersion();
+        if ((projectionViewModelProjectionVersion == projectionVersion)
+                && (projectionViewModelViewModelVersion == viewModelVersion)) {
+            return;
+        }
+        projectionMatrixStack.peek().projectionMultiplyViewOut(viewModelMatrix, projectionViewModelMatrix);
+        projectionViewModelProjectionVersion = projectionVersion;
+        projectionViewModelViewModelVersion = viewModelVersion;
+        projectionViewModelVersion = ++version;
+    }
+
+    private void updateViewModelMatrix() {
+        long modelVersion = modelMatrixStack.peekVersion();
+        long viewVersion = viewMatrixStack.peekVersion();
+        if ((viewModelModelVersion == modelVersion) && (viewModelViewVersion == viewVersion)) {
+            return;
+        }
+        viewMatrixStack.peek().viewMultiplyModelOut(modelMatrixStack.peek(), viewModelMatrix);
+        viewModelModelVersion = modelVersion;
+        viewModelViewVersion = viewVersion;
+        viewModelVersion = ++version;
+    }
+
     public int getMode() {
         return mode;
     }
@@ -70,31 +113,61 @@ public class MatrixHelper {
     }
 
     public Matrix4f getCurrentMatrix() {
-        return getCurrentStack().peek();
+
+        // The caller may change the matrix
+        return modifyMatrix(getCurrentStack());
     }
 
     public Matrix4f getModelMatrix() {
-        return modelMatrixStack.peek();
+        return modifyMatrix(modelMatrixStack);
     }
 
     public Matrix4f getProjectionMatrix() {
-        return projectionMatrixStack.peek();
+        return modifyMatrix(projectionMatrixStack);
+    }
+
+    public long getProjectionVersion() {
+        return projectionMatrixStack.peekVersion();
+    }
+
+    public Matrix4f getProjectionViewModelMatrix() {
+        updateProjectionViewModelMatrix();
+        return projectionViewModelMatrix;
+    }
+
+    public long getProjectionViewModelVersion() {
+        updateProjectionViewModelMatrix();
+        return projectionViewModelVersion;
     }
 
     public Matrix4f getViewMatrix() {
-        return viewMatrixStack.peek();
+        return modifyMatrix(viewMatrixStack);
+    }
+
+    public Matrix4f getViewModelMatrix() {
+        updateViewModelMatrix();
+        return viewModelMatrix;
+    }
+
+    public long getViewModelVersion() {
+        updateViewModelMatrix();
+        return viewModelVersion;
+    }
+
+    public long getViewVersion() {
+        return viewMatrixStack.peekVersion();
     }
 
     public void load(Matrix4f matrix) {
-        getCurrentMatrix().set(matrix);
+        modifyMatrix(getCurrentStack()).set(matrix);
     }
 
     public void load(Transform4f transform) {
-        getCurrentMatrix().set(transform);
+        modifyMatrix(getCurrentStack()).set(transform);
     }
 
     public void loadIdentity() {
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         matrix.identity();
     }
 
@@ -110,27 +183,41 @@ public class MatrixHelper {
         viewMatrixStack.peek().viewMultiplyModelOut(modelMatrixStack.peek(), out);
     }
 
+    public Matrix4f peekModelMatrix() {
+
+        // Read only since the version is not changed
+        return modelMatrixStack.peek();
+    }
+
+    public Matrix4f peekProjectionMatrix() {
+
+        // Read only since the version is not changed
+        return projectionMatrixStack.peek();
+    }
+
+    public Matrix4f peekViewMatrix() {
+
+        // Read only since the version is not changed
+        return viewMatrixStack.peek();
+    }
+
     public void pop() {
-        Stack<Matrix4f> stack = getCurrentStack();
-        if (stack.size() == 1) {
+        MatrixStack stack = getCurrentStack();
+        if (stack.size == 1) {
             throw new IllegalStateException("The last matrix in the stack cannot be popped.");
         }
-        getCurrentStack().pop();
+        stack.pop();
     }
 
     public void push() {
-        Stack<Matrix4f> stack = getCurrentStack();
-        stack.push(new Matrix4f(stack.peek()));
+        getCurrentStack().push();
     }
 
     public final void reset() {
         mode = MATRIX_MODEL;
-        modelMatrixStack.clear();
-        modelMatrixStack.push(new Matrix4f());
-        projectionMatrixStack.clear();
-        projectionMatrixStack.push(new Matrix4f());
-        viewMatrixStack.clear();
-        viewMatrixStack.push(new Matrix4f());
+        modelMatrixStack.reset(++version);
+        projectionMatrixStack.reset(++version);
+        viewMatrixStack.reset(++version);
     }
 
     public void rotate(float degrees, float x, float y, float z) {
@@ -139,7 +226,7 @@ public class MatrixHelper {
         ThreadLocalVars vars = ThreadLocalVars.Get();
         Vector3f vector = vars.v3f0;
 
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         vector.set(x, y, z);
         matrix.fromAxisAngle(vector, degrees);
 
@@ -148,17 +235,17 @@ public class MatrixHelper {
     }
 
     public void setFrustum(float left, float right, float bottom, float top, float zNear, float zFar) {
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         matrix.setFrustum(left, right, bottom, top, zNear, zFar);
     }
 
     public void setOrthogonal(float left, float right, float bottom, float top, float zNear, float zFar) {
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         matrix.setOrthogonal(left, right, bottom, top, zNear, zFar);
     }
 
     public void setPerspective(float fieldOfViewY, float aspectRatio, float zNear, float zFar) {
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         matrix.setPerspective(fieldOfViewY, aspectRatio, zNear, zFar);
     }
 
@@ -168,7 +255,7 @@ public class MatrixHelper {
         ThreadLocalVars vars = ThreadLocalVars.Get();
         Matrix4f scale = vars.m4f0;
 
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         scale.setDiagonal(x, y, z);
         matrix.multiply(scale);
 
@@ -182,7 +269,7 @@ public class MatrixHelper {
         ThreadLocalVars vars = ThreadLocalVars.Get();
         Vector3f vector = vars.v3f0;
 
-        Matrix4f matrix = getCurrentMatrix();
+        Matrix4f matrix = modifyMatrix(getCurrentStack());
         vector.set(x, y, z);
         matrix.multiply(vector);
 
@@ -190,4 +277,62 @@ public class MatrixHelper {
         vars.release();
     }
 
+    private static class MatrixStack {
+
+        private int size;
+        private long[] versions;
+        private Matrix4f[] matrices;
+
+        private MatrixStack() {
+            size = 0;
+            versions = new long[0];
+            matrices = new Matrix4f[0];
+            ensureCapacity(16);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= matrices.length) {
+                return;
+            }
+
+            // Matrices are created once and reused by every push after that
+            int oldLength = matrices.length;
+            matrices = Arrays.copyOf(matrices, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            for (int i = oldLength; i < capacity; i++) {
+                matrices[i] = new Matrix4f();
+            }
+        }
+
+        private Matrix4f peek() {
+            return matrices[size - 1];
+        }
+
+        private long peekVersion() {
+            return versions[size - 1];
+        }
+
+        private void pop() {
+            size--;
+        }
+
+        private void push() {
+            if (size == matrices.length) {
+                ensureCapacity(size * 2);
+            }
+
+            // Same contents so the version is the same too
+            matrices[size].set(matrices[size - 1]);
+            versions[size] = versions[size - 1];
+            size++;
+        }
+
+        private void reset(long version) {
+            size = 1;
+            matrices[0].identity();
+            versions[0] = version;
+        }
+
+    }
+
 }
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.helpers;
+
+import java.nio.FloatBuffer;
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class UniformBufferObjectHelper {
+
+    public void bindBufferBase(int bindingPoint, int uboID) {
+        GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, bindingPoint, uboID);
+    }
+
+    public int create() {
+        return GL15.glGenBuffers();
+    }
+
+    public void delete(int uboID) {
+        GL15.glDeleteBuffers(uboID);
+    }
+
+    public int getUniformBlockIndex(int programID, String blockName) {
+        int blockIndex = GL31.glGetUniformBlockIndex(programID, blockName);
+        if (blockIndex == GL31.GL_INVALID_INDEX) {
+            return -1;
+        }
+        return blockIndex;
+    }
+
+    public boolean isUniformBufferSupported() {
+        ContextCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL31 || capabilities.GL_ARB_uniform_buffer_object;
+    }
+
+    public void setBufferData(int uboID, FloatBuffer floatBuffer, int usage) {
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, uboID);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, floatBuffer, usage);
+    }
+
+    public void setUniformBlockBinding(int programID, int blockIndex, int bindingPoint) {
+        GL31.glUniformBlockBinding(programID, blockIndex, bindingPoint);
+    }
+
+    public void unbind() {
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+    }
+
+    public void updateBufferData(int uboID, int offsetBytes, FloatBuffer floatBuffer) {
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, uboID);
+        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, offsetBytes, floatBuffer);
+    }
+
+}
@@ -19,7 +19,16 @@ import java.nio.ShortBuffer;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.opengl.GL44;
 
 /**
  *
@@ -56,6 +65,10 @@ public class VertexBufferObjectHelper {
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboID);
     }
 
+    public void bindDrawIndirect(int vboID) {
+        GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, vboID);
+    }
+
     public void bindTexCoords(int vboID, int size, int type, int strideBytes, int offsetBytes) {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
         GL11.glTexCoordPointer(size, type, strideBytes, offsetBytes);
@@ -65,10 +78,25 @@ public class VertexBufferObjectHelper {
         return GL15.glGenBuffers();
     }
 
+    public long createFence() {
+        return GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    public ByteBuffer createPersistentBuffer(int vboID, int sizeBytes) {
+        int flags = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        GL44.glBufferStorage(GL15.GL_ARRAY_BUFFER, sizeBytes, flags);
+        return GL30.glMapBufferRange(GL15.GL_ARRAY_BUFFER, 0, sizeBytes, flags);
+    }
+
     public void delete(int vboID) {
         GL15.glDeleteBuffers(vboID);
     }
 
+    public void deleteFence(long fence) {
+        GL32.glDeleteSync(fence);
+    }
+
     public void disableColors() {
         GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
     }
@@ -93,10 +121,18 @@ public class VertexBufferObjectHelper {
         GL11.glDrawArrays(mode, first, count);
     }
 
+    public void drawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        GL31.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
     public void drawElements(int mode, int count, int type, long byteOffset) {
         GL11.glDrawElements(mode, count, type, byteOffset);
     }
 
+    public void drawElementsInstanced(int mode, int count, int type, long byteOffset, int instanceCount) {
+        GL31.glDrawElementsInstanced(mode, count, type, byteOffset, instanceCount);
+    }
+
     public void drawRangeElements(int mode, int minIndex, int maxIndex, int count, int type, long byteOffset) {
         GL12.glDrawRangeElements(mode, minIndex, maxIndex, count, type, byteOffset);
     }
@@ -121,6 +157,25 @@ public class VertexBufferObjectHelper {
         GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
     }
 
+    public boolean isBufferStorageSupported() {
+        ContextCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL44 || capabilities.GL_ARB_buffer_storage;
+    }
+
+    public boolean isMultiDrawIndirectSupported() {
+        ContextCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL43 || capabilities.GL_ARB_multi_draw_indirect;
+    }
+
+    public void multiDrawElementsIndirect(int mode, int type, long byteOffset, int drawCount, int strideBytes) {
+        GL43.glMultiDrawElementsIndirect(mode, type, byteOffset, drawCount, strideBytes);
+    }
+
+    public void orphanBufferData(int vboID, int sizeBytes, int usage) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, sizeBytes, usage);
+    }
+
     public void setBufferData(int vboID, ByteBuffer byteBuffer, int usage) {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
         GL15.glBufferData(GL15.GL_ARRAY_BUFFER, byteBuffer, usage);
@@ -141,6 +196,11 @@ public class VertexBufferObjectHelper {
         GL15.glBufferData(GL15.GL_ARRAY_BUFFER, shortBuffer, usage);
     }
 
+    public void setBufferDrawIndirectData(int vboID, IntBuffer intBuffer, int usage) {
+        GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, vboID);
+        GL15.glBufferData(GL40.GL_DRAW_INDIRECT_BUFFER, intBuffer, usage);
+    }
+
     public void setBufferElementData(int vboID, ByteBuffer byteBuffer, int usage) {
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboID);
         GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, byteBuffer, usage);
@@ -156,11 +216,24 @@ public class VertexBufferObjectHelper {
         GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, shortBuffer, usage);
     }
 
+    public void setVertexAttribDivisor(int index, int divisor) {
+        GL33.glVertexAttribDivisor(index, divisor);
+    }
+
     public void unbind() {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
     }
 
+    public void unbindDrawIndirect() {
+        GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+    }
+
+    public void unmapBuffer(int vboID) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
+    }
+
     public void updateBufferData(int vboID, int offsetBytes, ByteBuffer byteBuffer) {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
         GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, offsetBytes, byteBuffer);
@@ -196,4 +269,9 @@ public class VertexBufferObjectHelper {
         GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, offsetBytes, shortBuffer);
     }
 
+    public boolean waitFence(long fence, long timeoutNanoseconds) {
+        int result = GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, timeoutNanoseconds);
+        return (result == GL32.GL_ALREADY_SIGNALED) || (result == GL32.GL_CONDITION_SATISFIED);
+    }
+
 }
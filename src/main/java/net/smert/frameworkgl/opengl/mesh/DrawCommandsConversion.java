@@ -34,6 +34,7 @@ public class DrawCommandsConversion implements DrawCommands {
         assert (mesh != null);
 
         RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+        int[] indexes = mesh.getIndexes();
 
         // For each segment in the mesh
         for (int i = 0; i < mesh.getTotalSegments(); i++) {
@@ -46,9 +47,14 @@ public class DrawCommandsConversion implements DrawCommands {
             float[] normals = segment.getData(SegmentDataType.NORMAL);
             float[] texCoords = segment.getData(SegmentDataType.TEX_COORD0);
             float[] vertices = segment.getData(SegmentDataType.VERTEX);
+            int elementCount = mesh.hasIndexes() ? segment.getIndexCount() : segment.getElementCount();
 
-            // For each vertex in the segment
-            for (int j = 0; j < segment.getElementCount(); j++) {
+            // For each vertex in the segment. Indexed segments can share vertices so follow the indexes.
+            for (int element = 0; element < elementCount; element++) {
+                int j = element;
+                if (mesh.hasIndexes()) {
+                    j = indexes[segment.getFirstIndex() + element] - segment.getMinIndex();
+                }
 
                 // For each type call the render helper
                 if (mesh.hasColors()) {
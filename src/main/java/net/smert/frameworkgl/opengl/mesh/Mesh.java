@@ -12,6 +12,7 @@
  */
 package net.smert.frameworkgl.opengl.mesh;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -38,6 +39,8 @@ public class Mesh {
     private int renderableConfigID;
     private int totalVertices;
     private int[] indexes;
+    private ByteBuffer bakedIndexData;
+    private ByteBuffer bakedInterleavedData;
     private final AABB aabb;
     private final List<Segment> segments;
     private MeshMaterial material;
@@ -87,14 +90,20 @@ public class Mesh {
                     + vertices.length + " Expected: " + (elementCount * config.getVertexSize()));
         }
 
-        // Add segment and update totals
+        // Add segment and update totals. Baked vertex data no longer covers every segment.
         segments.add(segment);
+        bakedInterleavedData = null;
         totalVertices += segment.getElementCount();
 
         // Update booleans
         updateHasBooleansFromSegment();
     }
 
+    public void clearBakedData() {
+        bakedIndexData = null;
+        bakedInterleavedData = null;
+    }
+
     public Mesh cloneWithSharedSegmentData() {
         Mesh newMesh = GL.meshFactory.createMesh();
         Mesh oldMesh = this;
@@ -111,6 +120,8 @@ public class Mesh {
 
             // Copy segment data
             newSegment.setElementCount(oldSegment.getElementCount());
+            newSegment.setFirstIndex(oldSegment.getFirstIndex());
+            newSegment.setIndexCount(oldSegment.getIndexCount());
             newSegment.setMaxIndex(oldSegment.getMaxIndex());
             newSegment.setMinIndex(oldSegment.getMinIndex());
             newSegment.setPrimitiveMode(oldSegment.getPrimitiveMode());
@@ -185,6 +196,36 @@ public class Mesh {
     public void setIndexes(int[] indexes) {
         hasIndexes = (indexes != null);
         this.indexes = indexes;
+        bakedIndexData = null;
+    }
+
+    public ByteBuffer getBakedIndexData() {
+        return bakedIndexData;
+    }
+
+    /**
+     * Indexes that were already converted to the index type of the renderable configuration. Renderables upload
+     * this buffer as is instead of converting the indexes again. It is cleared by setIndexes().
+     *
+     * @param bakedIndexData
+     */
+    public void setBakedIndexData(ByteBuffer bakedIndexData) {
+        this.bakedIndexData = bakedIndexData;
+    }
+
+    public ByteBuffer getBakedInterleavedData() {
+        return bakedInterleavedData;
+    }
+
+    /**
+     * Vertex data for every segment that was already interleaved in the layout of the renderable configuration.
+     * Renderables upload this buffer as is instead of rebuilding it from the segment data. It is cleared when segments
+     * are added, removed or recolored. Code that changes segment data in place must call clearBakedData().
+     *
+     * @param bakedInterleavedData
+     */
+    public void setBakedInterleavedData(ByteBuffer bakedInterleavedData) {
+        this.bakedInterleavedData = bakedInterleavedData;
     }
 
     public AABB getAabb() {
@@ -268,6 +309,7 @@ public class Mesh {
 
         // Update totals
         totalVertices -= segment.getElementCount();
+        bakedInterleavedData = null;
     }
 
     public final void reset() {
@@ -279,6 +321,8 @@ public class Mesh {
         renderableConfigID = -1;
         totalVertices = 0;
         indexes = null;
+        bakedIndexData = null;
+        bakedInterleavedData = null;
         segments.clear();
     }
 
@@ -316,6 +360,7 @@ public class Mesh {
 
         // Set color data
         segment.setData(SegmentDataType.COLOR, colors);
+        bakedInterleavedData = null;
     }
 
     public void setAllMaterialColors(float r, float g, float b, float a) {
@@ -0,0 +1,474 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.mesh;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import net.smert.frameworkgl.opengl.constants.Primitives;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.utils.ArrayListInt;
+import net.smert.frameworkgl.utils.HashMapIntGeneric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reorders the triangles of indexed meshes for the post-transform vertex cache using Tom Forsyth's linear-speed
+ * vertex cache optimisation, optionally clusters them to reduce overdraw and then reorders the vertices in the order
+ * they are first used.
+ *
+ * http://tomforsyth1000.github.io/papers/fast_vert_cache_opt.html
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class MeshOptimizer {
+
+    private final static Logger log = LoggerFactory.getLogger(MeshOptimizer.class);
+
+    private final static int CACHE_SIZE = 32;
+    private final static int MAX_VALENCE = 64;
+    private final static float CACHE_DECAY_POWER = 1.5f;
+    private final static float LAST_TRIANGLE_SCORE = 0.75f;
+    private final static float VALENCE_BOOST_POWER = 0.5f;
+    private final static float VALENCE_BOOST_SCALE = 2f;
+    private final static float[] CACHE_POSITION_SCORES = CreateCachePositionScores();
+    private final static float[] VALENCE_SCORES = CreateValenceScores();
+
+    private boolean optimizeOverdraw;
+    private int fifoCacheSize;
+    private float acmrAfter;
+    private float acmrBefore;
+
+    public MeshOptimizer() {
+        optimizeOverdraw = true;
+        fifoCacheSize = 16;
+        acmrAfter = 0f;
+        acmrBefore = 0f;
+    }
+
+    private int[] optimizeOverdraw(int[] indexes, float[] vertices, int vertexSize) {
+        int triangleCount = indexes.length / 3;
+
+        // Clusters start where the simulated cache has to load a whole triangle again
+        ArrayListInt clusterStarts = new ArrayListInt();
+        int[] timestamps = new int[vertices.length / vertexSize];
+        int timestamp = fifoCacheSize + 1;
+        for (int i = 0; i < triangleCount; i++) {
+            int misses = 0;
+            for (int j = 0; j < 3; j++) {
+                int index = indexes[i * 3 + j];
+                if (timestamp - timestamps[index] > fifoCacheSize) {
+                    timestamps[index] = timestamp++;
+                    misses++;
+                }
+            }
+            if ((i == 0) || (misses == 3)) {
+                clusterStarts.add(i);
+            }
+        }
+        int clusterCount = clusterStarts.getSize();
+        if (clusterCount == 1) {
+            return indexes;
+        }
+
+        // Area weighted centroid and normal of each cluster
+        float[] clusterData = new float[clusterCount * 6];
+        float[] centroid = new float[3];
+        float totalArea = 0f;
+        for (int i = 0; i < clusterCount; i++) {
+            int start = clusterStarts.get(i);
+            int end = (i + 1 < clusterCount) ? clusterStarts.get(i + 1) : triangleCount;
+            for (int j = start; j < end; j++) {
+                int v0 = indexes[j * 3] * vertexSize;
+                int v1 = indexes[j * 3 + 1] * vertexSize;
+                int v2 = indexes[j * 3 + 2] * vertexSize;
+                float e1x = vertices[v1] - vertices[v0];
+                float e1y = vertices[v1 + 1] - vertices[v0 + 1];
+                float e1z = vertices[v1 + 2] - vertices[v0 + 2];
+                float e2x = vertices[v2] - vertices[v0];
+                float e2y = vertices[v2 + 1] - vertices[v0 + 1];
+                float e2z = vertices[v2 + 2] - vertices[v0 + 2];
+                float nx = e1y * e2z - e1z * e2y;
+                float ny = e1z * e2x - e1x * e2z;
+                float nz = e1x * e2y - e1y * e2x;
+                float area = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+                for (int k = 0; k < 3; k++) {
+                    float center = (vertices[v0 + k] + vertices[v1 + k] + vertices[v2 + k]) / 3f;
+                    clusterData[i * 6 + k] += center * area;
+                    centroid[k] += center * area;
+                }
+                clusterData[i * 6 + 3] += nx;
+                clusterData[i * 6 + 4] += ny;
+                clusterData[i * 6 + 5] += nz;
+                totalArea += area;
+            }
+        }
+        if (totalArea == 0f) {
+            return indexes;
+        }
+        for (int k = 0; k < 3; k++) {
+            centroid[k] /= totalArea;
+        }
+
+        // Clusters that face away from the center are drawn first since they are likely to hide the others
+        final float[] sortKeys = new float[clusterCount];
+        Integer[] order = new Integer[clusterCount];
+        for (int i = 0; i < clusterCount; i++) {
+            float nx = clusterData[i * 6 + 3];
+            float ny = clusterData[i * 6 + 4];
+            float nz = clusterData[i * 6 + 5];
+            float clusterArea = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (clusterArea > 0f) {
+                float dx = clusterData[i * 6] / clusterArea - centroid[0];
+                float dy = clusterData[i * 6 + 1] / clusterArea - centroid[1];
+                float dz = clusterData[i * 6 + 2] / clusterArea - centroid[2];
+                sortKeys[i] = (dx * nx + dy * ny + dz * nz) / clusterArea;
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Float.compare(sortKeys[o2], sortKeys[o1]);
+            }
+
+        });
+
+        int[] newIndexes = new int[indexes.length];
+        int offset = 0;
+        for (int i = 0; i < clusterCount; i++) {
+            int cluster = order[i];
+            int start = clusterStarts.get(cluster) * 3;
+            int end = ((cluster + 1 < clusterCount) ? clusterStarts.get(cluster + 1) : triangleCount) * 3;
+            System.arraycopy(indexes, start, newIndexes, offset, end - start);
+            offset += end - start;
+        }
+        return newIndexes;
+    }
+
+    private int[] optimizeVertexCache(int[] indexes, int vertexCount) {
+        int triangleCount = indexes.length / 3;
+
+        // Triangles that use each vertex
+        int[] valences = new int[vertexCount];
+        for (int index : indexes) {
+            valences[index]++;
+        }
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int i = 0; i < vertexCount; i++) {
+            adjacencyOffsets[i + 1] = adjacencyOffsets[i] + valences[i];
+        }
+        int[] adjacency = new int[indexes.length];
+        int[] adjacencyFill = Arrays.copyOf(adjacencyOffsets, vertexCount);
+        for (int i = 0; i < indexes.length; i++) {
+            adjacency[adjacencyFill[indexes[i]]++] = i / 3;
+        }
+
+        int[] cachePositions = new int[vertexCount];
+        float[] vertexScores = new float[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            cachePositions[i] = -1;
+            vertexScores[i] = ScoreVertex(-1, valences[i]);
+        }
+        int bestTriangle = -1;
+        float bestScore = -1f;
+        for (int i = 0; i < triangleCount; i++) {
+            float score = vertexScores[indexes[i * 3]] + vertexScores[indexes[i * 3 + 1]]
+                    + vertexScores[indexes[i * 3 + 2]];
+            if (score > bestScore) {
+                bestScore = score;
+                bestTriangle = i;
+            }
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+        int cacheCount = 0;
+        int nextTriangle = 0;
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] newCache = new int[CACHE_SIZE + 3];
+        int[] newIndexes = new int[indexes.length];
+
+        for (int i = 0; i < triangleCount; i++) {
+
+            // Nothing in the cache has triangles left so continue with the next triangle in the original order
+            if (bestTriangle == -1) {
+                while (emitted[nextTriangle]) {
+                    nextTriangle++;
+                }
+                bestTriangle = nextTriangle;
+            }
+            emitted[bestTriangle] = true;
+
+            // The vertices of the triangle move to the front of the cache
+            int newCacheCount = 0;
+            for (int j = 0; j < 3; j++) {
+                int index = indexes[bestTriangle * 3 + j];
+                newIndexes[i * 3 + j] = index;
+                if (IndexOf(newCache, newCacheCount, index) == -1) {
+                    newCache[newCacheCount++] = index;
+                }
+
+                // Remove the triangle from the vertex
+                int start = adjacencyOffsets[index];
+                int end = start + valences[index];
+                for (int k = start; k < end; k++) {
+                    if (adjacency[k] == bestTriangle) {
+                        adjacency[k] = adjacency[end - 1];
+                        valences[index]--;
+                        break;
+                    }
+                }
+            }
+            int triangleVertexCount = newCacheCount;
+            for (int j = 0; j < cacheCount; j++) {
+                int index = cache[j];
+                if (IndexOf(newCache, triangleVertexCount, index) == -1) {
+                    newCache[newCacheCount++] = index;
+                }
+            }
+            int[] tmpCache = cache;
+            cache = newCache;
+            newCache = tmpCache;
+            cacheCount = newCacheCount;
+
+            // Vertices pushed out of the cache lose their position but their triangles still need new scores
+            for (int j = 0; j < cacheCount; j++) {
+                int index = cache[j];
+                cachePositions[index] = (j < CACHE_SIZE) ? j : -1;
+                vertexScores[index] = ScoreVertex(cachePositions[index], valences[index]);
+            }
+
+            bestTriangle = -1;
+            bestScore = -1f;
+            for (int j = 0; j < cacheCount; j++) {
+                int index = cache[j];
+                int start = adjacencyOffsets[index];
+                int end = start + valences[index];
+                for (int k = start; k < end; k++) {
+                    int triangle = adjacency[k];
+                    float score = vertexScores[indexes[triangle * 3]] + vertexScores[indexes[triangle * 3 + 1]]
+                            + vertexScores[indexes[triangle * 3 + 2]];
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestTriangle = triangle;
+                    }
+                }
+            }
+            cacheCount = Math.min(cacheCount, CACHE_SIZE);
+        }
+
+        return newIndexes;
+    }
+
+    private void optimizeVertexFetch(Segment segment, int[] indexes) {
+        int vertexCount = segment.getElementCount();
+
+        // Number the vertices in the order they are first used
+        int nextVertex = 0;
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            if (remap[index] == -1) {
+                remap[index] = nextVertex++;
+            }
+            indexes[i] = remap[index];
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            if (remap[i] == -1) {
+                remap[i] = nextVertex++;
+            }
+        }
+
+        // Move the data of every type to the new vertex order
+        Iterator<HashMapIntGeneric.Entry<float[]>> iterator = segment.getData().entrySet().iterator();
+        while (iterator.hasNext()) {
+            HashMapIntGeneric.Entry<float[]> entry = iterator.next();
+            float[] data = entry.getValue();
+            int size = data.length / vertexCount;
+            float[] newData = new float[data.length];
+            for (int i = 0; i < vertexCount; i++) {
+                System.arraycopy(data, i * size, newData, remap[i] * size, size);
+            }
+            entry.setValue(newData);
+        }
+    }
+
+    public float getAcmrAfter() {
+        return acmrAfter;
+    }
+
+    public float getAcmrBefore() {
+        return acmrBefore;
+    }
+
+    public int getFifoCacheSize() {
+        return fifoCacheSize;
+    }
+
+    public void setFifoCacheSize(int fifoCacheSize) {
+        if (fifoCacheSize < 3) {
+            throw new IllegalArgumentException("The FIFO cache size must be at least 3: " + fifoCacheSize);
+        }
+        this.fifoCacheSize = fifoCacheSize;
+    }
+
+    public boolean isOptimizeOverdraw() {
+        return optimizeOverdraw;
+    }
+
+    public void setOptimizeOverdraw(boolean optimizeOverdraw) {
+        this.optimizeOverdraw = optimizeOverdraw;
+    }
+
+    /**
+     * Reorders the triangles and vertices of each triangle segment in the mesh. The average cache miss ratio (ACMR) of
+     * a FIFO cache with the size of getFifoCacheSize() is measured before and after.
+     *
+     * @param mesh
+     */
+    public void optimize(Mesh mesh) {
+        if (!mesh.hasIndexes()) {
+            throw new IllegalArgumentException("The mesh must have indexes before it can be optimized");
+        }
+
+        RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+        int missesAfter = 0;
+        int missesBefore = 0;
+        int totalTriangles = 0;
+
+        // The index array can be shared with cloned meshes
+        int[] indexes = mesh.getIndexes().clone();
+
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            Segment segment = mesh.getSegment(i);
+            int indexCount = segment.getIndexCount();
+            if ((segment.getPrimitiveMode() != Primitives.TRIANGLES) || (indexCount < 3) || (indexCount % 3 != 0)) {
+                continue;
+            }
+
+            int firstIndex = segment.getFirstIndex();
+            int minIndex = segment.getMinIndex();
+            int[] segmentIndexes = new int[indexCount];
+            for (int j = 0; j < indexCount; j++) {
+                segmentIndexes[j] = indexes[firstIndex + j] - minIndex;
+            }
+            missesBefore += CountCacheMisses(segmentIndexes, 0, indexCount, fifoCacheSize);
+
+            segmentIndexes = optimizeVertexCache(segmentIndexes, segment.getElementCount());
+            float[] vertices = segment.getData(SegmentDataType.VERTEX);
+            if (optimizeOverdraw && (vertices != null) && (config.getVertexSize() >= 3)) {
+                segmentIndexes = optimizeOverdraw(segmentIndexes, vertices, config.getVertexSize());
+            }
+            optimizeVertexFetch(segment, segmentIndexes);
+
+            missesAfter += CountCacheMisses(segmentIndexes, 0, indexCount, fifoCacheSize);
+            totalTriangles += indexCount / 3;
+            for (int j = 0; j < indexCount; j++) {
+                indexes[firstIndex + j] = segmentIndexes[j] + minIndex;
+            }
+        }
+
+        // The segment data was reordered in place
+        mesh.clearBakedData();
+        mesh.setIndexes(indexes);
+        acmrAfter = (totalTriangles > 0) ? (float) missesAfter / totalTriangles : 0f;
+        acmrBefore = (totalTriangles > 0) ? (float) missesBefore / totalTriangles : 0f;
+        log.debug("Optimized mesh ACMR before: {} after: {}", acmrBefore, acmrAfter);
+    }
+
+    /**
+     * Calculates the average number of vertices that miss a FIFO post-transform cache per triangle. 0.5 is the best
+     * possible for a regular grid and 3.0 is the worst.
+     *
+     * @param indexes
+     * @param offset
+     * @param count
+     * @param cacheSize
+     * @return
+     */
+    public static float CalculateACMR(int[] indexes, int offset, int count, int cacheSize) {
+        if (count < 3) {
+            return 0f;
+        }
+        return (float) CountCacheMisses(indexes, offset, count, cacheSize) / (count / 3);
+    }
+
+    private static int CountCacheMisses(int[] indexes, int offset, int count, int cacheSize) {
+        int maxIndex = 0;
+        for (int i = offset; i < offset + count; i++) {
+            maxIndex = Math.max(maxIndex, indexes[i]);
+        }
+
+        // A vertex is still cached while fewer than cacheSize vertices were loaded after it
+        int misses = 0;
+        int timestamp = cacheSize + 1;
+        int[] timestamps = new int[maxIndex + 1];
+        for (int i = offset; i < offset + count; i++) {
+            int index = indexes[i];
+            if (timestamp - timestamps[index] > cacheSize) {
+                timestamps[index] = timestamp++;
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    private static float[] CreateCachePositionScores() {
+        float[] scores = new float[CACHE_SIZE];
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (i < 3) {
+
+                // The last triangle gets a fixed score so it isn't used again straight away
+                scores[i] = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1f / (CACHE_SIZE - 3);
+                scores[i] = (float) Math.pow(1f - (i - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        return scores;
+    }
+
+    private static float[] CreateValenceScores() {
+        float[] scores = new float[MAX_VALENCE];
+        for (int i = 1; i < MAX_VALENCE; i++) {
+
+            // Vertices with fewer triangles left are boosted so they can leave the cache
+            scores[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+        }
+        return scores;
+    }
+
+    private static int IndexOf(int[] array, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static float ScoreVertex(int cachePosition, int valence) {
+        if (valence == 0) {
+            return -1f;
+        }
+        float score = VALENCE_SCORES[Math.min(valence, MAX_VALENCE - 1)];
+        if (cachePosition >= 0) {
+            score += CACHE_POSITION_SCORES[cachePosition];
+        }
+        return score;
+    }
+
+}
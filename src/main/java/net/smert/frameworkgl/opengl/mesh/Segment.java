@@ -23,6 +23,8 @@ import net.smert.frameworkgl.utils.HashMapIntGeneric;
 public class Segment {
 
     private int elementCount;
+    private int firstIndex;
+    private int indexCount;
     private int maxIndex;
     private int minIndex;
     private int primitiveMode;
@@ -33,6 +35,8 @@ public class Segment {
 
     public Segment() {
         elementCount = 0;
+        firstIndex = 0;
+        indexCount = 0;
         maxIndex = 0;
         minIndex = 0;
         primitiveMode = -1; // GL_POINTS = 0 :(
@@ -71,6 +75,22 @@ public class Segment {
         this.elementCount = elementCount;
     }
 
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public void setFirstIndex(int firstIndex) {
+        this.firstIndex = firstIndex;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public void setIndexCount(int indexCount) {
+        this.indexCount = indexCount;
+    }
+
     public int getMaxIndex() {
         return maxIndex;
     }
@@ -21,8 +21,9 @@ import net.smert.frameworkgl.math.Vector4f;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.constants.Primitives;
 import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.utils.ArrayListFloat;
+import net.smert.frameworkgl.utils.ArrayListInt;
 import net.smert.frameworkgl.utils.Color;
-import net.smert.frameworkgl.utils.ListUtils;
 
 /**
  *
@@ -45,15 +46,15 @@ public class Tessellator {
     private final AABB aabb;
     private final Color color;
     private final ConversionState conversionState;
-    private final List<Float> colors;
-    private final List<Float> normals;
-    private final List<Float> texCoords;
-    private final List<Float> vertices;
-    private final List<Integer> elementCounts;
-    private final List<Integer> maxIndexes;
-    private final List<Integer> minIndexes;
-    private final List<Integer> primitiveModes;
-    private final List<Integer> vertexIndexes;
+    private final ArrayListFloat colors;
+    private final ArrayListFloat normals;
+    private final ArrayListFloat texCoords;
+    private final ArrayListFloat vertices;
+    private final ArrayListInt elementCounts;
+    private final ArrayListInt maxIndexes;
+    private final ArrayListInt minIndexes;
+    private final ArrayListInt primitiveModes;
+    private final ArrayListInt vertexIndexes;
     private final List<Segment> segments;
     private RenderableConfiguration config;
     private final Vector3f normal;
@@ -66,15 +67,15 @@ public class Tessellator {
         aabb = new AABB();
         color = new Color();
         conversionState = new ConversionState();
-        colors = new ArrayList<>(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT); // Up to four per vertex
-        normals = new ArrayList<>(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT);  // Three per vertex
-        texCoords = new ArrayList<>(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT);  // Up to three per vertex
-        vertices = new ArrayList<>(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT);  // Up to four per vertex
-        elementCounts = new ArrayList<>(INITIAL_SEGMENTS); // One per segment
-        maxIndexes = new ArrayList<>(INITIAL_SEGMENTS); // One per segment
-        minIndexes = new ArrayList<>(INITIAL_SEGMENTS); // One per segment
-        primitiveModes = new ArrayList<>(INITIAL_SEGMENTS); // One per segment
-        vertexIndexes = new ArrayList<>(INITIAL_ELEMENTS_PER_SEGMENT); // One per vertex
+        colors = new ArrayListFloat(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT); // Up to four per vertex
+        normals = new ArrayListFloat(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT);  // Three per vertex
+        texCoords = new ArrayListFloat(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT);  // Up to three per vertex
+        vertices = new ArrayListFloat(INITIAL_COMPONENT_ELEMENTS_PER_SEGMENT);  // Up to four per vertex
+        elementCounts = new ArrayListInt(INITIAL_SEGMENTS); // One per segment
+        maxIndexes = new ArrayListInt(INITIAL_SEGMENTS); // One per segment
+        minIndexes = new ArrayListInt(INITIAL_SEGMENTS); // One per segment
+        primitiveModes = new ArrayListInt(INITIAL_SEGMENTS); // One per segment
+        vertexIndexes = new ArrayListInt(INITIAL_ELEMENTS_PER_SEGMENT); // One per vertex
         segments = new ArrayList<>(INITIAL_SEGMENTS);
         normal = new Vector3f();
         texCoord = new Vector3f();
@@ -97,9 +98,7 @@ public class Tessellator {
     }
 
     private void internalAddColorToList(Color color) {
-        colors.add(color.getR());
-        colors.add(color.getG());
-        colors.add(color.getB());
+        colors.add(color.getR(), color.getG(), color.getB());
         if (config.getColorSize() == 4) {
             colors.add(color.getA());
         }
@@ -114,9 +113,7 @@ public class Tessellator {
     }
 
     private void internalAddNormalToList(Vector3f normal) {
-        normals.add(normal.getX());
-        normals.add(normal.getY());
-        normals.add(normal.getZ());
+        normals.add(normal.getX(), normal.getY(), normal.getZ());
     }
 
     private void internalAddTexCoord(Vector3f texCoord) {
@@ -252,7 +249,7 @@ public class Tessellator {
         conversionState.setPrimitiveMode(primitiveMode);
         normals.clear();
 
-        for (int i = 0; i < vertices.size(); i += config.getVertexSize()) {
+        for (int i = 0; i < vertices.getSize(); i += config.getVertexSize()) {
             vertex.zero();
             float x = vertices.get(i + 0);
             vertex.setX(x);
@@ -282,24 +279,26 @@ public class Tessellator {
         Segment segment = GL.meshFactory.createSegment();
 
         segment.setElementCount(elementCount);
+        segment.setFirstIndex(minIndex); // Indexes are sequential with one per vertex
+        segment.setIndexCount(elementCount);
         segment.setMaxIndex(maxIndex);
         segment.setMinIndex(minIndex);
         segment.setName(name);
         segment.setPrimitiveMode(primitiveMode);
 
-        if (colors.size() > 0) {
+        if (!colors.isEmpty()) {
             segment.setData(SegmentDataType.COLOR, getColors());
             colors.clear();
         }
-        if (normals.size() > 0) {
+        if (!normals.isEmpty()) {
             segment.setData(SegmentDataType.NORMAL, getNormals());
             normals.clear();
         }
-        if (texCoords.size() > 0) {
+        if (!texCoords.isEmpty()) {
             segment.setData(SegmentDataType.TEX_COORD0, getTexCoords());
             texCoords.clear();
         }
-        if (vertices.size() > 0) {
+        if (vertices.getSize() > 0) {
             segment.setData(SegmentDataType.VERTEX, getVertices());
             vertices.clear();
         }
@@ -308,23 +307,23 @@ public class Tessellator {
     }
 
     public float[] getColors() {
-        return ListUtils.ToPrimitiveFloatArray(colors);
+        return colors.toArray();
     }
 
     public float[] getNormals() {
-        return ListUtils.ToPrimitiveFloatArray(normals);
+        return normals.toArray();
     }
 
     public float[] getTexCoords() {
-        return ListUtils.ToPrimitiveFloatArray(texCoords);
+        return texCoords.toArray();
     }
 
     public float[] getVertices() {
-        return ListUtils.ToPrimitiveFloatArray(vertices);
+        return vertices.toArray();
     }
 
     public int getColorsCount() {
-        return colors.size();
+        return colors.getSize();
     }
 
     public int getElementCount() {
@@ -332,7 +331,7 @@ public class Tessellator {
     }
 
     public int getNormalsCount() {
-        return normals.size();
+        return normals.getSize();
     }
 
     public int getPrimitiveMode() {
@@ -340,35 +339,35 @@ public class Tessellator {
     }
 
     public int getTexCoordsCount() {
-        return texCoords.size();
+        return texCoords.getSize();
     }
 
     public int getVerticesCount() {
-        return vertices.size();
+        return vertices.getSize();
     }
 
     public int getVertexIndexesCount() {
-        return vertexIndexes.size();
+        return vertexIndexes.getSize();
     }
 
     public int[] getElementCounts() {
-        return ListUtils.ToPrimitiveIntArray(elementCounts);
+        return elementCounts.toArray();
     }
 
     public int[] getMaxIndexes() {
-        return ListUtils.ToPrimitiveIntArray(maxIndexes);
+        return maxIndexes.toArray();
     }
 
     public int[] getMinIndexes() {
-        return ListUtils.ToPrimitiveIntArray(minIndexes);
+        return minIndexes.toArray();
     }
 
     public int[] getPrimitiveModes() {
-        return ListUtils.ToPrimitiveIntArray(primitiveModes);
+        return primitiveModes.toArray();
     }
 
     public int[] getVertexIndexes() {
-        return ListUtils.ToPrimitiveIntArray(vertexIndexes);
+        return vertexIndexes.toArray();
     }
 
     public List<Segment> getSegments() {
@@ -460,7 +459,7 @@ public class Tessellator {
         if (enableConversionForPrimitiveMode) {
             conversionState.reset();
             primitiveMode = Primitives.TRIANGLES;
-            primitiveModes.set(primitiveModes.size() - 1, primitiveMode);
+            primitiveModes.set(primitiveModes.getSize() - 1, primitiveMode);
             enableConversionForPrimitiveMode = false;
         }
         isStarted = false;
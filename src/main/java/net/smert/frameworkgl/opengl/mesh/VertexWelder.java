@@ -0,0 +1,210 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.utils.ArrayListFloat;
+import net.smert.frameworkgl.utils.ArrayListInt;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class VertexWelder {
+
+    private final static int EMPTY = -1;
+
+    private int[] table;
+    private final ArrayListFloat colors;
+    private final ArrayListFloat normals;
+    private final ArrayListFloat texCoords;
+    private final ArrayListFloat vertices;
+    private final ArrayListInt indexes;
+
+    public VertexWelder() {
+        table = new int[1024];
+        colors = new ArrayListFloat();
+        normals = new ArrayListFloat();
+        texCoords = new ArrayListFloat();
+        vertices = new ArrayListFloat();
+        indexes = new ArrayListInt();
+    }
+
+    private void clearTable(int totalElements) {
+        int capacity = table.length;
+        while (capacity < totalElements * 2) {
+            capacity *= 2;
+        }
+        if (capacity != table.length) {
+            table = new int[capacity];
+        }
+        Arrays.fill(table, EMPTY);
+    }
+
+    private int findOrAdd(Segment segment, int source, RenderableConfiguration config) {
+        float[] sourceColors = segment.getData(SegmentDataType.COLOR);
+        float[] sourceNormals = segment.getData(SegmentDataType.NORMAL);
+        float[] sourceTexCoords = segment.getData(SegmentDataType.TEX_COORD0);
+        float[] sourceVertices = segment.getData(SegmentDataType.VERTEX);
+        int colorSize = config.getColorSize();
+        int normalSize = config.getNormalSize();
+        int texCoordSize = config.getTexCoordSize();
+        int vertexSize = config.getVertexSize();
+
+        int hash = 1;
+        hash = Hash(hash, sourceColors, source * colorSize, colorSize);
+        hash = Hash(hash, sourceNormals, source * normalSize, normalSize);
+        hash = Hash(hash, sourceTexCoords, source * texCoordSize, texCoordSize);
+        hash = Hash(hash, sourceVertices, source * vertexSize, vertexSize);
+
+        // Linear probing over the unique vertices that were already added
+        int mask = table.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (table[slot] != EMPTY) {
+            int unique = table[slot];
+            if (Equals(sourceColors, source * colorSize, colors, unique * colorSize, colorSize)
+                    && Equals(sourceNormals, source * normalSize, normals, unique * normalSize, normalSize)
+                    && Equals(sourceTexCoords, source * texCoordSize, texCoords, unique * texCoordSize, texCoordSize)
+                    && Equals(sourceVertices, source * vertexSize, vertices, unique * vertexSize, vertexSize)) {
+                return unique;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int unique = vertices.getSize() / vertexSize;
+        Add(colors, sourceColors, source * colorSize, colorSize);
+        Add(normals, sourceNormals, source * normalSize, normalSize);
+        Add(texCoords, sourceTexCoords, source * texCoordSize, texCoordSize);
+        Add(vertices, sourceVertices, source * vertexSize, vertexSize);
+        table[slot] = unique;
+        return unique;
+    }
+
+    private void setData(Segment segment, SegmentDataType segmentDataType, ArrayListFloat data) {
+        if (segment.getData(segmentDataType) != null) {
+            segment.setData(segmentDataType, data.toArray());
+        }
+    }
+
+    /**
+     * Merges identical vertices in each segment of the mesh and replaces the segment data with the unique vertices
+     * and an index buffer. Segments keep their own vertex range so materials and draw calls still work per segment.
+     * The index type of the renderable configuration is set to the smallest type that can address every vertex.
+     *
+     * @param mesh
+     */
+    public void weld(Mesh mesh) {
+        RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+        int[] oldIndexes = mesh.getIndexes();
+        boolean hasIndexes = mesh.hasIndexes();
+        mesh.clearBakedData();
+
+        // Segments are removed and added again so the mesh totals are updated for the new vertex counts
+        List<Segment> segments = new ArrayList<>(mesh.getTotalSegments());
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            segments.add(mesh.getSegment(i));
+        }
+        for (Segment segment : segments) {
+            mesh.removeSegment(segment);
+        }
+
+        int baseVertex = 0;
+        indexes.clear();
+
+        for (Segment segment : segments) {
+
+            // Segments that only have draw commands have nothing to weld
+            if (segment.getData(SegmentDataType.VERTEX) == null) {
+                segment.setFirstIndex(indexes.getSize());
+                segment.setIndexCount(0);
+                continue;
+            }
+
+            int totalElements = hasIndexes ? segment.getIndexCount() : segment.getElementCount();
+
+            colors.clear();
+            normals.clear();
+            texCoords.clear();
+            vertices.clear();
+            clearTable(totalElements);
+
+            int firstIndex = indexes.getSize();
+            for (int i = 0; i < totalElements; i++) {
+                int source = i;
+                if (hasIndexes) {
+                    source = oldIndexes[segment.getFirstIndex() + i] - segment.getMinIndex();
+                }
+                indexes.add(baseVertex + findOrAdd(segment, source, config));
+            }
+            int totalVertices = vertices.getSize() / config.getVertexSize();
+
+            setData(segment, SegmentDataType.COLOR, colors);
+            setData(segment, SegmentDataType.NORMAL, normals);
+            setData(segment, SegmentDataType.TEX_COORD0, texCoords);
+            setData(segment, SegmentDataType.VERTEX, vertices);
+            segment.setElementCount(totalVertices);
+            segment.setFirstIndex(firstIndex);
+            segment.setIndexCount(totalElements);
+            segment.setMaxIndex(baseVertex + totalVertices - 1);
+            segment.setMinIndex(baseVertex);
+            baseVertex += totalVertices;
+        }
+
+        // Check to see if a renderable configuration exists before adding it
+        RenderableConfiguration newConfig = config.clone();
+        newConfig.setIndexTypeForMaxIndex(baseVertex - 1);
+        mesh.setRenderableConfigID(Renderable.configPool.getOrAdd(newConfig));
+
+        for (Segment segment : segments) {
+            mesh.addSegment(segment);
+        }
+        mesh.setIndexes(indexes.toArray());
+    }
+
+    private static void Add(ArrayListFloat list, float[] data, int offset, int size) {
+        if (data == null) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            list.add(data[offset + i]);
+        }
+    }
+
+    private static boolean Equals(float[] data, int offset, ArrayListFloat list, int listOffset, int size) {
+        if (data == null) {
+            return true;
+        }
+        float[] elements = list.getElements();
+        for (int i = 0; i < size; i++) {
+            if (Float.floatToIntBits(data[offset + i]) != Float.floatToIntBits(elements[listOffset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int Hash(int hash, float[] data, int offset, int size) {
+        if (data == null) {
+            return hash;
+        }
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Float.floatToIntBits(data[offset + i]);
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.model.baked;
+
+import java.nio.ByteOrder;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+class BakedMeshFormat {
+
+    // Header is the magic, the byte order of everything after the header and the version
+    final static byte BIG_ENDIAN = 1;
+    final static byte LITTLE_ENDIAN = 2;
+    final static int HEADER_BYTES = 12;
+    final static int MAGIC = ('F' << 24) | ('W' << 16) | ('G' << 8) | 'M';
+    final static int VERSION = 1;
+
+    private BakedMeshFormat() {
+    }
+
+    static byte ConvertByteOrder(ByteOrder byteOrder) {
+        return (byteOrder == ByteOrder.BIG_ENDIAN) ? BIG_ENDIAN : LITTLE_ENDIAN;
+    }
+
+    static int Align(int position) {
+        return (position + 3) & ~3;
+    }
+
+}
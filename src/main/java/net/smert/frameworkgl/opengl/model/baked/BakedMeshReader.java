@@ -0,0 +1,298 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.model.baked;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import net.smert.frameworkgl.Files.FileAsset;
+import net.smert.frameworkgl.Fw;
+import net.smert.frameworkgl.math.Vector4f;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.TextureType;
+import net.smert.frameworkgl.opengl.VertexBufferObjectInterleaved;
+import net.smert.frameworkgl.opengl.constants.GLTypes;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.model.ModelReader;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.utils.Color;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class BakedMeshReader implements ModelReader {
+
+    private final static Logger log = LoggerFactory.getLogger(BakedMeshReader.class);
+
+    private ByteBuffer read(String filename) throws IOException {
+        FileAsset fileAsset = Fw.files.getMesh(filename);
+
+        // Files on disk are mapped and the buffer object data is uploaded straight from the mapping
+        if (fileAsset.isFile()) {
+            try (FileChannel channel = FileChannel.open(
+                    Paths.get(fileAsset.getFullPathToFile()), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("The baked mesh is too large to be mapped: " + filename);
+                }
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        // Assets inside jars and zips are copied into a direct buffer so they can still be uploaded
+        try (InputStream is = fileAsset.openStream()) {
+            int size = 0;
+            byte[] bytes = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(bytes, size, bytes.length - size)) != -1) {
+                size += read;
+                if (size == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+            }
+            ByteBuffer byteBuffer = GL.bufferHelper.createByteBuffer(size);
+            byteBuffer.put(bytes, 0, size);
+            byteBuffer.flip();
+            return byteBuffer;
+        }
+    }
+
+    private void readConfig(ByteBuffer data, Mesh mesh) throws IOException {
+        RenderableConfiguration config = GL.meshFactory.createRenderableConfiguration();
+        config.setColorSize(data.getInt());
+        int colorType = data.getInt();
+        if (colorType == GLTypes.BYTE) {
+            config.setColorTypeByte();
+        } else if (colorType == GLTypes.FLOAT) {
+            config.setColorTypeFloat();
+        } else if (colorType == GLTypes.UNSIGNED_BYTE) {
+            config.setColorTypeUnsignedByte();
+        } else {
+            throw new IOException("Unknown color type: " + colorType);
+        }
+        int indexType = data.getInt();
+        if (indexType == GLTypes.UNSIGNED_INT) {
+            config.setIndexTypeUnsignedInt();
+        } else if (indexType == GLTypes.UNSIGNED_SHORT) {
+            config.setIndexTypeUnsignedShort();
+        } else {
+            throw new IOException("Unknown index type: " + indexType);
+        }
+        int normalSize = data.getInt();
+        int normalType = data.getInt();
+        config.setTexCoordSize(data.getInt());
+        int texCoordType = data.getInt();
+        config.setVertexSize(data.getInt());
+        int vertexType = data.getInt();
+
+        // These are fixed in the configuration and the data would not match if they were changed
+        if ((normalSize != config.getNormalSize()) || (normalType != config.getNormalType())
+                || (texCoordType != config.getTexCoordType()) || (vertexType != config.getVertexType())) {
+            throw new IOException("The baked mesh was created with an incompatible renderable configuration");
+        }
+
+        // Check to see if a renderable configuration exists before adding it
+        int renderableConfigID = Renderable.configPool.getOrAdd(config);
+        mesh.setRenderableConfigID(renderableConfigID);
+    }
+
+    private void readMaterialLights(ByteBuffer data) {
+        int totalMaterialLights = data.getInt();
+        for (int i = 0; i < totalMaterialLights; i++) {
+            String materialLightName = ReadString(data);
+            MaterialLight materialLight = GL.glFactory.createMaterialLight();
+            materialLight.setFace(data.getInt());
+            materialLight.setShininess(data.getInt());
+            materialLight.setAmbient(ReadVector(data));
+            materialLight.setDiffuse(ReadVector(data));
+            materialLight.setEmission(ReadVector(data));
+            materialLight.setSpecular(ReadVector(data));
+
+            // The same material light is shared by every mesh that was baked with it
+            if (Renderable.materialLightPool.getUniqueID(materialLightName) == -1) {
+                Renderable.materialLightPool.add(materialLightName, materialLight);
+            }
+        }
+    }
+
+    private Segment readSegment(ByteBuffer data) throws IOException {
+        Segment segment = GL.meshFactory.createSegment();
+        segment.setName(ReadString(data));
+        segment.setPrimitiveMode(data.getInt());
+        segment.setElementCount(data.getInt());
+        segment.setFirstIndex(data.getInt());
+        segment.setIndexCount(data.getInt());
+        segment.setMinIndex(data.getInt());
+        segment.setMaxIndex(data.getInt());
+
+        // Material
+        if (data.getInt() != 0) {
+            SegmentMaterial material = GL.meshFactory.createSegmentMaterial();
+            if (data.getInt() != 0) {
+                material.setColor(new Color(data.getFloat(), data.getFloat(), data.getFloat(), data.getFloat()));
+            }
+            material.setMaterialLightName(ReadString(data));
+            int totalTextures = data.getInt();
+            for (int i = 0; i < totalTextures; i++) {
+                String textureType = ReadString(data);
+                String filename = ReadString(data);
+                try {
+                    material.setTexture(TextureType.valueOf(textureType), filename);
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException("Unknown texture type: " + textureType, ex);
+                }
+            }
+            segment.setMaterial(material);
+        }
+
+        // Segment data
+        int totalData = data.getInt();
+        for (int i = 0; i < totalData; i++) {
+            int segmentDataType = data.getInt();
+            float[] values = new float[data.getInt()];
+            data.position(BakedMeshFormat.Align(data.position()));
+            data.asFloatBuffer().get(values);
+            data.position(data.position() + values.length * 4);
+            segment.setData(segmentDataType, values);
+        }
+
+        return segment;
+    }
+
+    void load(ByteBuffer data, String filename, Mesh mesh) throws IOException {
+
+        // Header
+        if (data.remaining() < BakedMeshFormat.HEADER_BYTES) {
+            throw new IOException("The file is too small to be a baked mesh: " + filename);
+        }
+        data.order(ByteOrder.BIG_ENDIAN);
+        if (data.getInt() != BakedMeshFormat.MAGIC) {
+            throw new IOException("The file is not a baked mesh: " + filename);
+        }
+        byte byteOrder = data.get();
+        if ((byteOrder != BakedMeshFormat.BIG_ENDIAN) && (byteOrder != BakedMeshFormat.LITTLE_ENDIAN)) {
+            throw new IOException("Unknown byte order: " + byteOrder + " in the baked mesh: " + filename);
+        }
+        data.position(data.position() + 3);
+        data.order((byteOrder == BakedMeshFormat.BIG_ENDIAN) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        int version = data.getInt();
+        if (version != BakedMeshFormat.VERSION) {
+            throw new IOException("Unsupported version: " + version + " of the baked mesh: " + filename);
+        }
+
+        readConfig(data, mesh);
+        float minX = data.getFloat();
+        float minY = data.getFloat();
+        float minZ = data.getFloat();
+        float maxX = data.getFloat();
+        float maxY = data.getFloat();
+        float maxZ = data.getFloat();
+        mesh.getMaterial().setShaderName(ReadString(data));
+        readMaterialLights(data);
+
+        int totalSegments = data.getInt();
+        for (int i = 0; i < totalSegments; i++) {
+            mesh.addSegment(readSegment(data));
+        }
+        mesh.getAabb().setMin(minX, minY, minZ);
+        mesh.getAabb().setMax(maxX, maxY, maxZ);
+
+        // The buffer object data can only be used as is when it was baked with the same byte order
+        boolean isNativeOrder = (data.order() == ByteOrder.nativeOrder());
+        if (!isNativeOrder) {
+            log.warn("The baked mesh: {} has a different byte order. The buffer data will be created again.",
+                    filename);
+        }
+
+        // Indexes
+        int totalIndexes = data.getInt();
+        if (totalIndexes >= 0) {
+            int byteSize = data.getInt();
+            data.position(BakedMeshFormat.Align(data.position()));
+            ByteBuffer indexData = Slice(data, byteSize);
+            int[] indexes = new int[totalIndexes];
+            RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+            if (config.getIndexType() == GLTypes.UNSIGNED_SHORT) {
+                for (int i = 0; i < totalIndexes; i++) {
+                    indexes[i] = indexData.getShort(i * 2) & 0xFFFF;
+                }
+            } else {
+                indexData.asIntBuffer().get(indexes);
+            }
+            mesh.setIndexes(indexes);
+            if (isNativeOrder) {
+                mesh.setBakedIndexData(indexData);
+            }
+        }
+
+        // Interleaved vertex data
+        int strideBytes = data.getInt();
+        if (strideBytes >= 0) {
+            int byteSize = data.getInt();
+            data.position(BakedMeshFormat.Align(data.position()));
+            ByteBuffer interleavedData = Slice(data, byteSize);
+
+            // Make sure the layout still matches what the renderable builder would create
+            VertexBufferObjectInterleaved vboInterleaved = new VertexBufferObjectInterleaved();
+            RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+            Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
+            if (vboInterleaved.getStrideBytes() != strideBytes) {
+                throw new IOException("The stride: " + strideBytes + " of the baked mesh: " + filename
+                        + " does not match the expected stride: " + vboInterleaved.getStrideBytes());
+            }
+            if (isNativeOrder) {
+                mesh.setBakedInterleavedData(interleavedData);
+            }
+        }
+    }
+
+    @Override
+    public void load(String filename, Mesh mesh) throws IOException {
+        log.info("Loading baked mesh: {}", filename);
+        load(read(filename), filename, mesh);
+    }
+
+    private static String ReadString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Vector4f ReadVector(ByteBuffer data) {
+        return new Vector4f(data.getFloat(), data.getFloat(), data.getFloat(), data.getFloat());
+    }
+
+    private static ByteBuffer Slice(ByteBuffer data, int byteSize) {
+        ByteBuffer slice = data.slice().order(data.order());
+        slice.limit(byteSize);
+        data.position(data.position() + byteSize);
+        return slice;
+    }
+
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.model.baked;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.Vector4f;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.TextureType;
+import net.smert.frameworkgl.opengl.VertexBufferObjectInterleaved;
+import net.smert.frameworkgl.opengl.constants.GLTypes;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.utils.Color;
+import net.smert.frameworkgl.utils.HashMapIntGeneric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class BakedMeshWriter {
+
+    private final static Logger log = LoggerFactory.getLogger(BakedMeshWriter.class);
+
+    private ByteBuffer buffer;
+    private ByteOrder byteOrder;
+
+    public BakedMeshWriter() {
+        buffer = ByteBuffer.allocate(64 * 1024);
+        byteOrder = ByteOrder.nativeOrder();
+    }
+
+    private void align() {
+        while (buffer.position() != BakedMeshFormat.Align(buffer.position())) {
+            ensureRemaining(1);
+            buffer.put((byte) 0);
+        }
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        int newCapacity = buffer.capacity();
+        while (newCapacity - buffer.position() < bytes) {
+            newCapacity *= 2;
+        }
+        ByteBuffer newBuffer = ByteBuffer.allocate(newCapacity).order(buffer.order());
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+
+    private void putFloat(float value) {
+        ensureRemaining(4);
+        buffer.putFloat(value);
+    }
+
+    private void putFloats(float[] values) {
+        ensureRemaining(values.length * 4);
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+    }
+
+    private void putInt(int value) {
+        ensureRemaining(4);
+        buffer.putInt(value);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void putVector(Vector4f vector) {
+        putFloat(vector.getX());
+        putFloat(vector.getY());
+        putFloat(vector.getZ());
+        putFloat(vector.getW());
+    }
+
+    private void writeConfig(RenderableConfiguration config) {
+        putInt(config.getColorSize());
+        putInt(config.getColorType());
+        putInt(config.getIndexType());
+        putInt(config.getNormalSize());
+        putInt(config.getNormalType());
+        putInt(config.getTexCoordSize());
+        putInt(config.getTexCoordType());
+        putInt(config.getVertexSize());
+        putInt(config.getVertexType());
+    }
+
+    private void writeIndexes(Mesh mesh, RenderableConfiguration config) {
+        int[] indexes = mesh.getIndexes();
+        int byteSize = config.convertGLTypeToByteSize(config.getIndexType()) * indexes.length;
+        putInt(indexes.length);
+        putInt(byteSize);
+        align();
+        ensureRemaining(byteSize);
+
+        // Same conversion as the renderable builder in the byte order of the file
+        for (int index : indexes) {
+            switch (config.getIndexType()) {
+                case GLTypes.UNSIGNED_INT:
+                    buffer.putInt(index);
+                    break;
+
+                case GLTypes.UNSIGNED_SHORT:
+                    buffer.putShort((short) index);
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown GL type constant for indexes: " + config.getIndexType());
+            }
+        }
+    }
+
+    private void writeMaterialLights(Mesh mesh) {
+
+        // Material lights live in a pool so the ones used by the segments are saved with the mesh
+        List<String> materialLightNames = new ArrayList<>();
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            SegmentMaterial material = mesh.getSegment(i).getMaterial();
+            if ((material == null) || (material.getMaterialLightName() == null)) {
+                continue;
+            }
+            String materialLightName = material.getMaterialLightName();
+            if (!materialLightNames.contains(materialLightName)
+                    && (Renderable.materialLightPool.getUniqueID(materialLightName) != -1)) {
+                materialLightNames.add(materialLightName);
+            }
+        }
+
+        putInt(materialLightNames.size());
+        for (String materialLightName : materialLightNames) {
+            MaterialLight materialLight = Renderable.materialLightPool.get(materialLightName);
+            putString(materialLightName);
+            putInt(materialLight.getFace());
+            putInt(materialLight.getShininess());
+            putVector(materialLight.getAmbient());
+            putVector(materialLight.getDiffuse());
+            putVector(materialLight.getEmission());
+            putVector(materialLight.getSpecular());
+        }
+    }
+
+    private void writeSegment(Segment segment) {
+        if (segment.hasDrawCommands()) {
+            throw new IllegalArgumentException("Segments with draw commands cannot be baked: " + segment.getName());
+        }
+
+        putString(segment.getName());
+        putInt(segment.getPrimitiveMode());
+        putInt(segment.getElementCount());
+        putInt(segment.getFirstIndex());
+        putInt(segment.getIndexCount());
+        putInt(segment.getMinIndex());
+        putInt(segment.getMaxIndex());
+
+        // Material
+        SegmentMaterial material = segment.getMaterial();
+        putInt((material != null) ? 1 : 0);
+        if (material != null) {
+            Color color = material.getColor();
+            putInt((color != null) ? 1 : 0);
+            if (color != null) {
+                putFloat(color.getR());
+                putFloat(color.getG());
+                putFloat(color.getB());
+                putFloat(color.getA());
+            }
+            putString(material.getMaterialLightName());
+            putInt(material.getTextures().size());
+            for (Map.Entry<TextureType, String> entry : material.getTextures().entrySet()) {
+                putString(entry.getKey().name());
+                putString(entry.getValue());
+            }
+        }
+
+        // Segment data is kept so renderers that don't use buffer objects still work
+        putInt(segment.getData().size());
+        Iterator<HashMapIntGeneric.Entry<float[]>> iterator = segment.getData().entrySet().iterator();
+        while (iterator.hasNext()) {
+            HashMapIntGeneric.Entry<float[]> entry = iterator.next();
+            float[] data = entry.getValue();
+            putInt(entry.getKey());
+            putInt(data.length);
+            align();
+            putFloats(data);
+        }
+    }
+
+    /**
+     * Loads a model with the registered mesh reader and writes it as a baked mesh.
+     *
+     * @param filename The model to load. Ex: "models/crate.obj"
+     * @param file The baked mesh to create
+     * @throws IOException
+     */
+    public void bake(String filename, File file) throws IOException {
+        Mesh mesh = GL.meshFactory.createMesh();
+        GL.meshReader.load(filename, mesh);
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            write(mesh, fos);
+        }
+        log.info("Baked mesh: {} into: {}", filename, file);
+    }
+
+    public ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    /**
+     * Meshes are written in the native byte order by default. Readers on a machine with a different byte order
+     * still load the mesh but create the buffer object data again.
+     *
+     * @param byteOrder
+     */
+    public void setByteOrder(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+    }
+
+    public void write(Mesh mesh, OutputStream outputStream) throws IOException {
+        RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+
+        // Everything after the header including the buffer object data is written in the same byte order
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(BakedMeshFormat.MAGIC);
+        buffer.put(BakedMeshFormat.ConvertByteOrder(byteOrder));
+        buffer.put((byte) 0);
+        buffer.put((byte) 0);
+        buffer.put((byte) 0);
+        buffer.order(byteOrder);
+        buffer.putInt(BakedMeshFormat.VERSION);
+
+        writeConfig(config);
+        AABB aabb = mesh.getAabb();
+        putFloat(aabb.getMin().getX());
+        putFloat(aabb.getMin().getY());
+        putFloat(aabb.getMin().getZ());
+        putFloat(aabb.getMax().getX());
+        putFloat(aabb.getMax().getY());
+        putFloat(aabb.getMax().getZ());
+        putString(mesh.getMaterial().getShaderName());
+        writeMaterialLights(mesh);
+
+        putInt(mesh.getTotalSegments());
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            writeSegment(mesh.getSegment(i));
+        }
+
+        // Indexes in the index type of the configuration
+        if (mesh.hasIndexes()) {
+            writeIndexes(mesh, config);
+        } else {
+            putInt(-1);
+        }
+
+        // Interleaved vertex data exactly as the renderable builder creates it
+        if (mesh.hasColors() || mesh.hasNormals() || mesh.hasTexCoords() || mesh.hasVertices()) {
+            VertexBufferObjectInterleaved vboInterleaved = new VertexBufferObjectInterleaved();
+            Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
+            int byteSize = vboInterleaved.getStrideBytes() * mesh.getTotalVerticies();
+            putInt(vboInterleaved.getStrideBytes());
+            putInt(byteSize);
+            align();
+            ensureRemaining(byteSize);
+            Renderable.renderableBuilder.createInterleavedBufferData(mesh, vboInterleaved.getStrideBytes(), buffer,
+                    config);
+        } else {
+            putInt(-1);
+        }
+
+        outputStream.write(buffer.array(), 0, buffer.position());
+    }
+
+}
@@ -53,7 +53,9 @@ public class ObjReader implements ModelReader {
 
     private final static Logger log = LoggerFactory.getLogger(ObjReader.class);
 
+    private boolean optimizeMesh;
     private boolean resetOnFinish;
+    private boolean weldVertices;
     private final List<Face> faces;
     private final List<String> comments;
     private final List<TexCoord> texCoords;
@@ -68,7 +70,9 @@ public class ObjReader implements ModelReader {
     private String smoothingGroup;
 
     public ObjReader(MaterialReader materialReader) {
+        optimizeMesh = true;
         resetOnFinish = true;
+        weldVertices = true;
         faces = new ArrayList<>();
         comments = new ArrayList<>();
         texCoords = new ArrayList<>();
@@ -104,12 +108,12 @@ public class ObjReader implements ModelReader {
 
             // Add each type
             if (totalGeometricTextureNormal == 3) {
-                face.addNormalIndex(geometricTextureNormal[2]);
+                face.addNormalIndex(geometricTextureNormal[2], normals.size());
             }
             if (totalGeometricTextureNormal >= 2) {
-                face.addTexIndex(geometricTextureNormal[1]);
+                face.addTexIndex(geometricTextureNormal[1], texCoords.size());
             }
-            face.addVertexIndex(geometricTextureNormal[0]);
+            face.addVertexIndex(geometricTextureNormal[0], vertices.size());
         }
 
         // Was the face valid?
@@ -152,7 +156,8 @@ public class ObjReader implements ModelReader {
         addNormalOrVertex(tokenizer, vertices);
     }
 
-    private SegmentMaterial convertMaterialToSegmentMaterial(Material material, Map<Material, SegmentMaterial> materialToSegmentMaterial) {
+    static SegmentMaterial ConvertMaterialToSegmentMaterial(Material material,
+            Map<Material, SegmentMaterial> materialToSegmentMaterial) {
 
         // Get segment material from map if it exists
         SegmentMaterial segmentMaterial = materialToSegmentMaterial.get(material);
@@ -380,7 +385,7 @@ public class ObjReader implements ModelReader {
             String materialName = objectNameToMaterialName.get(objectName);
             Material material = materialNameToMaterial.get(materialName);
             if (material != null) {
-                SegmentMaterial segmentMaterial = convertMaterialToSegmentMaterial(material, materialToSegmentMaterial);
+                SegmentMaterial segmentMaterial = ConvertMaterialToSegmentMaterial(material, materialToSegmentMaterial);
                 segment.setMaterial(segmentMaterial);
             }
 
@@ -392,6 +397,8 @@ public class ObjReader implements ModelReader {
         int[] index = new int[]{0};
         for (int i = 0; i < mesh.getTotalSegments(); i++) {
             Segment segment = mesh.getSegment(i);
+            segment.setFirstIndex(index[0]);
+            segment.setIndexCount(segment.getElementCount());
             segment.setMinIndex(index[0]);
             index[0] += segment.getElementCount();
             segment.setMaxIndex(index[0] - 1);
@@ -401,6 +408,16 @@ public class ObjReader implements ModelReader {
             indexes.add(i);
         }
         mesh.setIndexes(ListUtils.ToPrimitiveIntArray(indexes));
+
+        // Merge the vertices that faces share since every face corner was added as a new vertex
+        if (weldVertices) {
+            GL.vertexWelder.weld(mesh);
+        }
+
+        // Reorder triangles and vertices for the vertex cache once at load time
+        if (optimizeMesh) {
+            GL.meshOptimizer.optimize(mesh);
+        }
     }
 
     private String getNextTokenOnly(StringTokenizer tokenizer) {
@@ -528,11 +545,8 @@ public class ObjReader implements ModelReader {
         }
     }
 
-    private void read(String filename) throws IOException {
-        FileAsset fileAsset = Fw.files.getMesh(filename);
-
-        try (InputStream is = fileAsset.openStream();
-                InputStreamReader isr = new InputStreamReader(is);
+    private void read(InputStream is) throws IOException {
+        try (InputStreamReader isr = new InputStreamReader(is);
                 BufferedReader reader = new BufferedReader(isr)) {
             String line;
 
@@ -543,22 +557,7 @@ public class ObjReader implements ModelReader {
     }
 
     private void readMaterial(String objFilename, Mesh mesh) throws IOException {
-        if (materialLibrary.length() <= 0) {
-            return;
-        }
-
-        // Take objFilename and strip the filename portion from it
-        String materialFilename;
-        String separator = Fw.files.INTERNAL_FILE_SEPARATOR;
-        int lastSlash = objFilename.lastIndexOf(separator);
-        if (lastSlash != -1) {
-            String directory = objFilename.substring(0, lastSlash);
-            materialFilename = directory + separator + materialLibrary;
-        } else {
-            materialFilename = materialLibrary;
-        }
-        materialReader.reset();
-        materialReader.load(materialFilename, mesh);
+        ReadMaterial(materialReader, materialLibrary, objFilename, mesh);
     }
 
     private void reset() {
@@ -575,6 +574,14 @@ public class ObjReader implements ModelReader {
         smoothingGroup = "";
     }
 
+    public boolean isOptimizeMesh() {
+        return optimizeMesh;
+    }
+
+    public void setOptimizeMesh(boolean optimizeMesh) {
+        this.optimizeMesh = optimizeMesh;
+    }
+
     public boolean isResetOnFinish() {
         return resetOnFinish;
     }
@@ -583,11 +590,17 @@ public class ObjReader implements ModelReader {
         this.resetOnFinish = resetOnFinish;
     }
 
-    @Override
-    public void load(String filename, Mesh mesh) throws IOException {
-        log.info("Loading OBJ model: {}", filename);
+    public boolean isWeldVertices() {
+        return weldVertices;
+    }
+
+    public void setWeldVertices(boolean weldVertices) {
+        this.weldVertices = weldVertices;
+    }
+
+    void load(InputStream is, String filename, Mesh mesh) throws IOException {
         reset();
-        read(filename);
+        read(is);
         readMaterial(filename, mesh);
         convertToMesh(mesh);
         if (resetOnFinish) {
@@ -596,6 +609,35 @@ public class ObjReader implements ModelReader {
         }
     }
 
+    @Override
+    public void load(String filename, Mesh mesh) throws IOException {
+        log.info("Loading OBJ model: {}", filename);
+        FileAsset fileAsset = Fw.files.getMesh(filename);
+        try (InputStream is = fileAsset.openStream()) {
+            load(is, filename, mesh);
+        }
+    }
+
+    static void ReadMaterial(MaterialReader materialReader, String materialLibrary, String objFilename, Mesh mesh)
+            throws IOException {
+        if (materialLibrary.length() <= 0) {
+            return;
+        }
+
+        // Take objFilename and strip the filename portion from it
+        String materialFilename;
+        String separator = Fw.files.INTERNAL_FILE_SEPARATOR;
+        int lastSlash = objFilename.lastIndexOf(separator);
+        if (lastSlash != -1) {
+            String directory = objFilename.substring(0, lastSlash);
+            materialFilename = directory + separator + materialLibrary;
+        } else {
+            materialFilename = materialLibrary;
+        }
+        materialReader.reset();
+        materialReader.load(materialFilename, mesh);
+    }
+
     private static class Face {
 
         private final List<Integer> normalIndex;
@@ -611,28 +653,34 @@ public class ObjReader implements ModelReader {
             assert (objectName != null);
         }
 
-        private void addIndex(List<Integer> indexes, String index) {
+        private void addIndex(List<Integer> indexes, String index, int total) {
             if (index.length() <= 0) {
                 return;
             }
-            int idx = indexToArray(index);
+            int idx = indexToArray(index, total);
             indexes.add(idx);
         }
 
-        private int indexToArray(String index) {
-            return Integer.parseInt(index) - 1;
+        private int indexToArray(String index, int total) {
+            int idx = Integer.parseInt(index);
+
+            // Negative indexes are relative to the end of what has been read so far
+            if (idx < 0) {
+                return total + idx;
+            }
+            return idx - 1;
         }
 
-        public void addNormalIndex(String index) {
-            addIndex(normalIndex, index);
+        public void addNormalIndex(String index, int totalNormals) {
+            addIndex(normalIndex, index, totalNormals);
         }
 
-        public void addTexIndex(String index) {
-            addIndex(texIndex, index);
+        public void addTexIndex(String index, int totalTexCoords) {
+            addIndex(texIndex, index, totalTexCoords);
         }
 
-        public void addVertexIndex(String index) {
-            addIndex(vertexIndex, index);
+        public void addVertexIndex(String index, int totalVertices) {
+            addIndex(vertexIndex, index, totalVertices);
         }
 
         public boolean hasNormals() {
@@ -0,0 +1,898 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.model.obj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import net.smert.frameworkgl.Files.FileAsset;
+import net.smert.frameworkgl.Fw;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.constants.Primitives;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentDataType;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.model.ModelReader;
+import net.smert.frameworkgl.opengl.model.obj.MaterialReader.Material;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.utils.ArrayListFloat;
+import net.smert.frameworkgl.utils.ArrayListInt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class StreamingObjReader implements ModelReader {
+
+    private final static Logger log = LoggerFactory.getLogger(StreamingObjReader.class);
+
+    private final static int MISSING = Integer.MIN_VALUE;
+    private final static int RELATIVE_OFFSET = 1 << 30;
+    private final static double[] POWERS_OF_TEN = CreatePowersOfTen();
+
+    private boolean optimizeMesh;
+    private int chunkSize;
+    private int parallelThreshold;
+    private final MaterialReader materialReader;
+    private ForkJoinPool forkJoinPool;
+
+    public StreamingObjReader(MaterialReader materialReader) {
+        optimizeMesh = true;
+        chunkSize = 4 * 1024 * 1024;
+        parallelThreshold = 8 * 1024 * 1024;
+        this.materialReader = materialReader;
+        forkJoinPool = ForkJoinPool.commonPool();
+    }
+
+    private void convertToMesh(Chunk[] chunks, Mesh mesh) throws IOException {
+        int totalNormals = 0;
+        int totalTexCoords = 0;
+        int totalVertices = 0;
+        boolean hasThreeTexCoords = false;
+        for (Chunk chunk : chunks) {
+            totalNormals += chunk.normals.getSize();
+            totalTexCoords += chunk.texCoords.getSize();
+            totalVertices += chunk.vertices.getSize();
+            hasThreeTexCoords |= chunk.hasThreeTexCoords;
+        }
+
+        // Concatenate the data of each chunk. Normals are created for faces without them so they can grow.
+        ArrayListFloat normals = new ArrayListFloat(Math.max(totalNormals, 16));
+        float[] texCoords = new float[totalTexCoords];
+        float[] vertices = new float[totalVertices];
+        int[] normalBases = new int[chunks.length];
+        int[] texCoordBases = new int[chunks.length];
+        int[] vertexBases = new int[chunks.length];
+        int texCoordOffset = 0;
+        int vertexOffset = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = chunks[i];
+            normalBases[i] = normals.getSize() / 3;
+            texCoordBases[i] = texCoordOffset / 3;
+            vertexBases[i] = vertexOffset / 3;
+            for (int j = 0; j < chunk.normals.getSize(); j++) {
+                normals.add(chunk.normals.get(j));
+            }
+            System.arraycopy(chunk.texCoords.getElements(), 0, texCoords, texCoordOffset, chunk.texCoords.getSize());
+            System.arraycopy(chunk.vertices.getElements(), 0, vertices, vertexOffset, chunk.vertices.getSize());
+            texCoordOffset += chunk.texCoords.getSize();
+            vertexOffset += chunk.vertices.getSize();
+        }
+        int normalCount = totalNormals / 3;
+        int texCoordCount = totalTexCoords / 3;
+        int vertexCount = totalVertices / 3;
+
+        // Triangulate the faces of each object and index the unique corners
+        boolean hasTexCoords = false;
+        int[] corners = new int[48];
+        Map<String, ObjectBuilder> objectNameToObjectBuilder = new LinkedHashMap<>();
+        Map<String, String> objectNameToMaterialName = new HashMap<>();
+        ObjectBuilder objectBuilder = null;
+        String objectName = "";
+
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = chunks[i];
+            int eventIndex = 0;
+            int facePosition = 0;
+
+            for (int j = 0; j <= chunk.faceCount; j++) {
+
+                // Object and material changes that happened before this face
+                while ((eventIndex < chunk.events.size()) && (chunk.events.get(eventIndex).face == j)) {
+                    Event event = chunk.events.get(eventIndex++);
+                    if (event.isObject) {
+                        objectName = event.name;
+                        objectBuilder = null;
+                    } else {
+                        String previousEntry = objectNameToMaterialName.put(objectName, event.name);
+                        if (previousEntry != null) {
+                            log.warn("The material name '{}' for the object name '{}' was overwritten.", event.name,
+                                    objectName);
+                        }
+                    }
+                }
+                if (j == chunk.faceCount) {
+                    break;
+                }
+
+                if (objectBuilder == null) {
+                    objectBuilder = objectNameToObjectBuilder.get(objectName);
+                    if (objectBuilder == null) {
+                        objectBuilder = new ObjectBuilder();
+                        objectNameToObjectBuilder.put(objectName, objectBuilder);
+                    }
+                }
+
+                int cornerCount = chunk.faces.get(facePosition++);
+                if (corners.length < cornerCount * 3) {
+                    corners = new int[cornerCount * 3];
+                }
+                boolean hasNormals = true;
+                for (int k = 0; k < cornerCount; k++) {
+                    int vertex = Resolve(chunk.faces.get(facePosition++), vertexBases[i], vertexCount);
+                    int texCoord = Resolve(chunk.faces.get(facePosition++), texCoordBases[i], texCoordCount);
+                    int normal = Resolve(chunk.faces.get(facePosition++), normalBases[i], normalCount);
+                    if (vertex == MISSING) {
+                        throw new IOException("Invalid vertex index in face: " + (j + 1) + " of chunk: " + i);
+                    }
+                    hasNormals &= (normal != MISSING);
+                    hasTexCoords |= (texCoord != MISSING);
+                    corners[k * 3] = vertex;
+                    corners[k * 3 + 1] = texCoord;
+                    corners[k * 3 + 2] = normal;
+                }
+
+                // Faces without normals get a flat normal shared by all of their corners
+                if (!hasNormals) {
+                    int normal = normals.getSize() / 3;
+                    AddFaceNormal(vertices, corners[0], corners[3], corners[6], normals);
+                    for (int k = 0; k < cornerCount; k++) {
+                        if (corners[k * 3 + 2] == MISSING) {
+                            corners[k * 3 + 2] = normal;
+                        }
+                    }
+                }
+
+                // Triangles, quads and polygons are converted into a triangle fan
+                for (int k = 1; k < cornerCount - 1; k++) {
+                    objectBuilder.add(corners, 0);
+                    objectBuilder.add(corners, k * 3);
+                    objectBuilder.add(corners, (k + 1) * 3);
+                }
+            }
+        }
+
+        // Create a renderable configuration for the mesh. Set all parameters to match OBJ capabilities.
+        int texCoordSize = hasThreeTexCoords ? 3 : 2;
+        int totalIndexes = 0;
+        int totalUniqueVertices = 0;
+        for (ObjectBuilder builder : objectNameToObjectBuilder.values()) {
+            totalIndexes += builder.indexes.getSize();
+            totalUniqueVertices += builder.keys.getSize() / 3;
+        }
+        RenderableConfiguration config = GL.meshFactory.createRenderableConfiguration();
+        config.setColorSize(4);
+        config.setColorTypeFloat();
+        config.setIndexTypeForMaxIndex(totalUniqueVertices - 1);
+        config.setTexCoordSize(texCoordSize);
+        config.setVertexSize(3);
+
+        // Check to see if a renderable configuration exists before adding it
+        int renderableConfigID = Renderable.configPool.getOrAdd(config);
+        mesh.setRenderableConfigID(renderableConfigID);
+
+        // Map materials to their names for easy lookup
+        Map<String, Material> materialNameToMaterial = new HashMap<>();
+        for (Material material : materialReader.getMaterials()) {
+            materialNameToMaterial.put(material.getMaterialName(), material);
+        }
+        Map<Material, SegmentMaterial> materialToSegmentMaterial = new HashMap<>();
+
+        float[] normalData = normals.getElements();
+        int baseVertex = 0;
+        int firstIndex = 0;
+        int[] indexes = new int[totalIndexes];
+        mesh.getAabb().setMax(-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+        mesh.getAabb().setMin(Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+
+        Iterator<Map.Entry<String, ObjectBuilder>> iterator = objectNameToObjectBuilder.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ObjectBuilder> entry = iterator.next();
+            String name = entry.getKey();
+            ObjectBuilder builder = entry.getValue();
+            int[] keys = builder.keys.getElements();
+            int uniqueVertices = builder.keys.getSize() / 3;
+            int indexCount = builder.indexes.getSize();
+
+            float[] segmentNormals = new float[uniqueVertices * 3];
+            float[] segmentTexCoords = hasTexCoords ? new float[uniqueVertices * texCoordSize] : null;
+            float[] segmentVertices = new float[uniqueVertices * 3];
+            for (int i = 0; i < uniqueVertices; i++) {
+                int vertex = keys[i * 3] * 3;
+                int texCoord = keys[i * 3 + 1];
+                int normal = keys[i * 3 + 2] * 3;
+                System.arraycopy(vertices, vertex, segmentVertices, i * 3, 3);
+                System.arraycopy(normalData, normal, segmentNormals, i * 3, 3);
+                if (hasTexCoords && (texCoord != MISSING)) {
+                    System.arraycopy(texCoords, texCoord * 3, segmentTexCoords, i * texCoordSize, texCoordSize);
+                }
+                mesh.getAabb().getMax().setMax(vertices[vertex], vertices[vertex + 1], vertices[vertex + 2]);
+                mesh.getAabb().getMin().setMin(vertices[vertex], vertices[vertex + 1], vertices[vertex + 2]);
+            }
+
+            // Convert model data into a mesh segment
+            Segment segment = GL.meshFactory.createSegment();
+            segment.setElementCount(uniqueVertices);
+            segment.setFirstIndex(firstIndex);
+            segment.setIndexCount(indexCount);
+            segment.setMaxIndex(baseVertex + uniqueVertices - 1);
+            segment.setMinIndex(baseVertex);
+            segment.setName(name);
+            segment.setPrimitiveMode(Primitives.TRIANGLES);
+            segment.setData(SegmentDataType.NORMAL, segmentNormals);
+            if (hasTexCoords) {
+                segment.setData(SegmentDataType.TEX_COORD0, segmentTexCoords);
+            }
+            segment.setData(SegmentDataType.VERTEX, segmentVertices);
+
+            // Convert the material if it exists
+            Material material = materialNameToMaterial.get(objectNameToMaterialName.get(name));
+            if (material != null) {
+                segment.setMaterial(ObjReader.ConvertMaterialToSegmentMaterial(material, materialToSegmentMaterial));
+            }
+
+            // Add the segment to the mesh
+            mesh.addSegment(segment);
+
+            int[] builderIndexes = builder.indexes.getElements();
+            for (int i = 0; i < indexCount; i++) {
+                indexes[firstIndex + i] = baseVertex + builderIndexes[i];
+            }
+            baseVertex += uniqueVertices;
+            firstIndex += indexCount;
+        }
+        mesh.setIndexes(indexes);
+
+        // Reorder triangles and vertices for the vertex cache once at load time
+        if (optimizeMesh && (totalIndexes > 0)) {
+            GL.meshOptimizer.optimize(mesh);
+        }
+    }
+
+    private Chunk[] parse(ByteBuffer data) {
+        int size = data.limit();
+        int chunkCount = 1;
+        if ((forkJoinPool != null) && (size >= parallelThreshold)) {
+            chunkCount = (size + chunkSize - 1) / chunkSize;
+        }
+
+        // Chunks always start at the beginning of a line
+        Chunk[] chunks = new Chunk[chunkCount];
+        int start = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            int end = size;
+            if (i < chunkCount - 1) {
+                end = Math.max((i + 1) * chunkSize, start);
+                while ((end < size) && (data.get(end - 1) != '\n')) {
+                    end++;
+                }
+            }
+            chunks[i] = new Chunk(data, start, end);
+            start = end;
+        }
+
+        if (chunkCount == 1) {
+            chunks[0].parse();
+        } else {
+            forkJoinPool.invoke(new ParseChunksTask(chunks, 0, chunkCount));
+        }
+        return chunks;
+    }
+
+    private ByteBuffer read(String filename) throws IOException {
+        FileAsset fileAsset = Fw.files.getMesh(filename);
+
+        // Files on disk are mapped so the operating system pages them in while parsing
+        if (fileAsset.isFile()) {
+            try (FileChannel channel = FileChannel.open(
+                    Paths.get(fileAsset.getFullPathToFile()), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("The OBJ file is too large to be mapped: " + filename);
+                }
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        // Assets inside jars and zips are read into memory
+        try (InputStream is = fileAsset.openStream()) {
+            int size = 0;
+            byte[] bytes = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(bytes, size, bytes.length - size)) != -1) {
+                size += read;
+                if (size == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+            }
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be greater than zero: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public boolean isOptimizeMesh() {
+        return optimizeMesh;
+    }
+
+    public void setOptimizeMesh(boolean optimizeMesh) {
+        this.optimizeMesh = optimizeMesh;
+    }
+
+    void load(ByteBuffer data, String filename, Mesh mesh) throws IOException {
+        Chunk[] chunks = parse(data);
+
+        String materialLibrary = "";
+        int unsupportedLines = 0;
+        for (Chunk chunk : chunks) {
+            if (materialLibrary.isEmpty()) {
+                materialLibrary = chunk.materialLibrary;
+            }
+            unsupportedLines += chunk.unsupportedLines;
+        }
+        if (unsupportedLines > 0) {
+            log.warn("Skipped {} lines with unsupported or invalid definitions", unsupportedLines);
+        }
+
+        ObjReader.ReadMaterial(materialReader, materialLibrary, filename, mesh);
+        convertToMesh(chunks, mesh);
+        materialReader.reset();
+    }
+
+    @Override
+    public void load(String filename, Mesh mesh) throws IOException {
+        log.info("Loading OBJ model: {}", filename);
+        load(read(filename), filename, mesh);
+    }
+
+    private static void AddFaceNormal(float[] vertices, int vertex0, int vertex1, int vertex2,
+            ArrayListFloat normals) {
+        int v0 = vertex0 * 3;
+        int v1 = vertex1 * 3;
+        int v2 = vertex2 * 3;
+        float e1x = vertices[v1] - vertices[v0];
+        float e1y = vertices[v1 + 1] - vertices[v0 + 1];
+        float e1z = vertices[v1 + 2] - vertices[v0 + 2];
+        float e2x = vertices[v2] - vertices[v0];
+        float e2y = vertices[v2 + 1] - vertices[v0 + 1];
+        float e2z = vertices[v2 + 2] - vertices[v0 + 2];
+        float nx = e1y * e2z - e1z * e2y;
+        float ny = e1z * e2x - e1x * e2z;
+        float nz = e1x * e2y - e1y * e2x;
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length > 0f) {
+            nx /= length;
+            ny /= length;
+            nz /= length;
+        }
+        normals.add(nx, ny, nz);
+    }
+
+    private static double[] CreatePowersOfTen() {
+
+        // Powers of ten up to 22 are exact as doubles
+        double[] powers = new double[23];
+        powers[0] = 1.0;
+        for (int i = 1; i < powers.length; i++) {
+            powers[i] = powers[i - 1] * 10.0;
+        }
+        return powers;
+    }
+
+    private static int Resolve(int index, int base, int count) {
+        if (index == MISSING) {
+            return MISSING;
+        }
+
+        // Relative indexes were stored as a position inside the chunk
+        int resolved = (index < 0) ? (base + index + RELATIVE_OFFSET) : index;
+        if ((resolved < 0) || (resolved >= count)) {
+            return MISSING;
+        }
+        return resolved;
+    }
+
+    private static class Chunk {
+
+        private boolean hasThreeTexCoords;
+        private int end;
+        private int faceCount;
+        private int position;
+        private int unsupportedLines;
+        private float number;
+        private final ArrayListFloat normals;
+        private final ArrayListFloat texCoords;
+        private final ArrayListFloat vertices;
+        private final ArrayListInt corners;
+        private final ArrayListInt faces;
+        private final ByteBuffer data;
+        private final List<Event> events;
+        private String materialLibrary;
+
+        private Chunk(ByteBuffer data, int start, int end) {
+            hasThreeTexCoords = false;
+            this.end = end;
+            faceCount = 0;
+            position = start;
+            unsupportedLines = 0;
+            number = 0f;
+            int estimatedLines = Math.max((end - start) / 32, 16);
+            normals = new ArrayListFloat(estimatedLines);
+            texCoords = new ArrayListFloat(estimatedLines);
+            vertices = new ArrayListFloat(estimatedLines);
+            corners = new ArrayListInt(48);
+            faces = new ArrayListInt(estimatedLines * 2);
+            this.data = data;
+            events = new ArrayList<>();
+            materialLibrary = "";
+        }
+
+        private boolean isDigit(int offset) {
+            if (offset >= end) {
+                return false;
+            }
+            byte b = data.get(offset);
+            return (b >= '0') && (b <= '9');
+        }
+
+        private boolean isKeyword(String keyword) {
+            int length = keyword.length();
+            if (position + length >= end) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (data.get(position + i) != keyword.charAt(i)) {
+                    return false;
+                }
+            }
+            return isSpace(position + length);
+        }
+
+        private boolean isLineEnd(int offset) {
+            if (offset >= end) {
+                return true;
+            }
+            byte b = data.get(offset);
+            return (b == '\n') || (b == '\r') || (b == '#');
+        }
+
+        private boolean isSpace(int offset) {
+            if (offset >= end) {
+                return false;
+            }
+            byte b = data.get(offset);
+            return (b == ' ') || (b == '\t');
+        }
+
+        private void parse() {
+            while (position < end) {
+                skipSpaces();
+                if (isLineEnd(position)) {
+                    skipLine();
+                    continue;
+                }
+
+                byte b = data.get(position);
+                if (isKeyword("v")) {
+                    position += 1;
+                    parseVector(vertices);
+                } else if (isKeyword("vn")) {
+                    position += 2;
+                    parseVector(normals);
+                } else if (isKeyword("vt")) {
+                    position += 2;
+                    parseTexCoord();
+                } else if (isKeyword("f")) {
+                    position += 1;
+                    parseFace();
+                } else if (isKeyword("o")) {
+                    position += 1;
+                    events.add(new Event(faceCount, true, readToken()));
+                } else if (isKeyword("usemtl")) {
+                    position += 6;
+                    events.add(new Event(faceCount, false, readToken()));
+                } else if (isKeyword("mtllib")) {
+                    position += 6;
+                    String library = readRemaining();
+                    if (materialLibrary.isEmpty()) {
+                        materialLibrary = library;
+                    }
+                } else if ((b != 'g') && (b != 's')) {
+                    unsupportedLines++;
+                }
+                skipLine();
+            }
+        }
+
+        private void parseFace() {
+            corners.clear();
+            while (true) {
+                skipSpaces();
+                if (isLineEnd(position)) {
+                    break;
+                }
+
+                // Ex: "v", "v/vt", "v/vt/vn" or "v//vn"
+                int vertex = parseIndex(vertices.getSize() / 3);
+                int texCoord = MISSING;
+                int normal = MISSING;
+                if ((position < end) && (data.get(position) == '/')) {
+                    position++;
+                    texCoord = parseIndex(texCoords.getSize() / 3);
+                    if ((position < end) && (data.get(position) == '/')) {
+                        position++;
+                        normal = parseIndex(normals.getSize() / 3);
+                    }
+                }
+                if (vertex == MISSING) {
+                    unsupportedLines++;
+                    return;
+                }
+                corners.add(vertex, texCoord, normal);
+
+                // Skip anything else in the token
+                while (!isSpace(position) && !isLineEnd(position)) {
+                    position++;
+                }
+            }
+
+            if (corners.getSize() < 9) {
+                unsupportedLines++;
+                return;
+            }
+            faces.add(corners.getSize() / 3);
+            for (int i = 0; i < corners.getSize(); i++) {
+                faces.add(corners.get(i));
+            }
+            faceCount++;
+        }
+
+        private boolean parseFloat() {
+            boolean negative = false;
+            if ((position < end) && ((data.get(position) == '-') || (data.get(position) == '+'))) {
+                negative = (data.get(position) == '-');
+                position++;
+            }
+
+            // Only the first 18 significant digits fit in the mantissa. The rest only change the exponent.
+            int digits = 0;
+            int exponent = 0;
+            int significantDigits = 0;
+            long mantissa = 0L;
+            while (isDigit(position)) {
+                int digit = data.get(position++) - '0';
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    if (mantissa != 0) {
+                        significantDigits++;
+                    }
+                } else {
+                    exponent++;
+                }
+                digits++;
+            }
+            if ((position < end) && (data.get(position) == '.')) {
+                position++;
+                while (isDigit(position)) {
+                    int digit = data.get(position++) - '0';
+                    if (significantDigits < 18) {
+                        mantissa = mantissa * 10 + digit;
+                        exponent--;
+                        if (mantissa != 0) {
+                            significantDigits++;
+                        }
+                    }
+                    digits++;
+                }
+            }
+            if (digits == 0) {
+                return false;
+            }
+            if ((position < end) && ((data.get(position) == 'e') || (data.get(position) == 'E'))) {
+                position++;
+                boolean negativeExponent = false;
+                if ((position < end) && ((data.get(position) == '-') || (data.get(position) == '+'))) {
+                    negativeExponent = (data.get(position) == '-');
+                    position++;
+                }
+                int value = 0;
+                while (isDigit(position)) {
+                    value = Math.min(value * 10 + (data.get(position++) - '0'), 1000);
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+
+            double result = mantissa;
+            if (exponent < 0) {
+                result = (-exponent < POWERS_OF_TEN.length) ? result / POWERS_OF_TEN[-exponent]
+                        : result / Math.pow(10.0, -exponent);
+            } else if (exponent > 0) {
+                result = (exponent < POWERS_OF_TEN.length) ? result * POWERS_OF_TEN[exponent]
+                        : result * Math.pow(10.0, exponent);
+            }
+            number = (float) (negative ? -result : result);
+            return true;
+        }
+
+        private int parseIndex(int count) {
+            boolean negative = false;
+            if ((position < end) && (data.get(position) == '-')) {
+                negative = true;
+                position++;
+            }
+            if (!isDigit(position)) {
+                return MISSING;
+            }
+            int value = 0;
+            while (isDigit(position)) {
+                value = value * 10 + (data.get(position++) - '0');
+            }
+
+            // Relative indexes can point into an earlier chunk so they are resolved when the chunks are merged
+            if (negative) {
+                return (count - value) - RELATIVE_OFFSET;
+            }
+            return value - 1;
+        }
+
+        private void parseTexCoord() {
+
+            // Ex: "vt tU tV" or "vt tU tV tW"
+            skipSpaces();
+            if (!parseFloat()) {
+                unsupportedLines++;
+                return;
+            }
+            float s = number;
+            skipSpaces();
+            if (!parseFloat()) {
+                unsupportedLines++;
+                return;
+            }
+            float t = number;
+            float r = 0f;
+            skipSpaces();
+            if (!isLineEnd(position) && parseFloat()) {
+                r = number;
+                hasThreeTexCoords = true;
+            }
+            texCoords.add(s, t, r);
+        }
+
+        private void parseVector(ArrayListFloat list) {
+
+            // Ex: "v vX vY vZ" or "vn nX nY nZ"
+            float x, y;
+            skipSpaces();
+            if (!parseFloat()) {
+                unsupportedLines++;
+                return;
+            }
+            x = number;
+            skipSpaces();
+            if (!parseFloat()) {
+                unsupportedLines++;
+                return;
+            }
+            y = number;
+            skipSpaces();
+            if (!parseFloat()) {
+                unsupportedLines++;
+                return;
+            }
+            list.add(x, y, number);
+        }
+
+        private String readRemaining() {
+            skipSpaces();
+            int start = position;
+            int last = position;
+            while ((position < end) && (data.get(position) != '\n') && (data.get(position) != '\r')) {
+                if (!isSpace(position)) {
+                    last = position + 1;
+                }
+                position++;
+            }
+            return ReadString(data, start, last);
+        }
+
+        private String readToken() {
+            skipSpaces();
+            int start = position;
+            while (!isSpace(position) && !isLineEnd(position)) {
+                position++;
+            }
+            return ReadString(data, start, position);
+        }
+
+        private void skipLine() {
+            while ((position < end) && (data.get(position) != '\n')) {
+                position++;
+            }
+            position++;
+        }
+
+        private void skipSpaces() {
+            while (isSpace(position)) {
+                position++;
+            }
+        }
+
+        private static String ReadString(ByteBuffer data, int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = data.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+    }
+
+    private static class Event {
+
+        private final boolean isObject;
+        private final int face;
+        private final String name;
+
+        private Event(int face, boolean isObject, String name) {
+            this.isObject = isObject;
+            this.face = face;
+            this.name = name;
+        }
+
+    }
+
+    private static class ObjectBuilder {
+
+        private final static int EMPTY = -1;
+
+        private int[] table;
+        private final ArrayListInt indexes;
+        private final ArrayListInt keys;
+
+        private ObjectBuilder() {
+            table = new int[1024];
+            Arrays.fill(table, EMPTY);
+            indexes = new ArrayListInt(1024);
+            keys = new ArrayListInt(1024);
+        }
+
+        private void add(int[] corners, int offset) {
+            int vertex = corners[offset];
+            int texCoord = corners[offset + 1];
+            int normal = corners[offset + 2];
+
+            // Linear probing over the corners that were already added
+            int mask = table.length - 1;
+            int slot = Hash(vertex, texCoord, normal) & mask;
+            int[] elements = keys.getElements();
+            while (table[slot] != EMPTY) {
+                int unique = table[slot];
+                if ((elements[unique * 3] == vertex) && (elements[unique * 3 + 1] == texCoord)
+                        && (elements[unique * 3 + 2] == normal)) {
+                    indexes.add(unique);
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int unique = keys.getSize() / 3;
+            keys.add(vertex, texCoord, normal);
+            indexes.add(unique);
+            table[slot] = unique;
+            if ((unique + 1) * 2 > table.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            Arrays.fill(table, EMPTY);
+            int mask = table.length - 1;
+            int[] elements = keys.getElements();
+            for (int unique = 0; unique < keys.getSize() / 3; unique++) {
+                int slot = Hash(elements[unique * 3], elements[unique * 3 + 1], elements[unique * 3 + 2]) & mask;
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = unique;
+            }
+        }
+
+        private static int Hash(int vertex, int texCoord, int normal) {
+            int hash = vertex * 0x9E3779B1 + texCoord * 0x85EBCA6B + normal * 0xC2B2AE35;
+            return hash ^ (hash >>> 16);
+        }
+
+    }
+
+    private class ParseChunksTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final int firstChunk;
+        private final int lastChunk;
+        private final Chunk[] chunks;
+
+        private ParseChunksTask(Chunk[] chunks, int firstChunk, int lastChunk) {
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk == 1) {
+                chunks[firstChunk].parse();
+                return;
+            }
+
+            int middleChunk = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new ParseChunksTask(chunks, firstChunk, middleChunk),
+                    new ParseChunksTask(chunks, middleChunk, lastChunk));
+        }
+
+    }
+
+}
@@ -19,7 +19,15 @@ import net.smert.frameworkgl.gameobjects.AABBGameObject;
 import net.smert.frameworkgl.gameobjects.GameObject;
 import net.smert.frameworkgl.gameobjects.SimpleOrientationAxisGameObject;
 import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.camera.BatchFrustumCulling;
 import net.smert.frameworkgl.opengl.camera.Camera;
+import net.smert.frameworkgl.opengl.camera.FrustumCullingTree;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.shared.StaticGeometryMerger;
+import net.smert.frameworkgl.opengl.renderer.RenderQueue;
+import net.smert.frameworkgl.opengl.shader.AbstractShader;
 
 /**
  *
@@ -27,24 +35,76 @@ import net.smert.frameworkgl.opengl.camera.Camera;
  */
 public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
 
+    private float[] packedAabbs;
+    private final BatchFrustumCulling batchFrustumCulling;
+    private FrustumCullingTree worldFrustumCullingTree;
+    private AbstractShader worldStaticGeometryShader;
+    private RenderQueue renderQueue;
+    private StaticGeometryMerger worldStaticGeometry;
     private final List<PipelineRenderDebugCallback> pipelineRenderDebugCallbacks;
     private final List<GameObject> entityGameObjects;
     private final List<GameObject> entityGameObjectsToRender;
     private final List<GameObject> nonOpaqueGameObjects;
     private final List<GameObject> nonOpaqueGameObjectsToRender;
     private final List<GameObject> worldGameObjects;
+    private final List<GameObject> worldGameObjectsNotMerged;
     private final List<GameObject> worldGameObjectsToRender;
 
     public DefaultPipelineRenderCallback() {
+        packedAabbs = new float[0];
+        batchFrustumCulling = new BatchFrustumCulling();
         pipelineRenderDebugCallbacks = new ArrayList<>();
         entityGameObjects = new ArrayList<>();
         entityGameObjectsToRender = new ArrayList<>();
         nonOpaqueGameObjects = new ArrayList<>();
         nonOpaqueGameObjectsToRender = new ArrayList<>();
         worldGameObjects = new ArrayList<>();
+        worldGameObjectsNotMerged = new ArrayList<>();
         worldGameObjectsToRender = new ArrayList<>();
     }
 
+    private List<GameObject> getWorldGameObjectsNotMerged() {
+        if (worldStaticGeometry == null) {
+            return worldGameObjectsToRender;
+        }
+        worldGameObjectsNotMerged.clear();
+        for (GameObject gameObject : worldGameObjectsToRender) {
+            if (!worldStaticGeometry.contains(gameObject)) {
+                worldGameObjectsNotMerged.add(gameObject);
+            }
+        }
+        return worldGameObjectsNotMerged;
+    }
+
+    private void performFrustumCulling(Camera camera, List<GameObject> gameObjectsToRender,
+            List<GameObject> gameObjects) {
+        int size = gameObjects.size();
+
+        // Pack world AABBs so they can be culled together
+        if (packedAabbs.length < size * AABBUtilities.AABB_STRIDE) {
+            packedAabbs = new float[size * AABBUtilities.AABB_STRIDE];
+        }
+        for (int i = 0; i < size; i++) {
+            gameObjects.get(i).getWorldAabb().toArray(packedAabbs, i * AABBUtilities.AABB_STRIDE);
+        }
+
+        int visibleSize = batchFrustumCulling.cull(camera.getFrustumCulling(), packedAabbs, size);
+        int[] visibleIndexes = batchFrustumCulling.getVisibleIndexes();
+
+        // Visible indexes are in increasing order
+        gameObjectsToRender.clear();
+        int visibleIndex = 0;
+        for (int i = 0; i < size; i++) {
+            GameObject gameObject = gameObjects.get(i);
+            boolean inFrustum = ((visibleIndex < visibleSize) && (visibleIndexes[visibleIndex] == i));
+            if (inFrustum) {
+                gameObjectsToRender.add(gameObject);
+                visibleIndex++;
+            }
+            gameObject.getRenderableState().setInFrustum(inFrustum);
+        }
+    }
+
     private void renderAabbs(List<GameObject> gameObjects, AABBGameObject aabbGameObject) {
         for (GameObject gameObject : gameObjects) {
             AABB worldAabb = gameObject.getWorldAabb();
@@ -62,15 +122,6 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
         }
     }
 
-    private void updateGameObjectsToRender(List<GameObject> gameObjectsToRender, List<GameObject> gameObjects) {
-        gameObjectsToRender.clear();
-        for (GameObject gameObject : gameObjects) {
-            if (gameObject.getRenderableState().isInFrustum()) {
-                gameObjectsToRender.add(gameObject);
-            }
-        }
-    }
-
     public void addEntityGameObject(GameObject entityGameObject) {
         this.entityGameObjects.add(entityGameObject);
     }
@@ -93,14 +144,21 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
 
     public void addWorldGameObject(GameObject worldGameObject) {
         this.worldGameObjects.add(worldGameObject);
+        if (worldFrustumCullingTree != null) {
+            worldFrustumCullingTree.addGameObject(worldGameObject);
+        }
     }
 
     public void addWorldGameObjects(List<GameObject> worldGameObjects) {
         for (GameObject gameObject : worldGameObjects) {
-            this.worldGameObjects.add(gameObject);
+            addWorldGameObject(gameObject);
         }
     }
 
+    public BatchFrustumCulling getBatchFrustumCulling() {
+        return batchFrustumCulling;
+    }
+
     public List<GameObject> getEntityGameObjects() {
         return entityGameObjects;
     }
@@ -109,10 +167,54 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
         return nonOpaqueGameObjects;
     }
 
+    public RenderQueue getRenderQueue() {
+        return renderQueue;
+    }
+
+    public void setRenderQueue(RenderQueue renderQueue) {
+
+        // Game objects are sorted by state and depth before rendering when a queue is set
+        this.renderQueue = renderQueue;
+    }
+
+    public FrustumCullingTree getWorldFrustumCullingTree() {
+        return worldFrustumCullingTree;
+    }
+
+    public void setWorldFrustumCullingTree(FrustumCullingTree worldFrustumCullingTree) {
+
+        // World game objects are culled hierarchically when a tree is set
+        this.worldFrustumCullingTree = worldFrustumCullingTree;
+        if (worldFrustumCullingTree != null) {
+            worldFrustumCullingTree.addGameObjects(worldGameObjects);
+        }
+    }
+
     public List<GameObject> getWorldGameObjects() {
         return worldGameObjects;
     }
 
+    public StaticGeometryMerger getWorldStaticGeometry() {
+        return worldStaticGeometry;
+    }
+
+    public void setWorldStaticGeometry(StaticGeometryMerger worldStaticGeometry) {
+
+        // World game objects in the merger are drawn with one call per material when set
+        this.worldStaticGeometry = worldStaticGeometry;
+    }
+
+    public AbstractShader getWorldStaticGeometryShader() {
+        return worldStaticGeometryShader;
+    }
+
+    public void setWorldStaticGeometryShader(AbstractShader worldStaticGeometryShader) {
+
+        // Merged geometry reads its world transform from the instance attributes. Without a shader set the current
+        // shader must do the same.
+        this.worldStaticGeometryShader = worldStaticGeometryShader;
+    }
+
     public void removeEntityGameObject(GameObject entityGameObject) {
         this.entityGameObjects.remove(entityGameObject);
     }
@@ -135,11 +237,14 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
 
     public void removeWorldGameObject(GameObject worldGameObject) {
         this.worldGameObjects.remove(worldGameObject);
+        if (worldFrustumCullingTree != null) {
+            worldFrustumCullingTree.removeGameObject(worldGameObject);
+        }
     }
 
     public void removeWorldGameObjects(List<GameObject> worldGameObjects) {
         for (GameObject gameObject : worldGameObjects) {
-            this.worldGameObjects.remove(gameObject);
+            removeWorldGameObject(gameObject);
         }
     }
 
@@ -156,6 +261,10 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
     public void setAllWorldGameObjects(List<GameObject> worldGameObjects) {
         this.worldGameObjects.clear();
         this.worldGameObjects.addAll(worldGameObjects);
+        if (worldFrustumCullingTree != null) {
+            worldFrustumCullingTree.clear();
+            worldFrustumCullingTree.addGameObjects(worldGameObjects);
+        }
     }
 
     @Override
@@ -175,12 +284,13 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
 
     @Override
     public void performFrustumCulling(Camera camera) {
-        Fw.graphics.performCulling(camera, worldGameObjects);
-        Fw.graphics.performCulling(camera, entityGameObjects);
-        Fw.graphics.performCulling(camera, nonOpaqueGameObjects);
-        updateGameObjectsToRender(worldGameObjectsToRender, worldGameObjects);
-        updateGameObjectsToRender(entityGameObjectsToRender, entityGameObjects);
-        updateGameObjectsToRender(nonOpaqueGameObjectsToRender, nonOpaqueGameObjects);
+        if (worldFrustumCullingTree != null) {
+            worldFrustumCullingTree.cull(camera.getFrustumCulling(), worldGameObjectsToRender);
+        } else {
+            performFrustumCulling(camera, worldGameObjectsToRender, worldGameObjects);
+        }
+        performFrustumCulling(camera, entityGameObjectsToRender, entityGameObjects);
+        performFrustumCulling(camera, nonOpaqueGameObjectsToRender, nonOpaqueGameObjects);
     }
 
     @Override
@@ -190,7 +300,28 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
 
     @Override
     public void render() {
-        Fw.graphics.render(worldGameObjectsToRender);
+        List<GameObject> unmergedWorldGameObjects = getWorldGameObjectsNotMerged();
+        AbstractShader shader = Renderable.shaderBindState.getShader();
+        if (worldStaticGeometry != null) {
+            if (worldStaticGeometryShader != null) {
+                Fw.graphics.switchShader(worldStaticGeometryShader);
+            }
+            worldStaticGeometry.render();
+            if ((worldStaticGeometryShader != null) && (shader != null)) {
+                Fw.graphics.switchShader(shader);
+            }
+        }
+        if (renderQueue != null) {
+            renderQueue.clear();
+            renderQueue.setViewMatrix(GL.matrixHelper.peekViewMatrix());
+            renderQueue.addOpaque(unmergedWorldGameObjects, shader);
+            renderQueue.addOpaque(entityGameObjectsToRender, shader);
+            renderQueue.addBlend(nonOpaqueGameObjectsToRender, shader);
+            renderQueue.sort();
+            renderQueue.render(Fw.graphics);
+            return;
+        }
+        Fw.graphics.render(unmergedWorldGameObjects);
         Fw.graphics.render(entityGameObjectsToRender);
         Fw.graphics.renderBlend(nonOpaqueGameObjectsToRender);
     }
@@ -219,6 +350,9 @@ public class DefaultPipelineRenderCallback implements PipelineRenderCallback {
     @Override
     public void updateAabbs() {
         Fw.graphics.updateAabb(worldGameObjects);
+        if (worldFrustumCullingTree != null) {
+            worldFrustumCullingTree.updateGameObjects();
+        }
         Fw.graphics.updateAabb(entityGameObjects);
         Fw.graphics.updateAabb(nonOpaqueGameObjects);
     }
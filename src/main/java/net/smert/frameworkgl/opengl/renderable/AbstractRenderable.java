@@ -13,6 +13,7 @@
 package net.smert.frameworkgl.opengl.renderable;
 
 import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.renderable.shared.RenderCall;
 
 /**
  *
@@ -24,6 +25,18 @@ public abstract class AbstractRenderable {
 
     public abstract void destroy();
 
+    public int getRenderableConfigID() {
+        return -1;
+    }
+
+    public RenderCall getRenderCall() {
+        return null;
+    }
+
+    public int getVaoID() {
+        return 0;
+    }
+
     public abstract void render();
 
     public void update(Mesh mesh) {
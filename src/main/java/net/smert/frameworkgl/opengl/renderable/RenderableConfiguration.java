@@ -248,6 +248,16 @@ public class RenderableConfiguration {
         this.indexType = GLTypes.UNSIGNED_SHORT;
     }
 
+    public void setIndexTypeForMaxIndex(int maxIndex) {
+
+        // Short indexes use half the memory when every vertex can be addressed with 16 bits
+        if (maxIndex <= 0xFFFF) {
+            setIndexTypeUnsignedShort();
+        } else {
+            setIndexTypeUnsignedInt();
+        }
+    }
+
     public int getNormalSize() {
         return NORMAL_SIZE;
     }
@@ -15,6 +15,8 @@ package net.smert.frameworkgl.opengl.renderable.factory;
 import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.DynamicVertexArrayObjectInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.DynamicVertexArrayObjectNonInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.gl3.InstancedVertexArrayObjectInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.gl3.InstancedVertexArrayObjectNonInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.VertexArrayObjectInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.VertexArrayObjectNonInterleavedGL3Renderable;
 import org.picocontainer.MutablePicoContainer;
@@ -31,6 +33,14 @@ public class RenderableFactoryGL3 implements RenderableFactory {
         container = renderableFactoryGL3Container;
     }
 
+    public InstancedVertexArrayObjectInterleavedGL3Renderable createInstancedInterleavedRenderable() {
+        return container.getComponent(InstancedVertexArrayObjectInterleavedGL3Renderable.class);
+    }
+
+    public InstancedVertexArrayObjectNonInterleavedGL3Renderable createInstancedNonInterleavedRenderable() {
+        return container.getComponent(InstancedVertexArrayObjectNonInterleavedGL3Renderable.class);
+    }
+
     @Override
     public AbstractRenderable createArrayRenderable() {
         throw new UnsupportedOperationException("Not supported.");
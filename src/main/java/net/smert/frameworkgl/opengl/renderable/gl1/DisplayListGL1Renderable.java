@@ -72,6 +72,11 @@ public class DisplayListGL1Renderable extends AbstractRenderable {
         displayLists.clear();
     }
 
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
     @Override
     public void render() {
         renderCall.render();
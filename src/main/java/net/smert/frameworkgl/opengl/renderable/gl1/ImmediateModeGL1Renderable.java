@@ -40,6 +40,11 @@ public class ImmediateModeGL1Renderable extends AbstractRenderable {
     public void destroy() {
     }
 
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
     @Override
     public void render() {
         renderCall.render();
@@ -15,6 +15,7 @@ package net.smert.frameworkgl.opengl.renderable.gl3;
 import net.smert.frameworkgl.opengl.constants.VertexBufferObjectTypes;
 import net.smert.frameworkgl.opengl.mesh.Mesh;
 import net.smert.frameworkgl.opengl.renderable.shared.DynamicInterleavedRenderable;
+import net.smert.frameworkgl.opengl.renderable.shared.StreamingVertexBuffer;
 
 /**
  *
@@ -23,12 +24,33 @@ import net.smert.frameworkgl.opengl.renderable.shared.DynamicInterleavedRenderab
 public class DynamicVertexArrayObjectInterleavedGL3Renderable extends VertexArrayObjectInterleavedGL3Renderable
         implements DynamicInterleavedRenderable {
 
+    private StreamingVertexBuffer streamingVertexBuffer;
+
     public DynamicVertexArrayObjectInterleavedGL3Renderable() {
         bufferUsage = VertexBufferObjectTypes.DYNAMIC_DRAW;
+        streamingVertexBuffer = null;
+    }
+
+    public StreamingVertexBuffer getStreamingVertexBuffer() {
+        return streamingVertexBuffer;
+    }
+
+    /**
+     * The caller owns the frames of the streaming vertex buffer. StreamingVertexBuffer.beginFrame() must be called
+     * before any update or render in a frame and StreamingVertexBuffer.endFrame() after the last draw of the frame.
+     * Until the first beginFrame() updates fall back to the VBO of the renderable.
+     *
+     * @param streamingVertexBuffer
+     */
+    public void setStreamingVertexBuffer(StreamingVertexBuffer streamingVertexBuffer) {
+        this.streamingVertexBuffer = streamingVertexBuffer;
     }
 
     @Override
     public void update(Mesh mesh) {
+        if ((streamingVertexBuffer != null) && updateStreamingGL3(mesh, streamingVertexBuffer)) {
+            return;
+        }
         updateGL3(mesh);
     }
 
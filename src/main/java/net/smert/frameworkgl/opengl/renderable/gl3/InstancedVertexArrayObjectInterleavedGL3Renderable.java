@@ -0,0 +1,84 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.gl3;
+
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.constants.VertexBufferObjectTypes;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.opengl.renderable.shared.AbstractInstancedRenderCall;
+import net.smert.frameworkgl.opengl.renderable.shared.AbstractVertexArrayObjectInterleavedRenderable;
+import net.smert.frameworkgl.opengl.renderable.shared.InstanceBatch;
+import net.smert.frameworkgl.opengl.renderable.shared.InstanceBuffer;
+import net.smert.frameworkgl.opengl.renderable.shared.InstancedRenderable;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class InstancedVertexArrayObjectInterleavedGL3Renderable extends AbstractVertexArrayObjectInterleavedRenderable
+        implements InstancedRenderable {
+
+    private AbstractInstancedRenderCall instancedRenderCall;
+    private final InstanceBuffer instanceBuffer;
+
+    public InstancedVertexArrayObjectInterleavedGL3Renderable() {
+        bufferUsage = VertexBufferObjectTypes.STATIC_DRAW;
+        instancedRenderCall = null;
+        instanceBuffer = new InstanceBuffer();
+    }
+
+    @Override
+    public void create(Mesh mesh) {
+        createGL3(mesh);
+
+        // Add the per instance attributes to the VAO
+        GL.vaoHelper.bind(vao.getVaoID());
+        instanceBuffer.create();
+        GL.vaoHelper.unbind();
+
+        // Replace the render call with one that draws every instance
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+        instancedRenderCall = Renderable.vboDrawCallBuilder.createInstancedRenderCall(mesh, config);
+        renderCall = instancedRenderCall;
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        instanceBuffer.destroy();
+    }
+
+    @Override
+    public int getInstanceCount() {
+        return instanceBuffer.getInstanceCount();
+    }
+
+    @Override
+    public void render() {
+        int instanceCount = instanceBuffer.getInstanceCount();
+        if (instanceCount == 0) {
+            return;
+        }
+        bindGL3();
+        instancedRenderCall.setInstanceCount(instanceCount);
+        instancedRenderCall.render();
+    }
+
+    @Override
+    public void updateInstances(InstanceBatch batch) {
+        instanceBuffer.update(batch);
+    }
+
+}
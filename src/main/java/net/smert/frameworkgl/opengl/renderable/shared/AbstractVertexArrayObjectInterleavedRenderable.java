@@ -12,6 +12,7 @@
  */
 package net.smert.frameworkgl.opengl.renderable.shared;
 
+import java.nio.ByteBuffer;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.VertexArrayObject;
 import net.smert.frameworkgl.opengl.VertexBufferObject;
@@ -27,6 +28,12 @@ import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
  */
 public abstract class AbstractVertexArrayObjectInterleavedRenderable extends AbstractRenderable {
 
+    private boolean streamed;
+    private int interleavedSizeBytes;
+    private int vertexIndexSizeBytes;
+    private long streamedFrame;
+    private Mesh streamedMesh;
+    private StreamingVertexBuffer streamingVertexBuffer;
     protected boolean hasColors;
     protected boolean hasNormals;
     protected boolean hasTexCoords;
@@ -43,6 +50,12 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
         hasNormals = false;
         hasTexCoords = false;
         hasVertices = false;
+        streamed = false;
+        interleavedSizeBytes = 0;
+        vertexIndexSizeBytes = 0;
+        streamedFrame = 0;
+        streamedMesh = null;
+        streamingVertexBuffer = null;
         bufferUsage = -1;
         renderableConfigID = -1;
         renderCall = null;
@@ -83,6 +96,67 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
         }
     }
 
+    private void bindVertexAttribsGL3(int vboID, int baseOffsetBytes, RenderableConfiguration config) {
+        int strideBytes = vboInterleaved.getStrideBytes();
+        if (hasColors) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("color"),
+                    config.getColorSize(), config.getColorType(), strideBytes,
+                    baseOffsetBytes + vboInterleaved.getColorOffsetBytes());
+        }
+        if (hasNormals) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("normal"),
+                    config.getNormalSize(), config.getNormalType(), strideBytes,
+                    baseOffsetBytes + vboInterleaved.getNormalOffsetBytes());
+        }
+        if (hasTexCoords) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("texCoord0"),
+                    config.getTexCoordSize(), config.getTexCoordType(), strideBytes,
+                    baseOffsetBytes + vboInterleaved.getTexCoordOffsetBytes());
+        }
+        if (hasVertices) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("vertex"),
+                    config.getVertexSize(), config.getVertexType(), strideBytes,
+                    baseOffsetBytes + vboInterleaved.getVertexOffsetBytes());
+        }
+    }
+
+    private void retireStreamedGL3() {
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+
+        // The mesh didn't change since it was streamed so our own VBO gets the data once and is used from now on
+        updateInterleavedGL3(Renderable.renderableBuilder.getInterleavedBufferData(
+                streamedMesh, vboInterleaved.getStrideBytes(), Renderable.byteBuffers, config));
+        GL.vboHelper.unbind();
+        Renderable.bindState.bindVAO(vao.getVaoID());
+        bindVertexAttribsGL3(vboInterleaved.getVboID(), 0, config);
+        streamed = false;
+        streamedMesh = null;
+        streamingVertexBuffer = null;
+    }
+
+    private void updateInterleavedGL3(ByteBuffer interleavedData) {
+
+        // Specify the store again when the data no longer fits
+        if (interleavedData.remaining() > interleavedSizeBytes) {
+            interleavedSizeBytes = interleavedData.remaining();
+            GL.vboHelper.setBufferData(vboInterleaved.getVboID(), interleavedData, bufferUsage);
+            return;
+        }
+        GL.vboHelper.updateBufferData(vboInterleaved.getVboID(), 0, interleavedData);
+    }
+
+    private void updateVertexIndexGL3(Mesh mesh, RenderableConfiguration config) {
+        ByteBuffer indexData = Renderable.renderableBuilder.getIndexBufferData(mesh, Renderable.byteBuffers, config);
+
+        // Specify the store again when the indexes no longer fit
+        if (indexData.remaining() > vertexIndexSizeBytes) {
+            vertexIndexSizeBytes = indexData.remaining();
+            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), indexData, bufferUsage);
+            return;
+        }
+        GL.vboHelper.updateBufferElementData(vboVertexIndex.getVboID(), 0, indexData);
+    }
+
     protected void createGL3(Mesh mesh) {
 
         // Get configuration
@@ -102,10 +176,10 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
             vboInterleaved = GL.glFactory.createVertexBufferObjectInterleaved();
             vboInterleaved.create();
             Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
-            Renderable.renderableBuilder.createInterleavedBufferData(mesh, vboInterleaved.getStrideBytes(),
-                    Renderable.byteBuffers, config);
-            GL.vboHelper.setBufferData(vboInterleaved.getVboID(), Renderable.byteBuffers.getInterleaved(),
-                    bufferUsage);
+            ByteBuffer interleavedData = Renderable.renderableBuilder.getInterleavedBufferData(mesh,
+                    vboInterleaved.getStrideBytes(), Renderable.byteBuffers, config);
+            interleavedSizeBytes = interleavedData.remaining();
+            GL.vboHelper.setBufferData(vboInterleaved.getVboID(), interleavedData, bufferUsage);
         }
 
         hasColors = mesh.hasColors();
@@ -114,34 +188,18 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
         hasVertices = mesh.hasVertices();
 
         // Update VAO state
-        if (hasColors) {
-            GL.vboHelper.bindVertexAttrib(vboInterleaved.getVboID(), GL.defaultAttribLocations.getIndex("color"),
-                    config.getColorSize(), config.getColorType(), vboInterleaved.getStrideBytes(),
-                    vboInterleaved.getColorOffsetBytes());
-        }
-        if (hasNormals) {
-            GL.vboHelper.bindVertexAttrib(vboInterleaved.getVboID(), GL.defaultAttribLocations.getIndex("normal"),
-                    config.getNormalSize(), config.getNormalType(), vboInterleaved.getStrideBytes(),
-                    vboInterleaved.getNormalOffsetBytes());
-        }
-        if (hasTexCoords) {
-            GL.vboHelper.bindVertexAttrib(vboInterleaved.getVboID(), GL.defaultAttribLocations.getIndex("texCoord0"),
-                    config.getTexCoordSize(), config.getTexCoordType(), vboInterleaved.getStrideBytes(),
-                    vboInterleaved.getTexCoordOffsetBytes());
-        }
-        if (hasVertices) {
-            GL.vboHelper.bindVertexAttrib(vboInterleaved.getVboID(), GL.defaultAttribLocations.getIndex("vertex"),
-                    config.getVertexSize(), config.getVertexType(), vboInterleaved.getStrideBytes(),
-                    vboInterleaved.getVertexOffsetBytes());
+        if (vboInterleaved != null) {
+            bindVertexAttribsGL3(vboInterleaved.getVboID(), 0, config);
         }
 
         // Create VBO, byte buffer data and send byte buffer data for indexes
         if (mesh.hasIndexes()) {
             vboVertexIndex = GL.glFactory.createVertexBufferObject();
             vboVertexIndex.create();
-            Renderable.renderableBuilder.createIndexBufferData(mesh, Renderable.byteBuffers, config);
-            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), Renderable.byteBuffers.getVertexIndex(),
-                    bufferUsage);
+            ByteBuffer indexData = Renderable.renderableBuilder.getIndexBufferData(mesh, Renderable.byteBuffers,
+                    config);
+            vertexIndexSizeBytes = indexData.remaining();
+            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), indexData, bufferUsage);
         }
 
         GL.vboHelper.unbind();
@@ -152,6 +210,11 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
     }
 
     protected void renderGL3() {
+
+        // Streamed data is gone once its frame is over. Without a new update the mesh is drawn from our own VBO.
+        if (streamed && (streamingVertexBuffer.getAllocator().getFrame() != streamedFrame)) {
+            retireStreamedGL3();
+        }
         bindGL3();
         renderCall.render();
     }
@@ -165,9 +228,8 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
         // Create interleaved buffer data and send interleaved buffer data
         if (mesh.hasColors() || mesh.hasNormals() || mesh.hasTexCoords() || mesh.hasVertices()) {
             Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
-            Renderable.renderableBuilder.createInterleavedBufferData(
-                    mesh, vboInterleaved.getStrideBytes(), Renderable.byteBuffers, config);
-            GL.vboHelper.updateBufferData(vboInterleaved.getVboID(), 0, Renderable.byteBuffers.getInterleaved());
+            updateInterleavedGL3(Renderable.renderableBuilder.getInterleavedBufferData(
+                    mesh, vboInterleaved.getStrideBytes(), Renderable.byteBuffers, config));
         }
 
         hasColors = mesh.hasColors();
@@ -177,17 +239,77 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
 
         // Create byte buffer data and send byte buffer data for indexes
         if (mesh.hasIndexes() && (vboVertexIndex != null)) {
-            Renderable.renderableBuilder.createIndexBufferData(mesh, Renderable.byteBuffers, config);
-            GL.vboHelper.updateBufferElementData(vboVertexIndex.getVboID(), 0,
-                    Renderable.byteBuffers.getVertexIndex());
+            updateVertexIndexGL3(mesh, config);
         }
 
         GL.vboHelper.unbind();
 
+        // Point the VAO back at our own VBO after frames that streamed
+        if (streamed && (vboInterleaved != null)) {
+            Renderable.bindState.bindVAO(vao.getVaoID());
+            bindVertexAttribsGL3(vboInterleaved.getVboID(), 0, config);
+        }
+        streamed = false;
+        streamedMesh = null;
+        streamingVertexBuffer = null;
+
         // Create render call
         renderCall = Renderable.vboDrawCallBuilder.createRenderCall(mesh, config);
     }
 
+    protected boolean updateStreamingGL3(Mesh mesh, StreamingVertexBuffer streamingVertexBuffer) {
+
+        // Get configuration
+        renderableConfigID = mesh.getRenderableConfigID();
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+
+        // The VBO created with the mesh still holds the offsets and stride
+        if ((vboInterleaved == null)
+                || !(mesh.hasColors() || mesh.hasNormals() || mesh.hasTexCoords() || mesh.hasVertices())) {
+            return false;
+        }
+
+        // Nothing can be streamed until the caller begins the first frame
+        if (streamingVertexBuffer.getAllocator().getFrame() == 0) {
+            return false;
+        }
+
+        // Allocate space in the ring and write interleaved data into it. Persistent mappings are written directly.
+        Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
+        int sizeBytes = vboInterleaved.getStrideBytes() * mesh.getTotalVerticies();
+        int baseOffsetBytes = streamingVertexBuffer.allocate(sizeBytes);
+        if (baseOffsetBytes == StreamingRingAllocator.NO_SPACE) {
+            return false;
+        }
+        ByteBuffer mappedData = streamingVertexBuffer.map(baseOffsetBytes, sizeBytes);
+        Renderable.renderableBuilder.createInterleavedBufferData(mesh, vboInterleaved.getStrideBytes(), mappedData,
+                config);
+        mappedData.flip();
+        streamingVertexBuffer.commit(baseOffsetBytes, mappedData);
+
+        hasColors = mesh.hasColors();
+        hasNormals = mesh.hasNormals();
+        hasTexCoords = mesh.hasTexCoords();
+        hasVertices = mesh.hasVertices();
+
+        // Point the VAO at this frame's copy. Binding through the bind state keeps its cache valid.
+        Renderable.bindState.bindVAO(vao.getVaoID());
+        bindVertexAttribsGL3(streamingVertexBuffer.getVboID(), baseOffsetBytes, config);
+        streamed = true;
+        streamedFrame = streamingVertexBuffer.getAllocator().getFrame();
+        streamedMesh = mesh;
+        this.streamingVertexBuffer = streamingVertexBuffer;
+
+        // Create byte buffer data and send byte buffer data for indexes
+        if (mesh.hasIndexes() && (vboVertexIndex != null)) {
+            updateVertexIndexGL3(mesh, config);
+        }
+
+        // Create render call
+        renderCall = Renderable.vboDrawCallBuilder.createRenderCall(mesh, config);
+        return true;
+    }
+
     @Override
     public void destroy() {
         if (vao != null) {
@@ -206,6 +328,26 @@ public abstract class AbstractVertexArrayObjectInterleavedRenderable extends Abs
         hasNormals = false;
         hasTexCoords = false;
         hasVertices = false;
+        streamed = false;
+        interleavedSizeBytes = 0;
+        vertexIndexSizeBytes = 0;
+        streamedMesh = null;
+        streamingVertexBuffer = null;
+    }
+
+    @Override
+    public int getRenderableConfigID() {
+        return renderableConfigID;
+    }
+
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
+    @Override
+    public int getVaoID() {
+        return (vao != null) ? vao.getVaoID() : 0;
     }
 
 }
@@ -12,6 +12,7 @@
  */
 package net.smert.frameworkgl.opengl.renderable.shared;
 
+import java.nio.ByteBuffer;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.VertexArrayObject;
 import net.smert.frameworkgl.opengl.VertexBufferObject;
@@ -140,9 +141,9 @@ public abstract class AbstractVertexArrayObjectNonInterleavedRenderable extends
         if (mesh.hasIndexes()) {
             vboVertexIndex = GL.glFactory.createVertexBufferObject();
             vboVertexIndex.create();
-            Renderable.renderableBuilder.createIndexBufferData(mesh, Renderable.byteBuffers, config);
-            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), Renderable.byteBuffers.getVertexIndex(),
-                    bufferUsage);
+            ByteBuffer indexData = Renderable.renderableBuilder.getIndexBufferData(mesh, Renderable.byteBuffers,
+                    config);
+            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), indexData, bufferUsage);
         }
 
         GL.vboHelper.unbind();
@@ -228,4 +229,19 @@ public abstract class AbstractVertexArrayObjectNonInterleavedRenderable extends
         }
     }
 
+    @Override
+    public int getRenderableConfigID() {
+        return renderableConfigID;
+    }
+
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
+    @Override
+    public int getVaoID() {
+        return (vao != null) ? vao.getVaoID() : 0;
+    }
+
 }
@@ -197,4 +197,14 @@ public abstract class AbstractVertexArrayRenderable extends AbstractRenderable {
         }
     }
 
+    @Override
+    public int getRenderableConfigID() {
+        return renderableConfigID;
+    }
+
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
 }
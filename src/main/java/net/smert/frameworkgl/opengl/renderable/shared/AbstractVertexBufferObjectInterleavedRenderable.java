@@ -12,6 +12,7 @@
  */
 package net.smert.frameworkgl.opengl.renderable.shared;
 
+import java.nio.ByteBuffer;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.VertexBufferObject;
 import net.smert.frameworkgl.opengl.VertexBufferObjectInterleaved;
@@ -146,10 +147,9 @@ public abstract class AbstractVertexBufferObjectInterleavedRenderable extends Ab
             vboInterleaved = GL.glFactory.createVertexBufferObjectInterleaved();
             vboInterleaved.create();
             Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
-            Renderable.renderableBuilder.createInterleavedBufferData(mesh, vboInterleaved.getStrideBytes(),
-                    Renderable.byteBuffers, config);
-            GL.vboHelper.setBufferData(vboInterleaved.getVboID(), Renderable.byteBuffers.getInterleaved(),
-                    bufferUsage);
+            ByteBuffer interleavedData = Renderable.renderableBuilder.getInterleavedBufferData(mesh,
+                    vboInterleaved.getStrideBytes(), Renderable.byteBuffers, config);
+            GL.vboHelper.setBufferData(vboInterleaved.getVboID(), interleavedData, bufferUsage);
         }
 
         hasColors = mesh.hasColors();
@@ -161,9 +161,9 @@ public abstract class AbstractVertexBufferObjectInterleavedRenderable extends Ab
         if (mesh.hasIndexes()) {
             vboVertexIndex = GL.glFactory.createVertexBufferObject();
             vboVertexIndex.create();
-            Renderable.renderableBuilder.createIndexBufferData(mesh, Renderable.byteBuffers, config);
-            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), Renderable.byteBuffers.getVertexIndex(),
-                    bufferUsage);
+            ByteBuffer indexData = Renderable.renderableBuilder.getIndexBufferData(mesh, Renderable.byteBuffers,
+                    config);
+            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), indexData, bufferUsage);
         }
 
         GL.vboHelper.unbind();
@@ -230,4 +230,14 @@ public abstract class AbstractVertexBufferObjectInterleavedRenderable extends Ab
         hasVertices = false;
     }
 
+    @Override
+    public int getRenderableConfigID() {
+        return renderableConfigID;
+    }
+
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
 }
@@ -12,6 +12,7 @@
  */
 package net.smert.frameworkgl.opengl.renderable.shared;
 
+import java.nio.ByteBuffer;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.VertexBufferObject;
 import net.smert.frameworkgl.opengl.mesh.Mesh;
@@ -166,9 +167,9 @@ public abstract class AbstractVertexBufferObjectNonInterleavedRenderable extends
         if (mesh.hasIndexes()) {
             vboVertexIndex = GL.glFactory.createVertexBufferObject();
             vboVertexIndex.create();
-            Renderable.renderableBuilder.createIndexBufferData(mesh, Renderable.byteBuffers, config);
-            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), Renderable.byteBuffers.getVertexIndex(),
-                    bufferUsage);
+            ByteBuffer indexData = Renderable.renderableBuilder.getIndexBufferData(mesh, Renderable.byteBuffers,
+                    config);
+            GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), indexData, bufferUsage);
         }
 
         GL.vboHelper.unbind();
@@ -254,4 +255,14 @@ public abstract class AbstractVertexBufferObjectNonInterleavedRenderable extends
         }
     }
 
+    @Override
+    public int getRenderableConfigID() {
+        return renderableConfigID;
+    }
+
+    @Override
+    public RenderCall getRenderCall() {
+        return renderCall;
+    }
+
 }
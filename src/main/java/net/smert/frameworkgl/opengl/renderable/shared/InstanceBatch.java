@@ -0,0 +1,130 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.math.Matrix3f;
+import net.smert.frameworkgl.math.Transform4f;
+import net.smert.frameworkgl.math.Vector3f;
+import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
+import net.smert.frameworkgl.utils.Color;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class InstanceBatch {
+
+    // Each instance is the first three rows of the model matrix, a color and the rows of the normal matrix
+    public final static int COLOR_OFFSET = 12;
+    public final static int COLOR_SIZE = 4;
+    public final static int NORMAL_OFFSET = 16;
+    public final static int NORMAL_ROW_SIZE = 3;
+    public final static int INSTANCE_STRIDE = 25;
+    public final static int INSTANCE_STRIDE_BYTES = INSTANCE_STRIDE * 4;
+    public final static int MODEL_ROW_SIZE = 4;
+
+    private int instanceCount;
+    private float[] instances;
+    private final AbstractRenderable renderable;
+
+    public InstanceBatch(AbstractRenderable renderable) {
+        instanceCount = 0;
+        instances = new float[INSTANCE_STRIDE * 16];
+        this.renderable = renderable;
+    }
+
+    private void addNormalMatrix(Matrix3f rotation, int offset) {
+        Vector3f xAxis = rotation.getXAxis();
+        Vector3f yAxis = rotation.getYAxis();
+        Vector3f zAxis = rotation.getZAxis();
+
+        // The columns of the inverse transpose scaled by the determinant are cross products of the axes. Normals are
+        // normalized in the shader so only the sign of the determinant is kept and nothing is divided.
+        float sign = (rotation.getDeterminant() < 0f) ? -1f : 1f;
+        float yzX = (yAxis.getY() * zAxis.getZ() - yAxis.getZ() * zAxis.getY()) * sign;
+        float yzY = (yAxis.getZ() * zAxis.getX() - yAxis.getX() * zAxis.getZ()) * sign;
+        float yzZ = (yAxis.getX() * zAxis.getY() - yAxis.getY() * zAxis.getX()) * sign;
+        float zxX = (zAxis.getY() * xAxis.getZ() - zAxis.getZ() * xAxis.getY()) * sign;
+        float zxY = (zAxis.getZ() * xAxis.getX() - zAxis.getX() * xAxis.getZ()) * sign;
+        float zxZ = (zAxis.getX() * xAxis.getY() - zAxis.getY() * xAxis.getX()) * sign;
+        float xyX = (xAxis.getY() * yAxis.getZ() - xAxis.getZ() * yAxis.getY()) * sign;
+        float xyY = (xAxis.getZ() * yAxis.getX() - xAxis.getX() * yAxis.getZ()) * sign;
+        float xyZ = (xAxis.getX() * yAxis.getY() - xAxis.getY() * yAxis.getX()) * sign;
+
+        // Rows
+        instances[offset] = yzX;
+        instances[offset + 1] = zxX;
+        instances[offset + 2] = xyX;
+        instances[offset + 3] = yzY;
+        instances[offset + 4] = zxY;
+        instances[offset + 5] = xyY;
+        instances[offset + 6] = yzZ;
+        instances[offset + 7] = zxZ;
+        instances[offset + 8] = xyZ;
+    }
+
+    private int nextOffset() {
+        int offset = instanceCount * INSTANCE_STRIDE;
+        if (offset + INSTANCE_STRIDE > instances.length) {
+            instances = Arrays.copyOf(instances, instances.length * 2);
+        }
+        instanceCount++;
+        return offset;
+    }
+
+    public void add(GameObject gameObject) {
+        add(gameObject.getWorldTransform(), 1f, 1f, 1f, 1f);
+    }
+
+    public void add(GameObject gameObject, Color color) {
+        add(gameObject.getWorldTransform(), color.getR(), color.getG(), color.getB(), color.getA());
+    }
+
+    public void add(Transform4f transform, float r, float g, float b, float a) {
+        int offset = nextOffset();
+        transform.toAffineRowArray(instances, offset);
+        instances[offset + COLOR_OFFSET] = r;
+        instances[offset + COLOR_OFFSET + 1] = g;
+        instances[offset + COLOR_OFFSET + 2] = b;
+        instances[offset + COLOR_OFFSET + 3] = a;
+        addNormalMatrix(transform.getRotation(), offset + NORMAL_OFFSET);
+    }
+
+    public void clear() {
+        instanceCount = 0;
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    public float[] getInstances() {
+        return instances;
+    }
+
+    public AbstractRenderable getRenderable() {
+        return renderable;
+    }
+
+    public int getSizeInBytes() {
+        return instanceCount * INSTANCE_STRIDE_BYTES;
+    }
+
+    public void toFloatBuffer(FloatBuffer fbOut) {
+        fbOut.put(instances, 0, instanceCount * INSTANCE_STRIDE);
+    }
+
+}
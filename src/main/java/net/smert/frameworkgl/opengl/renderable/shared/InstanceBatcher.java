@@ -0,0 +1,100 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableState;
+import net.smert.frameworkgl.utils.Color;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class InstanceBatcher {
+
+    private final List<InstanceBatch> batches;
+    private final Map<AbstractRenderable, InstanceBatch> renderableToBatch;
+
+    public InstanceBatcher() {
+        batches = new ArrayList<>();
+        renderableToBatch = new IdentityHashMap<>();
+    }
+
+    private InstanceBatch getOrCreateBatch(AbstractRenderable renderable) {
+        InstanceBatch batch = renderableToBatch.get(renderable);
+        if (batch == null) {
+            batch = new InstanceBatch(renderable);
+            renderableToBatch.put(renderable, batch);
+        }
+        if (batch.getInstanceCount() == 0) {
+            batches.add(batch);
+        }
+        return batch;
+    }
+
+    public boolean add(GameObject gameObject) {
+        RenderableState renderableState = gameObject.getRenderableState();
+        if (!renderableState.isEnabled() || !renderableState.isInFrustum()) {
+            return false;
+        }
+        getOrCreateBatch(gameObject.getRenderable()).add(gameObject);
+        return true;
+    }
+
+    public boolean add(GameObject gameObject, Color color) {
+        RenderableState renderableState = gameObject.getRenderableState();
+        if (!renderableState.isEnabled() || !renderableState.isInFrustum()) {
+            return false;
+        }
+        getOrCreateBatch(gameObject.getRenderable()).add(gameObject, color);
+        return true;
+    }
+
+    public void addAll(List<GameObject> gameObjects) {
+        for (GameObject gameObject : gameObjects) {
+            add(gameObject);
+        }
+    }
+
+    public void clear() {
+
+        // Batches are kept so their arrays can be reused next frame
+        for (InstanceBatch batch : batches) {
+            batch.clear();
+        }
+        batches.clear();
+    }
+
+    public void destroy() {
+        batches.clear();
+        renderableToBatch.clear();
+    }
+
+    public List<InstanceBatch> getBatches() {
+        return batches;
+    }
+
+    public int getInstanceCount() {
+        int instanceCount = 0;
+        for (InstanceBatch batch : batches) {
+            instanceCount += batch.getInstanceCount();
+        }
+        return instanceCount;
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.nio.FloatBuffer;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.VertexBufferObject;
+import net.smert.frameworkgl.opengl.constants.GLTypes;
+import net.smert.frameworkgl.opengl.constants.VertexBufferObjectTypes;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class InstanceBuffer {
+
+    private int instanceCount;
+    private FloatBuffer instanceData;
+    private VertexBufferObject vboInstance;
+
+    public InstanceBuffer() {
+        instanceCount = 0;
+        instanceData = null;
+        vboInstance = null;
+    }
+
+    private void bindInstanceAttrib(String name, int size, int offset) {
+        int index = GL.defaultAttribLocations.getIndex(name);
+        GL.vboHelper.bindVertexAttrib(vboInstance.getVboID(), index, size, GLTypes.FLOAT,
+                InstanceBatch.INSTANCE_STRIDE_BYTES, offset * 4);
+        GL.vboHelper.enableVertexAttribArray(index);
+        GL.vboHelper.setVertexAttribDivisor(index, 1);
+    }
+
+    public void create() {
+
+        // Destroy existing VBO
+        destroy();
+
+        vboInstance = GL.glFactory.createVertexBufferObject();
+        vboInstance.create();
+
+        // The VAO must be bound so it records the per instance attributes
+        bindInstanceAttrib("instanceModelRow0", InstanceBatch.MODEL_ROW_SIZE, 0);
+        bindInstanceAttrib("instanceModelRow1", InstanceBatch.MODEL_ROW_SIZE, InstanceBatch.MODEL_ROW_SIZE);
+        bindInstanceAttrib("instanceModelRow2", InstanceBatch.MODEL_ROW_SIZE, InstanceBatch.MODEL_ROW_SIZE * 2);
+        bindInstanceAttrib("instanceColor", InstanceBatch.COLOR_SIZE, InstanceBatch.COLOR_OFFSET);
+        bindInstanceAttrib("instanceNormalRow0", InstanceBatch.NORMAL_ROW_SIZE, InstanceBatch.NORMAL_OFFSET);
+        bindInstanceAttrib("instanceNormalRow1", InstanceBatch.NORMAL_ROW_SIZE,
+                InstanceBatch.NORMAL_OFFSET + InstanceBatch.NORMAL_ROW_SIZE);
+        bindInstanceAttrib("instanceNormalRow2", InstanceBatch.NORMAL_ROW_SIZE,
+                InstanceBatch.NORMAL_OFFSET + InstanceBatch.NORMAL_ROW_SIZE * 2);
+    }
+
+    public void destroy() {
+        if (vboInstance != null) {
+            vboInstance.destroy();
+            vboInstance = null;
+        }
+        instanceCount = 0;
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    public void update(InstanceBatch batch) {
+        int size = batch.getInstanceCount() * InstanceBatch.INSTANCE_STRIDE;
+        if ((instanceData == null) || (instanceData.capacity() < size)) {
+            instanceData = GL.bufferHelper.createFloatBuffer(Math.max(size, InstanceBatch.INSTANCE_STRIDE * 16));
+        }
+        instanceData.clear();
+        batch.toFloatBuffer(instanceData);
+        instanceData.flip();
+
+        // Specifying the whole store again lets the driver orphan the buffer the GPU may still be reading. The
+        // element array buffer is left alone since it belongs to whichever VAO is bound.
+        GL.vboHelper.setBufferData(vboInstance.getVboID(), instanceData, VertexBufferObjectTypes.STREAM_DRAW);
+        instanceCount = batch.getInstanceCount();
+    }
+
+}
@@ -13,6 +13,7 @@
 package net.smert.frameworkgl.opengl.renderable.shared;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import net.smert.frameworkgl.opengl.VertexBufferObjectInterleaved;
 import net.smert.frameworkgl.opengl.constants.GLTypes;
 import net.smert.frameworkgl.opengl.mesh.Mesh;
@@ -133,6 +134,49 @@ public class RenderableBuilder {
         multipleBuffers.getInterleaved().flip();
     }
 
+    public void createInterleavedBufferData(Mesh mesh, int strideBytes, ByteBuffer interleavedByteBuffer,
+            RenderableConfiguration config) {
+
+        // Baked meshes already have the vertex data in the layout of the configuration and the native byte order
+        ByteBuffer bakedInterleavedData = mesh.getBakedInterleavedData();
+        if ((bakedInterleavedData != null) && (interleavedByteBuffer.order() == ByteOrder.nativeOrder())
+                && (bakedInterleavedData.remaining() == strideBytes * mesh.getTotalVerticies())) {
+            interleavedByteBuffer.put(bakedInterleavedData.duplicate());
+            return;
+        }
+
+        // Write straight into the caller's buffer such as a mapped range
+        createBufferData(mesh, config, interleavedByteBuffer, interleavedByteBuffer, interleavedByteBuffer,
+                interleavedByteBuffer);
+    }
+
+    public ByteBuffer getIndexBufferData(Mesh mesh, MultipleBuffers multipleBuffers, RenderableConfiguration config) {
+
+        // Baked meshes already have the indexes in the layout of the configuration
+        ByteBuffer bakedIndexData = mesh.getBakedIndexData();
+        int byteSize = config.convertGLTypeToByteSize(config.getIndexType());
+        if ((bakedIndexData != null) && (bakedIndexData.remaining() == byteSize * mesh.getIndexes().length)) {
+            return bakedIndexData;
+        }
+
+        createIndexBufferData(mesh, multipleBuffers, config);
+        return multipleBuffers.getVertexIndex();
+    }
+
+    public ByteBuffer getInterleavedBufferData(Mesh mesh, int strideBytes, MultipleBuffers multipleBuffers,
+            RenderableConfiguration config) {
+
+        // Baked meshes already have the vertex data in the layout of the configuration
+        ByteBuffer bakedInterleavedData = mesh.getBakedInterleavedData();
+        if ((bakedInterleavedData != null)
+                && (bakedInterleavedData.remaining() == strideBytes * mesh.getTotalVerticies())) {
+            return bakedInterleavedData;
+        }
+
+        createInterleavedBufferData(mesh, strideBytes, multipleBuffers, config);
+        return multipleBuffers.getInterleaved();
+    }
+
     public void createNonInterleavedBufferData(Mesh mesh, MultipleBuffers multipleBuffers,
             RenderableConfiguration config) {
 
@@ -38,6 +38,10 @@ public class ShaderBindState {
         reset();
     }
 
+    public AbstractShader getShader() {
+        return shader;
+    }
+
     public int getTextureUnit(TextureType textureType) {
         return shader.getTextureUnit(textureType);
     }
@@ -0,0 +1,425 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.VertexArrayObject;
+import net.smert.frameworkgl.opengl.VertexBufferObject;
+import net.smert.frameworkgl.opengl.VertexBufferObjectInterleaved;
+import net.smert.frameworkgl.opengl.constants.VertexBufferObjectTypes;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.opengl.renderable.RenderableState;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class StaticGeometryBatch {
+
+    // Each command is count, instance count, first index, base vertex and base instance
+    public final static int COMMAND_SIZE = 5;
+    public final static int COMMAND_SIZE_BYTES = COMMAND_SIZE * 4;
+
+    private final boolean hasColors;
+    private final boolean hasNormals;
+    private final boolean hasTexCoords;
+    private final boolean hasVertices;
+    private byte[] indexData;
+    private byte[] vertexData;
+    private int commandCount;
+    private int drawCount;
+    private int indexBytes;
+    private int indexCount;
+    private final int indexSize;
+    private final int renderableConfigID;
+    private int vertexBytes;
+    private int vertexCount;
+    private int[] commands;
+    private int[] drawFirstIndexes;
+    private int[] drawBaseVertexes;
+    private int[] drawElementCounts;
+    private int[] drawGroups;
+    private int[] drawObjects;
+    private boolean[] visible;
+    private IntBuffer commandData;
+    private final InstanceBatch instances;
+    private final List<DrawGroup> drawGroupList;
+    private final List<GameObject> gameObjects;
+    private VertexArrayObject vao;
+    private VertexBufferObject vboDrawIndirect;
+    private VertexBufferObject vboVertexIndex;
+    private final VertexBufferObjectInterleaved vboInterleaved;
+    private final InstanceBuffer instanceBuffer;
+
+    public StaticGeometryBatch(Mesh mesh) {
+        hasColors = mesh.hasColors();
+        hasNormals = mesh.hasNormals();
+        hasTexCoords = mesh.hasTexCoords();
+        hasVertices = mesh.hasVertices();
+        indexData = new byte[1024];
+        vertexData = new byte[4096];
+        commandCount = 0;
+        drawCount = 0;
+        indexBytes = 0;
+        indexCount = 0;
+        renderableConfigID = mesh.getRenderableConfigID();
+        vertexBytes = 0;
+        vertexCount = 0;
+        commands = new int[COMMAND_SIZE * 16];
+        drawFirstIndexes = new int[16];
+        drawBaseVertexes = new int[16];
+        drawElementCounts = new int[16];
+        drawGroups = new int[16];
+        drawObjects = new int[16];
+        visible = new boolean[16];
+        commandData = null;
+        instances = new InstanceBatch(null);
+        drawGroupList = new ArrayList<>();
+        gameObjects = new ArrayList<>();
+        vao = null;
+        vboDrawIndirect = null;
+        vboVertexIndex = null;
+        vboInterleaved = GL.glFactory.createVertexBufferObjectInterleaved();
+        instanceBuffer = new InstanceBuffer();
+
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+        indexSize = config.convertGLTypeToByteSize(config.getIndexType());
+        Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
+    }
+
+    private void addDraw(int objectIndex, int groupIndex, Segment segment, int baseIndex, int baseVertex) {
+        if (drawCount == drawObjects.length) {
+            int newCapacity = drawCount * 2;
+            drawFirstIndexes = Arrays.copyOf(drawFirstIndexes, newCapacity);
+            drawBaseVertexes = Arrays.copyOf(drawBaseVertexes, newCapacity);
+            drawElementCounts = Arrays.copyOf(drawElementCounts, newCapacity);
+            drawGroups = Arrays.copyOf(drawGroups, newCapacity);
+            drawObjects = Arrays.copyOf(drawObjects, newCapacity);
+        }
+        drawFirstIndexes[drawCount] = baseIndex + segment.getFirstIndex();
+        drawBaseVertexes[drawCount] = baseVertex;
+        drawElementCounts[drawCount] = segment.getIndexCount();
+        drawGroups[drawCount] = groupIndex;
+        drawObjects[drawCount] = objectIndex;
+        drawCount++;
+    }
+
+    private byte[] append(byte[] data, int size, ByteBuffer byteBuffer) {
+        int length = byteBuffer.remaining();
+        if (size + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + length));
+        }
+        byteBuffer.get(data, size, length);
+        return data;
+    }
+
+    private int getDrawGroup(Segment segment) {
+        SegmentMaterial material = segment.getMaterial();
+        int primitiveMode = segment.getPrimitiveMode();
+        for (int i = 0; i < drawGroupList.size(); i++) {
+            DrawGroup drawGroup = drawGroupList.get(i);
+            if ((drawGroup.material == material) && (drawGroup.primitiveMode == primitiveMode)) {
+                return i;
+            }
+        }
+        drawGroupList.add(new DrawGroup(segment));
+        return drawGroupList.size() - 1;
+    }
+
+    private void bindGL3() {
+        Renderable.bindState.bindVAO(vao.getVaoID());
+        if (hasColors) {
+            GL.vboHelper.enableVertexAttribArray(Renderable.bindState.getColorIndex());
+        } else {
+            GL.vboHelper.disableVertexAttribArray(Renderable.bindState.getColorIndex());
+        }
+        if (hasNormals) {
+            GL.vboHelper.enableVertexAttribArray(Renderable.bindState.getNormalIndex());
+        } else {
+            GL.vboHelper.disableVertexAttribArray(Renderable.bindState.getNormalIndex());
+        }
+        if (hasTexCoords) {
+            GL.vboHelper.enableVertexAttribArray(Renderable.bindState.getTexCoord0Index());
+        } else {
+            GL.vboHelper.disableVertexAttribArray(Renderable.bindState.getTexCoord0Index());
+        }
+        if (hasVertices) {
+            GL.vboHelper.enableVertexAttribArray(Renderable.bindState.getVertexIndex());
+        } else {
+            GL.vboHelper.disableVertexAttribArray(Renderable.bindState.getVertexIndex());
+        }
+        Renderable.bindState.bindVertexIndex(vboVertexIndex.getVboID());
+    }
+
+    private void bindVertexAttribsGL3(RenderableConfiguration config) {
+        int vboID = vboInterleaved.getVboID();
+        int strideBytes = vboInterleaved.getStrideBytes();
+        if (hasColors) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("color"),
+                    config.getColorSize(), config.getColorType(), strideBytes, vboInterleaved.getColorOffsetBytes());
+        }
+        if (hasNormals) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("normal"),
+                    config.getNormalSize(), config.getNormalType(), strideBytes, vboInterleaved.getNormalOffsetBytes());
+        }
+        if (hasTexCoords) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("texCoord0"),
+                    config.getTexCoordSize(), config.getTexCoordType(), strideBytes,
+                    vboInterleaved.getTexCoordOffsetBytes());
+        }
+        if (hasVertices) {
+            GL.vboHelper.bindVertexAttrib(vboID, GL.defaultAttribLocations.getIndex("vertex"),
+                    config.getVertexSize(), config.getVertexType(), strideBytes, vboInterleaved.getVertexOffsetBytes());
+        }
+    }
+
+    public boolean add(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if (!canAdd(mesh)) {
+            return false;
+        }
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+
+        // Indexes stay relative to the mesh since each command has its own base vertex
+        Renderable.renderableBuilder.createInterleavedBufferData(mesh, vboInterleaved.getStrideBytes(),
+                Renderable.byteBuffers, config);
+        vertexData = append(vertexData, vertexBytes, Renderable.byteBuffers.getInterleaved());
+        Renderable.renderableBuilder.createIndexBufferData(mesh, Renderable.byteBuffers, config);
+        indexData = append(indexData, indexBytes, Renderable.byteBuffers.getVertexIndex());
+
+        int objectIndex = gameObjects.size();
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            Segment segment = mesh.getSegment(i);
+            addDraw(objectIndex, getDrawGroup(segment), segment, indexCount, vertexCount);
+        }
+
+        gameObjects.add(gameObject);
+        instances.add(gameObject);
+        indexBytes += mesh.getIndexes().length * indexSize;
+        indexCount += mesh.getIndexes().length;
+        vertexBytes += mesh.getTotalVerticies() * vboInterleaved.getStrideBytes();
+        vertexCount += mesh.getTotalVerticies();
+        return true;
+    }
+
+    public int buildCommands() {
+        int groupCount = drawGroupList.size();
+        int objectCount = gameObjects.size();
+        if (visible.length < objectCount) {
+            visible = new boolean[objectCount];
+        }
+        for (int i = 0; i < objectCount; i++) {
+            RenderableState renderableState = gameObjects.get(i).getRenderableState();
+            visible[i] = renderableState.isEnabled() && renderableState.isInFrustum();
+        }
+
+        // Count the visible draws of each group so the commands of a group end up next to each other
+        for (int i = 0; i < groupCount; i++) {
+            drawGroupList.get(i).commandCount = 0;
+        }
+        commandCount = 0;
+        for (int i = 0; i < drawCount; i++) {
+            if (visible[drawObjects[i]]) {
+                drawGroupList.get(drawGroups[i]).commandCount++;
+                commandCount++;
+            }
+        }
+        int commandOffset = 0;
+        for (int i = 0; i < groupCount; i++) {
+            DrawGroup drawGroup = drawGroupList.get(i);
+            drawGroup.commandOffset = commandOffset;
+            drawGroup.nextCommand = commandOffset;
+            commandOffset += drawGroup.commandCount;
+        }
+
+        if (commands.length < commandCount * COMMAND_SIZE) {
+            commands = new int[Math.max(commands.length * 2, commandCount * COMMAND_SIZE)];
+        }
+        for (int i = 0; i < drawCount; i++) {
+            int objectIndex = drawObjects[i];
+            if (!visible[objectIndex]) {
+                continue;
+            }
+            int offset = drawGroupList.get(drawGroups[i]).nextCommand++ * COMMAND_SIZE;
+            commands[offset] = drawElementCounts[i];
+            commands[offset + 1] = 1;
+            commands[offset + 2] = drawFirstIndexes[i];
+            commands[offset + 3] = drawBaseVertexes[i];
+            commands[offset + 4] = objectIndex;
+        }
+
+        return commandCount;
+    }
+
+    public boolean canAdd(Mesh mesh) {
+        return mesh.hasIndexes() && (mesh.getRenderableConfigID() == renderableConfigID)
+                && (mesh.hasColors() == hasColors) && (mesh.hasNormals() == hasNormals)
+                && (mesh.hasTexCoords() == hasTexCoords) && (mesh.hasVertices() == hasVertices);
+    }
+
+    public void create() {
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+
+        // Destroy existing VAO and VBOs
+        destroy();
+
+        vao = GL.glFactory.createVertexArrayObject();
+        vao.create();
+        GL.vaoHelper.bind(vao.getVaoID());
+
+        ByteBuffer byteBuffer = GL.bufferHelper.createByteBuffer(vertexBytes);
+        byteBuffer.put(vertexData, 0, vertexBytes).flip();
+        vboInterleaved.create();
+        GL.vboHelper.setBufferData(vboInterleaved.getVboID(), byteBuffer, VertexBufferObjectTypes.STATIC_DRAW);
+        bindVertexAttribsGL3(config);
+
+        byteBuffer = GL.bufferHelper.createByteBuffer(indexBytes);
+        byteBuffer.put(indexData, 0, indexBytes).flip();
+        vboVertexIndex = GL.glFactory.createVertexBufferObject();
+        vboVertexIndex.create();
+        GL.vboHelper.setBufferElementData(vboVertexIndex.getVboID(), byteBuffer, VertexBufferObjectTypes.STATIC_DRAW);
+
+        // The base instance of each command selects the world transform of its game object
+        instanceBuffer.create();
+        instanceBuffer.update(instances);
+
+        GL.vaoHelper.unbind();
+        GL.vboHelper.unbind();
+
+        vboDrawIndirect = GL.glFactory.createVertexBufferObject();
+        vboDrawIndirect.create();
+    }
+
+    public void destroy() {
+        if (vao != null) {
+            vao.destroy();
+            vao = null;
+        }
+        if (vboDrawIndirect != null) {
+            vboDrawIndirect.destroy();
+            vboDrawIndirect = null;
+        }
+        if (vboVertexIndex != null) {
+            vboVertexIndex.destroy();
+            vboVertexIndex = null;
+        }
+        vboInterleaved.destroy();
+        instanceBuffer.destroy();
+    }
+
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    public int[] getCommands() {
+        return commands;
+    }
+
+    public int getDrawCount() {
+        return drawCount;
+    }
+
+    public int getDrawGroupCount() {
+        return drawGroupList.size();
+    }
+
+    public int getDrawGroupCommandCount(int drawGroupIndex) {
+        return drawGroupList.get(drawGroupIndex).commandCount;
+    }
+
+    public int getDrawGroupCommandOffset(int drawGroupIndex) {
+        return drawGroupList.get(drawGroupIndex).commandOffset;
+    }
+
+    public List<GameObject> getGameObjects() {
+        return gameObjects;
+    }
+
+    public int getRenderableConfigID() {
+        return renderableConfigID;
+    }
+
+    public void render() {
+        if (commandCount == 0) {
+            return;
+        }
+
+        // Specifying the whole store again lets the driver orphan the commands the GPU may still be reading
+        int size = commandCount * COMMAND_SIZE;
+        if ((commandData == null) || (commandData.capacity() < size)) {
+            commandData = GL.bufferHelper.createIntBuffer(Math.max(size, COMMAND_SIZE * 16));
+        }
+        commandData.clear();
+        commandData.put(commands, 0, size).flip();
+        GL.vboHelper.setBufferDrawIndirectData(vboDrawIndirect.getVboID(), commandData,
+                VertexBufferObjectTypes.STREAM_DRAW);
+
+        RenderableConfiguration config = Renderable.configPool.get(renderableConfigID);
+        bindGL3();
+
+        // One call for each material no matter how many game objects use it
+        for (DrawGroup drawGroup : drawGroupList) {
+            if (drawGroup.commandCount == 0) {
+                continue;
+            }
+            Renderable.colorState.changeColor(drawGroup.segment);
+            Renderable.textureBindState.bindTextures(drawGroup.segment);
+            Renderable.shaderBindState.sendUniformsOncePerRenderCall(drawGroup.segment);
+            GL.vboHelper.multiDrawElementsIndirect(drawGroup.primitiveMode, config.getIndexType(),
+                    drawGroup.commandOffset * COMMAND_SIZE_BYTES, drawGroup.commandCount, 0);
+        }
+
+        GL.vboHelper.unbindDrawIndirect();
+    }
+
+    public void updateTransforms() {
+        instances.clear();
+        for (GameObject gameObject : gameObjects) {
+            instances.add(gameObject);
+        }
+        if (vao != null) {
+            instanceBuffer.update(instances);
+        }
+    }
+
+    private static class DrawGroup {
+
+        private int commandCount;
+        private int commandOffset;
+        private int nextCommand;
+        private final int primitiveMode;
+        private final Segment segment;
+        private final SegmentMaterial material;
+
+        public DrawGroup(Segment segment) {
+            commandCount = 0;
+            commandOffset = 0;
+            nextCommand = 0;
+            primitiveMode = segment.getPrimitiveMode();
+            this.segment = segment;
+            material = segment.getMaterial();
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class StaticGeometryMerger {
+
+    private final List<StaticGeometryBatch> batches;
+    private final Set<GameObject> gameObjects;
+
+    public StaticGeometryMerger() {
+        batches = new ArrayList<>();
+        gameObjects = new HashSet<>();
+    }
+
+    private boolean add(StaticGeometryBatch batch, GameObject gameObject) {
+        if (!batch.add(gameObject)) {
+            return false;
+        }
+        gameObjects.add(gameObject);
+        return true;
+    }
+
+    public boolean add(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if ((mesh == null) || !mesh.hasIndexes() || gameObjects.contains(gameObject)) {
+            return false;
+        }
+        for (StaticGeometryBatch batch : batches) {
+            if (batch.canAdd(mesh)) {
+                return add(batch, gameObject);
+            }
+        }
+        StaticGeometryBatch batch = new StaticGeometryBatch(mesh);
+        batches.add(batch);
+        return add(batch, gameObject);
+    }
+
+    public List<GameObject> addAll(List<GameObject> gameObjects) {
+        List<GameObject> rejectedGameObjects = new ArrayList<>();
+        for (GameObject gameObject : gameObjects) {
+            if (!add(gameObject)) {
+                rejectedGameObjects.add(gameObject);
+            }
+        }
+        return rejectedGameObjects;
+    }
+
+    public int buildCommands() {
+        int commandCount = 0;
+        for (StaticGeometryBatch batch : batches) {
+            commandCount += batch.buildCommands();
+        }
+        return commandCount;
+    }
+
+    public void clear() {
+        destroy();
+        batches.clear();
+        gameObjects.clear();
+    }
+
+    public boolean contains(GameObject gameObject) {
+        return gameObjects.contains(gameObject);
+    }
+
+    public void create() {
+        if (!GL.vboHelper.isMultiDrawIndirectSupported()) {
+            throw new IllegalStateException("Multi draw indirect requires OpenGL 4.3 or ARB_multi_draw_indirect");
+        }
+        for (StaticGeometryBatch batch : batches) {
+            batch.create();
+        }
+    }
+
+    public void destroy() {
+        for (StaticGeometryBatch batch : batches) {
+            batch.destroy();
+        }
+    }
+
+    public List<StaticGeometryBatch> getBatches() {
+        return batches;
+    }
+
+    public void render() {
+        buildCommands();
+
+        // Commands carry their own world transform through the base instance
+        GL.matrixHelper.setModeModel();
+        GL.matrixHelper.push();
+        GL.matrixHelper.loadIdentity();
+        Renderable.shaderBindState.sendUniformMatrices();
+        for (StaticGeometryBatch batch : batches) {
+            batch.render();
+        }
+        GL.matrixHelper.setModeModel();
+        GL.matrixHelper.pop();
+    }
+
+    public void updateTransforms() {
+        for (StaticGeometryBatch batch : batches) {
+            batch.updateTransforms();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class StreamingRingAllocator {
+
+    public final static int NO_SPACE = -1;
+
+    private int allocations;
+    private int currentRegion;
+    private int offsetBytes;
+    private long frame;
+    private final int alignmentBytes;
+    private final int regionCount;
+    private final int regionSizeBytes;
+
+    public StreamingRingAllocator(int regionCount, int regionSizeBytes, int alignmentBytes) {
+        if (regionCount < 1) {
+            throw new IllegalArgumentException("The region count must be at least one: " + regionCount);
+        }
+        if ((alignmentBytes < 1) || ((alignmentBytes & (alignmentBytes - 1)) != 0)) {
+            throw new IllegalArgumentException("The alignment must be a power of two: " + alignmentBytes);
+        }
+        if ((regionSizeBytes < alignmentBytes) || ((regionSizeBytes % alignmentBytes) != 0)) {
+            throw new IllegalArgumentException(
+                    "The region size must be a multiple of the alignment: " + regionSizeBytes);
+        }
+        this.alignmentBytes = alignmentBytes;
+        this.regionCount = regionCount;
+        this.regionSizeBytes = regionSizeBytes;
+        allocations = 0;
+        currentRegion = regionCount - 1; // The first frame starts in region zero
+        offsetBytes = 0;
+        frame = 0;
+    }
+
+    public int allocate(int sizeBytes) {
+        if (frame == 0) {
+            throw new IllegalStateException("beginFrame must be called before allocating");
+        }
+        if ((sizeBytes <= 0) || (sizeBytes > regionSizeBytes - offsetBytes)) {
+            return NO_SPACE;
+        }
+        int allocationOffsetBytes = getRegionOffsetBytes(currentRegion) + offsetBytes;
+
+        // The next allocation starts aligned so attribute offsets stay valid
+        offsetBytes = Math.min(offsetBytes + ((sizeBytes + alignmentBytes - 1) & -alignmentBytes),
+                regionSizeBytes);
+        allocations++;
+        return allocationOffsetBytes;
+    }
+
+    public int beginFrame() {
+        currentRegion = (currentRegion + 1) % regionCount;
+        offsetBytes = 0;
+        allocations = 0;
+        frame++;
+        return currentRegion;
+    }
+
+    public int getAlignmentBytes() {
+        return alignmentBytes;
+    }
+
+    public int getAllocations() {
+        return allocations;
+    }
+
+    public int getCapacityBytes() {
+        return regionCount * regionSizeBytes;
+    }
+
+    public int getCurrentRegion() {
+        return currentRegion;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public int getFreeBytes() {
+        return regionSizeBytes - offsetBytes;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public int getRegionOffsetBytes(int region) {
+        return region * regionSizeBytes;
+    }
+
+    public int getRegionSizeBytes() {
+        return regionSizeBytes;
+    }
+
+    public int getUsedBytes() {
+        return offsetBytes;
+    }
+
+    public boolean isWrapping() {
+
+        // The frame started over at the first region
+        return currentRegion == 0;
+    }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.VertexBufferObject;
+import net.smert.frameworkgl.opengl.constants.VertexBufferObjectTypes;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class StreamingVertexBuffer {
+
+    public final static int DEFAULT_ALIGNMENT_BYTES = 16;
+    public final static int DEFAULT_REGION_COUNT = 3;
+    private final static int FENCE_WAIT_ATTEMPTS = 10;
+    private final static long FENCE_TIMEOUT_NANOSECONDS = 1000000000L;
+
+    private boolean persistent;
+    private long[] regionFences;
+    private ByteBuffer mappedBuffer;
+    private ByteBuffer stagingBuffer;
+    private StreamingRingAllocator allocator;
+    private VertexBufferObject vbo;
+
+    public StreamingVertexBuffer() {
+        persistent = false;
+        regionFences = null;
+        mappedBuffer = null;
+        stagingBuffer = null;
+        allocator = null;
+        vbo = null;
+    }
+
+    private void waitFence(long fence) {
+        for (int i = 0; i < FENCE_WAIT_ATTEMPTS; i++) {
+            if (GL.vboHelper.waitFence(fence, FENCE_TIMEOUT_NANOSECONDS)) {
+                return;
+            }
+        }
+
+        // Writing over the region now would corrupt draws the GPU hasn't finished
+        throw new IllegalStateException("Timed out waiting for the GPU to release a streaming region");
+    }
+
+    public int allocate(int sizeBytes) {
+        return allocator.allocate(sizeBytes);
+    }
+
+    public void beginFrame() {
+        int region = allocator.beginFrame();
+
+        if (persistent) {
+
+            // Wait for the GPU to finish reading the region from frames ago before writing over it
+            long fence = regionFences[region];
+            if (fence != 0) {
+                waitFence(fence);
+                GL.vboHelper.deleteFence(fence);
+                regionFences[region] = 0;
+            }
+        } else if (allocator.isWrapping()) {
+
+            // Orphan the storage so draws still in flight keep the old one
+            GL.vboHelper.orphanBufferData(vbo.getVboID(), allocator.getCapacityBytes(),
+                    VertexBufferObjectTypes.STREAM_DRAW);
+        }
+    }
+
+    public void commit(int offsetBytes, ByteBuffer byteBuffer) {
+
+        // Persistent mappings are coherent so there is nothing to send
+        if (persistent) {
+            return;
+        }
+        GL.vboHelper.updateBufferData(vbo.getVboID(), offsetBytes, byteBuffer);
+    }
+
+    public void create(int regionSizeBytes) {
+        create(DEFAULT_REGION_COUNT, regionSizeBytes, DEFAULT_ALIGNMENT_BYTES);
+    }
+
+    public void create(int regionCount, int regionSizeBytes, int alignmentBytes) {
+
+        // Destroy existing VBO
+        destroy();
+
+        allocator = new StreamingRingAllocator(regionCount, regionSizeBytes, alignmentBytes);
+        regionFences = new long[regionCount];
+        vbo = GL.glFactory.createVertexBufferObject();
+        vbo.create();
+
+        persistent = GL.vboHelper.isBufferStorageSupported();
+        if (persistent) {
+            mappedBuffer = GL.vboHelper.createPersistentBuffer(vbo.getVboID(), allocator.getCapacityBytes());
+        } else {
+            GL.vboHelper.orphanBufferData(vbo.getVboID(), allocator.getCapacityBytes(),
+                    VertexBufferObjectTypes.STREAM_DRAW);
+            stagingBuffer = GL.bufferHelper.createByteBuffer(regionSizeBytes);
+        }
+    }
+
+    public void destroy() {
+        if (vbo == null) {
+            return;
+        }
+        for (int i = 0; i < regionFences.length; i++) {
+            if (regionFences[i] != 0) {
+                GL.vboHelper.deleteFence(regionFences[i]);
+                regionFences[i] = 0;
+            }
+        }
+        if (persistent) {
+            GL.vboHelper.unmapBuffer(vbo.getVboID());
+        }
+        vbo.destroy();
+        vbo = null;
+        mappedBuffer = null;
+        stagingBuffer = null;
+    }
+
+    public void endFrame() {
+        if (!persistent) {
+            return;
+        }
+
+        // Fence the region written this frame so it is not reused while the GPU still reads it
+        int region = allocator.getCurrentRegion();
+        if (regionFences[region] != 0) {
+            GL.vboHelper.deleteFence(regionFences[region]);
+        }
+        regionFences[region] = GL.vboHelper.createFence();
+    }
+
+    public StreamingRingAllocator getAllocator() {
+        return allocator;
+    }
+
+    public int getVboID() {
+        return vbo.getVboID();
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public ByteBuffer map(int offsetBytes, int sizeBytes) {
+        ByteBuffer byteBuffer;
+        if (persistent) {
+            byteBuffer = mappedBuffer.duplicate();
+            byteBuffer.limit(offsetBytes + sizeBytes);
+            byteBuffer.position(offsetBytes);
+            byteBuffer = byteBuffer.slice();
+        } else {
+            byteBuffer = stagingBuffer;
+            byteBuffer.clear();
+            byteBuffer.limit(sizeBytes);
+        }
+        return byteBuffer.order(ByteOrder.nativeOrder());
+    }
+
+    public int write(ByteBuffer byteBuffer) {
+        int sizeBytes = byteBuffer.remaining();
+        int offsetBytes = allocator.allocate(sizeBytes);
+        if (offsetBytes == StreamingRingAllocator.NO_SPACE) {
+            return StreamingRingAllocator.NO_SPACE;
+        }
+        ByteBuffer mapped = map(offsetBytes, sizeBytes);
+        mapped.put(byteBuffer.duplicate());
+        mapped.flip();
+        commit(offsetBytes, mapped);
+        return offsetBytes;
+    }
+
+}
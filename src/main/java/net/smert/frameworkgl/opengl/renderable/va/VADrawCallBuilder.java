@@ -40,6 +40,7 @@ public class VADrawCallBuilder extends AbstractRenderCallBuilder {
 
             // Create concrete class and set specific data
             VADrawElements drawElements = vaDrawCallFactory.createDrawElements();
+            drawElements.setIndexSize(config.convertGLTypeToByteSize(config.getIndexType()));
             drawElements.setIndexType(config.getIndexType());
             drawElements.setVertexIndexBuffer(vertexIndexBuffer);
 
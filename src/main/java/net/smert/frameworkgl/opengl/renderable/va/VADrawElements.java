@@ -24,9 +24,18 @@ import net.smert.frameworkgl.opengl.renderable.shared.AbstractRenderCall;
  */
 public class VADrawElements extends AbstractRenderCall {
 
+    private int indexSize;
     private int indexType;
     private ByteBuffer vertexIndexBuffer;
 
+    public int getIndexSize() {
+        return indexSize;
+    }
+
+    public void setIndexSize(int indexSize) {
+        this.indexSize = indexSize;
+    }
+
     public int getIndexType() {
         return indexType;
     }
@@ -47,13 +56,16 @@ public class VADrawElements extends AbstractRenderCall {
     public void render() {
         for (int i = 0; i < segments.length; i++) {
             Segment segment = segments[i];
-            int elementCount = segment.getElementCount();
+            int elementCount = segment.getIndexCount();
+            int firstElement = segment.getFirstIndex();
             int primitiveMode = segment.getPrimitiveMode();
             Renderable.colorState.changeColor(segment);
             Renderable.textureBindState.bindTextures(segment);
             Renderable.shaderBindState.sendUniformsOncePerRenderCall(segment);
+            vertexIndexBuffer.position(firstElement * indexSize);
             GL.vaHelper.drawElements(primitiveMode, elementCount, indexType, vertexIndexBuffer);
         }
+        vertexIndexBuffer.position(0);
     }
 
 }
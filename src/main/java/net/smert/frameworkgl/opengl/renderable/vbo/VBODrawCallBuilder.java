@@ -15,6 +15,7 @@ package net.smert.frameworkgl.opengl.renderable.vbo;
 import net.smert.frameworkgl.opengl.constants.GLTypes;
 import net.smert.frameworkgl.opengl.mesh.Mesh;
 import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.opengl.renderable.shared.AbstractInstancedRenderCall;
 import net.smert.frameworkgl.opengl.renderable.shared.AbstractRenderCall;
 import net.smert.frameworkgl.opengl.renderable.shared.AbstractRenderCallBuilder;
 import net.smert.frameworkgl.opengl.renderable.vbo.factory.VBODrawCallFactory;
@@ -33,25 +34,53 @@ public class VBODrawCallBuilder extends AbstractRenderCallBuilder {
         this.vboDrawCallFactory = vboDrawCallFactory;
     }
 
-    public AbstractRenderCall createRenderCall(Mesh mesh, RenderableConfiguration config) {
-        AbstractRenderCall renderCall;
+    private int getIndexSize(RenderableConfiguration config) {
+
+        // Determine the index size so the byte offset can be found during the draw call
+        switch (config.getIndexType()) {
+            case GLTypes.UNSIGNED_INT:
+                return 4;
+
+            case GLTypes.UNSIGNED_SHORT:
+                return 2;
+
+            default:
+                throw new IllegalArgumentException("Unknown GL type constant for indexes: " + config.getIndexType());
+        }
+    }
+
+    public AbstractInstancedRenderCall createInstancedRenderCall(Mesh mesh, RenderableConfiguration config) {
+        AbstractInstancedRenderCall renderCall;
 
         if (mesh.hasIndexes()) {
 
-            // Determine the index size so the byte offset can be found during the draw call
-            int indexSize = 0;
-            switch (config.getIndexType()) {
-                case GLTypes.UNSIGNED_INT:
-                    indexSize = 4;
-                    break;
+            // Create concrete class and set specific data
+            VBODrawElementsInstanced drawElements = vboDrawCallFactory.createDrawElementsInstanced();
+            drawElements.setIndexSize(getIndexSize(config));
+            drawElements.setIndexType(config.getIndexType());
 
-                case GLTypes.UNSIGNED_SHORT:
-                    indexSize = 2;
-                    break;
+            // Make sure we set the abstract class
+            renderCall = drawElements;
+        } else {
 
-                default:
-                    throw new IllegalArgumentException("Unknown GL type constant for indexes: " + config.getIndexType());
-            }
+            // Create concrete class
+            VBODrawArraysInstanced drawArrays = vboDrawCallFactory.createDrawArraysInstanced();
+
+            // Make sure we set the abstract class
+            renderCall = drawArrays;
+        }
+
+        // Attach segments to the render call
+        super.createRenderCall(mesh, renderCall);
+
+        return renderCall;
+    }
+
+    public AbstractRenderCall createRenderCall(Mesh mesh, RenderableConfiguration config) {
+        AbstractRenderCall renderCall;
+
+        if (mesh.hasIndexes()) {
+            int indexSize = getIndexSize(config);
 
             if (canRenderRanged) {
 
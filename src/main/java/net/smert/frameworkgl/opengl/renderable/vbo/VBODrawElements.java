@@ -46,8 +46,8 @@ public class VBODrawElements extends AbstractRenderCall {
     public void render() {
         for (int i = 0; i < segments.length; i++) {
             Segment segment = segments[i];
-            int elementCount = segment.getElementCount();
-            int firstElement = segment.getMinIndex();
+            int elementCount = segment.getIndexCount();
+            int firstElement = segment.getFirstIndex();
             int primitiveMode = segment.getPrimitiveMode();
             Renderable.colorState.changeColor(segment);
             Renderable.textureBindState.bindTextures(segment);
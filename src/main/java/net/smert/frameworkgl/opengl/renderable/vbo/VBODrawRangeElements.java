@@ -46,8 +46,8 @@ public class VBODrawRangeElements extends AbstractRenderCall {
     public void render() {
         for (int i = 0; i < segments.length; i++) {
             Segment segment = segments[i];
-            int elementCount = segment.getElementCount();
-            int firstElement = segment.getMinIndex();
+            int elementCount = segment.getIndexCount();
+            int firstElement = segment.getFirstIndex();
             int maxIndex = segment.getMaxIndex();
             int minIndex = segment.getMinIndex();
             int primitiveMode = segment.getPrimitiveMode();
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.math.Matrix4f;
+import net.smert.frameworkgl.math.Vector3f;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.TextureType;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.shared.AbstractRenderCall;
+import net.smert.frameworkgl.opengl.renderable.shared.RenderCall;
+import net.smert.frameworkgl.opengl.shader.AbstractShader;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class RenderQueue {
+
+    public final static int PASS_OPAQUE = 0;
+    public final static int PASS_BLEND = 1;
+
+    // Key layout from the most significant bits. Opaque draws are sorted by state and then front to back. Blended
+    // draws are sorted back to front first since their order changes the image.
+    private final static int CONFIG_BITS = 8;
+    private final static int DEPTH_BITS = 16;
+    private final static int PASS_BITS = 4;
+    private final static int SHADER_BITS = 8;
+    private final static int TEXTURE_BITS = 12;
+    private final static int VAO_BITS = 16;
+    private final static int RADIX_BITS = 8;
+    private final static int RADIX_SIZE = 1 << RADIX_BITS;
+
+    private int size;
+    private final int[] radixCounts;
+    private int[] order;
+    private int[] sortOrder;
+    private long[] keys;
+    private long[] sortKeys;
+    private AbstractShader[] shaders;
+    private GameObject[] gameObjects;
+    private final Matrix4f viewMatrix;
+    private final Vector3f viewPosition;
+
+    public RenderQueue() {
+        size = 0;
+        radixCounts = new int[RADIX_SIZE];
+        order = new int[16];
+        sortOrder = new int[16];
+        keys = new long[16];
+        sortKeys = new long[16];
+        shaders = new AbstractShader[16];
+        gameObjects = new GameObject[16];
+        viewMatrix = new Matrix4f();
+        viewPosition = new Vector3f();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= keys.length) {
+            return;
+        }
+
+        int newCapacity = keys.length;
+        while (newCapacity < capacity) {
+            newCapacity *= 2;
+        }
+        order = new int[newCapacity];
+        sortOrder = new int[newCapacity];
+        keys = Arrays.copyOf(keys, newCapacity);
+        sortKeys = new long[newCapacity];
+        shaders = Arrays.copyOf(shaders, newCapacity);
+        gameObjects = Arrays.copyOf(gameObjects, newCapacity);
+    }
+
+    private int getDepth(GameObject gameObject) {
+
+        // Distance in front of the camera. Bits of positive floats sort in the same order as the floats.
+        viewMatrix.multiplyOut(gameObject.getWorldTransform().getPosition(), viewPosition);
+        float depth = -viewPosition.getZ();
+        if (!(depth > 0f)) {
+            return 0;
+        }
+        return Float.floatToIntBits(depth) >>> (31 - DEPTH_BITS);
+    }
+
+    private int getTextureID(AbstractRenderable renderable) {
+        RenderCall renderCall = renderable.getRenderCall();
+        if (!(renderCall instanceof AbstractRenderCall)) {
+            return 0;
+        }
+        Segment[] segments = ((AbstractRenderCall) renderCall).getSegments();
+        if (segments == null) {
+            return 0;
+        }
+
+        // Use the diffuse texture of the first segment with textures
+        for (Segment segment : segments) {
+            SegmentMaterial material = segment.getMaterial();
+            if ((material == null) || material.getTextures().isEmpty()) {
+                continue;
+            }
+            Map<TextureType, String> textures = material.getTextures();
+            String filename = textures.get(TextureType.DIFFUSE);
+            if (filename == null) {
+                filename = textures.values().iterator().next();
+            }
+            return Math.max(Renderable.texturePool.getUniqueID(filename), 0);
+        }
+
+        return 0;
+    }
+
+    private void radixSort() {
+        long differentBits = 0L;
+        long firstKey = keys[0];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            differentBits |= keys[i] ^ firstKey;
+        }
+
+        // Stable least significant digit first. Digits that are the same for every key are skipped.
+        for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+            if (((differentBits >>> shift) & (RADIX_SIZE - 1)) == 0) {
+                continue;
+            }
+
+            Arrays.fill(radixCounts, 0);
+            for (int i = 0; i < size; i++) {
+                radixCounts[(int) (keys[i] >>> shift) & (RADIX_SIZE - 1)]++;
+            }
+            int offset = 0;
+            for (int i = 0; i < RADIX_SIZE; i++) {
+                int count = radixCounts[i];
+                radixCounts[i] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < size; i++) {
+                long key = keys[i];
+                int index = radixCounts[(int) (key >>> shift) & (RADIX_SIZE - 1)]++;
+                sortKeys[index] = key;
+                sortOrder[index] = order[i];
+            }
+
+            long[] tmpKeys = keys;
+            keys = sortKeys;
+            sortKeys = tmpKeys;
+            int[] tmpOrder = order;
+            order = sortOrder;
+            sortOrder = tmpOrder;
+        }
+    }
+
+    public void add(GameObject gameObject, AbstractShader shader) {
+        int pass = gameObject.getRenderableState().isOpaque() ? PASS_OPAQUE : PASS_BLEND;
+        add(gameObject, shader, pass);
+    }
+
+    public void add(GameObject gameObject, AbstractShader shader, int pass) {
+        ensureCapacity(size + 1);
+        gameObjects[size] = gameObject;
+        shaders[size] = shader;
+        keys[size] = CreateKey(pass, shader, gameObject.getRenderable(), getTextureID(gameObject.getRenderable()),
+                getDepth(gameObject));
+        size++;
+    }
+
+    public void addBlend(List<GameObject> gameObjects, AbstractShader shader) {
+        for (GameObject gameObject : gameObjects) {
+            if (gameObject.getRenderableState().isOpaque()) {
+                continue;
+            }
+            add(gameObject, shader, PASS_BLEND);
+        }
+    }
+
+    public void addOpaque(List<GameObject> gameObjects, AbstractShader shader) {
+        for (GameObject gameObject : gameObjects) {
+            add(gameObject, shader, PASS_OPAQUE);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(gameObjects, 0, size, null);
+        Arrays.fill(shaders, 0, size, null);
+        size = 0;
+    }
+
+    public GameObject getGameObject(int index) {
+        return gameObjects[order[index]];
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public AbstractShader getShader(int index) {
+        return shaders[order[index]];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void render(GLRenderer renderer) {
+        boolean blending = false;
+        AbstractShader currentShader = null;
+
+        for (int i = 0; i < size; i++) {
+            int index = order[i];
+            GameObject gameObject = gameObjects[index];
+            AbstractShader shader = shaders[index];
+
+            // Blending is turned on once for the rest of the queue
+            if (!blending && (GetPass(keys[i]) != PASS_OPAQUE)) {
+                GL.o1.enableBlending();
+                blending = true;
+            }
+            if (shader != currentShader) {
+                renderer.switchShader(shader);
+                currentShader = shader;
+            }
+            renderer.render(gameObject);
+        }
+
+        if (blending) {
+            GL.o1.disableBlending();
+        }
+    }
+
+    public void setViewMatrix(Matrix4f viewMatrix) {
+        this.viewMatrix.set(viewMatrix);
+    }
+
+    public void sort() {
+        if (size > 1) {
+            radixSort();
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+    }
+
+    public static long CreateKey(int pass, AbstractShader shader, AbstractRenderable renderable, int textureID,
+            int depth) {
+        long programID = 0;
+        if ((shader != null) && (shader.getShader() != null)) {
+            programID = shader.getShader().getProgramID();
+        }
+        long state = ((programID & Mask(SHADER_BITS)) << (TEXTURE_BITS + CONFIG_BITS + VAO_BITS))
+                | ((textureID & Mask(TEXTURE_BITS)) << (CONFIG_BITS + VAO_BITS))
+                | ((renderable.getRenderableConfigID() & Mask(CONFIG_BITS)) << VAO_BITS)
+                | (renderable.getVaoID() & Mask(VAO_BITS));
+        long depthBits = depth & Mask(DEPTH_BITS);
+        long passBits = (pass & Mask(PASS_BITS)) << (64 - PASS_BITS);
+        if (pass == PASS_OPAQUE) {
+            return passBits | (state << DEPTH_BITS) | depthBits;
+        }
+        return passBits | ((Mask(DEPTH_BITS) - depthBits) << (64 - PASS_BITS - DEPTH_BITS)) | state;
+    }
+
+    public static int GetPass(long key) {
+        return (int) (key >>> (64 - PASS_BITS));
+    }
+
+    private static long Mask(int bits) {
+        return (1L << bits) - 1L;
+    }
+
+}
@@ -24,8 +24,13 @@ import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
 import net.smert.frameworkgl.opengl.renderable.Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.DynamicVertexArrayObjectInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.DynamicVertexArrayObjectNonInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.gl3.InstancedVertexArrayObjectInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.gl3.InstancedVertexArrayObjectNonInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.VertexArrayObjectInterleavedGL3Renderable;
 import net.smert.frameworkgl.opengl.renderable.gl3.VertexArrayObjectNonInterleavedGL3Renderable;
+import net.smert.frameworkgl.opengl.renderable.shared.InstanceBatch;
+import net.smert.frameworkgl.opengl.renderable.shared.InstanceBatcher;
+import net.smert.frameworkgl.opengl.renderable.shared.InstancedRenderable;
 import net.smert.frameworkgl.opengl.shader.AbstractShader;
 import net.smert.frameworkgl.utils.Color;
 
@@ -59,6 +64,14 @@ public class RendererGL3 extends AbstractRendererGL {
         return GL.rf3.createImmediateModeRenderable();
     }
 
+    public InstancedVertexArrayObjectInterleavedGL3Renderable createInstancedInterleavedRenderable() {
+        return GL.rf3.createInstancedInterleavedRenderable();
+    }
+
+    public InstancedVertexArrayObjectNonInterleavedGL3Renderable createInstancedNonInterleavedRenderable() {
+        return GL.rf3.createInstancedNonInterleavedRenderable();
+    }
+
     public VertexArrayObjectInterleavedGL3Renderable createInterleavedRenderable() {
         return GL.rf3.createInterleavedRenderable();
     }
@@ -73,6 +86,26 @@ public class RendererGL3 extends AbstractRendererGL {
     public void init() {
     }
 
+    public void renderInstanced(InstanceBatch batch) {
+        AbstractRenderable renderable = batch.getRenderable();
+        if (!(renderable instanceof InstancedRenderable)) {
+            throw new IllegalArgumentException("The renderable does not support instancing: " + renderable);
+        }
+        ((InstancedRenderable) renderable).updateInstances(batch);
+
+        // Instances carry their own world transform
+        pushMatrix();
+        GL.matrixHelper.loadIdentity();
+        render(renderable);
+        popMatrix();
+    }
+
+    public void renderInstanced(InstanceBatcher batcher) {
+        for (InstanceBatch batch : batcher.getBatches()) {
+            renderInstanced(batch);
+        }
+    }
+
     @Override
     public void color(float r, float g, float b, float a) {
         GL.o2.vertexAttrib(GL.defaultAttribLocations.getIndex("color"), r, g, b, a);
@@ -68,6 +68,10 @@ public abstract class AbstractShader {
         return shaderUniforms;
     }
 
+    public Shader getShader() {
+        return shader;
+    }
+
     public void init() {
         bind();
         shaderUniforms.setTextureLocations();
@@ -76,9 +80,19 @@ public abstract class AbstractShader {
     }
 
     public void sendUniformMatrices(FloatBuffer matrixFloatBuffer) {
-        GL.matrixHelper.multiplyViewAndModelMatrix(viewModelMatrix);
-        GL.matrixHelper.multiplyProjectionAndViewModelMatrix(viewModelMatrix, projectionViewModelMatrix);
-        projectionViewModelMatrix.toFloatBuffer(matrixFloatBuffer);
+
+        // Shaders with the shared camera block only need the model matrix for each draw
+        if (shaderUniforms.hasCameraBlock()) {
+            GL.uniformBuffers.updateCamera();
+            matrixFloatBuffer.clear();
+            GL.matrixHelper.peekModelMatrix().toFloatBuffer(matrixFloatBuffer);
+            matrixFloatBuffer.flip();
+            shaderUniforms.setModelMatrix(false, matrixFloatBuffer);
+            return;
+        }
+
+        // Products are cached and only multiplied again after the model, view or projection matrix changed
+        GL.matrixHelper.getProjectionViewModelMatrix().toFloatBuffer(matrixFloatBuffer);
         matrixFloatBuffer.flip();
         shaderUniforms.setProjectionViewModelMatrix(false, matrixFloatBuffer);
     }
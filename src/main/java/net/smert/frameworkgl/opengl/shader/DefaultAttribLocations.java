@@ -55,13 +55,13 @@ public class DefaultAttribLocations {
         // Indexes
         nameToIndex.clear();
         nameToIndex.put("vertex", 0);
-        // 1 Unused
+        nameToIndex.put("instanceColor", 1);
         nameToIndex.put("normal", 2);
         nameToIndex.put("color", 3);
         nameToIndex.put("color2", 4); // Could reuse
-        // 5 gl_FogCoord
-        // 6 Unused
-        // 7 Unused
+        nameToIndex.put("instanceModelRow0", 5); // gl_FogCoord
+        nameToIndex.put("instanceModelRow1", 6);
+        nameToIndex.put("instanceModelRow2", 7);
         nameToIndex.put("texCoord0", 8);
         nameToIndex.put("texCoord1", 9);
         nameToIndex.put("texCoord2", 10);
@@ -71,6 +71,11 @@ public class DefaultAttribLocations {
         nameToIndex.put("binormal", 14);
         nameToIndex.put("tangent", 15);
 
+        // Instanced shaders give these a layout location since they share an index with an attribute above
+        nameToIndex.put("instanceNormalRow0", 4);
+        nameToIndex.put("instanceNormalRow1", 12);
+        nameToIndex.put("instanceNormalRow2", 13);
+
         // Attribute locations
         indexToAttributeLocation.clear();
         indexToAttributeLocation.put(nameToIndex.get("vertex"), "in_Vertex");
@@ -85,6 +90,10 @@ public class DefaultAttribLocations {
         indexToAttributeLocation.put(nameToIndex.get("texCoord5"), "in_TexCoord5");
         indexToAttributeLocation.put(nameToIndex.get("binormal"), "in_Binormal");
         indexToAttributeLocation.put(nameToIndex.get("tangent"), "in_Tangent");
+        indexToAttributeLocation.put(nameToIndex.get("instanceColor"), "in_InstanceColor");
+        indexToAttributeLocation.put(nameToIndex.get("instanceModelRow0"), "in_InstanceModelRow0");
+        indexToAttributeLocation.put(nameToIndex.get("instanceModelRow1"), "in_InstanceModelRow1");
+        indexToAttributeLocation.put(nameToIndex.get("instanceModelRow2"), "in_InstanceModelRow2");
     }
 
 }
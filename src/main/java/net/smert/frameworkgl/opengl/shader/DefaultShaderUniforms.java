@@ -22,6 +22,7 @@ import net.smert.frameworkgl.opengl.renderable.Renderable;
  */
 public class DefaultShaderUniforms {
 
+    private boolean cameraBlock;
     private int uniformModelMatrixID;
     private int uniformNormalMatrixID;
     private int uniformProjectionMatrixID;
@@ -36,6 +37,10 @@ public class DefaultShaderUniforms {
         this.programID = programID;
     }
 
+    public boolean hasCameraBlock() {
+        return cameraBlock;
+    }
+
     public void setModelMatrix(boolean transpose, FloatBuffer matrix) {
         GL.shaderUniformHelper.setUniformMatrix4(uniformModelMatrixID, transpose, matrix);
     }
@@ -77,6 +82,8 @@ public class DefaultShaderUniforms {
     }
 
     public void updateUniformLocations() {
+        cameraBlock = GL.uniformBuffers.bindBlock(programID, UniformBuffers.CAMERA_BLOCK,
+                UniformBuffers.CAMERA_BINDING);
         uniformModelMatrixID = GL.shaderUniformHelper.getUniformLocation(programID, "uModelMatrix");
         uniformNormalMatrixID = GL.shaderUniformHelper.getUniformLocation(programID, "uNormalMatrix");
         uniformProjectionMatrixID = GL.shaderUniformHelper.getUniformLocation(programID, "uProjectionMatrix");
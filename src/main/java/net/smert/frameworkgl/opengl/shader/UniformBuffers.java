@@ -0,0 +1,268 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.shader;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import net.smert.frameworkgl.math.Matrix4f;
+import net.smert.frameworkgl.math.Vector3f;
+import net.smert.frameworkgl.math.Vector4f;
+import net.smert.frameworkgl.opengl.AmbientLight;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.GLLight;
+import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.constants.VertexBufferObjectTypes;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class UniformBuffers {
+
+    public final static int CAMERA_BINDING = 0;
+    public final static int LIGHT_BINDING = 1;
+    public final static int MATERIAL_BINDING = 2;
+    public final static int SINGLE_LIGHT_BINDING = 3;
+    public final static String CAMERA_BLOCK = "CameraBlock";
+    public final static String LIGHT_BLOCK = "LightBlock";
+    public final static String MATERIAL_BLOCK = "MaterialBlock";
+    public final static String SINGLE_LIGHT_BLOCK = "SingleLightBlock";
+
+    // Sizes in floats of the std140 layouts. Must match the blocks in the GLSL shaders.
+    public final static int MAX_LIGHTS = 32;
+    public final static int CAMERA_SIZE = 32;
+    public final static int LIGHT_HEADER_SIZE = 8;
+    public final static int LIGHT_SIZE = 28;
+    public final static int LIGHTS_SIZE = LIGHT_HEADER_SIZE + LIGHT_SIZE * MAX_LIGHTS;
+    public final static int MATERIAL_SIZE = 20;
+    public final static int SINGLE_LIGHT_HEADER_SIZE = 4;
+    public final static int SINGLE_LIGHT_SIZE = SINGLE_LIGHT_HEADER_SIZE + LIGHT_SIZE;
+
+    private final static Vector3f eyePosition = new Vector3f();
+    private final static Vector3f spotEyeDirection = new Vector3f();
+    private final static Vector3f spotWorldDirection = new Vector3f();
+    private final static Vector3f worldPosition = new Vector3f();
+
+    private boolean created;
+    private boolean supported;
+    private long cameraProjectionVersion;
+    private long cameraViewVersion;
+    private final float[] cameraData;
+    private final float[] lightData;
+    private final float[] materialData;
+    private final float[] matrixData;
+    private final float[] singleLightData;
+    private final float[] uploadedLightData;
+    private final float[] uploadedMaterialData;
+    private final float[] uploadedSingleLightData;
+    private final int[] uboIDs;
+    private FloatBuffer uploadData;
+    private final Matrix4f projectionViewMatrix;
+
+    public UniformBuffers() {
+        created = false;
+        supported = false;
+        cameraProjectionVersion = -1;
+        cameraViewVersion = -1;
+        cameraData = new float[CAMERA_SIZE];
+        lightData = new float[LIGHTS_SIZE];
+        materialData = new float[MATERIAL_SIZE];
+        matrixData = new float[16];
+        singleLightData = new float[SINGLE_LIGHT_SIZE];
+        uploadedLightData = new float[LIGHTS_SIZE];
+        uploadedMaterialData = new float[MATERIAL_SIZE];
+        uploadedSingleLightData = new float[SINGLE_LIGHT_SIZE];
+        uboIDs = new int[4];
+        uploadData = null;
+        projectionViewMatrix = new Matrix4f();
+    }
+
+    private void create() {
+        created = true;
+        supported = GL.uboHelper.isUniformBufferSupported();
+        if (!supported) {
+            return;
+        }
+        uploadData = GL.bufferHelper.createFloatBuffer(LIGHTS_SIZE);
+        createBuffer(CAMERA_BINDING, cameraData);
+        createBuffer(LIGHT_BINDING, lightData);
+        createBuffer(MATERIAL_BINDING, materialData);
+        createBuffer(SINGLE_LIGHT_BINDING, singleLightData);
+        GL.uboHelper.unbind();
+    }
+
+    private void createBuffer(int bindingPoint, float[] data) {
+        uboIDs[bindingPoint] = GL.uboHelper.create();
+        uploadData.clear();
+        uploadData.put(data).flip();
+        GL.uboHelper.setBufferData(uboIDs[bindingPoint], uploadData, VertexBufferObjectTypes.DYNAMIC_DRAW);
+
+        // Binding points are global so they are only bound once
+        GL.uboHelper.bindBufferBase(bindingPoint, uboIDs[bindingPoint]);
+    }
+
+    private void packMatrix(Matrix4f matrix, float[] out, int offset) {
+        matrix.toColumnArray(matrixData);
+        System.arraycopy(matrixData, 0, out, offset, matrixData.length);
+    }
+
+    private void upload(int bindingPoint, float[] data, int size) {
+        if (!created) {
+            create();
+        }
+        uploadData.clear();
+        uploadData.put(data, 0, size).flip();
+        GL.uboHelper.updateBufferData(uboIDs[bindingPoint], 0, uploadData);
+    }
+
+    private void uploadIfChanged(int bindingPoint, float[] data, float[] uploadedData) {
+        if (Arrays.equals(data, uploadedData)) {
+            return;
+        }
+        System.arraycopy(data, 0, uploadedData, 0, data.length);
+        upload(bindingPoint, data, data.length);
+    }
+
+    public boolean bindBlock(int programID, String blockName, int bindingPoint) {
+        if (!created) {
+            create();
+        }
+        if (!supported) {
+            return false;
+        }
+        int blockIndex = GL.uboHelper.getUniformBlockIndex(programID, blockName);
+        if (blockIndex == -1) {
+            return false;
+        }
+        GL.uboHelper.setUniformBlockBinding(programID, blockIndex, bindingPoint);
+        return true;
+    }
+
+    public void destroy() {
+        if (created && supported) {
+            for (int uboID : uboIDs) {
+                GL.uboHelper.delete(uboID);
+            }
+        }
+        created = false;
+        cameraProjectionVersion = -1;
+        cameraViewVersion = -1;
+        Arrays.fill(uploadedLightData, 0f);
+        Arrays.fill(uploadedMaterialData, 0f);
+        Arrays.fill(uploadedSingleLightData, 0f);
+    }
+
+    public void updateAmbientLight(AmbientLight ambientLight) {
+        PackVector(ambientLight.getAmbient(), lightData, 0);
+        uploadIfChanged(LIGHT_BINDING, lightData, uploadedLightData);
+    }
+
+    public void updateCamera() {
+        long projectionVersion = GL.matrixHelper.getProjectionVersion();
+        long viewVersion = GL.matrixHelper.getViewVersion();
+        if ((cameraProjectionVersion == projectionVersion) && (cameraViewVersion == viewVersion)) {
+            return;
+        }
+        cameraProjectionVersion = projectionVersion;
+        cameraViewVersion = viewVersion;
+
+        GL.matrixHelper.multiplyProjectionAndViewMatrix(projectionViewMatrix);
+        packMatrix(projectionViewMatrix, cameraData, 0);
+        packMatrix(GL.matrixHelper.peekViewMatrix(), cameraData, 16);
+        upload(CAMERA_BINDING, cameraData, CAMERA_SIZE);
+    }
+
+    public void updateLight(int index, GLLight glLight) {
+        PackLight(glLight, GL.matrixHelper.peekViewMatrix(), lightData, LIGHT_HEADER_SIZE + LIGHT_SIZE * index);
+        uploadIfChanged(LIGHT_BINDING, lightData, uploadedLightData);
+    }
+
+    public void updateLights(List<GLLight> glLights) {
+        Matrix4f viewMatrix = GL.matrixHelper.peekViewMatrix();
+        int numberOfLights = 0;
+        for (GLLight glLight : glLights) {
+            if (numberOfLights >= MAX_LIGHTS) {
+                break;
+            }
+            PackLight(glLight, viewMatrix, lightData, LIGHT_HEADER_SIZE + LIGHT_SIZE * numberOfLights);
+            numberOfLights++;
+        }
+        lightData[4] = Float.intBitsToFloat(numberOfLights);
+        uploadIfChanged(LIGHT_BINDING, lightData, uploadedLightData);
+    }
+
+    public void updateMaterialLight(MaterialLight materialLight) {
+        materialData[0] = materialLight.getShininess();
+        PackVector(materialLight.getAmbient(), materialData, 4);
+        PackVector(materialLight.getDiffuse(), materialData, 8);
+        PackVector(materialLight.getEmission(), materialData, 12);
+        PackVector(materialLight.getSpecular(), materialData, 16);
+        uploadIfChanged(MATERIAL_BINDING, materialData, uploadedMaterialData);
+    }
+
+    public void updateNumberOfLights(int numberOfLights) {
+        lightData[4] = Float.intBitsToFloat(numberOfLights);
+        uploadIfChanged(LIGHT_BINDING, lightData, uploadedLightData);
+    }
+
+    public void updateSingleAmbientLight(AmbientLight ambientLight) {
+        PackVector(ambientLight.getAmbient(), singleLightData, 0);
+        uploadIfChanged(SINGLE_LIGHT_BINDING, singleLightData, uploadedSingleLightData);
+    }
+
+    public void updateSingleLight(GLLight glLight) {
+        PackLight(glLight, GL.matrixHelper.peekViewMatrix(), singleLightData, SINGLE_LIGHT_HEADER_SIZE);
+        uploadIfChanged(SINGLE_LIGHT_BINDING, singleLightData, uploadedSingleLightData);
+    }
+
+    public static void PackLight(GLLight glLight, Matrix4f viewMatrix, float[] out, int offset) {
+        Vector4f position = glLight.getPosition();
+
+        // Lights are sent in eye space
+        worldPosition.set(position);
+        if (position.getW() != 0.0f) {
+            viewMatrix.multiplyOut(worldPosition, eyePosition);
+        } else {
+            viewMatrix.multiplyDirectionOut(worldPosition, eyePosition);
+        }
+        spotWorldDirection.set(glLight.getSpotDirection());
+        viewMatrix.multiplyDirectionOut(spotWorldDirection, spotEyeDirection);
+
+        out[offset] = glLight.getConstantAttenuation();
+        out[offset + 1] = glLight.getLinearAttenuation();
+        out[offset + 2] = glLight.getQuadraticAttenuation();
+        out[offset + 3] = glLight.getRadius();
+        out[offset + 4] = glLight.getSpotInnerCutoffCos();
+        out[offset + 5] = glLight.getSpotOuterCutoffCos();
+        out[offset + 6] = glLight.getSpotExponent();
+        out[offset + 8] = spotEyeDirection.getX();
+        out[offset + 9] = spotEyeDirection.getY();
+        out[offset + 10] = spotEyeDirection.getZ();
+        PackVector(glLight.getAmbient(), out, offset + 12);
+        PackVector(glLight.getDiffuse(), out, offset + 16);
+        out[offset + 20] = eyePosition.getX();
+        out[offset + 21] = eyePosition.getY();
+        out[offset + 22] = eyePosition.getZ();
+        out[offset + 23] = position.getW();
+        PackVector(glLight.getSpecular(), out, offset + 24);
+    }
+
+    private static void PackVector(Vector4f vector, float[] out, int offset) {
+        out[offset] = vector.getX();
+        out[offset + 1] = vector.getY();
+        out[offset + 2] = vector.getZ();
+        out[offset + 3] = vector.getW();
+    }
+
+}
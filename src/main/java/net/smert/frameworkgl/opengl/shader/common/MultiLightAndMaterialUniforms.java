@@ -19,6 +19,7 @@ import net.smert.frameworkgl.opengl.AmbientLight;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.GLLight;
 import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.shader.UniformBuffers;
 
 /**
  *
@@ -32,6 +33,8 @@ public class MultiLightAndMaterialUniforms {
     private final static Vector3f spotWorldDirection = new Vector3f();
     private final static Vector3f worldPosition = new Vector3f();
 
+    private boolean lightBlock;
+    private boolean materialBlock;
     private final int programID;
     private int uniformGlobalAmbientLightID;
     private int uniformNumberOfLightsID;
@@ -48,12 +51,20 @@ public class MultiLightAndMaterialUniforms {
     }
 
     public void setAmbientLight(AmbientLight ambientLight) {
+        if (lightBlock) {
+            GL.uniformBuffers.updateAmbientLight(ambientLight);
+            return;
+        }
         Vector4f ambient = ambientLight.getAmbient();
         GL.shaderUniformHelper.setUniform(uniformGlobalAmbientLightID,
                 ambient.getX(), ambient.getY(), ambient.getZ(), ambient.getW());
     }
 
     public void setLight(int index, GLLight glLight) {
+        if (lightBlock) {
+            GL.uniformBuffers.updateLight(index, glLight);
+            return;
+        }
         Vector4f spotDirection = glLight.getSpotDirection();
         Vector4f ambient = glLight.getAmbient();
         Vector4f diffuse = glLight.getDiffuse();
@@ -62,12 +73,12 @@ public class MultiLightAndMaterialUniforms {
 
         worldPosition.set(position);
         if (position.getW() != 0.0f) {
-            GL.matrixHelper.getViewMatrix().multiplyOut(worldPosition, eyePosition);
+            GL.matrixHelper.peekViewMatrix().multiplyOut(worldPosition, eyePosition);
         } else {
-            GL.matrixHelper.getViewMatrix().multiplyDirectionOut(worldPosition, eyePosition);
+            GL.matrixHelper.peekViewMatrix().multiplyDirectionOut(worldPosition, eyePosition);
         }
         spotWorldDirection.set(spotDirection);
-        GL.matrixHelper.getViewMatrix().multiplyDirectionOut(spotWorldDirection, spotEyeDirection);
+        GL.matrixHelper.peekViewMatrix().multiplyDirectionOut(spotWorldDirection, spotEyeDirection);
 
         GL.shaderUniformHelper.setUniform(uniformLightIDs[index][0], glLight.getConstantAttenuation());
         GL.shaderUniformHelper.setUniform(uniformLightIDs[index][1], glLight.getLinearAttenuation());
@@ -89,6 +100,10 @@ public class MultiLightAndMaterialUniforms {
     }
 
     public void setLights(List<GLLight> glLights) {
+        if (lightBlock) {
+            GL.uniformBuffers.updateLights(glLights);
+            return;
+        }
         int numberOfLights = 0;
         for (GLLight light : glLights) {
             if (numberOfLights >= MAX_LIGHTS) {
@@ -101,6 +116,10 @@ public class MultiLightAndMaterialUniforms {
     }
 
     public void setMaterialLight(MaterialLight materialLight) {
+        if (materialBlock) {
+            GL.uniformBuffers.updateMaterialLight(materialLight);
+            return;
+        }
         Vector4f ambient = materialLight.getAmbient();
         Vector4f diffuse = materialLight.getDiffuse();
         Vector4f emission = materialLight.getEmission();
@@ -117,10 +136,23 @@ public class MultiLightAndMaterialUniforms {
     }
 
     public void setNumberOfLights(int numberOfLights) {
+        if (lightBlock) {
+            GL.uniformBuffers.updateNumberOfLights(numberOfLights);
+            return;
+        }
         GL.shaderUniformHelper.setUniform(uniformNumberOfLightsID, numberOfLights);
     }
 
     public void updateUniformLocations() {
+
+        // Shaders with uniform blocks share one buffer for each block that is only written on change
+        lightBlock = GL.uniformBuffers.bindBlock(programID, UniformBuffers.LIGHT_BLOCK, UniformBuffers.LIGHT_BINDING);
+        materialBlock = GL.uniformBuffers.bindBlock(programID, UniformBuffers.MATERIAL_BLOCK,
+                UniformBuffers.MATERIAL_BINDING);
+        if (lightBlock && materialBlock) {
+            return;
+        }
+
         uniformGlobalAmbientLightID = GL.shaderUniformHelper.getUniformLocation(programID, "uGlobalAmbientLight");
         uniformNumberOfLightsID = GL.shaderUniformHelper.getUniformLocation(programID, "uNumberOfLights");
 
@@ -18,6 +18,7 @@ import net.smert.frameworkgl.opengl.AmbientLight;
 import net.smert.frameworkgl.opengl.GL;
 import net.smert.frameworkgl.opengl.GLLight;
 import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.shader.UniformBuffers;
 
 /**
  *
@@ -30,6 +31,8 @@ public class SingleLightAndMaterialUniforms {
     private final static Vector3f spotWorldDirection = new Vector3f();
     private final static Vector3f worldPosition = new Vector3f();
 
+    private boolean lightBlock;
+    private boolean materialBlock;
     private final int programID;
     private int uniformGlobalAmbientLightID;
     private final int[] uniformLightIDs;
@@ -42,12 +45,20 @@ public class SingleLightAndMaterialUniforms {
     }
 
     public void setAmbientLight(AmbientLight ambientLight) {
+        if (lightBlock) {
+            GL.uniformBuffers.updateSingleAmbientLight(ambientLight);
+            return;
+        }
         Vector4f ambient = ambientLight.getAmbient();
         GL.shaderUniformHelper.setUniform(uniformGlobalAmbientLightID,
                 ambient.getX(), ambient.getY(), ambient.getZ(), ambient.getW());
     }
 
     public void setLight(GLLight glLight) {
+        if (lightBlock) {
+            GL.uniformBuffers.updateSingleLight(glLight);
+            return;
+        }
         Vector4f spotDirection = glLight.getSpotDirection();
         Vector4f ambient = glLight.getAmbient();
         Vector4f diffuse = glLight.getDiffuse();
@@ -56,12 +67,12 @@ public class SingleLightAndMaterialUniforms {
 
         worldPosition.set(position);
         if (position.getW() != 0.0f) {
-            GL.matrixHelper.getViewMatrix().multiplyOut(worldPosition, eyePosition);
+            GL.matrixHelper.peekViewMatrix().multiplyOut(worldPosition, eyePosition);
         } else {
-            GL.matrixHelper.getViewMatrix().multiplyDirectionOut(worldPosition, eyePosition);
+            GL.matrixHelper.peekViewMatrix().multiplyDirectionOut(worldPosition, eyePosition);
         }
         spotWorldDirection.set(spotDirection);
-        GL.matrixHelper.getViewMatrix().multiplyDirectionOut(spotWorldDirection, spotEyeDirection);
+        GL.matrixHelper.peekViewMatrix().multiplyDirectionOut(spotWorldDirection, spotEyeDirection);
 
         GL.shaderUniformHelper.setUniform(uniformLightIDs[0], glLight.getConstantAttenuation());
         GL.shaderUniformHelper.setUniform(uniformLightIDs[1], glLight.getLinearAttenuation());
@@ -83,6 +94,10 @@ public class SingleLightAndMaterialUniforms {
     }
 
     public void setMaterialLight(MaterialLight materialLight) {
+        if (materialBlock) {
+            GL.uniformBuffers.updateMaterialLight(materialLight);
+            return;
+        }
         Vector4f ambient = materialLight.getAmbient();
         Vector4f diffuse = materialLight.getDiffuse();
         Vector4f emission = materialLight.getEmission();
@@ -99,6 +114,16 @@ public class SingleLightAndMaterialUniforms {
     }
 
     public void updateUniformLocations() {
+
+        // Shaders with uniform blocks share one buffer for each block that is only written on change
+        lightBlock = GL.uniformBuffers.bindBlock(programID, UniformBuffers.SINGLE_LIGHT_BLOCK,
+                UniformBuffers.SINGLE_LIGHT_BINDING);
+        materialBlock = GL.uniformBuffers.bindBlock(programID, UniformBuffers.MATERIAL_BLOCK,
+                UniformBuffers.MATERIAL_BINDING);
+        if (lightBlock && materialBlock) {
+            return;
+        }
+
         uniformGlobalAmbientLightID = GL.shaderUniformHelper.getUniformLocation(programID, "uGlobalAmbientLight");
 
         uniformLightIDs[0] = GL.shaderUniformHelper.getUniformLocation(programID, "uLight.constantAttenuation");
@@ -43,12 +43,15 @@ public abstract class AbstractDiffuseShader extends AbstractShader {
     @Override
     public void sendUniformMatrices(FloatBuffer matrixFloatBuffer) {
         super.sendUniformMatrices(matrixFloatBuffer);
-        viewModelMatrix.toMatrix3f(normalMatrix);
+        if (uniforms.hasCameraBlock()) {
+            return;
+        }
+        GL.matrixHelper.getViewModelMatrix().toMatrix3f(normalMatrix);
         normalMatrix.toFloatBuffer(matrixFloatBuffer);
         matrixFloatBuffer.flip();
         uniforms.setNormalMatrix(false, matrixFloatBuffer);
         matrixFloatBuffer.clear();
-        viewModelMatrix.toFloatBuffer(matrixFloatBuffer);
+        GL.matrixHelper.getViewModelMatrix().toFloatBuffer(matrixFloatBuffer);
         matrixFloatBuffer.flip();
         uniforms.setViewModelMatrix(false, matrixFloatBuffer);
     }
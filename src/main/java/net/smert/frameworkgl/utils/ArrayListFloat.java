@@ -0,0 +1,108 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.utils;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class ArrayListFloat {
+
+    private int size;
+    private float[] elements;
+
+    public ArrayListFloat() {
+        this(16);
+    }
+
+    public ArrayListFloat(int capacity) {
+        size = 0;
+        elements = new float[Math.max(capacity, 1)];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= elements.length) {
+            return;
+        }
+
+        // Expand array
+        int newCapacity = elements.length;
+        while (newCapacity < capacity) {
+            newCapacity *= 2;
+        }
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    public void add(float value) {
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+    }
+
+    public void add(float value0, float value1, float value2) {
+        ensureCapacity(size + 3);
+        elements[size++] = value0;
+        elements[size++] = value1;
+        elements[size++] = value2;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public float get(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return elements[index];
+    }
+
+    public void set(int index, float value) {
+        if ((index < 0) || (index >= size)) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        elements[index] = value;
+    }
+
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    public void setCapacity(int capacity) {
+        elements = Arrays.copyOf(elements, Math.max(capacity, 1));
+        size = Math.min(size, elements.length);
+    }
+
+    /**
+     * Returns the backing array which is only valid up to getSize() and until the next add.
+     *
+     * @return
+     */
+    public float[] getElements() {
+        return elements;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+}
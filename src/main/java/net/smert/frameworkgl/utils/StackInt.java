@@ -38,6 +38,13 @@ public class StackInt {
         return size == 0;
     }
 
+    public int get(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return elements[index];
+    }
+
     public int getCapacity() {
         return capacity;
     }
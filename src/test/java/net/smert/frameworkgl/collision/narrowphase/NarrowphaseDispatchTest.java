@@ -0,0 +1,175 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.collision.narrowphase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import net.smert.frameworkgl.collision.CollisionGameObject;
+import net.smert.frameworkgl.collision.broadphase.DefaultOverlappingPairFilterCallback;
+import net.smert.frameworkgl.collision.broadphase.IndexedOverlappingPairCache;
+import net.smert.frameworkgl.collision.broadphase.SimpleBroadphase;
+import net.smert.frameworkgl.collision.shapes.ShapeType;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class NarrowphaseDispatchTest {
+
+    private final static int FRAMES = 4;
+    private final static int SIZE_X = 6;
+    private final static int SIZE_Y = 6;
+    private final static int SIZE_Z = 3;
+
+    private ForkJoinPool forkJoinPool;
+
+    @Before
+    public void setUp() {
+        forkJoinPool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Test
+    public void testParallelContactsMatchSerialContacts() {
+        Scene serialScene = new Scene(null);
+        Scene parallelScene = new Scene(forkJoinPool);
+        parallelScene.narrowphaseDispatch.setParallelThreshold(0);
+
+        for (int frame = 0; frame < FRAMES; frame++) {
+            serialScene.step(frame);
+            parallelScene.step(frame);
+
+            ContactData serialContactData = serialScene.narrowphaseDispatch.getContactData();
+            ContactData parallelContactData = parallelScene.narrowphaseDispatch.getContactData();
+            assertTrue(serialScene.pairCount > 256);
+            assertTrue(serialContactData.getSize() > 0);
+            assertEquals(serialScene.pairCount, parallelScene.pairCount);
+            assertEquals(serialContactData.getSize(), parallelContactData.getSize());
+
+            // Contacts are compared in order since the contact solver depends on it
+            Contact[] serialContacts = serialContactData.getContacts();
+            Contact[] parallelContacts = parallelContactData.getContacts();
+            for (int i = 0; i < serialContactData.getSize(); i++) {
+                Contact serialContact = serialContacts[i];
+                Contact parallelContact = parallelContacts[i];
+                assertEquals(i, parallelContact.index);
+                assertEquals(serialContact.collisionGameObject0.getBroadphaseProxy().getIndex(),
+                        parallelContact.collisionGameObject0.getBroadphaseProxy().getIndex());
+                assertEquals(serialContact.collisionGameObject1.getBroadphaseProxy().getIndex(),
+                        parallelContact.collisionGameObject1.getBroadphaseProxy().getIndex());
+                assertEquals(serialContact.normal, parallelContact.normal);
+                assertEquals(serialContact.penetration, parallelContact.penetration, 0f);
+                assertEquals(serialContact.timeOfImpact, parallelContact.timeOfImpact, 0f);
+            }
+
+            // Pairs must be updated the same way
+            assertEquals(serialScene.narrowphaseDispatch.getContactEvents().getSize(),
+                    parallelScene.narrowphaseDispatch.getContactEvents().getSize());
+            assertEquals(serialScene.narrowphaseDispatch.getTouchingProxyIndexes().getSize(),
+                    parallelScene.narrowphaseDispatch.getTouchingProxyIndexes().getSize());
+            for (int i = 0; i < serialScene.narrowphaseDispatch.getTouchingProxyIndexes().getSize(); i++) {
+                assertEquals(serialScene.narrowphaseDispatch.getTouchingProxyIndexes().get(i),
+                        parallelScene.narrowphaseDispatch.getTouchingProxyIndexes().get(i));
+            }
+        }
+    }
+
+    private static class CountingOverlappingPairCache extends IndexedOverlappingPairCache {
+
+        private int pairCount;
+
+        public CountingOverlappingPairCache() {
+            super(new DefaultOverlappingPairFilterCallback());
+        }
+
+        @Override
+        public void processOverlappingPairs(NarrowphaseDispatch dispatch) {
+            pairCount = getSize();
+            super.processOverlappingPairs(dispatch);
+        }
+
+    }
+
+    private static class Scene {
+
+        private int pairCount;
+        private final CountingOverlappingPairCache overlappingPairCache;
+        private final List<CollisionGameObject> collisionGameObjects;
+        private final NarrowphaseDispatch narrowphaseDispatch;
+        private final SimpleBroadphase simpleBroadphase;
+
+        private Scene(ForkJoinPool forkJoinPool) {
+            overlappingPairCache = new CountingOverlappingPairCache();
+            collisionGameObjects = new ArrayList<>();
+            narrowphaseDispatch = new NarrowphaseDispatch(new DefaultNarrowphaseFilterCallback());
+            narrowphaseDispatch.setForkJoinPool(forkJoinPool);
+            simpleBroadphase = new SimpleBroadphase(overlappingPairCache);
+            overlappingPairCache.setOverlappingPairRemovedCallback(narrowphaseDispatch);
+
+            // A grid of boxes that overlap their neighbors with a few sleeping, static and disabled ones
+            for (int x = 0; x < SIZE_X; x++) {
+                for (int y = 0; y < SIZE_Y; y++) {
+                    for (int z = 0; z < SIZE_Z; z++) {
+                        int index = collisionGameObjects.size();
+                        CollisionGameObject collisionGameObject = new CollisionGameObject();
+                        collisionGameObject.initSetShapeType(ShapeType.AABB);
+                        collisionGameObject.setAwake((index % 7) != 0);
+                        collisionGameObject.setEnabled((index % 13) != 0);
+                        collisionGameObject.setStaticObject((index % 11) == 0);
+                        collisionGameObject.setWorldPosition(x, y, z);
+                        updateWorldAabb(collisionGameObject, index, 0);
+                        collisionGameObject.setBroadphaseProxy(simpleBroadphase.createProxy(collisionGameObject, 1, 1,
+                                collisionGameObject.getWorldAabb()));
+                        collisionGameObjects.add(collisionGameObject);
+                    }
+                }
+            }
+        }
+
+        private void step(int frame) {
+            for (int i = 0; i < collisionGameObjects.size(); i++) {
+                CollisionGameObject collisionGameObject = collisionGameObjects.get(i);
+                updateWorldAabb(collisionGameObject, i, frame);
+                simpleBroadphase.moveProxy(collisionGameObject.getBroadphaseProxy(),
+                        collisionGameObject.getWorldAabb());
+            }
+            simpleBroadphase.updateOverlappingPairs();
+            narrowphaseDispatch.getContactData().clear();
+            narrowphaseDispatch.getContactEvents().clear();
+            narrowphaseDispatch.processOverlappingPairs(overlappingPairCache);
+            pairCount = overlappingPairCache.pairCount;
+        }
+
+        private void updateWorldAabb(CollisionGameObject collisionGameObject, int index, int frame) {
+
+            // Half extends vary so pairs start and stop touching between frames
+            float halfExtend = .45f + ((index * 7 + frame * 3) % 5) * .04f;
+            float x = collisionGameObject.getWorldPosition().getX();
+            float y = collisionGameObject.getWorldPosition().getY();
+            float z = collisionGameObject.getWorldPosition().getZ();
+            collisionGameObject.getWorldAabb().setMin(x - halfExtend, y - halfExtend, z - halfExtend);
+            collisionGameObject.getWorldAabb().setMax(x + halfExtend, y + halfExtend, z + halfExtend);
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.gameobjects;
+
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.MeshMaterial;
+import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class TransformAABBStoreTest {
+
+    private MeshFactory oldMeshFactory;
+
+    private Mesh createMesh(float min, float max) {
+        Mesh mesh = new Mesh();
+        mesh.getAabb().setMin(min, min, min);
+        mesh.getAabb().setMax(max, max, max);
+        return mesh;
+    }
+
+    @Before
+    public void setUp() {
+        oldMeshFactory = GL.meshFactory;
+        GL.meshFactory = new StubMeshFactory();
+    }
+
+    @After
+    public void tearDown() {
+        GL.meshFactory = oldMeshFactory;
+    }
+
+    @Test
+    public void testSetMeshUpdatesLocalAabb() {
+        TransformAABBStore transformAABBStore = new TransformAABBStore();
+        GameObject gameObject = new GameObject();
+        gameObject.setMesh(createMesh(-1f, 1f));
+        gameObject.setWorldPosition(10f, 0f, 0f);
+        gameObject.setTransformAABBStore(transformAABBStore);
+
+        transformAABBStore.updateGameObjects();
+        assertEquals(9f, gameObject.getWorldAabb().getMin().getX(), 1e-6f);
+        assertEquals(11f, gameObject.getWorldAabb().getMax().getX(), 1e-6f);
+
+        // Swapping the mesh must be seen by the next batch update
+        gameObject.setMesh(createMesh(-3f, 2f));
+        transformAABBStore.updateGameObjects();
+        AABB worldAabb = gameObject.getWorldAabb();
+        assertEquals(7f, worldAabb.getMin().getX(), 1e-6f);
+        assertEquals(12f, worldAabb.getMax().getX(), 1e-6f);
+        assertEquals(-3f, worldAabb.getMin().getY(), 1e-6f);
+        assertEquals(2f, worldAabb.getMax().getY(), 1e-6f);
+    }
+
+    private static class StubMeshFactory extends MeshFactory {
+
+        public StubMeshFactory() {
+            super(null);
+        }
+
+        @Override
+        public MeshMaterial createMeshMaterial() {
+            return new MeshMaterial();
+        }
+
+    }
+
+}
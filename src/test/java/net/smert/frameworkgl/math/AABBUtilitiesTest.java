@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.math;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class AABBUtilitiesTest {
+
+    private final static float DELTA = 1e-4f;
+
+    private Transform4f[] createTransforms() {
+        Transform4f rotated = new Transform4f();
+        rotated.fromAxisAngle(new Vector3f(0f, 1f, 0f), 37f);
+        rotated.setPosition(1f, -2f, 3f);
+
+        Transform4f scaled = new Transform4f();
+        scaled.setScale(2f, .5f, 3f);
+        scaled.setPosition(-4f, 0f, 7f);
+
+        // Rotation about a skewed axis followed by a non uniform scale
+        Transform4f rotatedAndScaled = new Transform4f();
+        rotatedAndScaled.fromAxisAngle(new Vector3f(1f, 2f, -1f).normalize(), 123f);
+        rotatedAndScaled.setPosition(10f, 5f, -3f);
+        rotatedAndScaled.multiply(new Transform4f().setScale(1.5f, 4f, .25f));
+
+        Transform4f mirrored = new Transform4f();
+        mirrored.fromAxisAngle(new Vector3f(0f, 0f, 1f), -200f);
+        mirrored.multiply(new Transform4f().setScale(-1f, 2f, 1f));
+
+        return new Transform4f[]{new Transform4f(), rotated, scaled, rotatedAndScaled, mirrored};
+    }
+
+    private void assertTransformMatchesScalar(float margin) {
+        Transform4f[] transforms = createTransforms();
+        AABB localAabb = new AABB(new Vector3f(-1f, -2f, .5f), new Vector3f(3f, 1f, 4f));
+        float[] localAabbs = new float[transforms.length * AABBUtilities.AABB_STRIDE];
+        float[] worldAabbs = new float[transforms.length * AABBUtilities.AABB_STRIDE];
+        float[] worldTransforms = new float[transforms.length * AABBUtilities.TRANSFORM_STRIDE];
+        for (int i = 0; i < transforms.length; i++) {
+            localAabb.toArray(localAabbs, i * AABBUtilities.AABB_STRIDE);
+            transforms[i].toRowArray(worldTransforms, i * AABBUtilities.TRANSFORM_STRIDE);
+        }
+
+        AABBUtilities.Transform(localAabbs, margin, worldTransforms, worldAabbs, 0, transforms.length);
+
+        AABB expected = new AABB();
+        AABB batched = new AABB();
+        for (int i = 0; i < transforms.length; i++) {
+            if (margin == 0f) {
+                AABBUtilities.Transform(localAabb, transforms[i], expected);
+            } else {
+                AABBUtilities.Transform(localAabb, margin, transforms[i], expected);
+            }
+            batched.fromArray(worldAabbs, i * AABBUtilities.AABB_STRIDE);
+            assertEquals(expected.getMin().getX(), batched.getMin().getX(), DELTA);
+            assertEquals(expected.getMin().getY(), batched.getMin().getY(), DELTA);
+            assertEquals(expected.getMin().getZ(), batched.getMin().getZ(), DELTA);
+            assertEquals(expected.getMax().getX(), batched.getMax().getX(), DELTA);
+            assertEquals(expected.getMax().getY(), batched.getMax().getY(), DELTA);
+            assertEquals(expected.getMax().getZ(), batched.getMax().getZ(), DELTA);
+        }
+    }
+
+    @Test
+    public void testBatchedTransformMatchesScalar() {
+        assertTransformMatchesScalar(0f);
+    }
+
+    @Test
+    public void testBatchedTransformWithMarginMatchesScalar() {
+        assertTransformMatchesScalar(.25f);
+    }
+
+}
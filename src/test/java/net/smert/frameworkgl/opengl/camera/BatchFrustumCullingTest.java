@@ -0,0 +1,113 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.camera;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.math.AABBUtilities;
+import net.smert.frameworkgl.math.Matrix3f;
+import net.smert.frameworkgl.math.Matrix4f;
+import net.smert.frameworkgl.math.Vector3f;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class BatchFrustumCullingTest {
+
+    private final static int COUNT = 20000;
+
+    private float[] aabbs;
+    private AABB[] aabbObjects;
+    private FrustumCullingClipSpace frustumCulling;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(1234);
+
+        // Camera at (10, 5, 30) turned 30 degrees around the y axis
+        Matrix3f rotation = new Matrix3f();
+        rotation.fromAxisAngle(new Vector3f(0f, 1f, 0f), 30f);
+        Matrix4f projectionMatrix = new Matrix4f();
+        projectionMatrix.setPerspective(70f, 16f / 9f, .1f, 100f);
+        Matrix4f viewMatrix = new Matrix4f();
+        viewMatrix.setInverse(rotation, new Vector3f(10f, 5f, 30f));
+        frustumCulling = new FrustumCullingClipSpace();
+        frustumCulling.updatePlanes(projectionMatrix, viewMatrix);
+
+        // Random AABBs around the camera so some are inside, outside and crossing planes
+        aabbs = new float[COUNT * AABBUtilities.AABB_STRIDE];
+        aabbObjects = new AABB[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            float x = random.nextFloat() * 300f - 140f;
+            float y = random.nextFloat() * 300f - 145f;
+            float z = random.nextFloat() * 300f - 120f;
+            AABB aabb = new AABB();
+            aabb.setMin(x, y, z);
+            aabb.setMax(x + random.nextFloat() * 10f, y + random.nextFloat() * 10f, z + random.nextFloat() * 10f);
+            aabb.toArray(aabbs, i * AABBUtilities.AABB_STRIDE);
+            aabbObjects[i] = aabb;
+        }
+    }
+
+    private void assertSameAsFrustumCulling(BatchFrustumCulling batchFrustumCulling, int visibleSize) {
+        boolean[] visible = new boolean[COUNT];
+        int[] visibleIndexes = batchFrustumCulling.getVisibleIndexes();
+        int previousIndex = -1;
+        for (int i = 0; i < visibleSize; i++) {
+            int index = visibleIndexes[i];
+            assertTrue("Visible indexes should be in order", index > previousIndex);
+            visible[index] = true;
+            previousIndex = index;
+        }
+
+        int expectedSize = 0;
+        for (int i = 0; i < COUNT; i++) {
+            boolean expected = frustumCulling.isAABBInFrustum(aabbObjects[i]);
+            assertEquals("AABB " + i, expected, visible[i]);
+            if (expected) {
+                expectedSize++;
+            }
+        }
+        assertEquals(expectedSize, visibleSize);
+        assertTrue(visibleSize > 0);
+        assertTrue(visibleSize < COUNT);
+    }
+
+    @Test
+    public void testCullMatchesFrustumCulling() {
+        BatchFrustumCulling batchFrustumCulling = new BatchFrustumCulling();
+        int visibleSize = batchFrustumCulling.cull(frustumCulling, aabbs, COUNT);
+        assertEquals(visibleSize, batchFrustumCulling.getVisibleSize());
+        assertSameAsFrustumCulling(batchFrustumCulling, visibleSize);
+    }
+
+    @Test
+    public void testParallelCullMatchesFrustumCulling() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            BatchFrustumCulling batchFrustumCulling = new BatchFrustumCulling();
+            batchFrustumCulling.setForkJoinPool(forkJoinPool);
+            batchFrustumCulling.setParallelThreshold(0);
+            int visibleSize = batchFrustumCulling.cull(frustumCulling, aabbs, COUNT);
+            assertSameAsFrustumCulling(batchFrustumCulling, visibleSize);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+}
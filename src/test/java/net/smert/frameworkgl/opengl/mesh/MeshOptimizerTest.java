@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.mesh;
+
+import java.util.Random;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.constants.Primitives;
+import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.opengl.renderable.shared.RenderableConfigurationPool;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class MeshOptimizerTest {
+
+    private final static int GRID_SIZE = 32;
+
+    private MeshFactory oldMeshFactory;
+    private RenderableConfigurationPool oldConfigPool;
+
+    private Mesh createShuffledGrid() {
+        int rowVertices = GRID_SIZE + 1;
+        int vertexCount = rowVertices * rowVertices;
+        float[] vertices = new float[vertexCount * 3];
+        for (int y = 0; y < rowVertices; y++) {
+            for (int x = 0; x < rowVertices; x++) {
+                int offset = (y * rowVertices + x) * 3;
+                vertices[offset] = x;
+                vertices[offset + 1] = y;
+                vertices[offset + 2] = 0f;
+            }
+        }
+
+        // Two triangles per cell
+        int[] triangles = new int[GRID_SIZE * GRID_SIZE * 6];
+        int index = 0;
+        for (int y = 0; y < GRID_SIZE; y++) {
+            for (int x = 0; x < GRID_SIZE; x++) {
+                int corner = y * rowVertices + x;
+                triangles[index++] = corner;
+                triangles[index++] = corner + 1;
+                triangles[index++] = corner + rowVertices;
+                triangles[index++] = corner + 1;
+                triangles[index++] = corner + rowVertices + 1;
+                triangles[index++] = corner + rowVertices;
+            }
+        }
+
+        // Shuffle whole triangles so the input has poor locality
+        Random random = new Random(1234);
+        for (int i = triangles.length / 3 - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            for (int k = 0; k < 3; k++) {
+                int tmp = triangles[i * 3 + k];
+                triangles[i * 3 + k] = triangles[j * 3 + k];
+                triangles[j * 3 + k] = tmp;
+            }
+        }
+
+        Segment segment = new Segment();
+        segment.setData(SegmentDataType.VERTEX, vertices);
+        segment.setElementCount(vertexCount);
+        segment.setFirstIndex(0);
+        segment.setIndexCount(triangles.length);
+        segment.setMaxIndex(vertexCount - 1);
+        segment.setMinIndex(0);
+        segment.setPrimitiveMode(Primitives.TRIANGLES);
+
+        Mesh mesh = new Mesh();
+        mesh.setRenderableConfigID(Renderable.configPool.getOrAdd(new RenderableConfiguration()));
+        mesh.addSegment(segment);
+        mesh.setIndexes(triangles);
+        return mesh;
+    }
+
+    @Before
+    public void setUp() {
+        oldConfigPool = Renderable.configPool;
+        oldMeshFactory = GL.meshFactory;
+        Renderable.configPool = new RenderableConfigurationPool();
+        GL.meshFactory = new StubMeshFactory();
+    }
+
+    @After
+    public void tearDown() {
+        Renderable.configPool = oldConfigPool;
+        GL.meshFactory = oldMeshFactory;
+    }
+
+    @Test
+    public void testOptimizeLowersACMROfGrid() {
+        Mesh mesh = createShuffledGrid();
+        float acmrInput = MeshOptimizer.CalculateACMR(mesh.getIndexes(), 0, mesh.getIndexes().length, 16);
+
+        MeshOptimizer meshOptimizer = new MeshOptimizer();
+        meshOptimizer.optimize(mesh);
+
+        assertEquals(acmrInput, meshOptimizer.getAcmrBefore(), 1e-6f);
+        assertTrue(meshOptimizer.getAcmrBefore() > 1.5f);
+        assertTrue(meshOptimizer.getAcmrAfter() < 1f);
+        assertEquals(meshOptimizer.getAcmrAfter(),
+                MeshOptimizer.CalculateACMR(mesh.getIndexes(), 0, mesh.getIndexes().length, 16), 1e-6f);
+    }
+
+    @Test
+    public void testOptimizeKeepsTriangles() {
+        Mesh mesh = createShuffledGrid();
+        float[] oldVertices = mesh.getSegment(0).getData(SegmentDataType.VERTEX);
+        int[] oldIndexes = mesh.getIndexes();
+        float oldArea = SumArea(oldIndexes, oldVertices);
+
+        MeshOptimizer meshOptimizer = new MeshOptimizer();
+        meshOptimizer.optimize(mesh);
+
+        // Vertices are moved and triangles reordered but the surface stays the same
+        float[] newVertices = mesh.getSegment(0).getData(SegmentDataType.VERTEX);
+        int[] newIndexes = mesh.getIndexes();
+        assertEquals(oldIndexes.length, newIndexes.length);
+        assertEquals(oldVertices.length, newVertices.length);
+        assertEquals(oldArea, SumArea(newIndexes, newVertices), 1e-3f);
+        assertEquals(GRID_SIZE * GRID_SIZE, oldArea, 1e-3f);
+    }
+
+    private static float SumArea(int[] indexes, float[] vertices) {
+        float area = 0f;
+        for (int i = 0; i < indexes.length; i += 3) {
+            int a = indexes[i] * 3;
+            int b = indexes[i + 1] * 3;
+            int c = indexes[i + 2] * 3;
+            float abX = vertices[b] - vertices[a];
+            float abY = vertices[b + 1] - vertices[a + 1];
+            float acX = vertices[c] - vertices[a];
+            float acY = vertices[c + 1] - vertices[a + 1];
+            area += Math.abs(abX * acY - abY * acX) * 0.5f;
+        }
+        return area;
+    }
+
+    private static class StubMeshFactory extends MeshFactory {
+
+        public StubMeshFactory() {
+            super(null);
+        }
+
+        @Override
+        public MeshMaterial createMeshMaterial() {
+            return new MeshMaterial();
+        }
+
+    }
+
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.model.baked;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import net.smert.frameworkgl.math.Vector4f;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.TextureType;
+import net.smert.frameworkgl.opengl.VertexBufferObjectInterleaved;
+import net.smert.frameworkgl.opengl.constants.Primitives;
+import net.smert.frameworkgl.opengl.factory.GLFactory;
+import net.smert.frameworkgl.opengl.helpers.BufferHelper;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.MeshMaterial;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentDataType;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.opengl.renderable.shared.MaterialLightPool;
+import net.smert.frameworkgl.opengl.renderable.shared.RenderableBuilder;
+import net.smert.frameworkgl.opengl.renderable.shared.RenderableConfigurationPool;
+import net.smert.frameworkgl.opengl.renderable.vbo.ByteBuffers;
+import net.smert.frameworkgl.utils.Color;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class BakedMeshRoundTripTest {
+
+    private final static ByteOrder OTHER_BYTE_ORDER = (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN)
+            ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+
+    private BufferHelper oldBufferHelper;
+    private GLFactory oldGLFactory;
+    private MaterialLightPool oldMaterialLightPool;
+    private MaterialLight materialLight0;
+    private MaterialLight materialLight1;
+    private MeshFactory oldMeshFactory;
+    private RenderableBuilder oldRenderableBuilder;
+    private RenderableConfigurationPool oldConfigPool;
+
+    private MaterialLight createMaterialLight(float value, int shininess) {
+        MaterialLight materialLight = new MaterialLight();
+        materialLight.setShininess(shininess);
+        materialLight.setAmbient(new Vector4f(value, 0f, 0f, 1f));
+        materialLight.setDiffuse(new Vector4f(0f, value, 0f, 1f));
+        materialLight.setEmission(new Vector4f(0f, 0f, value, 1f));
+        materialLight.setSpecular(new Vector4f(value, value, value, 1f));
+        return materialLight;
+    }
+
+    private Mesh createMesh(boolean shortIndexes) {
+        RenderableConfiguration config = new RenderableConfiguration();
+        if (shortIndexes) {
+            config.setIndexTypeUnsignedShort();
+        } else {
+            config.setIndexTypeUnsignedInt();
+        }
+
+        Mesh mesh = new Mesh();
+        mesh.setRenderableConfigID(Renderable.configPool.getOrAdd(config));
+        mesh.getMaterial().setShaderName("diffuse");
+
+        // A quad
+        SegmentMaterial quadMaterial = new SegmentMaterial();
+        quadMaterial.setColor(new Color(.25f, .5f, .75f, 1f));
+        quadMaterial.setMaterialLightName("materialLight0");
+        quadMaterial.setTexture(TextureType.DIFFUSE, "crate.png");
+        mesh.addSegment(createSegment("quad", 4, 0, 6, 0, 3, 0f, quadMaterial));
+
+        // A triangle after the quad
+        SegmentMaterial triangleMaterial = new SegmentMaterial();
+        triangleMaterial.setMaterialLightName("materialLight1");
+        mesh.addSegment(createSegment("triangle", 3, 6, 3, 4, 6, 2f, triangleMaterial));
+
+        mesh.setIndexes(new int[]{0, 1, 2, 0, 2, 3, 4, 5, 6});
+        mesh.getAabb().setMin(-1f, -2f, -3f);
+        mesh.getAabb().setMax(4f, 5f, 6f);
+        return mesh;
+    }
+
+    private Segment createSegment(String name, int elementCount, int firstIndex, int indexCount, int minIndex,
+            int maxIndex, float offset, SegmentMaterial material) {
+        float[] colors = new float[elementCount * 4];
+        float[] normals = new float[elementCount * 3];
+        float[] vertices = new float[elementCount * 3];
+        for (int i = 0; i < elementCount; i++) {
+            colors[i * 4] = i * .1f;
+            colors[i * 4 + 1] = offset * .1f;
+            colors[i * 4 + 2] = .5f;
+            colors[i * 4 + 3] = 1f;
+            normals[i * 3 + 2] = 1f;
+            vertices[i * 3] = offset + i;
+            vertices[i * 3 + 1] = offset - i * 1.5e-3f;
+            vertices[i * 3 + 2] = -offset;
+        }
+
+        Segment segment = new Segment();
+        segment.setName(name);
+        segment.setPrimitiveMode(Primitives.TRIANGLES);
+        segment.setElementCount(elementCount);
+        segment.setFirstIndex(firstIndex);
+        segment.setIndexCount(indexCount);
+        segment.setMinIndex(minIndex);
+        segment.setMaxIndex(maxIndex);
+        segment.setMaterial(material);
+        segment.setData(SegmentDataType.COLOR, colors);
+        segment.setData(SegmentDataType.NORMAL, normals);
+        segment.setData(SegmentDataType.VERTEX, vertices);
+        return segment;
+    }
+
+    private Mesh roundTrip(Mesh mesh, ByteOrder byteOrder) throws IOException {
+        BakedMeshWriter bakedMeshWriter = new BakedMeshWriter();
+        bakedMeshWriter.setByteOrder(byteOrder);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        bakedMeshWriter.write(mesh, baos);
+
+        // Material lights have to come from the file
+        Renderable.materialLightPool = new MaterialLightPool();
+        Mesh readMesh = new Mesh();
+        new BakedMeshReader().load(ByteBuffer.wrap(baos.toByteArray()), "test.bmesh", readMesh);
+        return readMesh;
+    }
+
+    private void assertColorEquals(Color expected, Color actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getR(), actual.getR(), 0f);
+        assertEquals(expected.getG(), actual.getG(), 0f);
+        assertEquals(expected.getB(), actual.getB(), 0f);
+        assertEquals(expected.getA(), actual.getA(), 0f);
+    }
+
+    private void assertRoundTrip(boolean shortIndexes, ByteOrder byteOrder) throws IOException {
+        Mesh mesh = createMesh(shortIndexes);
+        Mesh readMesh = roundTrip(mesh, byteOrder);
+
+        // Configuration, AABB and shader
+        assertEquals(Renderable.configPool.get(mesh.getRenderableConfigID()),
+                Renderable.configPool.get(readMesh.getRenderableConfigID()));
+        assertEquals(mesh.getAabb(), readMesh.getAabb());
+        assertEquals("diffuse", readMesh.getMaterial().getShaderName());
+
+        // Segments
+        assertEquals(mesh.getTotalSegments(), readMesh.getTotalSegments());
+        assertEquals(mesh.getTotalVerticies(), readMesh.getTotalVerticies());
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            Segment segment = mesh.getSegment(i);
+            Segment readSegment = readMesh.getSegment(i);
+            assertEquals(segment.getName(), readSegment.getName());
+            assertEquals(segment.getPrimitiveMode(), readSegment.getPrimitiveMode());
+            assertEquals(segment.getElementCount(), readSegment.getElementCount());
+            assertEquals(segment.getFirstIndex(), readSegment.getFirstIndex());
+            assertEquals(segment.getIndexCount(), readSegment.getIndexCount());
+            assertEquals(segment.getMinIndex(), readSegment.getMinIndex());
+            assertEquals(segment.getMaxIndex(), readSegment.getMaxIndex());
+            assertColorEquals(segment.getMaterial().getColor(), readSegment.getMaterial().getColor());
+            assertEquals(segment.getMaterial().getMaterialLightName(),
+                    readSegment.getMaterial().getMaterialLightName());
+            assertEquals(segment.getMaterial().getTextures(), readSegment.getMaterial().getTextures());
+            assertArrayEquals(segment.getData(SegmentDataType.COLOR),
+                    readSegment.getData(SegmentDataType.COLOR), 0f);
+            assertArrayEquals(segment.getData(SegmentDataType.NORMAL),
+                    readSegment.getData(SegmentDataType.NORMAL), 0f);
+            assertArrayEquals(segment.getData(SegmentDataType.VERTEX),
+                    readSegment.getData(SegmentDataType.VERTEX), 0f);
+        }
+        assertArrayEquals(mesh.getIndexes(), readMesh.getIndexes());
+
+        // Material lights
+        assertEquals(materialLight0, Renderable.materialLightPool.get("materialLight0"));
+        assertEquals(materialLight1, Renderable.materialLightPool.get("materialLight1"));
+
+        // Buffer object data is only used as is when the byte order matches
+        if (byteOrder != ByteOrder.nativeOrder()) {
+            assertNull(readMesh.getBakedIndexData());
+            assertNull(readMesh.getBakedInterleavedData());
+            return;
+        }
+        RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+        ByteBuffers byteBuffers = new ByteBuffers();
+        Renderable.renderableBuilder.createIndexBufferData(mesh, byteBuffers, config);
+        assertEquals(byteBuffers.getVertexIndex(), readMesh.getBakedIndexData());
+        assertEquals(mesh.getIndexes().length * (shortIndexes ? 2 : 4), readMesh.getBakedIndexData().remaining());
+        VertexBufferObjectInterleaved vboInterleaved = new VertexBufferObjectInterleaved();
+        Renderable.renderableBuilder.calculateOffsetsAndStride(mesh, vboInterleaved, config);
+        Renderable.renderableBuilder.createInterleavedBufferData(mesh, vboInterleaved.getStrideBytes(), byteBuffers,
+                config);
+        assertEquals(byteBuffers.getInterleaved(), readMesh.getBakedInterleavedData());
+    }
+
+    @Before
+    public void setUp() {
+        oldBufferHelper = GL.bufferHelper;
+        oldConfigPool = Renderable.configPool;
+        oldGLFactory = GL.glFactory;
+        oldMaterialLightPool = Renderable.materialLightPool;
+        oldMeshFactory = GL.meshFactory;
+        oldRenderableBuilder = Renderable.renderableBuilder;
+        GL.bufferHelper = new BufferHelper();
+        GL.glFactory = new StubGLFactory();
+        GL.meshFactory = new StubMeshFactory();
+        Renderable.configPool = new RenderableConfigurationPool();
+        Renderable.materialLightPool = new MaterialLightPool();
+        Renderable.renderableBuilder = new RenderableBuilder();
+
+        materialLight0 = createMaterialLight(.2f, 16);
+        materialLight1 = createMaterialLight(.8f, 64);
+        Renderable.materialLightPool.add("materialLight0", materialLight0);
+        Renderable.materialLightPool.add("materialLight1", materialLight1);
+    }
+
+    @After
+    public void tearDown() {
+        GL.bufferHelper = oldBufferHelper;
+        GL.glFactory = oldGLFactory;
+        GL.meshFactory = oldMeshFactory;
+        Renderable.configPool = oldConfigPool;
+        Renderable.materialLightPool = oldMaterialLightPool;
+        Renderable.renderableBuilder = oldRenderableBuilder;
+    }
+
+    @Test
+    public void testIntIndexesNativeOrder() throws IOException {
+        assertRoundTrip(false, ByteOrder.nativeOrder());
+    }
+
+    @Test
+    public void testIntIndexesOtherOrder() throws IOException {
+        assertRoundTrip(false, OTHER_BYTE_ORDER);
+    }
+
+    @Test
+    public void testShortIndexesNativeOrder() throws IOException {
+        assertRoundTrip(true, ByteOrder.nativeOrder());
+    }
+
+    @Test
+    public void testShortIndexesOtherOrder() throws IOException {
+        assertRoundTrip(true, OTHER_BYTE_ORDER);
+    }
+
+    private static class StubGLFactory extends GLFactory {
+
+        public StubGLFactory() {
+            super(null);
+        }
+
+        @Override
+        public MaterialLight createMaterialLight() {
+            return new MaterialLight();
+        }
+
+    }
+
+    private static class StubMeshFactory extends MeshFactory {
+
+        public StubMeshFactory() {
+            super(null);
+        }
+
+        @Override
+        public Mesh createMesh() {
+            return new Mesh();
+        }
+
+        @Override
+        public MeshMaterial createMeshMaterial() {
+            return new MeshMaterial();
+        }
+
+        @Override
+        public RenderableConfiguration createRenderableConfiguration() {
+            return new RenderableConfiguration();
+        }
+
+        @Override
+        public Segment createSegment() {
+            return new Segment();
+        }
+
+        @Override
+        public SegmentMaterial createSegmentMaterial() {
+            return new SegmentMaterial();
+        }
+
+    }
+
+}
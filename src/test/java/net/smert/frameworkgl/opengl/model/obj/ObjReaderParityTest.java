@@ -0,0 +1,295 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.model.obj;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.smert.frameworkgl.math.AABB;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.MaterialLight;
+import net.smert.frameworkgl.opengl.factory.GLFactory;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.mesh.MeshMaterial;
+import net.smert.frameworkgl.opengl.mesh.MeshOptimizer;
+import net.smert.frameworkgl.opengl.mesh.Segment;
+import net.smert.frameworkgl.opengl.mesh.SegmentDataType;
+import net.smert.frameworkgl.opengl.mesh.SegmentMaterial;
+import net.smert.frameworkgl.opengl.mesh.Tessellator;
+import net.smert.frameworkgl.opengl.mesh.VertexWelder;
+import net.smert.frameworkgl.opengl.mesh.factory.MeshFactory;
+import net.smert.frameworkgl.opengl.renderable.Renderable;
+import net.smert.frameworkgl.opengl.renderable.RenderableConfiguration;
+import net.smert.frameworkgl.opengl.renderable.shared.MaterialLightPool;
+import net.smert.frameworkgl.opengl.renderable.shared.RenderableConfigurationPool;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class ObjReaderParityTest {
+
+    private final static String OBJ = ""
+            + "# Parity test\n"
+            + "o first\n"
+            + "v 0 0 0\n"
+            + "v 1.0 0 0\n"
+            + "v 1 1 0\n"
+            + "v 0 1.5e0 0\n"
+            + "vn 0 0 1\n"
+            + "vn 0.0 0.6 8.0E-1\n"
+            + "f 1//1 2//1 3//2\n"
+            + "f 1//2 3//1 4//1\n"
+            + "usemtl red\n"
+            + "v 2 0 0\n"
+            + "v 3e0 0 0\n"
+            + "v 3 1 0\n"
+            + "v 2 1 0\n"
+            + "f -4//-1 -3//-2 -2//-1 -1//-2\n"
+            + "\n"
+            + "o second\n"
+            + "usemtl blue\n"
+            + "v 0 0 1\n"
+            + "v 1 0 1\n"
+            + "v 1 1 1\n"
+            + "v 0.5 1.75 1\n"
+            + "v 0 1 1\n"
+            + "vt 0 0 0.5\n"
+            + "vt 1 0 0.5\n"
+            + "vt 1 1 0.5\n"
+            + "vt 0.5 1 0.25\n"
+            + "vt 0 1 0.5\n"
+            + "f 9/1 10/2 11/3 12/4 13/5\n"
+            + "f -5/-5 -4/-4 -3/-3 -2/-2\n"
+            + "o third\n"
+            + "v 5e-1 2.5E1 -1.25e+1\n"
+            + "v -3 2 1\n"
+            + "v -2 3 1\n"
+            + "vt 2.5e-1 7.5E-1 0\n"
+            + "vt 0.125 0.375 1e0\n"
+            + "vt 0.5 0.5 0.5\n"
+            + "f -3/-3 -2/-2 -1/-1\n"
+            + "o first\n"
+            + "f 5//2 6//2 7//1\n";
+
+    private GLFactory oldGLFactory;
+    private MaterialLightPool oldMaterialLightPool;
+    private MeshFactory oldMeshFactory;
+    private MeshOptimizer oldMeshOptimizer;
+    private RenderableConfigurationPool oldConfigPool;
+    private VertexWelder oldVertexWelder;
+
+    private String createCornerKey(float[] vertices, float[] normals, float[] texCoords, int texCoordSize,
+            int index) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            key.append(Round(vertices[index * 3 + i])).append(' ');
+        }
+        for (int i = 0; i < 3; i++) {
+            key.append(Round(normals[index * 3 + i])).append(' ');
+        }
+
+        // Segments without texture coordinates are the same as zeros
+        for (int i = 0; i < 3; i++) {
+            float texCoord = 0f;
+            if ((texCoords != null) && (i < texCoordSize)) {
+                texCoord = texCoords[index * texCoordSize + i];
+            }
+            key.append(Round(texCoord)).append(' ');
+        }
+        return key.toString();
+    }
+
+    private Map<String, List<String>> createTriangles(Mesh mesh) {
+        RenderableConfiguration config = Renderable.configPool.get(mesh.getRenderableConfigID());
+        Map<String, List<String>> objectNameToTriangles = new TreeMap<>();
+        int[] indexes = mesh.getIndexes();
+        int baseVertex = 0;
+
+        for (int i = 0; i < mesh.getTotalSegments(); i++) {
+            Segment segment = mesh.getSegment(i);
+            float[] normals = segment.getData(SegmentDataType.NORMAL);
+            float[] texCoords = segment.getData(SegmentDataType.TEX_COORD0);
+            float[] vertices = segment.getData(SegmentDataType.VERTEX);
+            assertNull(segment.getMaterial());
+
+            // Rotate each triangle so the smallest corner is first without changing the winding
+            List<String> triangles = new ArrayList<>();
+            for (int j = segment.getFirstIndex(); j < segment.getFirstIndex() + segment.getIndexCount(); j += 3) {
+                String[] corners = new String[3];
+                for (int k = 0; k < 3; k++) {
+                    corners[k] = createCornerKey(vertices, normals, texCoords, config.getTexCoordSize(),
+                            indexes[j + k] - baseVertex);
+                }
+                int first = 0;
+                for (int k = 1; k < 3; k++) {
+                    if (corners[k].compareTo(corners[first]) < 0) {
+                        first = k;
+                    }
+                }
+                triangles.add(corners[first] + "| " + corners[(first + 1) % 3] + "| " + corners[(first + 2) % 3]);
+            }
+            Collections.sort(triangles);
+            assertNull(objectNameToTriangles.put(segment.getName(), triangles));
+            baseVertex += segment.getElementCount();
+        }
+        return objectNameToTriangles;
+    }
+
+    private Mesh loadObjReader() throws IOException {
+        Mesh mesh = new Mesh();
+        ObjReader objReader = new ObjReader(new MaterialReader());
+        objReader.load(new ByteArrayInputStream(OBJ.getBytes(StandardCharsets.UTF_8)), "test.obj", mesh);
+        return mesh;
+    }
+
+    private Mesh loadStreamingObjReader(int chunkSize, int parallelThreshold) throws IOException {
+        Mesh mesh = new Mesh();
+        StreamingObjReader streamingObjReader = new StreamingObjReader(new MaterialReader());
+        streamingObjReader.setChunkSize(chunkSize);
+        streamingObjReader.setParallelThreshold(parallelThreshold);
+        streamingObjReader.load(ByteBuffer.wrap(OBJ.getBytes(StandardCharsets.UTF_8)), "test.obj", mesh);
+        return mesh;
+    }
+
+    private void assertParity(Mesh expected, Mesh actual) {
+        RenderableConfiguration expectedConfig = Renderable.configPool.get(expected.getRenderableConfigID());
+        RenderableConfiguration actualConfig = Renderable.configPool.get(actual.getRenderableConfigID());
+        assertEquals(3, expectedConfig.getTexCoordSize());
+        assertEquals(expectedConfig.getTexCoordSize(), actualConfig.getTexCoordSize());
+        assertEquals(expectedConfig.getVertexSize(), actualConfig.getVertexSize());
+
+        Map<String, List<String>> expectedTriangles = createTriangles(expected);
+        Map<String, List<String>> actualTriangles = createTriangles(actual);
+        assertEquals(3, actualTriangles.size());
+        assertEquals(5, actualTriangles.get("first").size());
+        assertEquals(5, actualTriangles.get("second").size());
+        assertEquals(1, actualTriangles.get("third").size());
+        assertEquals(expectedTriangles, actualTriangles);
+
+        // The object reader leaves the AABB alone so it is checked against the vertices
+        AABB aabb = new AABB();
+        aabb.setMax(-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+        aabb.setMin(Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+        for (int i = 0; i < expected.getTotalSegments(); i++) {
+            float[] vertices = expected.getSegment(i).getData(SegmentDataType.VERTEX);
+            for (int j = 0; j < vertices.length; j += 3) {
+                aabb.getMax().setMax(vertices[j], vertices[j + 1], vertices[j + 2]);
+                aabb.getMin().setMin(vertices[j], vertices[j + 1], vertices[j + 2]);
+            }
+        }
+        assertEquals(aabb, actual.getAabb());
+    }
+
+    @Before
+    public void setUp() {
+        oldConfigPool = Renderable.configPool;
+        oldGLFactory = GL.glFactory;
+        oldMaterialLightPool = Renderable.materialLightPool;
+        oldMeshFactory = GL.meshFactory;
+        oldMeshOptimizer = GL.meshOptimizer;
+        oldVertexWelder = GL.vertexWelder;
+        GL.glFactory = new StubGLFactory();
+        GL.meshFactory = new StubMeshFactory();
+        GL.meshOptimizer = new MeshOptimizer();
+        GL.vertexWelder = new VertexWelder();
+        Renderable.configPool = new RenderableConfigurationPool();
+        Renderable.materialLightPool = new MaterialLightPool();
+    }
+
+    @After
+    public void tearDown() {
+        GL.glFactory = oldGLFactory;
+        GL.meshFactory = oldMeshFactory;
+        GL.meshOptimizer = oldMeshOptimizer;
+        GL.vertexWelder = oldVertexWelder;
+        Renderable.configPool = oldConfigPool;
+        Renderable.materialLightPool = oldMaterialLightPool;
+    }
+
+    @Test
+    public void testManyChunks() throws IOException {
+        assertParity(loadObjReader(), loadStreamingObjReader(16, 0));
+    }
+
+    @Test
+    public void testOneChunk() throws IOException {
+        assertParity(loadObjReader(), loadStreamingObjReader(4 * 1024 * 1024, Integer.MAX_VALUE));
+    }
+
+    private static int Round(float value) {
+        return Math.round(value * 10000f);
+    }
+
+    private static class StubGLFactory extends GLFactory {
+
+        public StubGLFactory() {
+            super(null);
+        }
+
+        @Override
+        public MaterialLight createMaterialLight() {
+            return new MaterialLight();
+        }
+
+    }
+
+    private static class StubMeshFactory extends MeshFactory {
+
+        public StubMeshFactory() {
+            super(null);
+        }
+
+        @Override
+        public Mesh createMesh() {
+            return new Mesh();
+        }
+
+        @Override
+        public MeshMaterial createMeshMaterial() {
+            return new MeshMaterial();
+        }
+
+        @Override
+        public RenderableConfiguration createRenderableConfiguration() {
+            return new RenderableConfiguration();
+        }
+
+        @Override
+        public Segment createSegment() {
+            return new Segment();
+        }
+
+        @Override
+        public SegmentMaterial createSegmentMaterial() {
+            return new SegmentMaterial();
+        }
+
+        @Override
+        public Tessellator createTessellator() {
+            return new Tessellator();
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.math.Matrix3f;
+import net.smert.frameworkgl.math.Transform4f;
+import net.smert.frameworkgl.math.Vector3f;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
+import net.smert.frameworkgl.utils.Color;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class InstanceBatcherTest {
+
+    private final static float DELTA = 1e-5f;
+
+    private GameObject createGameObject(AbstractRenderable renderable, float x) {
+        GameObject gameObject = new GameObject();
+        gameObject.setRenderable(renderable);
+        gameObject.setWorldPosition(x, 0f, 0f);
+        return gameObject;
+    }
+
+    @Test
+    public void testBatchesAreReusedAfterClear() {
+        InstanceBatcher instanceBatcher = new InstanceBatcher();
+        TestRenderable renderable = new TestRenderable();
+        instanceBatcher.add(createGameObject(renderable, 0f));
+        InstanceBatch batch = instanceBatcher.getBatches().get(0);
+        instanceBatcher.clear();
+
+        assertTrue(instanceBatcher.getBatches().isEmpty());
+        assertEquals(0, batch.getInstanceCount());
+
+        instanceBatcher.add(createGameObject(renderable, 1f));
+        assertEquals(1, instanceBatcher.getBatches().size());
+        assertSame(batch, instanceBatcher.getBatches().get(0));
+        assertEquals(1, batch.getInstanceCount());
+    }
+
+    @Test
+    public void testDisabledAndCulledGameObjectsAreSkipped() {
+        InstanceBatcher instanceBatcher = new InstanceBatcher();
+        TestRenderable renderable = new TestRenderable();
+        GameObject disabled = createGameObject(renderable, 0f);
+        disabled.getRenderableState().setEnabled(false);
+        GameObject culled = createGameObject(renderable, 1f);
+        culled.getRenderableState().setInFrustum(false);
+
+        assertFalse(instanceBatcher.add(disabled));
+        assertFalse(instanceBatcher.add(culled, new Color(1f, 0f, 0f, 1f)));
+        assertTrue(instanceBatcher.add(createGameObject(renderable, 2f)));
+        assertEquals(1, instanceBatcher.getInstanceCount());
+    }
+
+    @Test
+    public void testGameObjectsAreGroupedByRenderable() {
+        InstanceBatcher instanceBatcher = new InstanceBatcher();
+        TestRenderable renderable0 = new TestRenderable();
+        TestRenderable renderable1 = new TestRenderable();
+        List<GameObject> gameObjects = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            gameObjects.add(createGameObject(((i % 3) == 0) ? renderable1 : renderable0, i));
+        }
+        instanceBatcher.addAll(gameObjects);
+
+        // Batches are in the order their renderable was first seen
+        List<InstanceBatch> batches = instanceBatcher.getBatches();
+        assertEquals(2, batches.size());
+        assertSame(renderable1, batches.get(0).getRenderable());
+        assertSame(renderable0, batches.get(1).getRenderable());
+        assertEquals(14, batches.get(0).getInstanceCount());
+        assertEquals(26, batches.get(1).getInstanceCount());
+        assertEquals(40, instanceBatcher.getInstanceCount());
+
+        // Instances keep the order they were added in
+        float[] instances = batches.get(1).getInstances();
+        assertEquals(1f, instances[3], DELTA);
+        assertEquals(2f, instances[InstanceBatch.INSTANCE_STRIDE + 3], DELTA);
+        assertEquals(4f, instances[InstanceBatch.INSTANCE_STRIDE * 2 + 3], DELTA);
+    }
+
+    @Test
+    public void testInstanceIsPacked() {
+        Matrix3f scale = new Matrix3f();
+        scale.setDiagonal(2f, 1f, .5f);
+        Transform4f transform = new Transform4f();
+        transform.getRotation().fromAxisAngle(new Vector3f(1f, 2f, 3f).normalize(), 40f).multiply(scale);
+        transform.setPosition(4f, 5f, 6f);
+
+        InstanceBatch batch = new InstanceBatch(new TestRenderable());
+        batch.add(new Transform4f(), 1f, 1f, 1f, 1f);
+        batch.add(transform, .1f, .2f, .3f, .4f);
+        float[] instances = batch.getInstances();
+        int offset = InstanceBatch.INSTANCE_STRIDE;
+        Matrix3f rotation = transform.getRotation();
+
+        // Model matrix rows
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                assertEquals(rotation.getElement(column, row),
+                        instances[offset + row * InstanceBatch.MODEL_ROW_SIZE + column], DELTA);
+            }
+        }
+        assertEquals(4f, instances[offset + 3], DELTA);
+        assertEquals(5f, instances[offset + 7], DELTA);
+        assertEquals(6f, instances[offset + 11], DELTA);
+
+        // Color
+        assertEquals(.1f, instances[offset + InstanceBatch.COLOR_OFFSET], DELTA);
+        assertEquals(.2f, instances[offset + InstanceBatch.COLOR_OFFSET + 1], DELTA);
+        assertEquals(.3f, instances[offset + InstanceBatch.COLOR_OFFSET + 2], DELTA);
+        assertEquals(.4f, instances[offset + InstanceBatch.COLOR_OFFSET + 3], DELTA);
+
+        // Normal matrix rows are the inverse transpose scaled by the absolute value of the determinant
+        Matrix3f inverse = new Matrix3f();
+        inverse.setInverse(rotation);
+        Matrix3f inverseTranspose = new Matrix3f();
+        inverseTranspose.setTranspose(inverse);
+        float determinant = Math.abs(rotation.getDeterminant());
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                assertEquals(inverseTranspose.getElement(column, row) * determinant,
+                        instances[offset + InstanceBatch.NORMAL_OFFSET + row * InstanceBatch.NORMAL_ROW_SIZE + column],
+                        DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testNormalMatrixKeepsNormalsFacingOutWhenMirrored() {
+        Transform4f transform = new Transform4f();
+        transform.getRotation().setDiagonal(-1f, 1f, 1f);
+
+        InstanceBatch batch = new InstanceBatch(new TestRenderable());
+        batch.add(transform, 1f, 1f, 1f, 1f);
+        float[] instances = batch.getInstances();
+
+        // A mirrored +X normal must point along -X like the mirrored surface
+        assertEquals(-1f, instances[InstanceBatch.NORMAL_OFFSET], DELTA);
+        assertEquals(1f, instances[InstanceBatch.NORMAL_OFFSET + 4], DELTA);
+        assertEquals(1f, instances[InstanceBatch.NORMAL_OFFSET + 8], DELTA);
+    }
+
+    @Test
+    public void testToFloatBufferWritesOnlyUsedInstances() {
+        InstanceBatch batch = new InstanceBatch(new TestRenderable());
+        for (int i = 0; i < 20; i++) {
+            batch.add(new Transform4f(), 1f, 1f, 1f, 1f);
+        }
+        assertEquals(20 * InstanceBatch.INSTANCE_STRIDE_BYTES, batch.getSizeInBytes());
+
+        FloatBuffer floatBuffer = FloatBuffer.allocate(batch.getInstances().length);
+        batch.toFloatBuffer(floatBuffer);
+        assertEquals(20 * InstanceBatch.INSTANCE_STRIDE, floatBuffer.position());
+    }
+
+    private static class TestRenderable extends AbstractRenderable {
+
+        @Override
+        public void create(Mesh mesh) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public void render() {
+        }
+
+    }
+
+}
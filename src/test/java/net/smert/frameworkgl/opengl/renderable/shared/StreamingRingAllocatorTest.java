@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderable.shared;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class StreamingRingAllocatorTest {
+
+    @Test
+    public void testAllocationsAreAligned() {
+        StreamingRingAllocator allocator = new StreamingRingAllocator(3, 256, 16);
+        allocator.beginFrame();
+
+        assertEquals(0, allocator.allocate(1));
+        assertEquals(16, allocator.allocate(17));
+        assertEquals(48, allocator.allocate(16));
+        assertEquals(64, allocator.getUsedBytes());
+        assertEquals(3, allocator.getAllocations());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(0, allocator.allocate(5) % 16);
+        }
+    }
+
+    @Test
+    public void testBeginFrameWrapsRegions() {
+        StreamingRingAllocator allocator = new StreamingRingAllocator(3, 256, 16);
+
+        assertEquals(0, allocator.beginFrame());
+        assertTrue(allocator.isWrapping());
+        assertEquals(0, allocator.allocate(100));
+        assertEquals(1, allocator.beginFrame());
+        assertFalse(allocator.isWrapping());
+        assertEquals(256, allocator.allocate(100));
+        assertEquals(2, allocator.beginFrame());
+        assertEquals(512, allocator.allocate(100));
+
+        // Back to the first region with the offset reset
+        assertEquals(0, allocator.beginFrame());
+        assertTrue(allocator.isWrapping());
+        assertEquals(0, allocator.getUsedBytes());
+        assertEquals(0, allocator.getAllocations());
+        assertEquals(0, allocator.allocate(100));
+        assertEquals(4, allocator.getFrame());
+        assertEquals(768, allocator.getCapacityBytes());
+    }
+
+    @Test
+    public void testNoSpace() {
+        StreamingRingAllocator allocator = new StreamingRingAllocator(2, 64, 16);
+        allocator.beginFrame();
+
+        assertEquals(StreamingRingAllocator.NO_SPACE, allocator.allocate(0));
+        assertEquals(StreamingRingAllocator.NO_SPACE, allocator.allocate(65));
+        assertEquals(0, allocator.allocate(40));
+        assertEquals(16, allocator.getFreeBytes());
+        assertEquals(StreamingRingAllocator.NO_SPACE, allocator.allocate(17));
+        assertEquals(48, allocator.allocate(16));
+        assertEquals(StreamingRingAllocator.NO_SPACE, allocator.allocate(1));
+
+        // A failed allocation doesn't use any space
+        assertEquals(2, allocator.getAllocations());
+        assertEquals(1, allocator.beginFrame());
+        assertEquals(64, allocator.allocate(64));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAllocateBeforeBeginFrame() {
+        StreamingRingAllocator allocator = new StreamingRingAllocator(3, 256, 16);
+        allocator.allocate(16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAlignmentMustBePowerOfTwo() {
+        new StreamingRingAllocator(3, 240, 24);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegionSizeMustBeMultipleOfAlignment() {
+        new StreamingRingAllocator(3, 100, 16);
+    }
+
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright 2012 Jason Sorensen (sorensenj@smert.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package net.smert.frameworkgl.opengl.renderer;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import net.smert.frameworkgl.gameobjects.GameObject;
+import net.smert.frameworkgl.opengl.GL;
+import net.smert.frameworkgl.opengl.OpenGL1;
+import net.smert.frameworkgl.opengl.Shader;
+import net.smert.frameworkgl.opengl.mesh.Mesh;
+import net.smert.frameworkgl.opengl.renderable.AbstractRenderable;
+import net.smert.frameworkgl.opengl.shader.AbstractShader;
+import net.smert.frameworkgl.opengl.shader.DefaultShaderUniforms;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jason Sorensen <sorensenj@smert.net>
+ */
+public class RenderQueueTest {
+
+    private OpenGL1 previousOpenGL1;
+    private RecordingOpenGL1 recordingOpenGL1;
+    private RenderQueue renderQueue;
+
+    @Before
+    public void setUp() {
+        previousOpenGL1 = GL.o1;
+        recordingOpenGL1 = new RecordingOpenGL1();
+        GL.o1 = recordingOpenGL1;
+        renderQueue = new RenderQueue();
+    }
+
+    @After
+    public void tearDown() {
+        GL.o1 = previousOpenGL1;
+    }
+
+    private GameObject createGameObject(int vaoID, float z, boolean opaque) {
+        GameObject gameObject = new GameObject();
+        gameObject.setRenderable(new TestRenderable(vaoID));
+        gameObject.setWorldPosition(0f, 0f, z);
+        gameObject.getRenderableState().setOpaque(opaque);
+        return gameObject;
+    }
+
+    @Test
+    public void testBlendIsSortedBackToFront() {
+        TestShader shader = new TestShader(1);
+        GameObject near = createGameObject(1, -2f, false);
+        GameObject middle = createGameObject(2, -5f, false);
+        GameObject far = createGameObject(1, -9f, false);
+        renderQueue.add(middle, shader);
+        renderQueue.add(near, shader);
+        renderQueue.add(far, shader);
+        renderQueue.sort();
+
+        // Depth comes before state for blended draws
+        assertSame(far, renderQueue.getGameObject(0));
+        assertSame(middle, renderQueue.getGameObject(1));
+        assertSame(near, renderQueue.getGameObject(2));
+    }
+
+    @Test
+    public void testKeysAreSortedAscending() {
+        Random random = new Random(42);
+        TestShader[] shaders = {new TestShader(3), new TestShader(7)};
+        for (int i = 0; i < 200; i++) {
+            renderQueue.add(createGameObject(random.nextInt(5) + 1, -random.nextFloat() * 100f, random.nextBoolean()),
+                    shaders[random.nextInt(shaders.length)]);
+        }
+        renderQueue.sort();
+
+        for (int i = 1; i < renderQueue.getSize(); i++) {
+            assertTrue(Long.compareUnsigned(renderQueue.getKey(i - 1), renderQueue.getKey(i)) <= 0);
+        }
+    }
+
+    @Test
+    public void testOpaqueIsSortedByStateThenFrontToBack() {
+        TestShader shader0 = new TestShader(1);
+        TestShader shader1 = new TestShader(2);
+        GameObject shader1Near = createGameObject(1, -1f, true);
+        GameObject shader0Far = createGameObject(1, -8f, true);
+        GameObject shader0Near = createGameObject(1, -3f, true);
+        GameObject shader0OtherVao = createGameObject(2, -1f, true);
+        renderQueue.add(shader1Near, shader1);
+        renderQueue.add(shader0OtherVao, shader0);
+        renderQueue.add(shader0Far, shader0);
+        renderQueue.add(shader0Near, shader0);
+        renderQueue.sort();
+
+        assertSame(shader0Near, renderQueue.getGameObject(0));
+        assertSame(shader0Far, renderQueue.getGameObject(1));
+        assertSame(shader0OtherVao, renderQueue.getGameObject(2));
+        assertSame(shader1Near, renderQueue.getGameObject(3));
+    }
+
+    @Test
+    public void testOpaqueIsSortedBeforeBlend() {
+        TestShader shader = new TestShader(1);
+        GameObject blend = createGameObject(1, -1f, false);
+        GameObject opaque = createGameObject(2, -9f, true);
+        renderQueue.add(blend, shader);
+        renderQueue.add(opaque, shader);
+        renderQueue.sort();
+
+        assertEquals(RenderQueue.PASS_OPAQUE, RenderQueue.GetPass(renderQueue.getKey(0)));
+        assertEquals(RenderQueue.PASS_BLEND, RenderQueue.GetPass(renderQueue.getKey(1)));
+        assertSame(opaque, renderQueue.getGameObject(0));
+        assertSame(blend, renderQueue.getGameObject(1));
+    }
+
+    @Test
+    public void testRenderBindsEachStateOnce() {
+        Random random = new Random(7);
+        TestShader[] shaders = {new TestShader(1), new TestShader(2)};
+        List<GameObject> gameObjects = new ArrayList<>();
+        List<AbstractShader> gameObjectShaders = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            gameObjects.add(createGameObject((i % 3) + 1, -random.nextFloat() * 50f, true));
+            gameObjectShaders.add(shaders[(i / 3) % 2]);
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < gameObjects.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+        for (int i : order) {
+            renderQueue.add(gameObjects.get(i), gameObjectShaders.get(i));
+        }
+        renderQueue.add(createGameObject(1, -4f, false), shaders[0]);
+        renderQueue.add(createGameObject(2, -6f, false), shaders[0]);
+        renderQueue.sort();
+
+        RecordingRenderer recordingRenderer = new RecordingRenderer();
+        renderQueue.render(recordingRenderer.createGLRenderer());
+
+        // Two shaders with three VAOs each for the opaque pass then one shader and two VAOs for the blend pass
+        assertEquals(122, recordingRenderer.renders);
+        assertEquals(3, recordingRenderer.shaderBinds);
+        assertEquals(8, recordingRenderer.vaoBinds);
+        assertEquals(1, recordingOpenGL1.enableBlendingCalls);
+        assertEquals(1, recordingOpenGL1.disableBlendingCalls);
+    }
+
+    @Test
+    public void testRenderWithoutBlendDoesNotChangeBlending() {
+        TestShader shader = new TestShader(1);
+        renderQueue.add(createGameObject(1, -1f, true), shader);
+        renderQueue.sort();
+
+        RecordingRenderer recordingRenderer = new RecordingRenderer();
+        renderQueue.render(recordingRenderer.createGLRenderer());
+
+        assertEquals(1, recordingRenderer.renders);
+        assertEquals(0, recordingOpenGL1.enableBlendingCalls);
+        assertEquals(0, recordingOpenGL1.disableBlendingCalls);
+    }
+
+    private static class RecordingOpenGL1 extends OpenGL1 {
+
+        private int disableBlendingCalls;
+        private int enableBlendingCalls;
+
+        @Override
+        public OpenGL1 disableBlending() {
+            disableBlendingCalls++;
+            return this;
+        }
+
+        @Override
+        public OpenGL1 enableBlending() {
+            enableBlendingCalls++;
+            return this;
+        }
+
+    }
+
+    private static class RecordingRenderer {
+
+        private int currentVaoID;
+        private int renders;
+        private int shaderBinds;
+        private int vaoBinds;
+        private AbstractShader currentShader;
+
+        private GLRenderer createGLRenderer() {
+            return (GLRenderer) Proxy.newProxyInstance(GLRenderer.class.getClassLoader(),
+                    new Class<?>[]{GLRenderer.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "render":
+                                render((GameObject) args[0]);
+                                break;
+                            case "switchShader":
+                                switchShader((AbstractShader) args[0]);
+                                break;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                        return null;
+                    });
+        }
+
+        private void render(GameObject gameObject) {
+
+            // A VAO is bound again after a shader switch like a renderer with a state cache would
+            int vaoID = gameObject.getRenderable().getVaoID();
+            if (vaoID != currentVaoID) {
+                currentVaoID = vaoID;
+                vaoBinds++;
+            }
+            renders++;
+        }
+
+        private void switchShader(AbstractShader shader) {
+            if (shader != currentShader) {
+                currentShader = shader;
+                currentVaoID = 0;
+                shaderBinds++;
+            }
+        }
+
+    }
+
+    private static class TestRenderable extends AbstractRenderable {
+
+        private final int vaoID;
+
+        private TestRenderable(int vaoID) {
+            this.vaoID = vaoID;
+        }
+
+        @Override
+        public void create(Mesh mesh) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public int getVaoID() {
+            return vaoID;
+        }
+
+        @Override
+        public void render() {
+        }
+
+    }
+
+    private static class TestShader extends AbstractShader {
+
+        private TestShader(final int programID) {
+            super(new DefaultShaderUniforms(programID), new Shader() {
+
+                @Override
+                public int getProgramID() {
+                    return programID;
+                }
+
+            });
+        }
+
+    }
+
+}